@@ -0,0 +1,93 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.common;
+
+import java.time.Instant;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Activation of a configuration uploaded ahead of time to the OCSP responder or the TSL provider.
+ * The simulator activates the configuration by itself at the given instant, or after it answered
+ * the next request for the given TSL sequence number (a TSL download, or an OCSP request), whatever
+ * comes first.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ConfigActivation {
+
+  /** activate immediately, this is the behaviour without activation */
+  public static final ConfigActivation IMMEDIATE = new ConfigActivation(null, null);
+
+  private final Instant activateAt;
+  private final Integer activateAfterTslSeqNr;
+
+  /**
+   * @param activateAt activation instant, null for none
+   * @param activateAfterTslSeqNr TSL sequence number of the triggering request, null for none
+   * @return the activation, {@link #IMMEDIATE} if both are null
+   */
+  public static ConfigActivation of(final Instant activateAt, final Integer activateAfterTslSeqNr) {
+    return ((activateAt == null) && (activateAfterTslSeqNr == null))
+        ? IMMEDIATE
+        : new ConfigActivation(activateAt, activateAfterTslSeqNr);
+  }
+
+  public static ConfigActivation at(final Instant activateAt) {
+    return new ConfigActivation(activateAt, null);
+  }
+
+  public static ConfigActivation afterRequestForTslSeqNr(final int tslSeqNr) {
+    return new ConfigActivation(null, tslSeqNr);
+  }
+
+  public boolean isImmediate() {
+    return (activateAt == null) && (activateAfterTslSeqNr == null);
+  }
+
+  /**
+   * @param endpointUri URI of the config endpoint, with or without query
+   * @return endpointUri with the query parameters of this activation
+   */
+  public String appendTo(final String endpointUri) {
+    final StringBuilder uri = new StringBuilder(endpointUri);
+    if (activateAt != null) {
+      appendParameter(uri, PkitsConstants.CONFIG_ACTIVATE_AT_PARAMETER, activateAt.toEpochMilli());
+    }
+    if (activateAfterTslSeqNr != null) {
+      appendParameter(
+          uri, PkitsConstants.CONFIG_ACTIVATE_AFTER_TSL_SEQNR_PARAMETER, activateAfterTslSeqNr);
+    }
+    return uri.toString();
+  }
+
+  private static void appendParameter(
+      final StringBuilder uri, final String name, final Object value) {
+    uri.append((uri.indexOf("?") < 0) ? '?' : '&').append(name).append('=').append(value);
+  }
+
+  @Override
+  public String toString() {
+    return "ConfigActivation{activateAt=%s, activateAfterTslSeqNr=%s}"
+        .formatted(activateAt, activateAfterTslSeqNr);
+  }
+}
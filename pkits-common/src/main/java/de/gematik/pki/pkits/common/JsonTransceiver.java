@@ -40,7 +40,15 @@ public final class JsonTransceiver {
     return new PkiCommonException("Generation of request failed.", e);
   }
 
-  public static void sendJsonViaHttp(
+  /**
+   * Sends JSON
+   *
+   * @param uri Receiver
+   * @param jsonContent request body (JSON)
+   * @param successOnly throw an exception if the receiver does not answer with 200
+   * @return HTTP status of the response
+   */
+  public static int sendJsonViaHttp(
       final String uri, final String jsonContent, final boolean successOnly) {
     try {
 
@@ -53,6 +61,7 @@ public final class JsonTransceiver {
       if (successOnly && (response.getStatus() != HttpStatus.SC_OK)) {
         throw sendFailed(response.getStatus());
       }
+      return response.getStatus();
     } catch (final UnirestException e) {
       throw generationFailed(e);
     }
@@ -71,6 +80,24 @@ public final class JsonTransceiver {
     }
   }
 
+  /**
+   * Receives binary content
+   *
+   * @param uri Sender
+   * @return response body
+   */
+  public static byte[] getBytesViaHttp(final String uri) {
+    try {
+      final HttpResponse<byte[]> response = Unirest.get(uri).asBytes();
+      if (response.getStatus() != HttpStatus.SC_OK) {
+        throw sendFailed(response.getStatus());
+      }
+      return response.getBody();
+    } catch (final UnirestException e) {
+      throw generationFailed(e);
+    }
+  }
+
   public static void sendJsonViaHttp(final String uri, final String jsonContent) {
     sendJsonViaHttp(uri, jsonContent, true);
   }
@@ -30,14 +30,22 @@ public final class PkitsConstants {
   public static final String OCSP_WEBSERVER_CONFIG_ENDPOINT = "/config";
   public static final String TSL_WEBSERVER_CONFIG_ENDPOINT = OCSP_WEBSERVER_CONFIG_ENDPOINT;
 
+  public static final String OCSP_WEBSERVER_CONFIG_CERTIFICATES_ENDPOINT = "/config/certificates";
+  public static final String CONFIG_ACTIVATE_AT_PARAMETER = "activateAt";
+  public static final String CONFIG_ACTIVATE_AFTER_TSL_SEQNR_PARAMETER = "activateAfterTslSeqNr";
   public static final String OCSP_WEBSERVER_CLEAR_ENDPOINT = "/clear";
   public static final String TSL_WEBSERVER_CLEAR_ENDPOINT = OCSP_WEBSERVER_CLEAR_ENDPOINT;
   public static final String OCSP_WEBSERVER_INFO_ENDPOINT = "/info";
   public static final String TSL_WEBSERVER_INFO_ENDPOINT = OCSP_WEBSERVER_INFO_ENDPOINT;
+  public static final String OCSP_WEBSERVER_INFO_WAIT_ENDPOINT = "/info/wait";
+  public static final String OCSP_WEBSERVER_INFO_REQUEST_ENDPOINT = "/info/request";
+  public static final String OCSP_WEBSERVER_INFO_JOURNAL_ENDPOINT = "/info/journal";
 
   public static final String WEBSERVER_HEALTH_ENDPOINT = "/actuator/health";
 
   public static final String OCSP_SSP_ENDPOINT = "/ocsp";
+  public static final String OCSP_TENANT_PARAMETER = "tenant";
+  public static final String OCSP_DEFAULT_TENANT = "default";
   public static final String TSL_XML_PRIMARY_ENDPOINT = "/tsl/tsl.xml";
   public static final String TSL_HASH_PRIMARY_ENDPOINT = "/tsl/tsl.sha2";
   public static final String TSL_XML_BACKUP_ENDPOINT = "/tsl-backup/tsl.xml";
@@ -0,0 +1,52 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class ConfigActivationTest {
+
+  @Test
+  void immediateActivationAddsNoParameters() {
+    assertThat(ConfigActivation.of(null, null)).isSameAs(ConfigActivation.IMMEDIATE);
+    assertThat(ConfigActivation.IMMEDIATE.isImmediate()).isTrue();
+    assertThat(ConfigActivation.IMMEDIATE.appendTo("http://localhost/config"))
+        .isEqualTo("http://localhost/config");
+  }
+
+  @Test
+  void parametersAreAppended() {
+    assertThat(ConfigActivation.at(Instant.ofEpochMilli(1234)).appendTo("http://localhost/config"))
+        .isEqualTo("http://localhost/config?activateAt=1234");
+    assertThat(
+            ConfigActivation.afterRequestForTslSeqNr(42)
+                .appendTo("http://localhost/config?tenant=a"))
+        .isEqualTo("http://localhost/config?tenant=a&activateAfterTslSeqNr=42");
+
+    final ConfigActivation configActivation = ConfigActivation.of(Instant.ofEpochMilli(5), 7);
+    assertThat(configActivation.isImmediate()).isFalse();
+    assertThat(configActivation.appendTo("/config"))
+        .isEqualTo("/config?activateAt=5&activateAfterTslSeqNr=7");
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.gemlibpki.ocsp.OcspRequestGenerator;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import java.math.BigInteger;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Immutable lookup structure for the {@link CertificateDto}s of an OCSP responder configuration.
+ * Entries are indexed by certificate serial number and by CertID (hash algorithm, issuerNameHash,
+ * issuerKeyHash and serial number) for every hash algorithm supported in OCSP requests. In case of
+ * duplicates the first configured entry wins.
+ */
+public final class CertificateDtoIndex {
+
+  public static final CertificateDtoIndex EMPTY = new CertificateDtoIndex(List.of());
+
+  static final List<AlgorithmIdentifier> CERT_ID_HASH_ALGORITHMS =
+      List.of(
+          new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1, DERNull.INSTANCE),
+          new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256));
+
+  private final Map<BigInteger, CertificateDto> bySerialNr;
+  private final Map<CertIdKey, CertificateDto> byCertId;
+
+  public CertificateDtoIndex(final List<CertificateDto> certificateDtos) {
+
+    final Map<BigInteger, CertificateDto> serialNrMap = new HashMap<>();
+    final Map<CertIdKey, CertificateDto> certIdMap = new HashMap<>();
+
+    for (final CertificateDto certificateDto : certificateDtos) {
+      addToMaps(certificateDto, serialNrMap, certIdMap);
+    }
+
+    this.bySerialNr = Collections.unmodifiableMap(serialNrMap);
+    this.byCertId = Collections.unmodifiableMap(certIdMap);
+  }
+
+  private CertificateDtoIndex(
+      final Map<BigInteger, CertificateDto> serialNrMap,
+      final Map<CertIdKey, CertificateDto> certIdMap) {
+    this.bySerialNr = Collections.unmodifiableMap(serialNrMap);
+    this.byCertId = Collections.unmodifiableMap(certIdMap);
+  }
+
+  /**
+   * Copies the index without rebuilding the CertIDs of the other entries.
+   *
+   * @param certificateDto entry to add
+   * @return a new index, in which certificateDto replaces the entries with its serial number and
+   *     issuer
+   */
+  public CertificateDtoIndex withCertificateDto(final CertificateDto certificateDto) {
+    final BigInteger certSerialNr = certificateDto.getEeCert().getSerialNumber();
+    final Map<BigInteger, CertificateDto> serialNrMap = new HashMap<>(bySerialNr);
+    final Map<CertIdKey, CertificateDto> certIdMap = new HashMap<>(byCertId);
+
+    removeFromMaps(certSerialNr, certificateDto.getIssuerCert(), serialNrMap, certIdMap);
+    addToMaps(certificateDto, serialNrMap, certIdMap);
+
+    return new CertificateDtoIndex(serialNrMap, certIdMap);
+  }
+
+  /**
+   * @param certSerialNr serial number of the entries to remove
+   * @param issuerCert issuer of the entries to remove
+   * @return a new index without the entries with the serial number and issuer
+   */
+  public CertificateDtoIndex withoutCertificate(
+      final BigInteger certSerialNr, final X509Certificate issuerCert) {
+    final Map<BigInteger, CertificateDto> serialNrMap = new HashMap<>(bySerialNr);
+    final Map<CertIdKey, CertificateDto> certIdMap = new HashMap<>(byCertId);
+
+    removeFromMaps(certSerialNr, issuerCert, serialNrMap, certIdMap);
+
+    return new CertificateDtoIndex(serialNrMap, certIdMap);
+  }
+
+  /**
+   * @param certSerialNr serial number of the entries to remove
+   * @return a new index without the entries with the serial number
+   */
+  public CertificateDtoIndex withoutSerialNr(final BigInteger certSerialNr) {
+    final Map<BigInteger, CertificateDto> serialNrMap = new HashMap<>(bySerialNr);
+    final Map<CertIdKey, CertificateDto> certIdMap = new HashMap<>(byCertId);
+
+    serialNrMap.remove(certSerialNr);
+    certIdMap.keySet().removeIf(certIdKey -> certIdKey.certSerialNr.equals(certSerialNr));
+
+    return new CertificateDtoIndex(serialNrMap, certIdMap);
+  }
+
+  private static void addToMaps(
+      final CertificateDto certificateDto,
+      final Map<BigInteger, CertificateDto> serialNrMap,
+      final Map<CertIdKey, CertificateDto> certIdMap) {
+
+    final BigInteger certSerialNr = certificateDto.getEeCert().getSerialNumber();
+    serialNrMap.putIfAbsent(certSerialNr, certificateDto);
+
+    for (final CertIdKey certIdKey :
+        createCertIdKeys(certSerialNr, certificateDto.getIssuerCert())) {
+      certIdMap.putIfAbsent(certIdKey, certificateDto);
+    }
+  }
+
+  /**
+   * Removes the entries with the serial number and issuer. If the entry for the serial number is
+   * removed, an entry with the serial number of another issuer takes its place.
+   */
+  private static void removeFromMaps(
+      final BigInteger certSerialNr,
+      final X509Certificate issuerCert,
+      final Map<BigInteger, CertificateDto> serialNrMap,
+      final Map<CertIdKey, CertificateDto> certIdMap) {
+
+    createCertIdKeys(certSerialNr, issuerCert).forEach(certIdMap::remove);
+
+    final CertificateDto serialNrEntry = serialNrMap.get(certSerialNr);
+    if ((serialNrEntry != null) && hasCertificate(serialNrEntry, certSerialNr, issuerCert)) {
+      serialNrMap.remove(certSerialNr);
+      certIdMap.values().stream()
+          .filter(dto -> dto.getEeCert().getSerialNumber().equals(certSerialNr))
+          .findFirst()
+          .ifPresent(dto -> serialNrMap.put(certSerialNr, dto));
+    }
+  }
+
+  private static List<CertIdKey> createCertIdKeys(
+      final BigInteger certSerialNr, final X509Certificate issuerCert) {
+    if (issuerCert == null) {
+      return List.of();
+    }
+    return CERT_ID_HASH_ALGORITHMS.stream()
+        .map(
+            hashAlgorithm ->
+                CertIdKey.of(
+                    OcspRequestGenerator.createCertificateId(
+                        certSerialNr, issuerCert, hashAlgorithm)))
+        .toList();
+  }
+
+  /**
+   * @param certificateDto configured entry
+   * @param certSerialNr certificate serial number
+   * @param issuerCert issuer certificate
+   * @return true if the entry has the serial number and an issuer with the same name and key, i.e.
+   *     if the entry has the same CertIDs
+   */
+  public static boolean hasCertificate(
+      final CertificateDto certificateDto,
+      final BigInteger certSerialNr,
+      final X509Certificate issuerCert) {
+    final X509Certificate configuredIssuerCert = certificateDto.getIssuerCert();
+    return certificateDto.getEeCert().getSerialNumber().equals(certSerialNr)
+        && (configuredIssuerCert != null)
+        && configuredIssuerCert
+            .getSubjectX500Principal()
+            .equals(issuerCert.getSubjectX500Principal())
+        && Arrays.equals(
+            configuredIssuerCert.getPublicKey().getEncoded(),
+            issuerCert.getPublicKey().getEncoded());
+  }
+
+  public Optional<CertificateDto> getBySerialNr(final BigInteger certSerialNr) {
+    return Optional.ofNullable(bySerialNr.get(certSerialNr));
+  }
+
+  /**
+   * @param certId CertID of a single request
+   * @return the entry matching the CertID, or - only if no configured entry has an issuer - the
+   *     first entry with the serial number of the CertID. A certificate with a configured serial
+   *     number, but of another issuer, is not found.
+   */
+  public Optional<CertificateDto> getByCertId(final CertificateID certId) {
+    final CertificateDto certificateDto = byCertId.get(CertIdKey.of(certId));
+    if (certificateDto != null) {
+      return Optional.of(certificateDto);
+    }
+    if (!byCertId.isEmpty()) {
+      return Optional.empty();
+    }
+    return getBySerialNr(certId.getSerialNumber());
+  }
+
+  public int size() {
+    return bySerialNr.size();
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class CertIdKey {
+
+    private final String hashAlgorithmOid;
+    private final String issuerNameHashHex;
+    private final String issuerKeyHashHex;
+    private final BigInteger certSerialNr;
+
+    private static CertIdKey of(final CertificateID certId) {
+      return new CertIdKey(
+          certId.getHashAlgOID().getId(),
+          Hex.toHexString(certId.getIssuerNameHash()),
+          Hex.toHexString(certId.getIssuerKeyHash()),
+          certId.getSerialNumber());
+    }
+  }
+}
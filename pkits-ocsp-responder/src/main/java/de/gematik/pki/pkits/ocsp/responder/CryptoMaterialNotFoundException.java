@@ -0,0 +1,39 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import java.io.Serial;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A configuration references material by hash, that is not in the {@link CryptoMaterialRegistry}.
+ * Answered with 409, so that the client uploads the material inline.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CryptoMaterialNotFoundException extends OcspResponderException {
+
+  @Serial private static final long serialVersionUID = 3120468311474931532L;
+
+  public CryptoMaterialNotFoundException(final String materialType, final String sha256) {
+    super("%s with SHA-256 %s is not registered".formatted(materialType, sha256));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.gemlibpki.utils.CertReader;
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed store of parsed certificates and private keys. Material is keyed by the SHA-256
+ * of its DER encoding, so that configurations can reference material uploaded before by hash, and
+ * repeated inline uploads of the same material are parsed only once. The registry is not cleared
+ * with the configuration: the material of a test environment is small and reused all the time.
+ */
+@Slf4j
+@Component
+public class CryptoMaterialRegistry {
+
+  private final Map<String, X509Certificate> certificates = new ConcurrentHashMap<>();
+  private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
+
+  public static String sha256Hex(final byte[] derBytes) {
+    return Hex.toHexString(GemLibPkiUtils.calculateSha256(derBytes));
+  }
+
+  /**
+   * @param certificateEncoded base64 encoded DER of the certificate
+   * @return the parsed certificate, from the registry if it was registered before
+   */
+  public X509Certificate registerCertificate(final String certificateEncoded) {
+    final byte[] derBytes = GemLibPkiUtils.decodeFromMimeBase64(certificateEncoded);
+    return certificates.computeIfAbsent(
+        sha256Hex(derBytes), sha256 -> CertReader.readX509(derBytes));
+  }
+
+  /**
+   * @param privateKeyEncoded base64 encoded PKCS#8 DER of the private key
+   * @return the parsed private key, from the registry if it was registered before
+   */
+  public PrivateKey registerPrivateKey(final String privateKeyEncoded) {
+    final byte[] derBytes = GemLibPkiUtils.decodeFromMimeBase64(privateKeyEncoded);
+    return privateKeys.computeIfAbsent(
+        sha256Hex(derBytes), sha256 -> GemLibPkiUtils.convertPrivateKey(privateKeyEncoded));
+  }
+
+  public X509Certificate getCertificate(final String sha256) {
+    final X509Certificate certificate = certificates.get(sha256);
+    if (certificate == null) {
+      throw new CryptoMaterialNotFoundException("certificate", sha256);
+    }
+    return certificate;
+  }
+
+  public PrivateKey getPrivateKey(final String sha256) {
+    final PrivateKey privateKey = privateKeys.get(sha256);
+    if (privateKey == null) {
+      throw new CryptoMaterialNotFoundException("private key", sha256);
+    }
+    return privateKey;
+  }
+
+  public void clear() {
+    certificates.clear();
+    privateKeys.clear();
+    log.debug("Crypto material registry cleared.");
+  }
+
+  public int size() {
+    return certificates.size() + privateKeys.size();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Completes delayed responses from one shared scheduler thread, so that pending delays do not block
+ * servlet worker threads. Responses that are still being built are passed as future and completed
+ * when they are ready.
+ */
+@Slf4j
+@Component
+public class DelayedResponseScheduler {
+
+  /** added to the delay for the async request timeout of the servlet container */
+  static final long TIMEOUT_MARGIN_MILLISECONDS = 60 * 1000L;
+
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            final Thread thread = new Thread(runnable, "ocsp-response-delay");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  public static <T> DeferredResult<T> completed(final T result) {
+    final DeferredResult<T> deferredResult = new DeferredResult<>();
+    deferredResult.setResult(result);
+    return deferredResult;
+  }
+
+  public <T> DeferredResult<T> schedule(final T result, final long delayMilliseconds) {
+    return schedule(CompletableFuture.completedFuture(result), delayMilliseconds);
+  }
+
+  /**
+   * @param resultFuture the result, once it is ready
+   * @param delayMilliseconds delay after the result is ready, 0 for none
+   * @return the deferred result, an exception of resultFuture is set as error result
+   */
+  public <T> DeferredResult<T> schedule(
+      final CompletableFuture<T> resultFuture, final long delayMilliseconds) {
+    final DeferredResult<T> deferredResult =
+        new DeferredResult<>(delayMilliseconds + TIMEOUT_MARGIN_MILLISECONDS);
+
+    resultFuture.whenComplete(
+        (result, throwable) -> {
+          if (throwable != null) {
+            deferredResult.setErrorResult(OcspResponseSingleFlight.unwrap(throwable));
+          } else if (delayMilliseconds <= 0) {
+            deferredResult.setResult(result);
+          } else {
+            final ScheduledFuture<?> scheduledFuture =
+                scheduler.schedule(
+                    () -> deferredResult.setResult(result),
+                    delayMilliseconds,
+                    TimeUnit.MILLISECONDS);
+            deferredResult.onTimeout(() -> scheduledFuture.cancel(false));
+            deferredResult.onError(error -> scheduledFuture.cancel(false));
+          }
+        });
+    return deferredResult;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    log.debug("Shutting down scheduler for delayed responses.");
+    scheduler.shutdownNow();
+  }
+}
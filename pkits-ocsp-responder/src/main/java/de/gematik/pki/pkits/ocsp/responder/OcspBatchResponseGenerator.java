@@ -0,0 +1,297 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.CertificateIdGeneration;
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.ResponderIdType;
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.ResponseAlgoBehavior;
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import de.gematik.pki.gemlibpki.utils.P12Container;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import eu.europa.esig.dss.spi.x509.revocation.ocsp.OCSPRespStatus;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.isismtt.ocsp.CertHash;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.ocsp.BasicOCSPResponse;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.ocsp.OCSPResponse;
+import org.bouncycastle.asn1.ocsp.OCSPResponseStatus;
+import org.bouncycastle.asn1.ocsp.ResponderID;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.RFC4519Style;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.internal.asn1.isismtt.ISISMTTObjectIdentifiers;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.bc.BcDigestCalculatorProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+/**
+ * Generates one signed BasicOCSPResp with one SingleResp per CertID of an OCSP request with several
+ * requests. The gemLibPki OcspResponseGenerator answers all requests with the status of one
+ * certificate, so it is only used for requests with one CertID.
+ *
+ * <p>The signer, responder id, response status, producedAt and the signature validity are taken
+ * from the configuration of the first CertID. Certificate status, thisUpdate, nextUpdate and the
+ * CertHash extension are set per SingleResp from the configuration of the respective CertID. The
+ * signature algorithm is chosen by the key algorithm of the signer, as in gemLibPki.
+ *
+ * <p>The CertIDs are mirrored from the request. Configurations that change the CertID of the
+ * response (certificateIdGeneration, responseAlgoBehavior other than MIRRORING,
+ * withNullParameterHashAlgoOfCertId) are rejected, because they cannot be applied to a response for
+ * several CertIDs.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class OcspBatchResponseGenerator {
+
+  /**
+   * @param ocspReq OCSP request with one or more CertIDs
+   * @param certificateDtos configuration for every request of ocspReq, in the same order
+   * @return the OCSP response
+   */
+  public static OCSPResp generate(
+      final OCSPReq ocspReq, final List<CertificateDto> certificateDtos) {
+
+    final Req[] requests = ocspReq.getRequestList();
+    if (requests.length != certificateDtos.size()) {
+      throw new OcspResponderException(
+          "Number of requests %d does not match number of certificate configurations %d"
+              .formatted(requests.length, certificateDtos.size()));
+    }
+
+    certificateDtos.forEach(OcspBatchResponseGenerator::checkCertIdSettingsSupported);
+
+    final CertificateDto responseDto = certificateDtos.get(0);
+    final ZonedDateTime now = GemLibPkiUtils.now();
+
+    try {
+      final P12Container signer = responseDto.getSigner();
+      final BasicOCSPRespBuilder basicOcspRespBuilder =
+          new BasicOCSPRespBuilder(createRespId(signer, responseDto.getResponderIdType()));
+
+      final Extension nonceExtension =
+          ocspReq.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce);
+      if (nonceExtension != null) {
+        basicOcspRespBuilder.setResponseExtensions(new Extensions(nonceExtension));
+      }
+
+      for (int i = 0; i < requests.length; ++i) {
+        addSingleResponse(basicOcspRespBuilder, requests[i], certificateDtos.get(i), now);
+      }
+
+      BasicOCSPResp basicOcspResp =
+          basicOcspRespBuilder.build(
+              createContentSigner(signer),
+              buildCertificateChain(signer.getCertificate(), responseDto.getSignerCaCert()),
+              Date.from(
+                  now.plus(responseDto.getProducedAtDeltaMilliseconds(), ChronoUnit.MILLIS)
+                      .toInstant()));
+
+      if (!responseDto.isValidSignature()) {
+        log.warn("OCSP response signature invalid because of configuration: validSignature.");
+        basicOcspResp = invalidateSignature(basicOcspResp);
+      }
+
+      return createOcspResp(
+          responseDto.getRespStatus(), responseDto.isWithResponseBytes(), basicOcspResp);
+
+    } catch (final IOException | OperatorCreationException | OCSPException e) {
+      throw new OcspResponderException("Could not create OcspResponse for several requests.", e);
+    }
+  }
+
+  private static void checkCertIdSettingsSupported(final CertificateDto certificateDto) {
+    if ((certificateDto.getCertificateIdGeneration() != CertificateIdGeneration.VALID_CERTID)
+        || (certificateDto.getResponseAlgoBehavior() != ResponseAlgoBehavior.MIRRORING)
+        || certificateDto.isWithNullParameterHashAlgoOfCertId()) {
+      throw new OcspResponderException(
+          ("CertID settings of certSerialNr %s are not supported for requests with several"
+                  + " CertIDs: certificateIdGeneration=%s, responseAlgoBehavior=%s,"
+                  + " withNullParameterHashAlgoOfCertId=%s")
+              .formatted(
+                  certificateDto.getEeCert().getSerialNumber(),
+                  certificateDto.getCertificateIdGeneration(),
+                  certificateDto.getResponseAlgoBehavior(),
+                  certificateDto.isWithNullParameterHashAlgoOfCertId()));
+    }
+  }
+
+  private static void addSingleResponse(
+      final BasicOCSPRespBuilder basicOcspRespBuilder,
+      final Req request,
+      final CertificateDto certificateDto,
+      final ZonedDateTime now)
+      throws IOException {
+
+    final CertificateStatus certificateStatus = certificateDto.getOcspCertificateStatus();
+
+    Date nextUpdate = null;
+    if (certificateDto.getNextUpdateDeltaMilliseconds() != null) {
+      nextUpdate =
+          Date.from(
+              now.plus(certificateDto.getNextUpdateDeltaMilliseconds(), ChronoUnit.MILLIS)
+                  .toInstant());
+    }
+
+    Extensions singleExtensions = null;
+    if (certificateDto.isWithCertHash() && !(certificateStatus instanceof UnknownStatus)) {
+      singleExtensions =
+          new Extensions(createCertHashExtension(certificateDto.getEeCert(), certificateDto));
+    }
+
+    basicOcspRespBuilder.addResponse(
+        request.getCertID(),
+        certificateStatus,
+        Date.from(
+            now.plus(certificateDto.getThisUpdateDeltaMilliseconds(), ChronoUnit.MILLIS)
+                .toInstant()),
+        nextUpdate,
+        singleExtensions);
+  }
+
+  private static Extension createCertHashExtension(
+      final X509Certificate eeCert, final CertificateDto certificateDto) throws IOException {
+
+    final byte[] certHashValue;
+    if (certificateDto.isValidCertHash()) {
+      certHashValue = GemLibPkiUtils.calculateSha256(GemLibPkiUtils.certToBytes(eeCert));
+    } else {
+      log.warn("Invalid CertHash is generated because of configuration: validCertHash.");
+      certHashValue =
+          GemLibPkiUtils.calculateSha256("notAValidCertHash".getBytes(StandardCharsets.UTF_8));
+    }
+
+    final CertHash certHash =
+        new CertHash(new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256), certHashValue);
+    return new Extension(
+        ISISMTTObjectIdentifiers.id_isismtt_at_certHash, false, certHash.getEncoded());
+  }
+
+  private static RespID createRespId(
+      final P12Container signer, final ResponderIdType responderIdType)
+      throws OperatorCreationException, OCSPException {
+
+    final X509Certificate signerCert = signer.getCertificate();
+    if (responderIdType == ResponderIdType.BY_NAME) {
+      return new RespID(
+          new ResponderID(
+              new X500Name(RFC4519Style.INSTANCE, signerCert.getSubjectX500Principal().getName())));
+    }
+
+    return new RespID(
+        SubjectPublicKeyInfo.getInstance(signerCert.getPublicKey().getEncoded()),
+        new BcDigestCalculatorProvider()
+            .get(new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1, DERNull.INSTANCE)));
+  }
+
+  private static ContentSigner createContentSigner(final P12Container signer)
+      throws OperatorCreationException {
+
+    final String keyAlgorithm = signer.getPrivateKey().getAlgorithm();
+    final String signatureAlgorithm =
+        switch (keyAlgorithm) {
+          case "RSA" -> "SHA256withRSA";
+          case "EC" -> "SHA256WITHECDSA";
+          default -> throw new OcspResponderException(
+              "Signature algorithm not supported for key algorithm " + keyAlgorithm);
+        };
+    return new JcaContentSignerBuilder(signatureAlgorithm)
+        .setProvider(BouncyCastleProvider.PROVIDER_NAME)
+        .build(signer.getPrivateKey());
+  }
+
+  private static X509CertificateHolder[] buildCertificateChain(
+      final X509Certificate signerCert, final X509Certificate signerCaCert) {
+
+    return Stream.of(signerCert, signerCaCert)
+        .filter(Objects::nonNull)
+        .map(
+            cert -> {
+              try {
+                return new JcaX509CertificateHolder(cert);
+              } catch (final CertificateEncodingException e) {
+                throw new OcspResponderException("Cannot encode certificate.", e);
+              }
+            })
+        .toArray(X509CertificateHolder[]::new);
+  }
+
+  private static BasicOCSPResp invalidateSignature(final BasicOCSPResp basicOcspResp)
+      throws IOException {
+
+    final BasicOCSPResponse basicOcspResponse =
+        BasicOCSPResponse.getInstance(basicOcspResp.getEncoded());
+    final byte[] signature = basicOcspResponse.getSignature().getBytes();
+    signature[signature.length - 1] ^= 0x01;
+
+    return new BasicOCSPResp(
+        new BasicOCSPResponse(
+            basicOcspResponse.getTbsResponseData(),
+            basicOcspResponse.getSignatureAlgorithm(),
+            new DERBitString(signature),
+            basicOcspResponse.getCerts()));
+  }
+
+  private static OCSPResp createOcspResp(
+      final OCSPRespStatus respStatus,
+      final boolean withResponseBytes,
+      final BasicOCSPResp basicOcspResp)
+      throws OCSPException {
+
+    if (!withResponseBytes) {
+      return new OCSPResp(
+          new OCSPResponse(new OCSPResponseStatus(respStatus.getStatusCode()), null));
+    }
+    return new OCSPRespBuilder().build(respStatus.getStatusCode(), basicOcspResp);
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.common.ConfigActivation;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Origin;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Activates configurations of the tenants of the OCSP responder. A configuration uploaded ahead of
+ * time stays pending until its activation instant, or until the next OCSP request for its TSL
+ * sequence number was answered. At most one configuration is pending per tenant: a new upload
+ * replaces it, an immediate configuration or clear of the tenant cancels it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OcspConfigActivator {
+
+  private final OcspResponseFactory ocspResponseFactory;
+
+  private final Map<String, PendingConfig> pendingConfigs = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            final Thread thread = new Thread(runnable, "ocsp-config-activation");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /**
+   * Sets the configuration of the tenant, prepares its response cache and starts its response
+   * sequences over. The history is not touched.
+   *
+   * @param ocspTenant tenant to configure
+   * @param ocspResponderConfig the configuration, null to clear it
+   */
+  public void activate(final OcspTenant ocspTenant, final OcspResponderConfig ocspResponderConfig) {
+    // cleared first, so that no response of the previous configuration is served with the new one
+    ocspTenant.getOcspResponseCache().clear();
+    ocspTenant.getOcspResponseConfigHolder().setOcspResponderConfig(ocspResponderConfig);
+    ocspTenant.getOcspResponseSequences().clear();
+
+    if ((ocspResponderConfig != null) && ocspResponderConfig.isPregenerateResponses()) {
+      ocspResponderConfig
+          .getCertificateDtos()
+          .forEach(certificateDto -> pregenerate(ocspTenant, certificateDto));
+      log.info(
+          "Pregenerated {} OCSP responses.",
+          ocspTenant.getOcspResponseCache().getPregeneratedSize());
+    }
+  }
+
+  public void pregenerate(final OcspTenant ocspTenant, final CertificateDto certificateDto) {
+    ocspTenant
+        .getOcspResponseCache()
+        .pregenerate(
+            certificateDto,
+            ocspReq -> ocspResponseFactory.build(ocspReq, certificateDto, Origin.PREGENERATION));
+  }
+
+  /**
+   * Keeps the configuration pending until its activation. The history of the tenant is kept on
+   * activation, so that requests before and after can be evaluated.
+   *
+   * @param ocspTenant tenant to configure
+   * @param ocspResponderConfig the configuration
+   * @param configActivation activation instant and/or trigger, must not be immediate
+   */
+  public void schedule(
+      final OcspTenant ocspTenant,
+      final OcspResponderConfig ocspResponderConfig,
+      final ConfigActivation configActivation) {
+
+    if (configActivation.isImmediate()) {
+      throw new IllegalArgumentException("activation of a pending configuration is not set");
+    }
+    final PendingConfig pendingConfig =
+        new PendingConfig(
+            ocspTenant, ocspResponderConfig, configActivation.getActivateAfterTslSeqNr());
+    cancelTimer(pendingConfigs.put(ocspTenant.getTenantId(), pendingConfig));
+
+    final Instant activateAt = configActivation.getActivateAt();
+    if (activateAt != null) {
+      pendingConfig.timer =
+          scheduler.schedule(
+              () -> activatePending(pendingConfig),
+              Duration.between(Instant.now(), activateAt).toMillis(),
+              TimeUnit.MILLISECONDS);
+    }
+    log.info("Configuration of tenant {} pending: {}", ocspTenant.getTenantId(), configActivation);
+  }
+
+  /**
+   * Activates the pending configuration of the tenant, if it waits for a request for tslSeqNr.
+   * Called after the request was answered.
+   *
+   * @param tenantId id of the tenant that answered the request
+   * @param tslSeqNr TSL sequence number of the request
+   */
+  public void onOcspRequest(final String tenantId, final int tslSeqNr) {
+    if (pendingConfigs.isEmpty()) {
+      return;
+    }
+    final PendingConfig pendingConfig = pendingConfigs.get(tenantId);
+    if ((pendingConfig != null)
+        && (pendingConfig.activateAfterTslSeqNr != null)
+        && (pendingConfig.activateAfterTslSeqNr == tslSeqNr)) {
+      activatePending(pendingConfig);
+    }
+  }
+
+  /**
+   * @param tenantId id of the tenant
+   */
+  public void cancel(final String tenantId) {
+    final PendingConfig pendingConfig = pendingConfigs.remove(tenantId);
+    if (pendingConfig != null) {
+      cancelTimer(pendingConfig);
+      log.info("Pending configuration of tenant {} cancelled.", tenantId);
+    }
+  }
+
+  public boolean isPending(final String tenantId) {
+    return pendingConfigs.containsKey(tenantId);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    log.debug("Shutting down scheduler for configuration activation.");
+    scheduler.shutdownNow();
+  }
+
+  private void activatePending(final PendingConfig pendingConfig) {
+    final String tenantId = pendingConfig.ocspTenant.getTenantId();
+    if (!pendingConfigs.remove(tenantId, pendingConfig)) {
+      return;
+    }
+    cancelTimer(pendingConfig);
+    try {
+      activate(pendingConfig.ocspTenant, pendingConfig.ocspResponderConfig);
+      log.info("Activated pending configuration of tenant {}.", tenantId);
+    } catch (final RuntimeException e) {
+      log.error("Activation of the pending configuration of tenant {} failed.", tenantId, e);
+    }
+  }
+
+  private static void cancelTimer(final PendingConfig pendingConfig) {
+    if ((pendingConfig != null) && (pendingConfig.timer != null)) {
+      pendingConfig.timer.cancel(false);
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static final class PendingConfig {
+
+    private final OcspTenant ocspTenant;
+    private final OcspResponderConfig ocspResponderConfig;
+    private final Integer activateAfterTslSeqNr;
+    private volatile ScheduledFuture<?> timer;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.ocsp.responder.configs.HistoryJournalConfig;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryJournal;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the OCSP request history of the default tenant in an {@link OcspRequestHistoryJournal}, if
+ * enabled. The journal is replayed on startup, so that the history of a long approval run survives
+ * a restart of the OCSP responder. The journal does not grow beyond its capacity: records that do
+ * not fit are dropped, which is logged once and counted in {@value #METRIC_JOURNAL_DROPPED}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OcspRequestHistoryPersistence {
+
+  public static final String METRIC_JOURNAL_DROPPED = "pkits.ocsp.history.journal.dropped";
+  public static final String METRIC_JOURNAL_USED_BYTES = "pkits.ocsp.history.journal.used.bytes";
+
+  private final HistoryJournalConfig historyJournalConfig;
+  private final OcspRequestHistory ocspRequestHistory;
+  private final MeterRegistry meterRegistry;
+
+  private OcspRequestHistoryJournal ocspRequestHistoryJournal;
+
+  @PostConstruct
+  public void open() {
+    if (!historyJournalConfig.isEnabled()) {
+      return;
+    }
+    final Path path = Path.of(historyJournalConfig.getPath());
+    try {
+      ocspRequestHistoryJournal =
+          new OcspRequestHistoryJournal(path, historyJournalConfig.getCapacityBytes());
+    } catch (final IOException e) {
+      throw new OcspResponderException(
+          "Cannot open OCSP request history journal %s".formatted(path), e);
+    }
+    registerMetrics(ocspRequestHistoryJournal);
+    final int recordCount = ocspRequestHistory.attachJournal(ocspRequestHistoryJournal);
+    log.info(
+        "Replayed {} records of OCSP request history journal {}, history contains {} entries.",
+        recordCount,
+        path,
+        ocspRequestHistory.size());
+  }
+
+  private void registerMetrics(final OcspRequestHistoryJournal journal) {
+    FunctionCounter.builder(
+            METRIC_JOURNAL_DROPPED, journal, OcspRequestHistoryJournal::getDroppedCount)
+        .description("records of the OCSP request history not journaled, the journal was full")
+        .register(meterRegistry);
+    Gauge.builder(METRIC_JOURNAL_USED_BYTES, journal, OcspRequestHistoryJournal::getUsedBytes)
+        .description("bytes of the OCSP request history journal in use")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return ocspRequestHistoryJournal != null;
+  }
+
+  /**
+   * @param outputStream receives the journal, see {@link OcspRequestHistoryJournal}
+   * @throws IOException if writing to the output stream fails
+   */
+  public void export(final OutputStream outputStream) throws IOException {
+    if (ocspRequestHistoryJournal == null) {
+      throw new OcspResponderException("OCSP request history journal is not enabled");
+    }
+    ocspRequestHistoryJournal.export(outputStream);
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    if (ocspRequestHistoryJournal != null) {
+      log.debug("Closing OCSP request history journal.");
+      ocspRequestHistoryJournal.close();
+    }
+  }
+}
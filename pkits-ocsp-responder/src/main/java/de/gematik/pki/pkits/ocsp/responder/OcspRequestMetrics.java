@@ -0,0 +1,132 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency of the phases of an OCSP request, published as Micrometer timers with percentile
+ * histograms. Every phase is tagged with the key type of the signer of the response, as signing
+ * with RSA and EC keys differs considerably, and with the origin, so that responses pregenerated
+ * when a configuration is applied do not show up as request latency. The timers are registered once
+ * per tag set.
+ */
+@Component
+@RequiredArgsConstructor
+public class OcspRequestMetrics {
+
+  public static final String METRIC_PHASE = "pkits.ocsp.request.phase";
+  public static final String TAG_PHASE = "phase";
+  public static final String TAG_SIGNER_KEY_TYPE = "signer.key.type";
+  public static final String TAG_ORIGIN = "origin";
+
+  public enum Phase {
+    /** decoding of the OCSP request */
+    PARSE,
+    /** lookup of the configured certificates */
+    LOOKUP,
+    /** generation and signing of the OCSP response */
+    SIGN,
+    /** encoding of the OCSP response */
+    ENCODE,
+    /** logging of the encoded OCSP response */
+    LOGGING;
+
+    @Getter private final String tagValue = name().toLowerCase(Locale.ROOT);
+  }
+
+  public enum Origin {
+    /** answer to an OCSP request */
+    REQUEST,
+    /** response pregenerated when a configuration is applied */
+    PREGENERATION;
+
+    @Getter private final String tagValue = name().toLowerCase(Locale.ROOT);
+  }
+
+  private final MeterRegistry meterRegistry;
+  private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+  /**
+   * @param phase measured phase
+   * @param signerKeyType key type of the signer, see {@link #getSignerKeyType(CertificateDto)}
+   * @param startNanos value of {@link System#nanoTime()} at the start of the phase
+   */
+  public void recordSince(final Phase phase, final String signerKeyType, final long startNanos) {
+    record(phase, signerKeyType, System.nanoTime() - startNanos);
+  }
+
+  public void recordSince(
+      final Phase phase, final String signerKeyType, final Origin origin, final long startNanos) {
+    record(phase, signerKeyType, origin, System.nanoTime() - startNanos);
+  }
+
+  public void record(final Phase phase, final String signerKeyType, final long durationNanos) {
+    record(phase, signerKeyType, Origin.REQUEST, durationNanos);
+  }
+
+  public void record(
+      final Phase phase,
+      final String signerKeyType,
+      final Origin origin,
+      final long durationNanos) {
+    timers
+        .computeIfAbsent(new TimerKey(phase, signerKeyType, origin), this::registerTimer)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer registerTimer(final TimerKey timerKey) {
+    return Timer.builder(METRIC_PHASE)
+        .description("latency of the phases of an OCSP request")
+        .tag(TAG_PHASE, timerKey.phase.getTagValue())
+        .tag(TAG_SIGNER_KEY_TYPE, timerKey.signerKeyType)
+        .tag(TAG_ORIGIN, timerKey.origin.getTagValue())
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  /**
+   * @return algorithm of the private key of the signer, e.g. EC or RSA
+   */
+  public static String getSignerKeyType(final CertificateDto certificateDto) {
+    return certificateDto.getSigner().getPrivateKey().getAlgorithm();
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class TimerKey {
+
+    private final Phase phase;
+    private final String signerKeyType;
+    private final Origin origin;
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.gemlibpki.ocsp.OcspRequestGenerator;
+import de.gematik.pki.pkits.ocsp.responder.configs.ResponseCacheConfig;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opt-in cache of encoded OCSP responses. A response is reused for the same config generation,
+ * CertID and time bucket. Requests with a nonce are never served from the cache, because the
+ * response has to echo the nonce. Entries with time deltas are not cached either, as test cases
+ * with deltas usually depend on exact timestamps.
+ *
+ * <p>With the opt-in, responses can also be pregenerated when a configuration is applied.
+ * Pregenerated responses are bound to their {@link CertificateDto} instead of the config
+ * generation, so that they survive incremental configuration changes of other certificates. They
+ * are signed again on the request path once they are older than the configured maximum age. Like
+ * cached responses, they are neither served to nor replaced by requests with a nonce.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OcspResponseCache {
+
+  private final ResponseCacheConfig responseCacheConfig;
+
+  private final Map<CacheKey, byte[]> cache = new ConcurrentHashMap<>();
+  private final AtomicLong currentTimeBucket = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private final Map<String, PregeneratedResponse> pregenerated = new ConcurrentHashMap<>();
+  private final AtomicLong pregeneratedHits = new AtomicLong();
+
+  /**
+   * @param configGeneration config generation of the tenant the response is built with
+   * @param ocspReq the OCSP request
+   * @param certificateDto configuration of the requested certificate
+   * @param ocspResponseBytesSupplier starts the build of the response, if it cannot be reused
+   * @return the encoded OCSP response, once it is built
+   */
+  public CompletableFuture<byte[]> getOrBuild(
+      final long configGeneration,
+      final OCSPReq ocspReq,
+      final CertificateDto certificateDto,
+      final Supplier<CompletableFuture<byte[]>> ocspResponseBytesSupplier) {
+
+    if (!responseCacheConfig.isEnabled() || !isReusable(ocspReq, certificateDto)) {
+      return ocspResponseBytesSupplier.get();
+    }
+
+    final String certIdHex = encodeCertId(ocspReq.getRequestList()[0].getCertID());
+    final PregeneratedResponse pregeneratedResponse = pregenerated.get(certIdHex);
+    if ((pregeneratedResponse != null) && (pregeneratedResponse.certificateDto == certificateDto)) {
+      if (!pregeneratedResponse.isOlderThan(
+          responseCacheConfig.getPregeneratedMaxAgeMilliseconds())) {
+        pregeneratedHits.incrementAndGet();
+        log.debug("Serving pregenerated OCSP response for CertID {}.", certIdHex);
+        return CompletableFuture.completedFuture(pregeneratedResponse.ocspResponseBytes);
+      }
+      log.debug("Pregenerated OCSP response for CertID {} expired: signing again.", certIdHex);
+      return ocspResponseBytesSupplier
+          .get()
+          .thenApply(
+              ocspResponseBytes -> {
+                pregenerated.replace(
+                    certIdHex,
+                    pregeneratedResponse,
+                    new PregeneratedResponse(certificateDto, ocspResponseBytes));
+                return ocspResponseBytes;
+              });
+    }
+
+    final long timeBucket =
+        System.currentTimeMillis() / responseCacheConfig.getTimeBucketMilliseconds();
+    final CacheKey cacheKey = new CacheKey(configGeneration, certIdHex, timeBucket);
+
+    final byte[] cachedOcspResponseBytes = cache.get(cacheKey);
+    if (cachedOcspResponseBytes != null) {
+      hits.incrementAndGet();
+      log.debug("Serving cached OCSP response for {}.", cacheKey);
+      return CompletableFuture.completedFuture(cachedOcspResponseBytes);
+    }
+
+    misses.incrementAndGet();
+    return ocspResponseBytesSupplier
+        .get()
+        .thenApply(
+            ocspResponseBytes -> {
+              evictOnDemand(timeBucket);
+              cache.put(cacheKey, ocspResponseBytes);
+              return ocspResponseBytes;
+            });
+  }
+
+  /**
+   * Builds the responses to requests without nonce for the CertIDs of certificateDto, one for every
+   * hash algorithm of CertIDs in the {@link CertificateDtoIndex}. Nothing is pregenerated if the
+   * cache is disabled. Entries with time deltas or response sequences are not pregenerated.
+   *
+   * @param certificateDto configuration of the certificate
+   * @param ocspResponseBytesBuilder builds the encoded response to an OCSP request
+   */
+  public void pregenerate(
+      final CertificateDto certificateDto,
+      final Function<OCSPReq, byte[]> ocspResponseBytesBuilder) {
+
+    if (!responseCacheConfig.isEnabled()) {
+      log.debug(
+          "OCSP response for certSerialNr {} is not pregenerated: response cache disabled.",
+          certificateDto.getEeCert().getSerialNumber());
+      return;
+    }
+    if (!hasNoTimeDeltas(certificateDto)) {
+      log.debug(
+          "OCSP response for certSerialNr {} is not pregenerated: time deltas configured.",
+          certificateDto.getEeCert().getSerialNumber());
+      return;
+    }
+    if (certificateDto.hasResponseSteps()) {
+      log.debug(
+          "OCSP response for certSerialNr {} is not pregenerated: response sequence configured.",
+          certificateDto.getEeCert().getSerialNumber());
+      return;
+    }
+
+    for (final AlgorithmIdentifier hashAlgorithm : CertificateDtoIndex.CERT_ID_HASH_ALGORITHMS) {
+      final CertificateID certId =
+          OcspRequestGenerator.createCertificateId(
+              certificateDto.getEeCert().getSerialNumber(),
+              certificateDto.getIssuerCert(),
+              hashAlgorithm);
+      final OCSPReq ocspReq;
+      try {
+        ocspReq = new OCSPReqBuilder().addRequest(certId).build();
+      } catch (final OCSPException e) {
+        throw new OcspResponderException("Cannot build OCSP request for pregeneration", e);
+      }
+      pregenerated.put(
+          encodeCertId(certId),
+          new PregeneratedResponse(certificateDto, ocspResponseBytesBuilder.apply(ocspReq)));
+    }
+  }
+
+  /**
+   * @param certSerialNr serial number of the certificates, whose pregenerated responses are removed
+   */
+  public void removePregenerated(final BigInteger certSerialNr) {
+    pregenerated
+        .values()
+        .removeIf(
+            pregeneratedResponse ->
+                pregeneratedResponse
+                    .certificateDto
+                    .getEeCert()
+                    .getSerialNumber()
+                    .equals(certSerialNr));
+  }
+
+  /** Clears the cached responses, but keeps the pregenerated responses. */
+  public void clearCachedResponses() {
+    cache.clear();
+    log.debug("OCSP response cache cleared.");
+  }
+
+  public void clear() {
+    clearCachedResponses();
+    pregenerated.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public int getPregeneratedSize() {
+    return pregenerated.size();
+  }
+
+  public long getPregeneratedHits() {
+    return pregeneratedHits.get();
+  }
+
+  private static boolean isReusable(final OCSPReq ocspReq, final CertificateDto certificateDto) {
+    return (ocspReq.getRequestList().length == 1)
+        && (ocspReq.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce) == null)
+        && hasNoTimeDeltas(certificateDto);
+  }
+
+  private static boolean hasNoTimeDeltas(final CertificateDto certificateDto) {
+    return (certificateDto.getThisUpdateDeltaMilliseconds() == 0)
+        && (certificateDto.getProducedAtDeltaMilliseconds() == 0);
+  }
+
+  private void evictOnDemand(final long timeBucket) {
+    final long previousTimeBucket = currentTimeBucket.getAndAccumulate(timeBucket, Math::max);
+    if (previousTimeBucket < timeBucket) {
+      cache.keySet().removeIf(cacheKey -> cacheKey.timeBucket < timeBucket);
+    }
+    if (cache.size() >= responseCacheConfig.getMaxEntries()) {
+      log.debug("OCSP response cache reached {} entries: cleared.", cache.size());
+      cache.clear();
+    }
+  }
+
+  private static String encodeCertId(final CertificateID certId) {
+    try {
+      return Hex.toHexString(certId.toASN1Primitive().getEncoded());
+    } catch (final IOException e) {
+      throw new OcspResponderException("Cannot encode CertID", e);
+    }
+  }
+
+  private static final class PregeneratedResponse {
+
+    private final CertificateDto certificateDto;
+    private final byte[] ocspResponseBytes;
+    private final long createdAtMillis = System.currentTimeMillis();
+
+    private PregeneratedResponse(
+        final CertificateDto certificateDto, final byte[] ocspResponseBytes) {
+      this.certificateDto = certificateDto;
+      this.ocspResponseBytes = ocspResponseBytes;
+    }
+
+    private boolean isOlderThan(final long maxAgeMilliseconds) {
+      return (System.currentTimeMillis() - createdAtMillis) > maxAgeMilliseconds;
+    }
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class CacheKey {
+
+    private final long configGeneration;
+    private final String certIdHex;
+    private final long timeBucket;
+
+    @Override
+    public String toString() {
+      return "CacheKey{configGeneration=%d, certIdHex=%s, timeBucket=%d}"
+          .formatted(configGeneration, certIdHex, timeBucket);
+    }
+  }
+}
@@ -23,26 +23,164 @@ package de.gematik.pki.pkits.ocsp.responder;
 import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
 import java.math.BigInteger;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import lombok.Data;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.ocsp.CertificateID;
 import org.springframework.stereotype.Component;
 
+/**
+ * Publishes the configuration of an OCSP responder as immutable {@link
+ * OcspResponseConfigSnapshot}s. Readers do not lock, updates are serialized and each publishes a
+ * snapshot with a new generation.
+ */
 @Slf4j
 @Component
-@Data
 public class OcspResponseConfigHolder {
 
-  private OcspResponderConfig ocspResponderConfig;
+  private final AtomicReference<OcspResponseConfigSnapshot> snapshot =
+      new AtomicReference<>(OcspResponseConfigSnapshot.EMPTY);
+
+  /**
+   * @return the current configuration, to be used for the whole processing of a request
+   */
+  public OcspResponseConfigSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  public synchronized void setOcspResponderConfig(final OcspResponderConfig ocspResponderConfig) {
+    final CertificateDtoIndex certificateDtoIndex;
+    if (ocspResponderConfig == null) {
+      certificateDtoIndex = CertificateDtoIndex.EMPTY;
+    } else {
+      certificateDtoIndex = new CertificateDtoIndex(ocspResponderConfig.getCertificateDtos());
+      log.debug("Built certificate index with {} entries.", certificateDtoIndex.size());
+    }
+    publish(ocspResponderConfig, certificateDtoIndex);
+  }
+
+  /**
+   * Adds certificateDto to the configuration. All configured entries with the same certificate
+   * serial number and issuer are replaced, entries of other issuers are kept. If the OCSP responder
+   * is not configured yet, the configuration consists of certificateDto only.
+   *
+   * @param certificateDto entry to add or update
+   */
+  public synchronized void putCertificateDto(final CertificateDto certificateDto) {
+    final OcspResponseConfigSnapshot current = snapshot.get();
+    final OcspResponderConfig ocspResponderConfig = current.getOcspResponderConfig();
+    final BigInteger certSerialNr = certificateDto.getEeCert().getSerialNumber();
+    final List<CertificateDto> certificateDtos = new ArrayList<>();
+    if (ocspResponderConfig != null) {
+      ocspResponderConfig.getCertificateDtos().stream()
+          .filter(
+              dto ->
+                  !CertificateDtoIndex.hasCertificate(
+                      dto, certSerialNr, certificateDto.getIssuerCert()))
+          .forEach(certificateDtos::add);
+    }
+    certificateDtos.add(certificateDto);
+
+    publish(
+        (ocspResponderConfig == null
+                ? OcspResponderConfig.builder()
+                : ocspResponderConfig.toBuilder())
+            .certificateDtos(certificateDtos)
+            .build(),
+        current.getCertificateDtoIndex().withCertificateDto(certificateDto));
+    log.debug("Put certificate with certSerialNr {} into configuration.", certSerialNr);
+  }
+
+  /**
+   * @param certSerialNr certificate serial number of the entries to remove, of all issuers
+   * @return false, if no entry with certSerialNr is configured
+   */
+  public synchronized boolean removeCertificateDto(final BigInteger certSerialNr) {
+    final OcspResponseConfigSnapshot current = snapshot.get();
+    if (!current.isConfigured() || current.getCertificateFromSerialNr(certSerialNr).isEmpty()) {
+      return false;
+    }
+    final OcspResponderConfig ocspResponderConfig = current.getOcspResponderConfig();
+    final List<CertificateDto> certificateDtos =
+        ocspResponderConfig.getCertificateDtos().stream()
+            .filter(dto -> !dto.getEeCert().getSerialNumber().equals(certSerialNr))
+            .toList();
+
+    publish(
+        ocspResponderConfig.toBuilder().certificateDtos(certificateDtos).build(),
+        current.getCertificateDtoIndex().withoutSerialNr(certSerialNr));
+    log.debug("Removed certificate with certSerialNr {} from configuration.", certSerialNr);
+    return true;
+  }
+
+  /**
+   * @param certSerialNr certificate serial number of the entries to remove
+   * @param issuerCert issuer of the entries to remove
+   * @return false, if no entry with certSerialNr and issuerCert is configured
+   */
+  public synchronized boolean removeCertificateDto(
+      final BigInteger certSerialNr, final X509Certificate issuerCert) {
+    final OcspResponseConfigSnapshot current = snapshot.get();
+    if (!current.isConfigured()) {
+      return false;
+    }
+    final OcspResponderConfig ocspResponderConfig = current.getOcspResponderConfig();
+    final List<CertificateDto> certificateDtos =
+        ocspResponderConfig.getCertificateDtos().stream()
+            .filter(dto -> !CertificateDtoIndex.hasCertificate(dto, certSerialNr, issuerCert))
+            .toList();
+    if (certificateDtos.size() == ocspResponderConfig.getCertificateDtos().size()) {
+      return false;
+    }
+
+    publish(
+        ocspResponderConfig.toBuilder().certificateDtos(certificateDtos).build(),
+        current.getCertificateDtoIndex().withoutCertificate(certSerialNr, issuerCert));
+    log.debug(
+        "Removed certificate with certSerialNr {} and issuer {} from configuration.",
+        certSerialNr,
+        issuerCert.getSubjectX500Principal());
+    return true;
+  }
+
+  public OcspResponderConfig getOcspResponderConfig() {
+    return snapshot.get().getOcspResponderConfig();
+  }
+
+  public CertificateDtoIndex getCertificateDtoIndex() {
+    return snapshot.get().getCertificateDtoIndex();
+  }
+
+  /**
+   * @return a number that changes every time the configuration is set
+   */
+  public long getConfigGeneration() {
+    return snapshot.get().getGeneration();
+  }
 
   public boolean isConfigured() {
-    return ocspResponderConfig != null;
+    return snapshot.get().isConfigured();
   }
 
   public Optional<CertificateDto> getCertificateFromSerialNr(final BigInteger certSerialNr) {
     log.debug("Requested  certSerialNr: {}", certSerialNr);
-    return ocspResponderConfig.getCertificateDtos().stream()
-        .filter(certificate -> certificate.getEeCert().getSerialNumber().equals(certSerialNr))
-        .findFirst();
+    return snapshot.get().getCertificateFromSerialNr(certSerialNr);
+  }
+
+  public Optional<CertificateDto> getCertificateFromCertId(final CertificateID certId) {
+    log.debug("Requested  certSerialNr: {}", certId.getSerialNumber());
+    return snapshot.get().getCertificateFromCertId(certId);
+  }
+
+  /** called with the monitor held, so that no update is lost */
+  private void publish(
+      final OcspResponderConfig ocspResponderConfig,
+      final CertificateDtoIndex certificateDtoIndex) {
+    final long generation = snapshot.get().getGeneration() + 1;
+    snapshot.set(
+        new OcspResponseConfigSnapshot(ocspResponderConfig, certificateDtoIndex, generation));
   }
 }
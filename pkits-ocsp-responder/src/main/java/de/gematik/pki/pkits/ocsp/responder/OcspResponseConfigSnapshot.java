@@ -0,0 +1,63 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
+import java.math.BigInteger;
+import java.util.Optional;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bouncycastle.cert.ocsp.CertificateID;
+
+/**
+ * Immutable state of an {@link OcspResponseConfigHolder}: the configuration, its certificate index
+ * and the generation it was published with. Request handlers read one snapshot and use it for the
+ * whole request, caches key on the generation.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class OcspResponseConfigSnapshot {
+
+  public static final OcspResponseConfigSnapshot EMPTY =
+      new OcspResponseConfigSnapshot(null, CertificateDtoIndex.EMPTY, 0);
+
+  /** null if the OCSP responder is not configured */
+  private final OcspResponderConfig ocspResponderConfig;
+
+  private final CertificateDtoIndex certificateDtoIndex;
+
+  /** changes every time a configuration is published */
+  private final long generation;
+
+  public boolean isConfigured() {
+    return ocspResponderConfig != null;
+  }
+
+  public Optional<CertificateDto> getCertificateFromSerialNr(final BigInteger certSerialNr) {
+    return certificateDtoIndex.getBySerialNr(certSerialNr);
+  }
+
+  public Optional<CertificateDto> getCertificateFromCertId(final CertificateID certId) {
+    return certificateDtoIndex.getByCertId(certId);
+  }
+}
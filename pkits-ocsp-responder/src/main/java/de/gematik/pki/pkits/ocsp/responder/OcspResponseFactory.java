@@ -0,0 +1,152 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static de.gematik.pki.gemlibpki.ocsp.OcspUtils.getFirstSingleResp;
+import static org.bouncycastle.internal.asn1.isismtt.ISISMTTObjectIdentifiers.id_isismtt_at_certHash;
+
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator;
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Origin;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Phase;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.isismtt.ocsp.CertHash;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.stereotype.Component;
+
+/** Builds and signs OCSP responses according to the configured {@link CertificateDto}s. */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OcspResponseFactory {
+
+  private final OcspRequestMetrics ocspRequestMetrics;
+
+  /**
+   * @param ocspReq OCSP request to answer
+   * @param certificateDto configuration of the requested certificate
+   * @return the encoded OCSP response
+   */
+  public byte[] build(final OCSPReq ocspReq, final CertificateDto certificateDto) {
+    return build(ocspReq, certificateDto, Origin.REQUEST);
+  }
+
+  /**
+   * @param ocspReq OCSP request to answer
+   * @param certificateDto configuration of the requested certificate
+   * @param origin origin recorded in the metrics of the SIGN and ENCODE phases
+   * @return the encoded OCSP response
+   */
+  public byte[] build(
+      final OCSPReq ocspReq, final CertificateDto certificateDto, final Origin origin) {
+    final ZonedDateTime now = GemLibPkiUtils.now();
+
+    ZonedDateTime nextUpdate = null;
+    if (certificateDto.getNextUpdateDeltaMilliseconds() != null) {
+      nextUpdate = now.plus(certificateDto.getNextUpdateDeltaMilliseconds(), ChronoUnit.MILLIS);
+    }
+
+    final OcspResponseGenerator.OcspResponseGeneratorBuilder builder =
+        OcspResponseGenerator.builder()
+            .signer(certificateDto.getSigner())
+            .withCertHash(certificateDto.isWithCertHash())
+            .validCertHash(certificateDto.isValidCertHash())
+            .validSignature(certificateDto.isValidSignature())
+            .certificateIdGeneration(certificateDto.getCertificateIdGeneration())
+            .responderIdType(certificateDto.getResponderIdType())
+            .respStatus(certificateDto.getRespStatus())
+            .withResponseBytes(certificateDto.isWithResponseBytes())
+            .thisUpdate(
+                now.plus(certificateDto.getThisUpdateDeltaMilliseconds(), ChronoUnit.MILLIS))
+            .producedAt(
+                now.plus(certificateDto.getProducedAtDeltaMilliseconds(), ChronoUnit.MILLIS))
+            .nextUpdate(nextUpdate)
+            .withNullParameterHashAlgoOfCertId(certificateDto.isWithNullParameterHashAlgoOfCertId())
+            .responseAlgoBehavior(certificateDto.getResponseAlgoBehavior());
+
+    if (certificateDto.getSignerCaCert() != null) {
+      builder.signerCaCert(certificateDto.getSignerCaCert());
+    }
+    final OcspResponseGenerator ocspResponseGenerator = builder.build();
+    final String signerKeyType = OcspRequestMetrics.getSignerKeyType(certificateDto);
+
+    try {
+      final long signStartNanos = System.nanoTime();
+      final OCSPResp ocspResponse =
+          ocspResponseGenerator.generate(
+              ocspReq,
+              certificateDto.getEeCert(),
+              certificateDto.getIssuerCert(),
+              certificateDto.getOcspCertificateStatus());
+      ocspRequestMetrics.recordSince(Phase.SIGN, signerKeyType, origin, signStartNanos);
+
+      final Extension certHashExtension =
+          getFirstSingleResp(ocspResponse).getExtension(id_isismtt_at_certHash);
+
+      byte[] certHash = null;
+      if (certHashExtension != null) {
+        certHash = CertHash.getInstance(certHashExtension.getParsedValue()).getCertificateHash();
+      }
+
+      log.debug(
+          "Building OcspResponse done. CertHash: {}.",
+          certHash != null ? Hex.toHexString(certHash) : "not included");
+
+      final long encodeStartNanos = System.nanoTime();
+      final byte[] ocspResponseBytes = ocspResponse.getEncoded();
+      ocspRequestMetrics.recordSince(Phase.ENCODE, signerKeyType, origin, encodeStartNanos);
+      return ocspResponseBytes;
+    } catch (final IOException e) {
+      throw new OcspResponderException("Could not create OcspResponse.", e);
+    }
+  }
+
+  /**
+   * @param ocspReq OCSP request with several CertIDs
+   * @param certificateDtos configurations of the requested certificates, in order of the CertIDs
+   * @return the encoded OCSP response
+   */
+  public byte[] buildBatch(final OCSPReq ocspReq, final List<CertificateDto> certificateDtos) {
+    log.debug("Building OcspResponse for {} requests.", certificateDtos.size());
+    final String signerKeyType = OcspRequestMetrics.getSignerKeyType(certificateDtos.get(0));
+    try {
+      final long signStartNanos = System.nanoTime();
+      final OCSPResp ocspResponse = OcspBatchResponseGenerator.generate(ocspReq, certificateDtos);
+      ocspRequestMetrics.recordSince(Phase.SIGN, signerKeyType, signStartNanos);
+
+      final long encodeStartNanos = System.nanoTime();
+      final byte[] ocspResponseBytes = ocspResponse.getEncoded();
+      ocspRequestMetrics.recordSince(Phase.ENCODE, signerKeyType, encodeStartNanos);
+      return ocspResponseBytes;
+    } catch (final IOException e) {
+      throw new OcspResponderException("Could not create OcspResponse.", e);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.ResponseStepDto;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Progress of the scripted response sequences of one tenant (see {@link
+ * CertificateDto#getResponseSteps()}). The progress is kept per configured {@link CertificateDto}
+ * instance, so that certificates of different issuers with the same serial number advance
+ * independently, and a sequence starts over as soon as the certificate is configured again.
+ */
+@Slf4j
+@Component
+public class OcspResponseSequences {
+
+  /** keyed by identity: a certificate configured again gets a new progress */
+  private final Map<CertificateDto, Progress> progressByCertificateDto =
+      Collections.synchronizedMap(new IdentityHashMap<>());
+
+  private final LongSupplier nanoTime;
+
+  public OcspResponseSequences() {
+    this(System::nanoTime);
+  }
+
+  OcspResponseSequences(final LongSupplier nanoTime) {
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * Counts a request for the certificate and returns the configuration of the active step.
+   *
+   * @param certificateDto configured certificate
+   * @return certificateDto itself, if it has no response sequence
+   */
+  public CertificateDto resolve(final CertificateDto certificateDto) {
+    if (!certificateDto.hasResponseSteps()) {
+      return certificateDto;
+    }
+    final Progress progress =
+        progressByCertificateDto.computeIfAbsent(certificateDto, Progress::new);
+
+    final int stepIndex = progress.nextRequest(nanoTime.getAsLong());
+    log.info(
+        "Response sequence of certSerialNr {}: step {}",
+        certificateDto.getEeCert().getSerialNumber(),
+        stepIndex);
+    return progress.stepDtos.get(stepIndex);
+  }
+
+  /**
+   * @param certificateDto configured certificate
+   * @return index of the active step, -1 if no request for the certificate was answered by a
+   *     sequence
+   */
+  public int getStepIndex(final CertificateDto certificateDto) {
+    final Progress progress = progressByCertificateDto.get(certificateDto);
+    return (progress == null) ? -1 : progress.getStepIndex();
+  }
+
+  /**
+   * Drops the progress of certificates that are no longer configured, after an incremental
+   * configuration.
+   *
+   * @param configuredCertificateDtos the certificates configured now
+   */
+  public void retain(final Collection<CertificateDto> configuredCertificateDtos) {
+    final Set<CertificateDto> configured = Collections.newSetFromMap(new IdentityHashMap<>());
+    configured.addAll(configuredCertificateDtos);
+    progressByCertificateDto.keySet().retainAll(configured);
+  }
+
+  /** drops the progress of all sequences, when the configuration is replaced or cleared */
+  public void clear() {
+    progressByCertificateDto.clear();
+  }
+
+  private static final class Progress {
+
+    private final List<ResponseStepDto> responseSteps;
+    private final List<CertificateDto> stepDtos;
+
+    private int stepIndex;
+    private int requestsInStep;
+    private long stepStartNanos;
+    private boolean started;
+
+    private Progress(final CertificateDto certificateDto) {
+      this.responseSteps = List.copyOf(certificateDto.getResponseSteps());
+      this.stepDtos = responseSteps.stream().map(certificateDto::withResponseStep).toList();
+    }
+
+    /** returns the index of the step answering a request at nowNanos */
+    private synchronized int nextRequest(final long nowNanos) {
+      if (!started) {
+        started = true;
+        stepStartNanos = nowNanos;
+      }
+      while (stepIndex < responseSteps.size() - 1) {
+        final ResponseStepDto responseStep = responseSteps.get(stepIndex);
+        final long elapsedMilliseconds = TimeUnit.NANOSECONDS.toMillis(nowNanos - stepStartNanos);
+        if (!responseStep.isOver(requestsInStep, elapsedMilliseconds)) {
+          break;
+        }
+        // a step ended by time hands over at its scheduled end, even without requests
+        stepStartNanos =
+            responseStep.isDurationOver(elapsedMilliseconds)
+                ? stepStartNanos
+                    + TimeUnit.MILLISECONDS.toNanos(responseStep.getDurationMilliseconds())
+                : nowNanos;
+        ++stepIndex;
+        requestsInStep = 0;
+      }
+      ++requestsInStep;
+      return stepIndex;
+    }
+
+    private synchronized int getStepIndex() {
+      return stepIndex;
+    }
+  }
+}
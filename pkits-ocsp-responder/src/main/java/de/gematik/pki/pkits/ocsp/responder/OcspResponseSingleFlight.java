@@ -0,0 +1,128 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces concurrent builds of the same OCSP response: while a response is built, identical
+ * requests of the same tenant and config generation wait for it instead of signing their own.
+ * Requests are identical if their encodings are equal, i.e. same CertIDs and same nonce, so that a
+ * shared response always echoes the right nonce. Nothing is kept after the build completed. Waiting
+ * requests get the future of the running build, so that no thread blocks on it.
+ */
+@Slf4j
+@Component
+public class OcspResponseSingleFlight {
+
+  private final Map<FlightKey, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * @param tenantId tenant of the request
+   * @param configGeneration config generation of the tenant the response is built with
+   * @param ocspReqBytes encoded OCSP request
+   * @param ocspResponseBytesSupplier starts the build of the response, called once for concurrent
+   *     identical requests
+   * @return the encoded OCSP response, once it is built
+   */
+  public CompletableFuture<byte[]> getOrBuild(
+      final String tenantId,
+      final long configGeneration,
+      final byte[] ocspReqBytes,
+      final Supplier<CompletableFuture<byte[]>> ocspResponseBytesSupplier) {
+
+    final FlightKey flightKey =
+        new FlightKey(
+            tenantId,
+            configGeneration,
+            Hex.toHexString(GemLibPkiUtils.calculateSha256(ocspReqBytes)));
+    final CompletableFuture<byte[]> flight = new CompletableFuture<>();
+    final CompletableFuture<byte[]> runningFlight = inFlight.putIfAbsent(flightKey, flight);
+
+    if (runningFlight != null) {
+      coalesced.incrementAndGet();
+      log.debug("Waiting for OCSP response built by a concurrent identical request.");
+      return runningFlight;
+    }
+
+    final CompletableFuture<byte[]> build;
+    try {
+      build = ocspResponseBytesSupplier.get();
+    } catch (final RuntimeException e) {
+      inFlight.remove(flightKey, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+    build.whenComplete(
+        (ocspResponseBytes, throwable) -> {
+          inFlight.remove(flightKey, flight);
+          if (throwable == null) {
+            flight.complete(ocspResponseBytes);
+          } else {
+            flight.completeExceptionally(unwrap(throwable));
+          }
+        });
+    return flight;
+  }
+
+  /**
+   * @param throwable exception of a future
+   * @return the cause of a {@link CompletionException}, the exception itself otherwise
+   */
+  public static Throwable unwrap(final Throwable throwable) {
+    if ((throwable instanceof CompletionException) && (throwable.getCause() != null)) {
+      return throwable.getCause();
+    }
+    return throwable;
+  }
+
+  /**
+   * @return number of requests, that were served by the build of a concurrent identical request
+   */
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  public int size() {
+    return inFlight.size();
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class FlightKey {
+
+    private final String tenantId;
+    private final long configGeneration;
+    private final String ocspReqSha256Hex;
+  }
+}
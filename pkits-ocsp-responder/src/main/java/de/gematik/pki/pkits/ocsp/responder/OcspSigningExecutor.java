@@ -0,0 +1,123 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.ocsp.responder.configs.SigningExecutorConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded pool of threads that sign OCSP responses, so that the number of concurrent signing
+ * operations does not depend on the number of servlet worker threads. If the queue is full, a
+ * request is rejected at once instead of slowing down all other requests. Queue depth, active
+ * threads and rejections are published as metrics.
+ */
+@Slf4j
+@Component
+public class OcspSigningExecutor {
+
+  public static final String METRIC_QUEUE_DEPTH = "pkits.ocsp.signing.queue.depth";
+  public static final String METRIC_ACTIVE = "pkits.ocsp.signing.active";
+  public static final String METRIC_REJECTED = "pkits.ocsp.signing.rejected";
+
+  private final int queueCapacity;
+  private final ThreadPoolExecutor executor;
+  private final Counter rejectedCounter;
+
+  public OcspSigningExecutor(
+      final SigningExecutorConfig signingExecutorConfig, final MeterRegistry meterRegistry) {
+    if ((signingExecutorConfig.getPoolSize() <= 0)
+        || (signingExecutorConfig.getQueueCapacity() <= 0)) {
+      throw new IllegalArgumentException(
+          "pool size and queue capacity of the signing executor must be positive");
+    }
+    this.queueCapacity = signingExecutorConfig.getQueueCapacity();
+
+    final AtomicInteger threadNumber = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            signingExecutorConfig.getPoolSize(),
+            signingExecutorConfig.getPoolSize(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+              final Thread thread =
+                  new Thread(runnable, "ocsp-signing-" + threadNumber.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    Gauge.builder(METRIC_QUEUE_DEPTH, executor, pool -> pool.getQueue().size())
+        .description("OCSP responses waiting for a signing thread")
+        .register(meterRegistry);
+    Gauge.builder(METRIC_ACTIVE, executor, ThreadPoolExecutor::getActiveCount)
+        .description("OCSP responses being signed")
+        .register(meterRegistry);
+    this.rejectedCounter =
+        Counter.builder(METRIC_REJECTED)
+            .description("OCSP requests rejected because the signing queue was full")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Runs the signing operation on the pool. The calling thread does not wait for the result.
+   *
+   * @param ocspResponseBytesSupplier builds and signs the response
+   * @return the encoded OCSP response, once it is signed
+   * @throws SigningRejectedException if the queue is full
+   */
+  public CompletableFuture<byte[]> sign(final Supplier<byte[]> ocspResponseBytesSupplier) {
+    try {
+      return CompletableFuture.supplyAsync(ocspResponseBytesSupplier, executor);
+    } catch (final RejectedExecutionException e) {
+      rejectedCounter.increment();
+      log.warn("Signing queue is full, rejecting OCSP request.");
+      throw new SigningRejectedException(queueCapacity);
+    }
+  }
+
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  public long getRejectedCount() {
+    return (long) rejectedCounter.count();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    log.debug("Shutting down signing executor.");
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryWaitRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Configuration, request history, response cache and response sequences of one tenant of the OCSP
+ * responder.
+ */
+@Getter
+@AllArgsConstructor
+public class OcspTenant {
+
+  private final String tenantId;
+  private final OcspResponseConfigHolder ocspResponseConfigHolder;
+  private final OcspRequestHistory ocspRequestHistory;
+  private final OcspResponseCache ocspResponseCache;
+  private final OcspRequestHistoryWaitRegistry ocspRequestHistoryWaitRegistry;
+  private final OcspResponseSequences ocspResponseSequences;
+}
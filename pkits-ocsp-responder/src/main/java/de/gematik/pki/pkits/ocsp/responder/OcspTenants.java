@@ -0,0 +1,131 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import de.gematik.pki.pkits.common.PkitsConstants;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig;
+import de.gematik.pki.pkits.ocsp.responder.configs.ResponseCacheConfig;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryWaitRegistry;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tenants of the OCSP responder, so that parallel testsuite runs can share one responder. Every
+ * tenant has its own configuration, request history and response cache. The default tenant is
+ * served by the singleton beans and used by all requests without tenant. Other tenants are created
+ * by their first configuration and removed when their configuration is cleared. All other endpoints
+ * only look tenants up.
+ */
+@Slf4j
+@Component
+public class OcspTenants {
+
+  public static final String DEFAULT_TENANT = PkitsConstants.OCSP_DEFAULT_TENANT;
+
+  /** tenant ids start with a letter, so that they can be told apart from TSL sequence numbers */
+  public static final String TENANT_ID_REGEX = "[a-zA-Z][a-zA-Z0-9_-]{0,63}";
+
+  private static final Pattern TENANT_ID_PATTERN = Pattern.compile(TENANT_ID_REGEX);
+
+  private final RequestHistoryConfig requestHistoryConfig;
+  private final ResponseCacheConfig responseCacheConfig;
+
+  @Getter private final OcspTenant defaultTenant;
+  private final Map<String, OcspTenant> tenants = new ConcurrentHashMap<>();
+
+  public OcspTenants(
+      final OcspResponseConfigHolder ocspResponseConfigHolder,
+      final OcspRequestHistory ocspRequestHistory,
+      final OcspResponseCache ocspResponseCache,
+      final OcspRequestHistoryWaitRegistry ocspRequestHistoryWaitRegistry,
+      final OcspResponseSequences ocspResponseSequences,
+      final RequestHistoryConfig requestHistoryConfig,
+      final ResponseCacheConfig responseCacheConfig) {
+    this.requestHistoryConfig = requestHistoryConfig;
+    this.responseCacheConfig = responseCacheConfig;
+    this.defaultTenant =
+        new OcspTenant(
+            DEFAULT_TENANT,
+            ocspResponseConfigHolder,
+            ocspRequestHistory,
+            ocspResponseCache,
+            ocspRequestHistoryWaitRegistry,
+            ocspResponseSequences);
+    tenants.put(DEFAULT_TENANT, defaultTenant);
+  }
+
+  /**
+   * @param tenantId id of the tenant
+   * @return the tenant, if it was used before
+   */
+  public Optional<OcspTenant> find(final String tenantId) {
+    return Optional.ofNullable(tenants.get(tenantId));
+  }
+
+  /**
+   * @param tenantId id of the tenant, must match {@value #TENANT_ID_REGEX}
+   * @return the tenant, created if it is used for the first time
+   */
+  public OcspTenant getOrCreate(final String tenantId) {
+    if (!TENANT_ID_PATTERN.matcher(tenantId).matches()) {
+      throw new InvalidTenantIdException(tenantId);
+    }
+    return tenants.computeIfAbsent(tenantId, this::createTenant);
+  }
+
+  /**
+   * Removes the tenant with its history. The default tenant is never removed.
+   *
+   * @param tenantId id of the tenant
+   */
+  public void remove(final String tenantId) {
+    if (DEFAULT_TENANT.equals(tenantId)) {
+      return;
+    }
+    final OcspTenant removed = tenants.remove(tenantId);
+    if (removed != null) {
+      removed.getOcspResponseSequences().clear();
+      log.info("Removed OCSP responder tenant {}.", tenantId);
+    }
+  }
+
+  public int size() {
+    return tenants.size();
+  }
+
+  private OcspTenant createTenant(final String tenantId) {
+    log.info("Created OCSP responder tenant {}.", tenantId);
+    final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory(requestHistoryConfig);
+    return new OcspTenant(
+        tenantId,
+        new OcspResponseConfigHolder(),
+        ocspRequestHistory,
+        new OcspResponseCache(responseCacheConfig),
+        new OcspRequestHistoryWaitRegistry(ocspRequestHistory),
+        new OcspResponseSequences());
+  }
+}
@@ -20,18 +20,34 @@
 
 package de.gematik.pki.pkits.ocsp.responder.api;
 
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import de.gematik.pki.pkits.common.ConfigActivation;
 import de.gematik.pki.pkits.common.JsonTransceiver;
+import de.gematik.pki.pkits.common.PkiCommonException;
 import de.gematik.pki.pkits.common.PkitsCommonUtils;
 import de.gematik.pki.pkits.common.PkitsConstants;
+import de.gematik.pki.pkits.ocsp.responder.CryptoMaterialRegistry;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateJsonDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspInfoRequestDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryEntryDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfigJsonDto;
 import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.HttpStatus;
 
 @Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -40,23 +56,252 @@ public final class OcspResponderManager {
   public static final int IGNORE_SEQUENCE_NUMBER = -1;
   public static final BigInteger IGNORE_CERT_SERIAL_NUMBER = BigInteger.valueOf(-1);
 
+  /** tenant used by all methods without tenant parameter */
+  public static final String DEFAULT_TENANT = PkitsConstants.OCSP_DEFAULT_TENANT;
+
+  /** hashes of the material uploaded inline per OcspResponder URI */
+  private static final Map<String, Set<String>> uploadedMaterialSha256sByUri =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Configure the OcspResponder. The whole configuration is replaced and the history of
+   * OcspRequests is cleared.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param ocspResponderConfig the configuration
+   */
   public static void configure(
       final String ocspRespUri, final OcspResponderConfig ocspResponderConfig) {
+    configure(ocspRespUri, DEFAULT_TENANT, ocspResponderConfig);
+  }
 
-    final String jsonContent = PkitsCommonUtils.createJsonContent(ocspResponderConfig.toJsonDto());
+  /**
+   * Configure a tenant of the OcspResponder. The whole configuration of the tenant is replaced and
+   * the history of OcspRequests of the tenant is cleared.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param tenant tenant id, see {@link #getOcspSspUri(String, String)}
+   * @param ocspResponderConfig the configuration
+   */
+  public static void configure(
+      final String ocspRespUri,
+      final String tenant,
+      final OcspResponderConfig ocspResponderConfig) {
+    configure(ocspRespUri, tenant, ocspResponderConfig, ConfigActivation.IMMEDIATE);
+  }
+
+  /**
+   * Upload a configuration of a tenant of the OcspResponder ahead of time. The OcspResponder
+   * replaces the configuration of the tenant by itself on activation, the history of OcspRequests
+   * is kept. An immediate activation behaves like {@link #configure(String, String,
+   * OcspResponderConfig)}.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param tenant tenant id
+   * @param ocspResponderConfig the configuration
+   * @param configActivation activation instant and/or trigger
+   */
+  public static void configure(
+      final String ocspRespUri,
+      final String tenant,
+      final OcspResponderConfig ocspResponderConfig,
+      final ConfigActivation configActivation) {
 
     PkitsCommonUtils.checkHealth(log, "OcspResponder", ocspRespUri);
 
+    final OcspResponderConfigJsonDto jsonDto = ocspResponderConfig.toJsonDto();
     /**
      * received by {@link
      * de.gematik.pki.pkits.ocsp.responder.controllers.OcspConfigController#ocspConfig}
      */
-    JsonTransceiver.sendJsonViaHttp(
-        ocspRespUri + PkitsConstants.OCSP_WEBSERVER_CONFIG_ENDPOINT, jsonContent);
+    sendReferencingUploadedMaterial(
+        ocspRespUri,
+        configActivation.appendTo(
+            withTenant(ocspRespUri + PkitsConstants.OCSP_WEBSERVER_CONFIG_ENDPOINT, tenant)),
+        jsonDto.getMaterialSha256s(),
+        jsonDto,
+        jsonDto::referenceKnownMaterial);
+  }
+
+  /**
+   * Add a certificate to the configuration of the OcspResponder, or replace the configured
+   * certificates with the same serial number and issuer. The rest of the configuration is kept.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param certificateDto the certificate to add or update
+   * @param keepHistory if false, the history of OcspRequests for the certificate is cleared
+   */
+  public static void putCertificate(
+      final String ocspRespUri, final CertificateDto certificateDto, final boolean keepHistory) {
+    putCertificate(ocspRespUri, DEFAULT_TENANT, certificateDto, keepHistory);
+  }
+
+  /**
+   * Add a certificate to the configuration of a tenant of the OcspResponder, see {@link
+   * #putCertificate(String, CertificateDto, boolean)}.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param tenant tenant id
+   * @param certificateDto the certificate to add or update
+   * @param keepHistory if false, the history of OcspRequests for the certificate is cleared
+   */
+  public static void putCertificate(
+      final String ocspRespUri,
+      final String tenant,
+      final CertificateDto certificateDto,
+      final boolean keepHistory) {
+
+    final CertificateJsonDto jsonDto = new CertificateJsonDto(certificateDto);
+    /**
+     * received by {@link
+     * de.gematik.pki.pkits.ocsp.responder.controllers.OcspConfigController#ocspConfigPutCertificate}
+     */
+    sendReferencingUploadedMaterial(
+        ocspRespUri,
+        withTenant(
+            ocspRespUri
+                + PkitsConstants.OCSP_WEBSERVER_CONFIG_CERTIFICATES_ENDPOINT
+                + "?keepHistory="
+                + keepHistory,
+            tenant),
+        jsonDto.getMaterialSha256s(),
+        jsonDto,
+        jsonDto::referenceKnownMaterial);
+  }
+
+  /**
+   * Remove the certificates with the serial number from the configuration of the OcspResponder.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param certSerialNr certificate serial number
+   * @param keepHistory if false, the history of OcspRequests for the certificate is cleared
+   */
+  public static void removeCertificate(
+      final String ocspRespUri, final BigInteger certSerialNr, final boolean keepHistory) {
+    removeCertificate(ocspRespUri, DEFAULT_TENANT, certSerialNr, keepHistory);
+  }
+
+  /**
+   * Remove the certificates with the serial number from the configuration of a tenant of the
+   * OcspResponder.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param tenant tenant id
+   * @param certSerialNr certificate serial number
+   * @param keepHistory if false, the history of OcspRequests for the certificate is cleared
+   */
+  public static void removeCertificate(
+      final String ocspRespUri,
+      final String tenant,
+      final BigInteger certSerialNr,
+      final boolean keepHistory) {
+    removeCertificate(ocspRespUri, tenant, certSerialNr, null, keepHistory);
+  }
+
+  /**
+   * Remove the certificates with the serial number and issuer from the configuration of a tenant of
+   * the OcspResponder. Certificates with the serial number of other issuers are kept.
+   *
+   * @param ocspRespUri OcspResponder URI
+   * @param tenant tenant id
+   * @param certSerialNr certificate serial number
+   * @param issuerCert issuer of the certificate, null for all issuers
+   * @param keepHistory if false, the history of OcspRequests for the certificate is cleared
+   */
+  public static void removeCertificate(
+      final String ocspRespUri,
+      final String tenant,
+      final BigInteger certSerialNr,
+      final X509Certificate issuerCert,
+      final boolean keepHistory) {
+
+    final String issuerParameter =
+        (issuerCert == null)
+            ? ""
+            : "&issuerCertSha256="
+                + CryptoMaterialRegistry.sha256Hex(GemLibPkiUtils.certToBytes(issuerCert));
+    /**
+     * received by {@link
+     * de.gematik.pki.pkits.ocsp.responder.controllers.OcspConfigController#ocspConfigRemoveCertificate}
+     */
+    JsonTransceiver.deleteViaHttp(
+        withTenant(
+            ocspRespUri
+                + PkitsConstants.OCSP_WEBSERVER_CONFIG_CERTIFICATES_ENDPOINT
+                + "/"
+                + certSerialNr
+                + "?keepHistory="
+                + keepHistory
+                + issuerParameter,
+            tenant),
+        true);
+  }
+
+  /**
+   * Certificates and keys that were uploaded to the OcspResponder before are only referenced by
+   * their SHA-256. If the OcspResponder does not know them anymore (e.g. after a restart), the
+   * request is sent again with all material inline.
+   *
+   * @param jsonDto the dto with all material inline
+   * @param referenceKnownMaterial replaces the known material of jsonDto by references
+   */
+  private static void sendReferencingUploadedMaterial(
+      final String ocspRespUri,
+      final String endpointUri,
+      final Collection<String> materialSha256s,
+      final Object jsonDto,
+      final Function<Set<String>, Object> referenceKnownMaterial) {
+
+    final Set<String> uploadedSha256s =
+        uploadedMaterialSha256sByUri.computeIfAbsent(
+            ocspRespUri, uri -> ConcurrentHashMap.newKeySet());
+
+    // serialized before referencing, which removes the known material from jsonDto
+    final String inlineJsonContent = PkitsCommonUtils.createJsonContent(jsonDto);
+    final boolean referencesMaterial = materialSha256s.stream().anyMatch(uploadedSha256s::contains);
+    final String jsonContent =
+        referencesMaterial
+            ? PkitsCommonUtils.createJsonContent(referenceKnownMaterial.apply(uploadedSha256s))
+            : inlineJsonContent;
+    final int httpStatus = JsonTransceiver.sendJsonViaHttp(endpointUri, jsonContent, false);
+
+    if (httpStatus == HttpStatus.SC_CONFLICT) {
+      log.info("OcspResponder {} does not know referenced material: upload inline.", ocspRespUri);
+      uploadedSha256s.clear();
+      JsonTransceiver.sendJsonViaHttp(endpointUri, inlineJsonContent);
+    } else if (httpStatus != HttpStatus.SC_OK) {
+      throw new PkiCommonException("Send failed with HttpStatus: " + httpStatus);
+    }
+    uploadedSha256s.addAll(materialSha256s);
   }
 
   public static void clear(final String uri) {
-    JsonTransceiver.deleteViaHttp(uri + PkitsConstants.OCSP_WEBSERVER_CLEAR_ENDPOINT, true);
+    clear(uri, DEFAULT_TENANT);
+  }
+
+  /**
+   * Clear the configuration and the history of a tenant of the OcspResponder. Tenants other than
+   * the default tenant are removed.
+   *
+   * @param uri OcspResponder URI
+   * @param tenant tenant id
+   */
+  public static void clear(final String uri, final String tenant) {
+    JsonTransceiver.deleteViaHttp(
+        withTenant(uri + PkitsConstants.OCSP_WEBSERVER_CLEAR_ENDPOINT, tenant), true);
+  }
+
+  /**
+   * @param uri OcspResponder URI
+   * @param tenant tenant id
+   * @return the URI of the OCSP service of the tenant, to be completed with "/" and the TSL
+   *     sequence number
+   */
+  public static String getOcspSspUri(final String uri, final String tenant) {
+    if (DEFAULT_TENANT.equals(tenant)) {
+      return uri + PkitsConstants.OCSP_SSP_ENDPOINT;
+    }
+    return uri + PkitsConstants.OCSP_SSP_ENDPOINT + "/" + tenant;
   }
 
   /**
@@ -72,7 +317,113 @@ public final class OcspResponderManager {
     final OcspInfoRequestDto ocspInfoRequest =
         new OcspInfoRequestDto(
             tslSeqNr, certSerialNr, OcspInfoRequestDto.HistoryDeleteOption.DELETE_NOTHING);
-    return sendInfoRequest(uri, ocspInfoRequest);
+    return sendInfoRequest(uri, DEFAULT_TENANT, ocspInfoRequest);
+  }
+
+  /**
+   * Get the history of OcspRequests for given certificate serial number, that were received after
+   * the entry with the given sequence id.
+   *
+   * @param uri OcspResponder URI
+   * @param tslSeqNr TSL sequence number
+   * @param certSerialNr certificate serial number
+   * @param sinceSequenceId sequence id of the last known entry, null for all entries
+   * @return new entries belonging to given certificate serial number, ordered by sequence id
+   */
+  public static List<OcspRequestHistoryEntryDto> getOcspHistoryPart(
+      final String uri,
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr,
+      final Long sinceSequenceId) {
+    return getOcspHistoryPart(uri, DEFAULT_TENANT, tslSeqNr, certSerialNr, sinceSequenceId);
+  }
+
+  /**
+   * Get the history of OcspRequests of a tenant for given certificate serial number, that were
+   * received after the entry with the given sequence id.
+   *
+   * @param uri OcspResponder URI
+   * @param tenant tenant id
+   * @param tslSeqNr TSL sequence number
+   * @param certSerialNr certificate serial number
+   * @param sinceSequenceId sequence id of the last known entry, null for all entries
+   * @return new entries belonging to given certificate serial number, ordered by sequence id
+   */
+  public static List<OcspRequestHistoryEntryDto> getOcspHistoryPart(
+      final String uri,
+      final String tenant,
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr,
+      final Long sinceSequenceId) {
+    final OcspInfoRequestDto ocspInfoRequest =
+        new OcspInfoRequestDto(
+            tslSeqNr,
+            certSerialNr,
+            OcspInfoRequestDto.HistoryDeleteOption.DELETE_NOTHING,
+            sinceSequenceId);
+    return sendInfoRequest(uri, tenant, ocspInfoRequest);
+  }
+
+  /**
+   * Wait until the history of OcspRequests contains entries for given certificate serial number,
+   * that were received after the entry with the given sequence id. Returns as soon as such an entry
+   * arrives at the OcspResponder.
+   *
+   * @param uri OcspResponder URI
+   * @param tslSeqNr TSL sequence number
+   * @param certSerialNr certificate serial number
+   * @param sinceSequenceId sequence id of the last known entry, null for all entries
+   * @param timeoutMilliseconds maximum time to wait
+   * @return new entries belonging to given certificate serial number, empty after the timeout
+   */
+  public static List<OcspRequestHistoryEntryDto> waitForOcspHistoryPart(
+      final String uri,
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr,
+      final Long sinceSequenceId,
+      final long timeoutMilliseconds) {
+    return waitForOcspHistoryPart(
+        uri, DEFAULT_TENANT, tslSeqNr, certSerialNr, sinceSequenceId, timeoutMilliseconds);
+  }
+
+  /**
+   * Wait until the history of OcspRequests of a tenant contains entries for given certificate
+   * serial number, see {@link #waitForOcspHistoryPart(String, Integer, BigInteger, Long, long)}.
+   *
+   * @param uri OcspResponder URI
+   * @param tenant tenant id
+   * @param tslSeqNr TSL sequence number
+   * @param certSerialNr certificate serial number
+   * @param sinceSequenceId sequence id of the last known entry, null for all entries
+   * @param timeoutMilliseconds maximum time to wait
+   * @return new entries belonging to given certificate serial number, empty after the timeout
+   */
+  public static List<OcspRequestHistoryEntryDto> waitForOcspHistoryPart(
+      final String uri,
+      final String tenant,
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr,
+      final Long sinceSequenceId,
+      final long timeoutMilliseconds) {
+    final OcspInfoRequestDto ocspInfoRequest =
+        new OcspInfoRequestDto(
+            tslSeqNr,
+            certSerialNr,
+            OcspInfoRequestDto.HistoryDeleteOption.DELETE_NOTHING,
+            sinceSequenceId);
+
+    /**
+     * received by {@link
+     * de.gematik.pki.pkits.ocsp.responder.controllers.OcspInfoController#waitForInfo}
+     */
+    return sendInfoRequestToEndpoint(
+        withTenant(
+            uri
+                + PkitsConstants.OCSP_WEBSERVER_INFO_WAIT_ENDPOINT
+                + "?timeoutMilliseconds="
+                + timeoutMilliseconds,
+            tenant),
+        ocspInfoRequest);
   }
 
   /**
@@ -85,10 +436,27 @@ public final class OcspResponderManager {
    */
   public static List<OcspRequestHistoryEntryDto> getAndClearOcspHistoryPart(
       final String uri, final Integer tslSeqNr, final BigInteger certSerialNr) {
+    return getAndClearOcspHistoryPart(uri, DEFAULT_TENANT, tslSeqNr, certSerialNr);
+  }
+
+  /**
+   * Get and clear the history of OcspRequests of a tenant for given certificate serial number.
+   *
+   * @param uri OcspResponder URI
+   * @param tenant tenant id
+   * @param tslSeqNr TSL sequence number
+   * @param certSerialNr certificate serial number
+   * @return all entries belonging to given certificate serial number as part of the history
+   */
+  public static List<OcspRequestHistoryEntryDto> getAndClearOcspHistoryPart(
+      final String uri,
+      final String tenant,
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr) {
     final OcspInfoRequestDto ocspInfoRequest =
         new OcspInfoRequestDto(
             tslSeqNr, certSerialNr, OcspInfoRequestDto.HistoryDeleteOption.DELETE_QUERIED_HISTORY);
-    return sendInfoRequest(uri, ocspInfoRequest);
+    return sendInfoRequest(uri, tenant, ocspInfoRequest);
   }
 
   /**
@@ -97,6 +465,16 @@ public final class OcspResponderManager {
    * @param uri OcspResponder URI
    */
   public static void clearOcspHistory(final String uri) {
+    clearOcspHistory(uri, DEFAULT_TENANT);
+  }
+
+  /**
+   * Clear the complete history of OcspRequests of a tenant.
+   *
+   * @param uri OcspResponder URI
+   * @param tenant tenant id
+   */
+  public static void clearOcspHistory(final String uri, final String tenant) {
 
     final OcspInfoRequestDto ocspInfoRequest =
         new OcspInfoRequestDto(
@@ -104,22 +482,73 @@ public final class OcspResponderManager {
             IGNORE_CERT_SERIAL_NUMBER,
             OcspInfoRequestDto.HistoryDeleteOption.DELETE_FULL_HISTORY);
 
-    sendInfoRequest(uri, ocspInfoRequest);
+    sendInfoRequest(uri, tenant, ocspInfoRequest);
     log.info(
-        "OcspHistory cleared, at {} for tslSeqNr {} and certSerialNr {}",
+        "OcspHistory cleared, at {} for tenant {}, tslSeqNr {} and certSerialNr {}",
         uri,
+        tenant,
         IGNORE_SEQUENCE_NUMBER,
         IGNORE_CERT_SERIAL_NUMBER);
   }
 
+  /**
+   * @param uri OcspResponder URI
+   * @param historyEntry entry of the history of OcspRequests
+   * @return the bytes of the OCSP request of the entry, fetched from the OcspResponder if the
+   *     history is stored in compact mode
+   */
+  public static byte[] getOcspReqBytes(
+      final String uri, final OcspRequestHistoryEntryDto historyEntry) {
+    return getOcspReqBytes(uri, DEFAULT_TENANT, historyEntry);
+  }
+
+  /**
+   * @param uri OcspResponder URI
+   * @param tenant tenant id
+   * @param historyEntry entry of the history of OcspRequests of the tenant
+   * @return the bytes of the OCSP request of the entry, fetched from the OcspResponder if the
+   *     history is stored in compact mode
+   */
+  public static byte[] getOcspReqBytes(
+      final String uri, final String tenant, final OcspRequestHistoryEntryDto historyEntry) {
+    if (historyEntry.getOcspReqBytes() != null) {
+      return historyEntry.getOcspReqBytes();
+    }
+    if (historyEntry.getOcspReqSha256() == null) {
+      throw new PkiCommonException("History entry contains neither OCSP request nor its hash.");
+    }
+    return JsonTransceiver.getBytesViaHttp(
+        withTenant(
+            uri
+                + PkitsConstants.OCSP_WEBSERVER_INFO_REQUEST_ENDPOINT
+                + "/"
+                + historyEntry.getOcspReqSha256(),
+            tenant));
+  }
+
   private static List<OcspRequestHistoryEntryDto> sendInfoRequest(
-      final String uri, final OcspInfoRequestDto ocspInfoRequestDto) {
+      final String uri, final String tenant, final OcspInfoRequestDto ocspInfoRequestDto) {
+    return sendInfoRequestToEndpoint(
+        withTenant(uri + PkitsConstants.OCSP_WEBSERVER_INFO_ENDPOINT, tenant), ocspInfoRequestDto);
+  }
+
+  private static String withTenant(final String endpointUri, final String tenant) {
+    if (DEFAULT_TENANT.equals(tenant)) {
+      return endpointUri;
+    }
+    return endpointUri
+        + (endpointUri.contains("?") ? "&" : "?")
+        + PkitsConstants.OCSP_TENANT_PARAMETER
+        + "="
+        + URLEncoder.encode(tenant, StandardCharsets.UTF_8);
+  }
+
+  private static List<OcspRequestHistoryEntryDto> sendInfoRequestToEndpoint(
+      final String endpointUri, final OcspInfoRequestDto ocspInfoRequestDto) {
 
     final String jsonContent = PkitsCommonUtils.createJsonContent(ocspInfoRequestDto);
 
-    final String responseBodyAsJson =
-        JsonTransceiver.txRxJsonViaHttp(
-            uri + PkitsConstants.OCSP_WEBSERVER_INFO_ENDPOINT, jsonContent);
+    final String responseBodyAsJson = JsonTransceiver.txRxJsonViaHttp(endpointUri, jsonContent);
 
     log.debug("JsonTransceiver, responseBodyAsJson: {}", responseBodyAsJson);
     if (responseBodyAsJson.isEmpty()) {
@@ -0,0 +1,55 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("request-history")
+public class RequestHistoryConfig {
+
+  public enum EvictionPolicy {
+    /** a new entry replaces the oldest entry of a full history */
+    EVICT_OLDEST,
+    /** a new entry is dropped if it would replace a stored entry */
+    DROP_NEWEST
+  }
+
+  public enum StorageMode {
+    /** entries keep the timestamp as string and their own copy of the OCSP request */
+    FULL,
+    /**
+     * entries keep the timestamp as epoch nanos and the SHA-256 of the OCSP request, the request
+     * bytes are deduplicated and fetched on demand
+     */
+    COMPACT
+  }
+
+  /** maximum number of entries kept in the OCSP request history */
+  private int capacity = 100000;
+
+  private EvictionPolicy evictionPolicy = EvictionPolicy.EVICT_OLDEST;
+
+  private StorageMode storageMode = StorageMode.FULL;
+}
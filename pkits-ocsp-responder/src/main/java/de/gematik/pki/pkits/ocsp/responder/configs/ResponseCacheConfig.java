@@ -0,0 +1,45 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("response-cache")
+public class ResponseCacheConfig {
+
+  /** enables the cache and the pregeneration of responses */
+  private boolean enabled = false;
+
+  /** cached responses are reused only within the same time bucket */
+  private long timeBucketMilliseconds = 1000;
+
+  private int maxEntries = 10000;
+
+  /**
+   * pregenerated responses (see OcspResponderConfig.pregenerateResponses) older than this are
+   * signed again on the next request
+   */
+  private long pregeneratedMaxAgeMilliseconds = 10000;
+}
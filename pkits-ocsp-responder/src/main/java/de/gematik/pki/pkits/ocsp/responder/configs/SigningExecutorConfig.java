@@ -0,0 +1,46 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("signing-executor")
+public class SigningExecutorConfig {
+
+  public enum RejectionResponse {
+    /** OCSP response with status tryLater (RFC 6960, section 4.2.1) */
+    TRY_LATER,
+    /** HTTP status 503 without body */
+    HTTP_503
+  }
+
+  /** number of threads signing OCSP responses */
+  private int poolSize = Runtime.getRuntime().availableProcessors();
+
+  /** maximum number of OCSP responses waiting for a signing thread */
+  private int queueCapacity = 1000;
+
+  private RejectionResponse rejectionResponse = RejectionResponse.TRY_LATER;
+}
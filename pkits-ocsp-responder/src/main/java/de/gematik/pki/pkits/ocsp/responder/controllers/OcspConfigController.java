@@ -20,17 +20,33 @@
 
 package de.gematik.pki.pkits.ocsp.responder.controllers;
 
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import de.gematik.pki.pkits.common.ConfigActivation;
 import de.gematik.pki.pkits.common.PkitsConstants;
+import de.gematik.pki.pkits.ocsp.responder.CryptoMaterialRegistry;
+import de.gematik.pki.pkits.ocsp.responder.OcspConfigActivator;
 import de.gematik.pki.pkits.ocsp.responder.OcspResponseConfigHolder;
-import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
+import de.gematik.pki.pkits.ocsp.responder.OcspTenant;
+import de.gematik.pki.pkits.ocsp.responder.OcspTenants;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateJsonDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfigJsonDto;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @Slf4j
@@ -38,33 +54,216 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class OcspConfigController {
 
-  private final OcspResponseConfigHolder ocspResponseConfigHolder;
-  private final OcspRequestHistory ocspRequestHistory;
+  private final OcspTenants ocspTenants;
+  private final CryptoMaterialRegistry cryptoMaterialRegistry;
+  private final OcspConfigActivator ocspConfigActivator;
 
-  @Operation(summary = "Configure the OCSP Responder.")
+  @Operation(
+      summary = "Configure the OCSP Responder.",
+      description =
+          "With activation parameters the configuration is kept pending and activated by the OCSP"
+              + " Responder at the given instant or after it answered the next OCSP request for"
+              + " the given TSL sequence number, whatever comes first. The history is kept on"
+              + " activation.")
   @PostMapping(path = PkitsConstants.OCSP_WEBSERVER_CONFIG_ENDPOINT)
-  public void ocspConfig(final @RequestBody OcspResponderConfigJsonDto jsonDto) {
-    log.info("Ocsp ConfigurationRequest received");
+  public void ocspConfig(
+      final @RequestBody OcspResponderConfigJsonDto jsonDto,
+      @Parameter(description = "tenant id")
+          @RequestParam(
+              name = PkitsConstants.OCSP_TENANT_PARAMETER,
+              defaultValue = OcspTenants.DEFAULT_TENANT)
+          final String tenantId,
+      @Parameter(description = "activation instant in epoch milliseconds")
+          @RequestParam(name = PkitsConstants.CONFIG_ACTIVATE_AT_PARAMETER, required = false)
+          final Long activateAt,
+      @Parameter(description = "activate after the next OCSP request for this TSL sequence number")
+          @RequestParam(
+              name = PkitsConstants.CONFIG_ACTIVATE_AFTER_TSL_SEQNR_PARAMETER,
+              required = false)
+          final Integer activateAfterTslSeqNr) {
+    log.info("Ocsp ConfigurationRequest received for tenant {}", tenantId);
 
-    final OcspResponderConfig ocspResponderConfig = jsonDto.toConfig();
+    final OcspResponderConfig ocspResponderConfig = jsonDto.toConfig(cryptoMaterialRegistry);
+    final ConfigActivation configActivation =
+        ConfigActivation.of(
+            (activateAt == null) ? null : Instant.ofEpochMilli(activateAt), activateAfterTslSeqNr);
 
-    processConfigurationRequest(ocspResponderConfig);
+    // the only endpoint that creates tenants
+    final OcspTenant ocspTenant = ocspTenants.getOrCreate(tenantId);
+    if (!configActivation.isImmediate()) {
+      ocspConfigActivator.schedule(ocspTenant, ocspResponderConfig, configActivation);
+      return;
+    }
+    processConfigurationRequest(ocspTenant, ocspResponderConfig);
 
     log.info("Ocsp ConfigurationRequest processed (and history cleared).");
   }
 
-  @Operation(summary = "Clear configuration of the OCSP Responder.")
+  @Operation(
+      summary =
+          "Add a certificate to the configuration of the OCSP Responder, or replace the"
+              + " configured certificates with the same serial number and issuer.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Certificate added."),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Tenant unknown, it has to be configured first.")
+      })
+  @PostMapping(path = PkitsConstants.OCSP_WEBSERVER_CONFIG_CERTIFICATES_ENDPOINT)
+  public ResponseEntity<Void> ocspConfigPutCertificate(
+      final @RequestBody CertificateJsonDto certificateJsonDto,
+      @Parameter(description = "keep the history of OCSP requests for the certificate")
+          @RequestParam(defaultValue = "true")
+          final boolean keepHistory,
+      @Parameter(description = "tenant id")
+          @RequestParam(
+              name = PkitsConstants.OCSP_TENANT_PARAMETER,
+              defaultValue = OcspTenants.DEFAULT_TENANT)
+          final String tenantId) {
+
+    final Optional<OcspTenant> ocspTenant = ocspTenants.find(tenantId);
+    if (ocspTenant.isEmpty()) {
+      log.info("Ocsp PutCertificateRequest received for unknown tenant {}", tenantId);
+      return ResponseEntity.notFound().build();
+    }
+    final CertificateDto certificateDto =
+        certificateJsonDto.toCertificateDto(cryptoMaterialRegistry);
+    log.info("Ocsp PutCertificateRequest received for tenant {}: {}", tenantId, certificateDto);
+
+    ocspTenant.get().getOcspResponseConfigHolder().putCertificateDto(certificateDto);
+    processIncrementalConfigurationRequest(
+        ocspTenant.get(),
+        certificateDto.getEeCert().getSerialNumber(),
+        certificateDto,
+        keepHistory);
+    return ResponseEntity.ok().build();
+  }
+
+  @Operation(
+      summary =
+          "Remove the certificates with the serial number from the configuration of the OCSP"
+              + " Responder, of the given issuer or of all issuers.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Certificates removed."),
+        @ApiResponse(
+            responseCode = "404",
+            description = "No certificate with the serial number (and issuer) configured.")
+      })
+  @DeleteMapping(
+      path = PkitsConstants.OCSP_WEBSERVER_CONFIG_CERTIFICATES_ENDPOINT + "/{certSerialNr}")
+  public ResponseEntity<Void> ocspConfigRemoveCertificate(
+      @PathVariable("certSerialNr") final BigInteger certSerialNr,
+      @Parameter(
+              description =
+                  "hex SHA-256 of the DER of the issuer certificate, certificates of all issuers"
+                      + " are removed if absent")
+          @RequestParam(required = false)
+          final String issuerCertSha256,
+      @Parameter(description = "keep the history of OCSP requests for the certificate")
+          @RequestParam(defaultValue = "true")
+          final boolean keepHistory,
+      @Parameter(description = "tenant id")
+          @RequestParam(
+              name = PkitsConstants.OCSP_TENANT_PARAMETER,
+              defaultValue = OcspTenants.DEFAULT_TENANT)
+          final String tenantId) {
+    log.info(
+        "Ocsp RemoveCertificateRequest received for tenant {} and certSerialNr {}",
+        tenantId,
+        certSerialNr);
+
+    final Optional<OcspTenant> ocspTenant = ocspTenants.find(tenantId);
+    if (ocspTenant.isEmpty()
+        || !removeCertificateDto(
+            ocspTenant.get().getOcspResponseConfigHolder(), certSerialNr, issuerCertSha256)) {
+      return ResponseEntity.notFound().build();
+    }
+    processIncrementalConfigurationRequest(ocspTenant.get(), certSerialNr, null, keepHistory);
+    return ResponseEntity.ok().build();
+  }
+
+  private static boolean removeCertificateDto(
+      final OcspResponseConfigHolder ocspResponseConfigHolder,
+      final BigInteger certSerialNr,
+      final String issuerCertSha256) {
+    if (issuerCertSha256 == null) {
+      return ocspResponseConfigHolder.removeCertificateDto(certSerialNr);
+    }
+    final OcspResponderConfig ocspResponderConfig =
+        ocspResponseConfigHolder.getOcspResponderConfig();
+    if (ocspResponderConfig == null) {
+      return false;
+    }
+    return ocspResponderConfig.getCertificateDtos().stream()
+        .filter(dto -> dto.getEeCert().getSerialNumber().equals(certSerialNr))
+        .map(CertificateDto::getIssuerCert)
+        .filter(
+            issuerCert ->
+                CryptoMaterialRegistry.sha256Hex(GemLibPkiUtils.certToBytes(issuerCert))
+                    .equalsIgnoreCase(issuerCertSha256))
+        .findFirst()
+        .map(issuerCert -> ocspResponseConfigHolder.removeCertificateDto(certSerialNr, issuerCert))
+        .orElse(false);
+  }
+
+  @Operation(
+      summary =
+          "Clear configuration of the OCSP Responder. Tenants other than the default tenant are"
+              + " removed.")
   @DeleteMapping(path = PkitsConstants.OCSP_WEBSERVER_CLEAR_ENDPOINT)
-  public void ocspClear() {
-    log.info("Ocsp ClearRequest received");
-    processConfigurationRequest(null);
+  public void ocspClear(
+      @Parameter(description = "tenant id")
+          @RequestParam(
+              name = PkitsConstants.OCSP_TENANT_PARAMETER,
+              defaultValue = OcspTenants.DEFAULT_TENANT)
+          final String tenantId) {
+    log.info("Ocsp ClearRequest received for tenant {}", tenantId);
+    ocspConfigActivator.cancel(tenantId);
+    ocspTenants
+        .find(tenantId)
+        .ifPresent(ocspTenant -> processConfigurationRequest(ocspTenant, null));
+    ocspTenants.remove(tenantId);
     log.info("Ocsp ClearRequest processed (and history cleared).");
   }
 
-  private void processConfigurationRequest(final OcspResponderConfig ocspResponderConfig) {
+  private void processConfigurationRequest(
+      final OcspTenant ocspTenant, final OcspResponderConfig ocspResponderConfig) {
     log.info("ConfigurationRequest: {}", ocspResponderConfig);
 
-    ocspResponseConfigHolder.setOcspResponderConfig(ocspResponderConfig);
-    ocspRequestHistory.deleteAll();
+    ocspConfigActivator.cancel(ocspTenant.getTenantId());
+    ocspConfigActivator.activate(ocspTenant, ocspResponderConfig);
+    ocspTenant.getOcspRequestHistory().deleteAll();
+  }
+
+  /**
+   * @param certificateDto the added entry, null if the entries were removed
+   */
+  private void processIncrementalConfigurationRequest(
+      final OcspTenant ocspTenant,
+      final BigInteger certSerialNr,
+      final CertificateDto certificateDto,
+      final boolean keepHistory) {
+    ocspTenant.getOcspResponseCache().clearCachedResponses();
+    ocspTenant.getOcspResponseCache().removePregenerated(certSerialNr);
+    ocspTenant
+        .getOcspResponseSequences()
+        .retain(
+            ocspTenant.getOcspResponseConfigHolder().getOcspResponderConfig().getCertificateDtos());
+    if ((certificateDto != null)
+        && ocspTenant
+            .getOcspResponseConfigHolder()
+            .getOcspResponderConfig()
+            .isPregenerateResponses()) {
+      ocspConfigActivator.pregenerate(ocspTenant, certificateDto);
+    }
+    if (!keepHistory) {
+      ocspTenant.getOcspRequestHistory().deleteEntries(null, certSerialNr);
+    }
+    log.info(
+        "Ocsp incremental ConfigurationRequest processed for certSerialNr {} (history {}).",
+        certSerialNr,
+        keepHistory ? "kept" : "cleared");
   }
 }
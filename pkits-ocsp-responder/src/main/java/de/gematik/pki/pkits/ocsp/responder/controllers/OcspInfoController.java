@@ -20,62 +20,193 @@
 
 package de.gematik.pki.pkits.ocsp.responder.controllers;
 
+import de.gematik.pki.gemlibpki.ocsp.OcspConstants;
 import de.gematik.pki.pkits.common.PkitsConstants;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestHistoryPersistence;
+import de.gematik.pki.pkits.ocsp.responder.OcspTenant;
+import de.gematik.pki.pkits.ocsp.responder.OcspTenants;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspInfoRequestDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryEntryDto;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryJournal;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @RequiredArgsConstructor
 @RestController
 public class OcspInfoController {
 
-  private final OcspRequestHistory ocspRequestHistory;
+  /** number of history entries evicted or dropped since start, because the history was full */
+  public static final String HISTORY_OVERFLOW_COUNT_HEADER = "X-History-Overflow-Count";
+
+  /** upper limit for the timeout of a wait request */
+  public static final long MAX_WAIT_MILLISECONDS = 60 * 1000L;
+
+  private final OcspTenants ocspTenants;
+  private final OcspRequestHistoryPersistence ocspRequestHistoryPersistence;
 
   /**
    * @param ocspInfoRequest OcspInfoRequestDto
-   * @return An excerpt of the history of requests
+   * @return An excerpt of the history of requests, the overflow counter of the history is sent in
+   *     the header {@value #HISTORY_OVERFLOW_COUNT_HEADER}. The list is empty for an unknown
+   *     tenant.
    */
   @Operation(summary = "Get history entries according to the provided info request.")
   @PostMapping(value = PkitsConstants.OCSP_WEBSERVER_INFO_ENDPOINT)
-  public List<OcspRequestHistoryEntryDto> info(
-      final @RequestBody OcspInfoRequestDto ocspInfoRequest) {
+  public ResponseEntity<List<OcspRequestHistoryEntryDto>> info(
+      final @RequestBody OcspInfoRequestDto ocspInfoRequest,
+      @Parameter(description = "tenant id")
+          @RequestParam(
+              name = PkitsConstants.OCSP_TENANT_PARAMETER,
+              defaultValue = OcspTenants.DEFAULT_TENANT)
+          final String tenantId) {
 
-    log.info("received ocspInfoRequest: {}", ocspInfoRequest);
+    log.info("received ocspInfoRequest for tenant {}: {}", tenantId, ocspInfoRequest);
+
+    final Optional<OcspTenant> ocspTenant = ocspTenants.find(tenantId);
+    if (ocspTenant.isEmpty()) {
+      log.info("Tenant {} is unknown, no history entries.", tenantId);
+      return ResponseEntity.ok().header(HISTORY_OVERFLOW_COUNT_HEADER, "0").body(List.of());
+    }
+    final OcspRequestHistory ocspRequestHistory = ocspTenant.get().getOcspRequestHistory();
 
     final List<OcspRequestHistoryEntryDto> retList =
-        getHistoryEntriesForPositiveTslSeqNrAndCertSerialNumber(ocspInfoRequest);
+        getHistoryEntriesForPositiveTslSeqNrAndCertSerialNumber(
+            ocspRequestHistory, ocspInfoRequest);
+
+    deleteHistoryOnDemand(ocspRequestHistory, ocspInfoRequest);
+
+    return ResponseEntity.ok()
+        .header(
+            HISTORY_OVERFLOW_COUNT_HEADER, String.valueOf(ocspRequestHistory.getOverflowCount()))
+        .body(Collections.unmodifiableList(retList));
+  }
+
+  /**
+   * Long poll for history entries: the response is sent as soon as the history contains matching
+   * entries, or with an empty list after the timeout. The history is never deleted by this
+   * endpoint, historyDeleteOption of the request is ignored. For an unknown tenant the empty list
+   * is sent at once.
+   *
+   * @param ocspInfoRequest OcspInfoRequestDto
+   * @param timeoutMilliseconds maximum time to wait, limited to {@value #MAX_WAIT_MILLISECONDS}
+   * @return An excerpt of the history of requests
+   */
+  @Operation(summary = "Wait for history entries according to the provided info request.")
+  @PostMapping(value = PkitsConstants.OCSP_WEBSERVER_INFO_WAIT_ENDPOINT)
+  public DeferredResult<List<OcspRequestHistoryEntryDto>> waitForInfo(
+      final @RequestBody OcspInfoRequestDto ocspInfoRequest,
+      final @RequestParam(defaultValue = "10000") long timeoutMilliseconds,
+      @Parameter(description = "tenant id")
+          @RequestParam(
+              name = PkitsConstants.OCSP_TENANT_PARAMETER,
+              defaultValue = OcspTenants.DEFAULT_TENANT)
+          final String tenantId) {
 
-    deleteHistoryOnDemand(ocspInfoRequest);
+    log.info(
+        "received ocspInfoRequest for tenant {} to wait {} ms: {}",
+        tenantId,
+        timeoutMilliseconds,
+        ocspInfoRequest);
 
-    return Collections.unmodifiableList(retList);
+    final Optional<OcspTenant> ocspTenant = ocspTenants.find(tenantId);
+    if (ocspTenant.isEmpty()) {
+      final DeferredResult<List<OcspRequestHistoryEntryDto>> deferredResult =
+          new DeferredResult<>();
+      deferredResult.setResult(List.of());
+      return deferredResult;
+    }
+    return ocspTenant
+        .get()
+        .getOcspRequestHistoryWaitRegistry()
+        .waitForEntries(
+            ocspInfoRequest.getTslSeqNr(),
+            ocspInfoRequest.getCertSerialNr(),
+            ocspInfoRequest.getSinceSequenceId(),
+            Math.min(Math.max(timeoutMilliseconds, 1), MAX_WAIT_MILLISECONDS));
   }
 
-  private List<OcspRequestHistoryEntryDto> getHistoryEntriesForPositiveTslSeqNrAndCertSerialNumber(
-      final OcspInfoRequestDto ocspInfoRequest) {
+  /**
+   * @param ocspReqSha256 SHA-256 of a history entry stored in compact mode
+   * @return the bytes of the OCSP request, or 404 if no history entry refers to them
+   */
+  @Operation(
+      summary =
+          "Get the bytes of an OCSP request by its SHA-256, for history entries stored in compact"
+              + " mode.")
+  @GetMapping(
+      value = PkitsConstants.OCSP_WEBSERVER_INFO_REQUEST_ENDPOINT + "/{ocspReqSha256}",
+      produces = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+  public ResponseEntity<byte[]> getOcspRequestBytes(
+      @PathVariable("ocspReqSha256") final String ocspReqSha256,
+      @Parameter(description = "tenant id")
+          @RequestParam(
+              name = PkitsConstants.OCSP_TENANT_PARAMETER,
+              defaultValue = OcspTenants.DEFAULT_TENANT)
+          final String tenantId) {
+
+    return ocspTenants
+        .find(tenantId)
+        .flatMap(ocspTenant -> ocspTenant.getOcspRequestHistory().getOcspReqBytes(ocspReqSha256))
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Streams the journal of the request history of the default tenant, in the format read by {@link
+   * OcspRequestHistoryJournal#readRecords}.
+   *
+   * @return the journal, or 404 if the journal is not enabled
+   */
+  @Operation(summary = "Export the journal of the OCSP request history for post-mortem analysis.")
+  @GetMapping(
+      value = PkitsConstants.OCSP_WEBSERVER_INFO_JOURNAL_ENDPOINT,
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportJournal() {
+    if (!ocspRequestHistoryPersistence.isEnabled()) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok().body(ocspRequestHistoryPersistence::export);
+  }
+
+  private static List<OcspRequestHistoryEntryDto>
+      getHistoryEntriesForPositiveTslSeqNrAndCertSerialNumber(
+          final OcspRequestHistory ocspRequestHistory, final OcspInfoRequestDto ocspInfoRequest) {
 
     log.info(
-        "InfoRequest received for tslSeqNr {}, certSerialNr {}.",
+        "InfoRequest received for tslSeqNr {}, certSerialNr {}, sinceSequenceId {}.",
         ocspInfoRequest.getTslSeqNr(),
-        ocspInfoRequest.getCertSerialNr());
+        ocspInfoRequest.getCertSerialNr(),
+        ocspInfoRequest.getSinceSequenceId());
 
     final List<OcspRequestHistoryEntryDto> retList =
         ocspRequestHistory.getExcerpt(
-            ocspInfoRequest.getTslSeqNr(), ocspInfoRequest.getCertSerialNr());
+            ocspInfoRequest.getTslSeqNr(),
+            ocspInfoRequest.getCertSerialNr(),
+            ocspInfoRequest.getSinceSequenceId());
 
     log.info("Found history with {} entries.", retList.size());
     return retList;
   }
 
-  private void deleteHistoryOnDemand(final OcspInfoRequestDto ocspInfoRequestDto) {
+  private static void deleteHistoryOnDemand(
+      final OcspRequestHistory ocspRequestHistory, final OcspInfoRequestDto ocspInfoRequestDto) {
     switch (ocspInfoRequestDto.getHistoryDeleteOption()) {
       case DELETE_FULL_HISTORY -> {
         ocspRequestHistory.deleteAll();
@@ -86,7 +217,9 @@ public class OcspInfoController {
       }
       case DELETE_QUERIED_HISTORY -> {
         ocspRequestHistory.deleteEntries(
-            ocspInfoRequestDto.getTslSeqNr(), ocspInfoRequestDto.getCertSerialNr());
+            ocspInfoRequestDto.getTslSeqNr(),
+            ocspInfoRequestDto.getCertSerialNr(),
+            ocspInfoRequestDto.getSinceSequenceId());
         log.debug(
             "OCSP request history: cleared tslSeqNr {} and certSerialNr {}",
             ocspInfoRequestDto.getTslSeqNr(),
@@ -20,21 +20,33 @@
 
 package de.gematik.pki.pkits.ocsp.responder.controllers;
 
-import static de.gematik.pki.gemlibpki.ocsp.OcspUtils.getFirstSingleResp;
 import static de.gematik.pki.pkits.common.PkitsConstants.NOT_CONFIGURED;
 import static de.gematik.pki.pkits.common.PkitsConstants.OCSP_SSP_ENDPOINT;
-import static org.bouncycastle.internal.asn1.isismtt.ISISMTTObjectIdentifiers.id_isismtt_at_certHash;
 
 import de.gematik.pki.gemlibpki.ocsp.OcspConstants;
-import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator;
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.CertificateIdGeneration;
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.ResponseAlgoBehavior;
 import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
 import de.gematik.pki.pkits.common.PkiCommonException;
-import de.gematik.pki.pkits.common.PkitsCommonUtils;
+import de.gematik.pki.pkits.ocsp.responder.DelayedResponseScheduler;
+import de.gematik.pki.pkits.ocsp.responder.EncodedSlashCustomizer;
+import de.gematik.pki.pkits.ocsp.responder.OcspConfigActivator;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Phase;
 import de.gematik.pki.pkits.ocsp.responder.OcspResponderException;
-import de.gematik.pki.pkits.ocsp.responder.OcspResponseConfigHolder;
+import de.gematik.pki.pkits.ocsp.responder.OcspResponseCache;
+import de.gematik.pki.pkits.ocsp.responder.OcspResponseConfigSnapshot;
+import de.gematik.pki.pkits.ocsp.responder.OcspResponseFactory;
+import de.gematik.pki.pkits.ocsp.responder.OcspResponseSingleFlight;
+import de.gematik.pki.pkits.ocsp.responder.OcspSigningExecutor;
+import de.gematik.pki.pkits.ocsp.responder.OcspTenant;
+import de.gematik.pki.pkits.ocsp.responder.OcspTenants;
+import de.gematik.pki.pkits.ocsp.responder.SigningRejectedException;
+import de.gematik.pki.pkits.ocsp.responder.configs.SigningExecutorConfig;
+import de.gematik.pki.pkits.ocsp.responder.configs.SigningExecutorConfig.RejectionResponse;
 import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CustomCertificateStatusDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
-import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryEntryDto;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -44,30 +56,52 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.bouncycastle.asn1.isismtt.ocsp.CertHash;
-import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPReq;
 import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.SingleResp;
 import org.bouncycastle.util.encoders.Hex;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @Slf4j
 @RequiredArgsConstructor
 @RestController
 public class OcspRequestController {
 
-  private final OcspRequestHistory ocspRequestHistory;
-  private final OcspResponseConfigHolder ocspResponseConfigHolder;
+  private final OcspTenants ocspTenants;
+  private final DelayedResponseScheduler delayedResponseScheduler;
+  private final OcspResponseSingleFlight ocspResponseSingleFlight;
+  private final OcspSigningExecutor ocspSigningExecutor;
+  private final SigningExecutorConfig signingExecutorConfig;
+  private final OcspRequestMetrics ocspRequestMetrics;
+  private final OcspResponseFactory ocspResponseFactory;
+  private final OcspConfigActivator ocspConfigActivator;
 
   @Operation(
       summary =
@@ -95,25 +129,238 @@ public class OcspRequestController {
       value = OCSP_SSP_ENDPOINT + "/{seqNr}",
       consumes = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_REQUEST,
       produces = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
-  public ResponseEntity<Object> ocspService(
+  public DeferredResult<ResponseEntity<Object>> ocspService(
       @PathVariable("seqNr") final int tslSeqNr,
       final HttpServletRequest request,
       final @io.swagger.v3.oas.annotations.parameters.RequestBody(
               description = "Binary encoding of the instance of OCSP Request.",
               required = true) @RequestBody byte[] ocspRequestBytes) {
 
-    if (!ocspResponseConfigHolder.isConfigured()) {
-      return ResponseEntity.internalServerError().body(NOT_CONFIGURED);
+    return processOcspRequest(
+        ocspTenants.getDefaultTenant(), tslSeqNr, request, ocspRequestBytes, false, null);
+  }
+
+  @Operation(
+      summary =
+          "Generates OCSP response for the provided sequence number and according to the current"
+              + " configuration of the tenant of the OCSP Responder.",
+      parameters = {
+        @Parameter(in = ParameterIn.PATH, name = "tenant", description = "tenant id"),
+        @Parameter(in = ParameterIn.PATH, name = "seqNr", description = "sequence number from TSL")
+      })
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Generate OCSP response.",
+            content = {@Content(mediaType = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)}),
+        @ApiResponse(
+            responseCode = "500",
+            description = "Tenant of the OCSP Responder not configured",
+            content = @Content)
+      })
+  @PostMapping(
+      value = OCSP_SSP_ENDPOINT + "/{tenant:" + OcspTenants.TENANT_ID_REGEX + "}/{seqNr}",
+      consumes = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_REQUEST,
+      produces = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
+  public DeferredResult<ResponseEntity<Object>> ocspServiceForTenant(
+      @PathVariable("tenant") final String tenantId,
+      @PathVariable("seqNr") final int tslSeqNr,
+      final HttpServletRequest request,
+      final @io.swagger.v3.oas.annotations.parameters.RequestBody(
+              description = "Binary encoding of the instance of OCSP Request.",
+              required = true) @RequestBody byte[] ocspRequestBytes) {
+
+    return processOcspRequest(
+        ocspTenants.find(tenantId).orElse(null), tslSeqNr, request, ocspRequestBytes, false, null);
+  }
+
+  @Operation(
+      summary =
+          "Generates OCSP response for the provided sequence number and the base64 encoded OCSP"
+              + " request in the path (RFC 6960, Appendix A.1).",
+      description =
+          "The response carries the HTTP caching headers Cache-Control, ETag and Last-Modified,"
+              + " derived from thisUpdate and nextUpdate of the response. Example with curl:"
+              + " ```curl -v"
+              + " 'http://localhost:8083/ocsp/1000000/MEIwQDA-MDwwOjAJBgUrDgMCGgUABBQ...'```",
+      parameters = {
+        @Parameter(in = ParameterIn.PATH, name = "seqNr", description = "sequence number from TSL"),
+        @Parameter(
+            in = ParameterIn.PATH,
+            name = "ocspRequest",
+            description = "base64 or base64url encoded DER of the OCSP Request")
+      })
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Generate OCSP response.",
+            content = {@Content(mediaType = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)}),
+        @ApiResponse(
+            responseCode = "304",
+            description = "OCSP response matches If-None-Match",
+            content = @Content),
+        @ApiResponse(
+            responseCode = "400",
+            description = "OCSP request is not base64 encoded",
+            content = @Content),
+        @ApiResponse(
+            responseCode = "500",
+            description = "OCSP Responder not configured",
+            content = @Content)
+      })
+  @GetMapping(
+      value = OCSP_SSP_ENDPOINT + "/{seqNr:-?\\d+}/{*ocspRequest}",
+      produces = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
+  public DeferredResult<ResponseEntity<Object>> ocspServiceGet(
+      @PathVariable("seqNr") final int tslSeqNr,
+      @PathVariable("ocspRequest") final String encodedOcspRequest,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch,
+      final HttpServletRequest request) {
+
+    return processEncodedOcspRequest(
+        ocspTenants.getDefaultTenant(), tslSeqNr, encodedOcspRequest, ifNoneMatch, request);
+  }
+
+  @Operation(
+      summary =
+          "Generates OCSP response for the provided sequence number and the base64 encoded OCSP"
+              + " request in the path, according to the configuration of the tenant.",
+      parameters = {
+        @Parameter(in = ParameterIn.PATH, name = "tenant", description = "tenant id"),
+        @Parameter(in = ParameterIn.PATH, name = "seqNr", description = "sequence number from TSL"),
+        @Parameter(
+            in = ParameterIn.PATH,
+            name = "ocspRequest",
+            description = "base64 or base64url encoded DER of the OCSP Request")
+      })
+  @GetMapping(
+      value =
+          OCSP_SSP_ENDPOINT
+              + "/{tenant:"
+              + OcspTenants.TENANT_ID_REGEX
+              + "}/{seqNr:-?\\d+}/{*ocspRequest}",
+      produces = OcspConstants.MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
+  public DeferredResult<ResponseEntity<Object>> ocspServiceGetForTenant(
+      @PathVariable("tenant") final String tenantId,
+      @PathVariable("seqNr") final int tslSeqNr,
+      @PathVariable("ocspRequest") final String encodedOcspRequest,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch,
+      final HttpServletRequest request) {
+
+    return processEncodedOcspRequest(
+        ocspTenants.find(tenantId).orElse(null),
+        tslSeqNr,
+        encodedOcspRequest,
+        ifNoneMatch,
+        request);
+  }
+
+  private DeferredResult<ResponseEntity<Object>> processEncodedOcspRequest(
+      final OcspTenant ocspTenant,
+      final int tslSeqNr,
+      final String encodedOcspRequest,
+      final String ifNoneMatch,
+      final HttpServletRequest request) {
+
+    final byte[] ocspRequestBytes;
+    try {
+      ocspRequestBytes = decodeOcspRequestFromPath(encodedOcspRequest);
+    } catch (final IllegalArgumentException e) {
+      log.info("Invalid base64 encoding of OCSP request in path: {}", e.getMessage());
+      return DelayedResponseScheduler.completed(ResponseEntity.badRequest().build());
+    }
+    return processOcspRequest(ocspTenant, tslSeqNr, request, ocspRequestBytes, true, ifNoneMatch);
+  }
+
+  /**
+   * RFC 6960 specifies the url encoded base64 of the DER encoding. Clients send slashes either
+   * literally or url encoded, some use the base64url alphabet: all variants are accepted. Url
+   * encoded slashes reach the controller because of {@link EncodedSlashCustomizer}.
+   */
+  static byte[] decodeOcspRequestFromPath(final String encodedOcspRequest) {
+    final String pathValue =
+        encodedOcspRequest.startsWith("/") ? encodedOcspRequest.substring(1) : encodedOcspRequest;
+    final String base64 = pathValue.replace('-', '+').replace('_', '/');
+    if (base64.isEmpty()) {
+      throw new IllegalArgumentException("OCSP request is empty");
     }
+    return Base64.getDecoder().decode(base64);
+  }
+
+  /**
+   * @param ocspTenant tenant to answer the request, null if the tenant does not exist
+   */
+  private DeferredResult<ResponseEntity<Object>> processOcspRequest(
+      final OcspTenant ocspTenant,
+      final int tslSeqNr,
+      final HttpServletRequest request,
+      final byte[] ocspRequestBytes,
+      final boolean withCachingHeaders,
+      final String ifNoneMatch) {
+    final DeferredResult<ResponseEntity<Object>> deferredResult =
+        answerOcspRequest(
+            ocspTenant, tslSeqNr, request, ocspRequestBytes, withCachingHeaders, ifNoneMatch);
+    if (ocspTenant != null) {
+      // a pending configuration is activated after the response was sent, not while it is signed
+      // or delayed, and not if the request failed
+      deferredResult.onCompletion(
+          () -> {
+            if (isAnswered(deferredResult)) {
+              ocspConfigActivator.onOcspRequest(ocspTenant.getTenantId(), tslSeqNr);
+            }
+          });
+    }
+    return deferredResult;
+  }
+
+  private static boolean isAnswered(final DeferredResult<ResponseEntity<Object>> deferredResult) {
+    return (deferredResult.getResult() instanceof final ResponseEntity<?> responseEntity)
+        && responseEntity.getStatusCode().is2xxSuccessful();
+  }
+
+  private DeferredResult<ResponseEntity<Object>> answerOcspRequest(
+      final OcspTenant ocspTenant,
+      final int tslSeqNr,
+      final HttpServletRequest request,
+      final byte[] ocspRequestBytes,
+      final boolean withCachingHeaders,
+      final String ifNoneMatch) {
 
+    final OcspResponseConfigSnapshot configSnapshot =
+        (ocspTenant == null)
+            ? OcspResponseConfigSnapshot.EMPTY
+            : ocspTenant.getOcspResponseConfigHolder().getSnapshot();
+    if (!configSnapshot.isConfigured()) {
+      return DelayedResponseScheduler.completed(
+          ResponseEntity.internalServerError().body(NOT_CONFIGURED));
+    }
+    final OcspRequestHistory ocspRequestHistory = ocspTenant.getOcspRequestHistory();
+    final OcspResponseCache ocspResponseCache = ocspTenant.getOcspResponseCache();
+    final long configGeneration = configSnapshot.getGeneration();
+
+    final long parseStartNanos = System.nanoTime();
     final OCSPReq ocspReq = createOcspReqFromServletRequest(ocspRequestBytes);
-    final BigInteger certSerialNr = getCertSerialNrFromRequest(ocspReq);
-    final Optional<CertificateDto> certificateDto =
-        ocspResponseConfigHolder.getCertificateFromSerialNr(certSerialNr);
-    if (certificateDto.isEmpty()) {
-      log.error("CertSerialNr {} is not configured.", certSerialNr);
-      throw new OcspResponderException("CertSerialNr is not configured");
+    if (ocspReq.getRequestList().length == 0) {
+      log.info("Sending OCSP response with status malformedRequest, the request list is empty.");
+      return DelayedResponseScheduler.completed(
+          createStatusResponseEntity(OCSPRespBuilder.MALFORMED_REQUEST));
     }
+    final List<BigInteger> certSerialNrs = getCertSerialNrsFromRequest(ocspReq);
+    final long lookupStartNanos = System.nanoTime();
+    final List<CertificateDto> configuredCertificateDtos =
+        getCertificateDtosForRequest(configSnapshot, ocspReq);
+    final boolean withResponseSteps =
+        configuredCertificateDtos.stream().anyMatch(CertificateDto::hasResponseSteps);
+    final List<CertificateDto> certificateDtos =
+        configuredCertificateDtos.stream()
+            .map(ocspTenant.getOcspResponseSequences()::resolve)
+            .toList();
+
+    final String signerKeyType = OcspRequestMetrics.getSignerKeyType(certificateDtos.get(0));
+    ocspRequestMetrics.recordSince(Phase.LOOKUP, signerKeyType, lookupStartNanos);
+    ocspRequestMetrics.record(Phase.PARSE, signerKeyType, lookupStartNanos - parseStartNanos);
 
     final byte[] ocspReqBytes;
     try {
@@ -122,88 +369,223 @@ public class OcspRequestController {
       throw new OcspResponderException("Cannot serialize ocspReq", e);
     }
 
-    ocspRequestHistory.add(
-        new OcspRequestHistoryEntryDto(
-            tslSeqNr, certSerialNr, ZonedDateTime.now().toString(), ocspReqBytes));
+    for (final BigInteger certSerialNr : certSerialNrs) {
+      ocspRequestHistory.add(tslSeqNr, certSerialNr, ocspReqBytes);
+    }
     log.info(
-        "Build OCSP Response for tslSeqNr {} and certSerialNr {} and send to {}:{}",
+        "Build OCSP Response for tenant {}, tslSeqNr {} and certSerialNr {} and send to {}:{}",
+        ocspTenant.getTenantId(),
         tslSeqNr,
-        certSerialNr,
+        certSerialNrs.size() == 1 ? certSerialNrs.get(0) : certSerialNrs,
         request.getRemoteHost(),
         request.getRemotePort());
 
-    final int delayMilliseconds = certificateDto.get().getDelayMilliseconds();
-
-    if (delayMilliseconds < 0) {
+    if (certificateDtos.stream().anyMatch(dto -> dto.getDelayMilliseconds() < 0)) {
       throw new PkiCommonException("delayMilliseconds is < 0");
     }
+    final int delayMilliseconds =
+        certificateDtos.stream().mapToInt(CertificateDto::getDelayMilliseconds).max().orElse(0);
+
+    // the CertID of another issuer is only mirrored by the batch response generator
+    final boolean singleResponse =
+        (certificateDtos.size() == 1)
+            && configSnapshot
+                .getCertificateFromCertId(ocspReq.getRequestList()[0].getCertID())
+                .isPresent();
+    final Supplier<byte[]> responseBuilder =
+        singleResponse
+            ? () -> ocspResponseFactory.build(ocspReq, certificateDtos.get(0))
+            : () -> ocspResponseFactory.buildBatch(ocspReq, certificateDtos);
+
+    final CompletableFuture<byte[]> ocspResponseBytesFuture;
+    try {
+      if (withResponseSteps) {
+        // the response depends on the step of the sequence, it must neither be cached nor shared
+        ocspResponseBytesFuture = ocspSigningExecutor.sign(responseBuilder);
+      } else if (singleResponse) {
+        ocspResponseBytesFuture =
+            ocspResponseCache.getOrBuild(
+                configGeneration,
+                ocspReq,
+                certificateDtos.get(0),
+                () ->
+                    ocspResponseSingleFlight.getOrBuild(
+                        ocspTenant.getTenantId(),
+                        configGeneration,
+                        ocspReqBytes,
+                        () -> ocspSigningExecutor.sign(responseBuilder)));
+      } else {
+        ocspResponseBytesFuture =
+            ocspResponseSingleFlight.getOrBuild(
+                ocspTenant.getTenantId(),
+                configGeneration,
+                ocspReqBytes,
+                () -> ocspSigningExecutor.sign(responseBuilder));
+      }
+    } catch (final SigningRejectedException e) {
+      return DelayedResponseScheduler.completed(createRejectionResponseEntity());
+    }
 
-    final byte[] ocspResponseBytes = buildOcspResponseBytes(ocspReq, certificateDto.get());
+    // the servlet thread is released here, the response is sent once it is signed
+    final CompletableFuture<ResponseEntity<Object>> responseEntityFuture =
+        ocspResponseBytesFuture.handle(
+            (ocspResponseBytes, throwable) -> {
+              if (throwable != null) {
+                return createResponseEntityForFailure(throwable);
+              }
+              final long loggingStartNanos = System.nanoTime();
+              log.info("OCSP response: {}", Hex.toHexString(ocspResponseBytes));
+              ocspRequestMetrics.recordSince(Phase.LOGGING, signerKeyType, loggingStartNanos);
+              return withCachingHeaders
+                  ? createCacheableResponseEntity(ocspResponseBytes, configGeneration, ifNoneMatch)
+                  : new ResponseEntity<>(ocspResponseBytes, HttpStatus.OK);
+            });
 
     if (delayMilliseconds > 0) {
       log.info("Delay sending OCSP Response for {} milliseconds", delayMilliseconds);
-      PkitsCommonUtils.waitMilliseconds(delayMilliseconds);
     }
-    log.info("Sending OCSP response.");
-    log.info("OCSP response: {}", Hex.toHexString(ocspResponseBytes));
-    return new ResponseEntity<>(ocspResponseBytes, HttpStatus.OK);
+    return delayedResponseScheduler.schedule(responseEntityFuture, delayMilliseconds);
+  }
+
+  /**
+   * @param throwable exception of the signing future
+   * @return the rejection response, if the signing queue was full
+   * @throws RuntimeException the cause of throwable otherwise, so that it is handled as if thrown
+   *     by the controller
+   */
+  private ResponseEntity<Object> createResponseEntityForFailure(final Throwable throwable) {
+    final Throwable cause = OcspResponseSingleFlight.unwrap(throwable);
+    if (cause instanceof SigningRejectedException) {
+      return createRejectionResponseEntity();
+    }
+    if (cause instanceof final RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    if (cause instanceof final Error error) {
+      throw error;
+    }
+    throw new OcspResponderException("Could not create OcspResponse.", (Exception) cause);
   }
 
-  private byte[] buildOcspResponseBytes(
-      final OCSPReq ocspReq, final CertificateDto certificateDto) {
-    final ZonedDateTime now = GemLibPkiUtils.now();
+  private ResponseEntity<Object> createRejectionResponseEntity() {
+    if (signingExecutorConfig.getRejectionResponse() == RejectionResponse.HTTP_503) {
+      log.info("Sending HTTP 503, signing queue is full.");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+    log.info("Sending OCSP response with status tryLater, signing queue is full.");
+    return createStatusResponseEntity(OCSPRespBuilder.TRY_LATER);
+  }
 
-    ZonedDateTime nextUpdate = null;
-    if (certificateDto.getNextUpdateDeltaMilliseconds() != null) {
-      nextUpdate = now.plus(certificateDto.getNextUpdateDeltaMilliseconds(), ChronoUnit.MILLIS);
+  /** returns an OCSP response without response bytes, for a status other than successful */
+  private static ResponseEntity<Object> createStatusResponseEntity(final int ocspRespStatus) {
+    try {
+      return new ResponseEntity<>(
+          new OCSPRespBuilder().build(ocspRespStatus, null).getEncoded(), HttpStatus.OK);
+    } catch (final IOException | OCSPException e) {
+      throw new OcspResponderException("Could not create OcspResponse.", e);
     }
+  }
+
+  /**
+   * Cache-Control max-age is the time until the earliest nextUpdate (RFC 5019, section 6.2),
+   * Last-Modified is thisUpdate and the ETag is derived from the configuration and the content of
+   * the response, see {@link #createETag(long, OCSPResp)}. Responses without nextUpdate must not be
+   * cached.
+   */
+  private ResponseEntity<Object> createCacheableResponseEntity(
+      final byte[] ocspResponseBytes, final long configGeneration, final String ifNoneMatch) {
+
+    final OCSPResp ocspResp = parseOcspResp(ocspResponseBytes);
+    final String eTag = createETag(configGeneration, ocspResp);
+    final List<SingleResp> singleResps = getSingleResps(ocspResp);
 
-    final OcspResponseGenerator.OcspResponseGeneratorBuilder builder =
-        OcspResponseGenerator.builder()
-            .signer(certificateDto.getSigner())
-            .withCertHash(certificateDto.isWithCertHash())
-            .validCertHash(certificateDto.isValidCertHash())
-            .validSignature(certificateDto.isValidSignature())
-            .certificateIdGeneration(certificateDto.getCertificateIdGeneration())
-            .responderIdType(certificateDto.getResponderIdType())
-            .respStatus(certificateDto.getRespStatus())
-            .withResponseBytes(certificateDto.isWithResponseBytes())
-            .thisUpdate(
-                now.plus(certificateDto.getThisUpdateDeltaMilliseconds(), ChronoUnit.MILLIS))
-            .producedAt(
-                now.plus(certificateDto.getProducedAtDeltaMilliseconds(), ChronoUnit.MILLIS))
-            .nextUpdate(nextUpdate)
-            .withNullParameterHashAlgoOfCertId(certificateDto.isWithNullParameterHashAlgoOfCertId())
-            .responseAlgoBehavior(certificateDto.getResponseAlgoBehavior());
+    final Optional<Date> thisUpdate =
+        singleResps.stream()
+            .map(SingleResp::getThisUpdate)
+            .filter(Objects::nonNull)
+            .max(Date::compareTo);
+    final Optional<Date> nextUpdate =
+        singleResps.stream()
+            .map(SingleResp::getNextUpdate)
+            .filter(Objects::nonNull)
+            .min(Date::compareTo);
 
-    if (certificateDto.getSignerCaCert() != null) {
-      builder.signerCaCert(certificateDto.getSignerCaCert());
+    CacheControl cacheControl = CacheControl.noCache();
+    if (nextUpdate.isPresent()
+        && singleResps.stream().allMatch(resp -> resp.getNextUpdate() != null)) {
+      final long maxAgeSeconds =
+          Math.max(0, Duration.between(Instant.now(), nextUpdate.get().toInstant()).toSeconds());
+      cacheControl =
+          CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic().mustRevalidate();
     }
-    final OcspResponseGenerator ocspResponseGenerator = builder.build();
 
-    try {
-      final OCSPResp ocspResponse =
-          ocspResponseGenerator.generate(
-              ocspReq,
-              certificateDto.getEeCert(),
-              certificateDto.getIssuerCert(),
-              certificateDto.getOcspCertificateStatus());
-
-      final Extension certHashExtension =
-          getFirstSingleResp(ocspResponse).getExtension(id_isismtt_at_certHash);
-
-      byte[] certHash = null;
-      if (certHashExtension != null) {
-        certHash = CertHash.getInstance(certHashExtension.getParsedValue()).getCertificateHash();
-      }
+    final HttpStatus httpStatus =
+        eTag.equals(ifNoneMatch) ? HttpStatus.NOT_MODIFIED : HttpStatus.OK;
+    final ResponseEntity.BodyBuilder builder =
+        ResponseEntity.status(httpStatus).cacheControl(cacheControl).eTag(eTag);
+    thisUpdate.ifPresent(date -> builder.lastModified(date.toInstant()));
 
-      log.debug(
-          "Building OcspResponse done. CertHash: {}.",
-          certHash != null ? Hex.toHexString(certHash) : "not included");
+    if (httpStatus == HttpStatus.NOT_MODIFIED) {
+      log.info("OCSP response matches If-None-Match {}", ifNoneMatch);
+      return builder.build();
+    }
+    return builder.body(ocspResponseBytes);
+  }
 
-      return ocspResponse.getEncoded();
+  /**
+   * The ETag covers the configuration generation, the response status and per single response the
+   * CertID, the certificate status and thisUpdate. Unlike the response bytes, these do not change
+   * with producedAt and the signature, so a response signed again for the same thisUpdate keeps its
+   * ETag.
+   *
+   * @param configGeneration generation of the configuration the response was built from
+   * @param ocspResp the OCSP response
+   * @return the quoted ETag
+   */
+  static String createETag(final long configGeneration, final OCSPResp ocspResp) {
+    final StringBuilder eTagInput =
+        new StringBuilder().append(configGeneration).append(':').append(ocspResp.getStatus());
+    for (final SingleResp singleResp : getSingleResps(ocspResp)) {
+      try {
+        eTagInput
+            .append(':')
+            .append(Hex.toHexString(singleResp.getCertID().toASN1Primitive().getEncoded()))
+            .append(':')
+            .append(
+                (singleResp.getCertStatus() == null)
+                    ? "good"
+                    : singleResp.getCertStatus().getClass().getSimpleName())
+            .append(':')
+            .append(
+                (singleResp.getThisUpdate() == null) ? "" : singleResp.getThisUpdate().getTime());
+      } catch (final IOException e) {
+        throw new OcspResponderException("Cannot encode CertID.", e);
+      }
+    }
+    return "\""
+        + Hex.toHexString(
+            GemLibPkiUtils.calculateSha256(
+                eTagInput.toString().getBytes(StandardCharsets.US_ASCII)))
+        + "\"";
+  }
+
+  private static OCSPResp parseOcspResp(final byte[] ocspResponseBytes) {
+    try {
+      return new OCSPResp(ocspResponseBytes);
     } catch (final IOException e) {
-      throw new OcspResponderException("Could not create OcspResponse.", e);
+      throw new OcspResponderException("Could not parse OcspResponse.", e);
+    }
+  }
+
+  /** returns the single responses, or an empty list for responses without response bytes */
+  private static List<SingleResp> getSingleResps(final OCSPResp ocspResp) {
+    try {
+      if (ocspResp.getResponseObject() instanceof final BasicOCSPResp basicOcspResp) {
+        return List.of(basicOcspResp.getResponses());
+      }
+      return List.of();
+    } catch (final OCSPException e) {
+      throw new OcspResponderException("Could not parse OcspResponse.", e);
     }
   }
 
@@ -216,12 +598,53 @@ public class OcspRequestController {
     }
   }
 
-  private BigInteger getCertSerialNrFromRequest(final OCSPReq ocspReq) {
-    final BigInteger certSerialNr = ocspReq.getRequestList()[0].getCertID().getSerialNumber();
-    if (certSerialNr == null) {
-      throw new OcspResponderException("Could not extract certSerialNr from OcspRequest.");
+  private List<BigInteger> getCertSerialNrsFromRequest(final OCSPReq ocspReq) {
+    final List<BigInteger> certSerialNrs = new ArrayList<>();
+    for (final Req req : ocspReq.getRequestList()) {
+      final BigInteger certSerialNr = req.getCertID().getSerialNumber();
+      if (certSerialNr == null) {
+        throw new OcspResponderException("Could not extract certSerialNr from OcspRequest.");
+      }
+      log.info("RX OCSP Request for certSerialNr: {}", certSerialNr);
+      certSerialNrs.add(certSerialNr);
+    }
+    return certSerialNrs;
+  }
+
+  /**
+   * Returns the configuration for every request of ocspReq, in the same order. A certificate with a
+   * configured serial number, but of another issuer, is answered with status unknown, the behaviour
+   * configured for the serial number and the CertID of the request.
+   */
+  private static List<CertificateDto> getCertificateDtosForRequest(
+      final OcspResponseConfigSnapshot configSnapshot, final OCSPReq ocspReq) {
+    final List<CertificateDto> certificateDtos = new ArrayList<>();
+    for (final Req req : ocspReq.getRequestList()) {
+      final BigInteger certSerialNr = req.getCertID().getSerialNumber();
+      final Optional<CertificateDto> certificateDto =
+          configSnapshot.getCertificateFromCertId(req.getCertID());
+      if (certificateDto.isPresent()) {
+        certificateDtos.add(certificateDto.get());
+        continue;
+      }
+      final Optional<CertificateDto> otherIssuerCertificateDto =
+          configSnapshot.getCertificateFromSerialNr(certSerialNr);
+      if (otherIssuerCertificateDto.isEmpty()) {
+        log.error("CertSerialNr {} is not configured.", certSerialNr);
+        throw new OcspResponderException("CertSerialNr is not configured");
+      }
+      log.info(
+          "CertSerialNr {} is only configured for another issuer, answering with status unknown.",
+          certSerialNr);
+      certificateDtos.add(
+          otherIssuerCertificateDto.get().toBuilder()
+              .certificateStatus(CustomCertificateStatusDto.createUnknown())
+              .responseSteps(null)
+              .certificateIdGeneration(CertificateIdGeneration.VALID_CERTID)
+              .responseAlgoBehavior(ResponseAlgoBehavior.MIRRORING)
+              .withNullParameterHashAlgoOfCertId(false)
+              .build());
     }
-    log.info("RX OCSP Request for certSerialNr: {}", certSerialNr);
-    return certSerialNr;
+    return certificateDtos;
   }
 }
@@ -26,6 +26,7 @@ import de.gematik.pki.gemlibpki.utils.P12Container;
 import de.gematik.pki.pkits.common.PkiCommonException;
 import eu.europa.esig.dss.spi.x509.revocation.ocsp.OCSPRespStatus;
 import java.security.cert.X509Certificate;
+import java.util.List;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -77,6 +78,42 @@ public class CertificateDto {
   private final CustomCertificateStatusDto certificateStatus =
       CustomCertificateStatusDto.createGood();
 
+  /**
+   * scripted sequence of response behaviours, the responder moves through the steps on its own,
+   * starting with the first request for the certificate; null for a fixed behaviour
+   */
+  @Builder.Default private final List<ResponseStepDto> responseSteps = null;
+
+  @JsonIgnore
+  public boolean hasResponseSteps() {
+    return (responseSteps != null) && !responseSteps.isEmpty();
+  }
+
+  /**
+   * @param responseStep step of the response sequence
+   * @return a copy of this configuration with the behaviours of responseStep and without response
+   *     sequence
+   */
+  public CertificateDto withResponseStep(final ResponseStepDto responseStep) {
+    final CertificateDtoBuilder<?, ?> builder = toBuilder().responseSteps(null);
+    if (responseStep.getCertificateStatus() != null) {
+      builder.certificateStatus(responseStep.getCertificateStatus());
+    }
+    if (responseStep.getDelayMilliseconds() != null) {
+      builder.delayMilliseconds(responseStep.getDelayMilliseconds());
+    }
+    if (responseStep.getRespStatus() != null) {
+      builder.respStatus(responseStep.getRespStatus());
+    }
+    if (responseStep.getWithResponseBytes() != null) {
+      builder.withResponseBytes(responseStep.getWithResponseBytes());
+    }
+    if (responseStep.getValidSignature() != null) {
+      builder.validSignature(responseStep.getValidSignature());
+    }
+    return builder.build();
+  }
+
   @JsonIgnore
   public CustomCertificateStatusDto getCertificateStatusDto() {
     return certificateStatus;
@@ -97,7 +134,7 @@ public class CertificateDto {
             + " certificateIdGeneration=%s, certificateStatus=%s, respStatus=%s,"
             + " withResponseBytes=%s, attachIssuerCert=%s, thisUpdateDeltaMilliseconds=%s,"
             + " producedAtDeltaMilliseconds=%s, nextUpdateDeltaMilliseconds=%s,"
-            + " withNullParameterHashAlgoOfCertId=%s}")
+            + " withNullParameterHashAlgoOfCertId=%s, responseSteps=%s}")
         .formatted(
             eeCert.getSerialNumber(),
             issuerCert.getSubjectX500Principal().getName(),
@@ -114,6 +151,7 @@ public class CertificateDto {
             thisUpdateDeltaMilliseconds,
             producedAtDeltaMilliseconds,
             nextUpdateDeltaMilliseconds,
-            withNullParameterHashAlgoOfCertId);
+            withNullParameterHashAlgoOfCertId,
+            responseSteps);
   }
 }
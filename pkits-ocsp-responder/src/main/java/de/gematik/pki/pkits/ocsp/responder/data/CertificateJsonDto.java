@@ -20,18 +20,28 @@
 
 package de.gematik.pki.pkits.ocsp.responder.data;
 
-import de.gematik.pki.gemlibpki.utils.CertReader;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
 import de.gematik.pki.gemlibpki.utils.P12Container;
+import de.gematik.pki.pkits.ocsp.responder.CryptoMaterialRegistry;
+import de.gematik.pki.pkits.ocsp.responder.OcspResponderException;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
+/**
+ * JSON representation of {@link CertificateDto}. Every certificate and the private key are sent
+ * base64 encoded, or referenced by the SHA-256 of their DER encoding, if the material was uploaded
+ * before (see {@link CryptoMaterialRegistry}).
+ */
 @Getter
 @Setter
 @SuperBuilder(toBuilder = true)
@@ -39,11 +49,17 @@ import lombok.experimental.SuperBuilder;
 @AllArgsConstructor
 public class CertificateJsonDto extends CertificateDto {
 
-  @NonNull private String eeCertEncoded;
-  @NonNull private String issuerCertEncoded;
-  @NonNull private String signerCertificateEncoded;
+  private String eeCertEncoded;
+  private String issuerCertEncoded;
+  private String signerCertificateEncoded;
   private String signerCaCertEncoded;
-  @NonNull private String signerPrivateKeyEncoded;
+  private String signerPrivateKeyEncoded;
+
+  private String eeCertSha256;
+  private String issuerCertSha256;
+  private String signerCertificateSha256;
+  private String signerCaCertSha256;
+  private String signerPrivateKeySha256;
 
   public CertificateJsonDto(final CertificateDto certificateDto) {
     super(certificateDto.toBuilder());
@@ -58,26 +74,91 @@ public class CertificateJsonDto extends CertificateDto {
             : null;
     this.signerPrivateKeyEncoded =
         GemLibPkiUtils.toMimeBase64NoLineBreaks(this.getSigner().getPrivateKey().getEncoded());
+
+    this.eeCertSha256 = sha256Hex(this.eeCertEncoded);
+    this.issuerCertSha256 = sha256Hex(this.issuerCertEncoded);
+    this.signerCertificateSha256 = sha256Hex(this.signerCertificateEncoded);
+    this.signerCaCertSha256 = sha256Hex(this.signerCaCertEncoded);
+    this.signerPrivateKeySha256 = sha256Hex(this.signerPrivateKeyEncoded);
+  }
+
+  /**
+   * Removes the encoding of all material, whose hash is known to the receiver. Only the hash is
+   * sent for this material.
+   *
+   * @param knownSha256s hashes of the material uploaded before
+   * @return this
+   */
+  public CertificateJsonDto referenceKnownMaterial(final Set<String> knownSha256s) {
+    if (isKnown(knownSha256s, eeCertSha256)) {
+      eeCertEncoded = null;
+    }
+    if (isKnown(knownSha256s, issuerCertSha256)) {
+      issuerCertEncoded = null;
+    }
+    if (isKnown(knownSha256s, signerCertificateSha256)) {
+      signerCertificateEncoded = null;
+    }
+    if (isKnown(knownSha256s, signerCaCertSha256)) {
+      signerCaCertEncoded = null;
+    }
+    if (isKnown(knownSha256s, signerPrivateKeySha256)) {
+      signerPrivateKeyEncoded = null;
+    }
+    return this;
+  }
+
+  private static boolean isKnown(final Set<String> knownSha256s, final String sha256) {
+    return (sha256 != null) && knownSha256s.contains(sha256);
+  }
+
+  @JsonIgnore
+  public List<String> getMaterialSha256s() {
+    return Stream.of(
+            eeCertSha256,
+            issuerCertSha256,
+            signerCertificateSha256,
+            signerCaCertSha256,
+            signerPrivateKeySha256)
+        .filter(Objects::nonNull)
+        .toList();
   }
 
   public CertificateDto toCertificateDto() {
+    return toCertificateDto(new CryptoMaterialRegistry());
+  }
+
+  /**
+   * @param cryptoMaterialRegistry registry to resolve material referenced by hash, inline material
+   *     is registered
+   * @return this, with parsed certificates and signer
+   */
+  public CertificateDto toCertificateDto(final CryptoMaterialRegistry cryptoMaterialRegistry) {
 
     final X509Certificate eeCert =
-        CertReader.readX509(GemLibPkiUtils.decodeFromMimeBase64(this.eeCertEncoded));
+        resolveCertificate(cryptoMaterialRegistry, this.eeCertEncoded, this.eeCertSha256);
 
     final X509Certificate issuerCert =
-        CertReader.readX509(GemLibPkiUtils.decodeFromMimeBase64(this.issuerCertEncoded));
+        resolveCertificate(cryptoMaterialRegistry, this.issuerCertEncoded, this.issuerCertSha256);
 
     final X509Certificate signerCert =
-        CertReader.readX509(GemLibPkiUtils.decodeFromMimeBase64(this.signerCertificateEncoded));
+        resolveCertificate(
+            cryptoMaterialRegistry, this.signerCertificateEncoded, this.signerCertificateSha256);
 
     final X509Certificate signerCaCert =
-        this.signerCaCertEncoded != null
-            ? CertReader.readX509(GemLibPkiUtils.decodeFromMimeBase64(this.signerCaCertEncoded))
+        ((this.signerCaCertEncoded != null) || (this.signerCaCertSha256 != null))
+            ? resolveCertificate(
+                cryptoMaterialRegistry, this.signerCaCertEncoded, this.signerCaCertSha256)
             : null;
 
-    final PrivateKey signerPrivateKey =
-        GemLibPkiUtils.convertPrivateKey(this.signerPrivateKeyEncoded);
+    final PrivateKey signerPrivateKey;
+    if (this.signerPrivateKeyEncoded != null) {
+      signerPrivateKey = cryptoMaterialRegistry.registerPrivateKey(this.signerPrivateKeyEncoded);
+    } else {
+      signerPrivateKey =
+          cryptoMaterialRegistry.getPrivateKey(
+              requireSha256(this.signerPrivateKeySha256, "signerPrivateKey"));
+    }
 
     this.eeCert = eeCert;
     this.issuerCert = issuerCert;
@@ -86,4 +167,28 @@ public class CertificateJsonDto extends CertificateDto {
 
     return this;
   }
+
+  private static X509Certificate resolveCertificate(
+      final CryptoMaterialRegistry cryptoMaterialRegistry,
+      final String certificateEncoded,
+      final String certificateSha256) {
+    if (certificateEncoded != null) {
+      return cryptoMaterialRegistry.registerCertificate(certificateEncoded);
+    }
+    return cryptoMaterialRegistry.getCertificate(requireSha256(certificateSha256, "certificate"));
+  }
+
+  private static String requireSha256(final String sha256, final String materialName) {
+    if (sha256 == null) {
+      throw new OcspResponderException(
+          "neither encoding nor SHA-256 of %s is set".formatted(materialName));
+    }
+    return sha256;
+  }
+
+  private static String sha256Hex(final String encoded) {
+    return encoded != null
+        ? CryptoMaterialRegistry.sha256Hex(GemLibPkiUtils.decodeFromMimeBase64(encoded))
+        : null;
+  }
 }
@@ -36,6 +36,16 @@ public class OcspInfoRequestDto {
   private BigInteger certSerialNr;
   private HistoryDeleteOption historyDeleteOption;
 
+  /** only entries with a greater sequence id are queried, null for all entries */
+  private Long sinceSequenceId;
+
+  public OcspInfoRequestDto(
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr,
+      final HistoryDeleteOption historyDeleteOption) {
+    this(tslSeqNr, certSerialNr, historyDeleteOption, null);
+  }
+
   public enum HistoryDeleteOption {
     DELETE_NOTHING,
     DELETE_QUERIED_HISTORY,
@@ -44,7 +54,7 @@ public class OcspInfoRequestDto {
 
   @Override
   public String toString() {
-    return "OcspInfoRequestDto{tslSeqNr=%d, certSerialNr=%s, historyDeleteOption=%s}"
-        .formatted(tslSeqNr, certSerialNr, historyDeleteOption);
+    return "OcspInfoRequestDto{tslSeqNr=%d, certSerialNr=%s, historyDeleteOption=%s, sinceSequenceId=%s}"
+        .formatted(tslSeqNr, certSerialNr, historyDeleteOption, sinceSequenceId);
   }
 }
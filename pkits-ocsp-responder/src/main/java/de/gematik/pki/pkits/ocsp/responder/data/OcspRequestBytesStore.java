@@ -0,0 +1,91 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.data;
+
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AllArgsConstructor;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Reference counted store of OCSP request bytes by SHA-256, used by the {@link OcspRequestHistory}
+ * in compact mode. Identical requests are stored once, and the bytes are dropped as soon as no
+ * history entry refers to them.
+ */
+public class OcspRequestBytesStore {
+
+  private final Map<String, StoredRequest> storedRequests = new ConcurrentHashMap<>();
+
+  /**
+   * @param ocspReqBytes encoded OCSP request
+   * @return the SHA-256 of the request as hex string, the same instance for identical requests
+   */
+  public String acquire(final byte[] ocspReqBytes) {
+    final String sha256 = Hex.toHexString(GemLibPkiUtils.calculateSha256(ocspReqBytes));
+    return storedRequests.compute(
+            sha256,
+            (key, storedRequest) ->
+                (storedRequest == null)
+                    ? new StoredRequest(key, ocspReqBytes, 1)
+                    : new StoredRequest(
+                        storedRequest.sha256,
+                        storedRequest.ocspReqBytes,
+                        storedRequest.referenceCount + 1))
+        .sha256;
+  }
+
+  /**
+   * @param sha256 SHA-256 returned by {@link #acquire(byte[])}
+   */
+  public void release(final String sha256) {
+    storedRequests.computeIfPresent(
+        sha256,
+        (key, storedRequest) ->
+            (storedRequest.referenceCount <= 1)
+                ? null
+                : new StoredRequest(
+                    storedRequest.sha256,
+                    storedRequest.ocspReqBytes,
+                    storedRequest.referenceCount - 1));
+  }
+
+  public Optional<byte[]> get(final String sha256) {
+    return Optional.ofNullable(storedRequests.get(sha256))
+        .map(storedRequest -> storedRequest.ocspReqBytes);
+  }
+
+  /**
+   * @return number of distinct requests
+   */
+  public int size() {
+    return storedRequests.size();
+  }
+
+  @AllArgsConstructor
+  private static final class StoredRequest {
+
+    private final String sha256;
+    private final byte[] ocspReqBytes;
+    private final int referenceCount;
+  }
+}
@@ -21,38 +21,321 @@
 package de.gematik.pki.pkits.ocsp.responder.data;
 
 import de.gematik.pki.pkits.ocsp.responder.api.OcspResponderManager;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig.EvictionPolicy;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig.StorageMode;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiPredicate;
-import lombok.RequiredArgsConstructor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+/**
+ * Capacity-bounded history of OCSP requests. Appends claim a position with an atomic counter and
+ * store their slot without a global lock. The position is the sequence id of the entry, it is
+ * monotonically increasing and never reused. Concurrent appends can store their slots out of order,
+ * so excerpts only contain entries up to a published watermark: the highest position up to which
+ * every append has finished. A cursor on the sequence id therefore never skips an entry. Entries
+ * are additionally indexed by tslSeqNr and certSerialNr, so that excerpts do not scan the whole
+ * history. The capacity applies to the number of live entries, so that deleted entries free their
+ * space. Entries that are evicted or dropped because of the capacity are counted as overflow.
+ *
+ * <p>In compact storage mode an entry keeps the timestamp as epoch nanos and the SHA-256 of the
+ * request instead of a copy of the request bytes. The bytes are kept once per distinct request in
+ * an {@link OcspRequestBytesStore} and are fetched on demand.
+ *
+ * <p>An attached {@link OcspRequestHistoryJournal} receives all entries and deletions, so that the
+ * history can be restored with its sequence ids after a restart.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class OcspRequestHistory {
 
-  private final List<OcspRequestHistoryEntryDto> history =
-      Collections.synchronizedList(new ArrayList<>());
+  private final EvictionPolicy evictionPolicy;
+  private final StorageMode storageMode;
+  private final OcspRequestBytesStore ocspRequestBytesStore = new OcspRequestBytesStore();
+  private final int capacity;
+  private final ConcurrentSkipListMap<Long, Slot> slots = new ConcurrentSkipListMap<>();
+  private final AtomicLong nextPosition = new AtomicLong(1);
+
+  /** every append with a position up to this one has finished */
+  private final AtomicLong publishedPosition = new AtomicLong();
+
+  /** finished appends above the published position, guarded by itself */
+  private final NavigableSet<Long> finishedPositions = new TreeSet<>();
+
+  /** live entries plus entries reserved by appends in progress */
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final AtomicLong overflowCount = new AtomicLong();
+
+  private final NavigableSet<Long> positions = slots.keySet();
+  private final Map<Integer, NavigableSet<Long>> positionsByTslSeqNr = new ConcurrentHashMap<>();
+  private final Map<BigInteger, NavigableSet<Long>> positionsByCertSerialNr =
+      new ConcurrentHashMap<>();
+
+  private final List<Consumer<OcspRequestHistoryEntryDto>> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile OcspRequestHistoryJournal journal;
 
   private static final BiPredicate<OcspRequestHistoryEntryDto, Integer> predicateTslSeqNr =
       (historyEntry, tslSeqNr) ->
-          (tslSeqNr == null)
-              || (tslSeqNr == OcspResponderManager.IGNORE_SEQUENCE_NUMBER)
-              || (historyEntry.getTslSeqNr() == tslSeqNr);
+          isIgnoredTslSeqNr(tslSeqNr) || (historyEntry.getTslSeqNr() == tslSeqNr);
 
   private static final BiPredicate<OcspRequestHistoryEntryDto, BigInteger> predicateCertSerialNr =
       (historyEntry, certSerialNr) ->
-          (certSerialNr == null)
-              || certSerialNr.equals(OcspResponderManager.IGNORE_CERT_SERIAL_NUMBER)
+          isIgnoredCertSerialNr(certSerialNr)
               || historyEntry.getCertSerialNr().equals(certSerialNr);
 
+  public OcspRequestHistory() {
+    this(new RequestHistoryConfig());
+  }
+
+  @Autowired
+  public OcspRequestHistory(final RequestHistoryConfig requestHistoryConfig) {
+    if (requestHistoryConfig.getCapacity() <= 0) {
+      throw new IllegalArgumentException("capacity of the OCSP request history must be positive");
+    }
+    this.evictionPolicy = requestHistoryConfig.getEvictionPolicy();
+    this.storageMode = requestHistoryConfig.getStorageMode();
+    this.capacity = requestHistoryConfig.getCapacity();
+  }
+
   public void add(final OcspRequestHistoryEntryDto newItem) {
-    log.info("Add new entry in OCSP responder history: {}", newItem);
-    history.add(newItem);
+    final long position = nextPosition.getAndIncrement();
+    newItem.setSequenceId(position);
+    try {
+      if (storageMode == StorageMode.COMPACT) {
+        store(
+            createCompactSlot(
+                position,
+                newItem.getTslSeqNr(),
+                newItem.getCertSerialNr(),
+                toEpochNanos(newItem.getTimeStamp()),
+                newItem.getOcspReqBytes()));
+        return;
+      }
+      log.info("Add new entry in OCSP responder history: {}", newItem);
+      store(new Slot(position, newItem.getTslSeqNr(), newItem.getCertSerialNr(), newItem, 0, null));
+    } finally {
+      finish(position);
+    }
+  }
+
+  /**
+   * Adds an entry for a request received now.
+   *
+   * @param tslSeqNr TSL sequence number of the request
+   * @param certSerialNr requested certificate serial number
+   * @param ocspReqBytes encoded OCSP request
+   */
+  public void add(final int tslSeqNr, final BigInteger certSerialNr, final byte[] ocspReqBytes) {
+    if (storageMode == StorageMode.COMPACT) {
+      final long position = nextPosition.getAndIncrement();
+      try {
+        store(
+            createCompactSlot(
+                position, tslSeqNr, certSerialNr, toEpochNanos(Instant.now()), ocspReqBytes));
+      } finally {
+        finish(position);
+      }
+      return;
+    }
+    add(
+        new OcspRequestHistoryEntryDto(
+            tslSeqNr, certSerialNr, ZonedDateTime.now().toString(), ocspReqBytes));
+  }
+
+  private Slot createCompactSlot(
+      final long position,
+      final int tslSeqNr,
+      final BigInteger certSerialNr,
+      final long epochNanos,
+      final byte[] ocspReqBytes) {
+    final String ocspReqSha256 =
+        (ocspReqBytes == null) ? null : ocspRequestBytesStore.acquire(ocspReqBytes);
+    log.info(
+        "Add new entry in OCSP responder history: sequenceId={}, tslSeqNr={}, certSerialNr={},"
+            + " ocspReqSha256={}",
+        position,
+        tslSeqNr,
+        certSerialNr,
+        ocspReqSha256);
+    return new Slot(position, tslSeqNr, certSerialNr, null, epochNanos, ocspReqSha256);
+  }
+
+  /** listeners are notified when the slot is below the published position, see finish */
+  private void store(final Slot newSlot) {
+    if (evictionPolicy == EvictionPolicy.DROP_NEWEST) {
+      if (!reserveSize()) {
+        overflowCount.incrementAndGet();
+        releaseRequestBytes(newSlot);
+        log.warn(
+            "OCSP request history is full: dropped new entry at position {}", newSlot.position);
+        return;
+      }
+      appendToJournal(newSlot);
+      publish(newSlot);
+      return;
+    }
+
+    // journal and index before publishing, a published slot can already be evicted again
+    appendToJournal(newSlot);
+    publish(newSlot);
+    if (size.incrementAndGet() > capacity) {
+      evictOldest();
+    }
+  }
+
+  /**
+   * Marks the append at position as finished, stored or dropped. Advances the published position
+   * over all contiguous finished appends and notifies the listeners about the entries that became
+   * visible, in order of their positions.
+   */
+  private void finish(final long position) {
+    final long previousPublishedPosition;
+    final long newPublishedPosition;
+    synchronized (finishedPositions) {
+      finishedPositions.add(position);
+      previousPublishedPosition = publishedPosition.get();
+      long next = previousPublishedPosition + 1;
+      while (finishedPositions.remove(next)) {
+        next++;
+      }
+      newPublishedPosition = next - 1;
+      publishedPosition.set(newPublishedPosition);
+    }
+    if (newPublishedPosition > previousPublishedPosition) {
+      slots
+          .subMap(previousPublishedPosition, false, newPublishedPosition, true)
+          .values()
+          .forEach(this::notifyListeners);
+    }
+  }
+
+  /** returns true if the size was below the capacity and has been incremented */
+  private boolean reserveSize() {
+    int currentSize;
+    do {
+      currentSize = size.get();
+      if (currentSize >= capacity) {
+        return false;
+      }
+    } while (!size.compareAndSet(currentSize, currentSize + 1));
+    return true;
+  }
+
+  private void publish(final Slot slot) {
+    addToIndexes(slot);
+    slots.put(slot.position, slot);
+  }
+
+  /**
+   * Removes the entry with the lowest position. Every append that exceeds the capacity removes
+   * exactly one entry, so that concurrent appends never evict more entries than necessary and never
+   * evict a newer entry while an older one is live.
+   */
+  private void evictOldest() {
+    Map.Entry<Long, Slot> oldest;
+    while ((oldest = slots.firstEntry()) != null) {
+      if (remove(oldest.getValue())) {
+        overflowCount.incrementAndGet();
+        log.debug("OCSP request history is full: evicted entry at position {}", oldest.getKey());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Replays the journal into the history and appends all further entries and deletions to it.
+   * Replayed entries keep their sequence ids.
+   *
+   * @param ocspRequestHistoryJournal journal of this history
+   * @return number of replayed records
+   */
+  public int attachJournal(final OcspRequestHistoryJournal ocspRequestHistoryJournal) {
+    final int recordCount =
+        ocspRequestHistoryJournal.replay(
+            new OcspRequestHistoryJournal.RecordVisitor() {
+              @Override
+              public void onEntry(
+                  final long sequenceId,
+                  final long epochNanos,
+                  final int tslSeqNr,
+                  final BigInteger certSerialNr,
+                  final byte[] ocspReqBytes) {
+                restore(sequenceId, epochNanos, tslSeqNr, certSerialNr, ocspReqBytes);
+              }
+
+              @Override
+              public void onDeletion(
+                  final Integer tslSeqNr,
+                  final BigInteger certSerialNr,
+                  final Long sinceSequenceId) {
+                deleteEntries(tslSeqNr, certSerialNr, sinceSequenceId);
+              }
+            });
+    journal = ocspRequestHistoryJournal;
+    return recordCount;
+  }
+
+  /** replay runs before requests are served, so that the published position can jump */
+  private void restore(
+      final long sequenceId,
+      final long epochNanos,
+      final int tslSeqNr,
+      final BigInteger certSerialNr,
+      final byte[] ocspReqBytes) {
+    nextPosition.accumulateAndGet(sequenceId + 1, Math::max);
+    if (storageMode == StorageMode.COMPACT) {
+      store(createCompactSlot(sequenceId, tslSeqNr, certSerialNr, epochNanos, ocspReqBytes));
+    } else {
+      final OcspRequestHistoryEntryDto historyEntry =
+          new OcspRequestHistoryEntryDto(
+              sequenceId, tslSeqNr, certSerialNr, toTimeStamp(epochNanos), ocspReqBytes, null);
+      store(new Slot(sequenceId, tslSeqNr, certSerialNr, historyEntry, 0, null));
+    }
+    publishedPosition.accumulateAndGet(sequenceId, Math::max);
+  }
+
+  /**
+   * @param listener called for every entry stored in the history, in order of the sequence ids and
+   *     as soon as the entry is visible in excerpts
+   */
+  public void addListener(final Consumer<OcspRequestHistoryEntryDto> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @param historyEntry entry to check
+   * @param tslSeqNr The requested TSL sequence number
+   * @param certSerialNr The requested certificate serial number
+   * @return true if the entry belongs to an excerpt for tslSeqNr and certSerialNr
+   */
+  public static boolean matches(
+      final OcspRequestHistoryEntryDto historyEntry,
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr) {
+    return predicateTslSeqNr.test(historyEntry, tslSeqNr)
+        && predicateCertSerialNr.test(historyEntry, certSerialNr);
   }
 
   /**
@@ -62,12 +345,24 @@ public class OcspRequestHistory {
    */
   public List<OcspRequestHistoryEntryDto> getExcerpt(
       final Integer tslSeqNr, final BigInteger certSerialNr) {
+    return getExcerpt(tslSeqNr, certSerialNr, null);
+  }
 
-    return history.stream()
-        .filter(
-            historyEntry ->
-                predicateTslSeqNr.test(historyEntry, tslSeqNr)
-                    && predicateCertSerialNr.test(historyEntry, certSerialNr))
+  /**
+   * @param tslSeqNr The requested TSL sequence number
+   * @param certSerialNr The requested certificate serial number
+   * @param sinceSequenceId only entries with a greater sequence id are returned, null for all
+   * @return A List with all OCSP-Requests for requested certificate serial number, ordered by
+   *     sequence id. Entries of appends still in progress and all entries after them are not yet
+   *     returned.
+   */
+  public List<OcspRequestHistoryEntryDto> getExcerpt(
+      final Integer tslSeqNr, final BigInteger certSerialNr, final Long sinceSequenceId) {
+
+    final long currentPublishedPosition = publishedPosition.get();
+    return getMatchingSlots(tslSeqNr, certSerialNr, sinceSequenceId)
+        .takeWhile(slot -> slot.position <= currentPublishedPosition)
+        .map(OcspRequestHistory::toEntry)
         .toList();
   }
 
@@ -76,17 +371,221 @@ public class OcspRequestHistory {
    * @param certSerialNr The requested certificate serial number
    */
   public void deleteEntries(final Integer tslSeqNr, final BigInteger certSerialNr) {
-    history.removeIf(
-        historyEntry ->
-            predicateTslSeqNr.test(historyEntry, tslSeqNr)
-                && predicateCertSerialNr.test(historyEntry, certSerialNr));
+    deleteEntries(tslSeqNr, certSerialNr, null);
+  }
+
+  /**
+   * @param tslSeqNr The requested TSL sequence number
+   * @param certSerialNr The requested certificate serial number
+   * @param sinceSequenceId only entries with a greater sequence id are deleted, null for all
+   */
+  public void deleteEntries(
+      final Integer tslSeqNr, final BigInteger certSerialNr, final Long sinceSequenceId) {
+    final OcspRequestHistoryJournal currentJournal = journal;
+    if (currentJournal != null) {
+      currentJournal.appendDeletion(tslSeqNr, certSerialNr, sinceSequenceId);
+    }
+    getMatchingSlots(tslSeqNr, certSerialNr, sinceSequenceId).toList().forEach(this::remove);
   }
 
   public void deleteAll() {
-    history.clear();
+    final OcspRequestHistoryJournal currentJournal = journal;
+    if (currentJournal != null) {
+      currentJournal.appendDeletion(null, null, null);
+    }
+    slots.values().forEach(this::remove);
+  }
+
+  /**
+   * @param ocspReqSha256 SHA-256 of an entry stored in compact mode
+   * @return the bytes of the OCSP request, if an entry of the history refers to them
+   */
+  public Optional<byte[]> getOcspReqBytes(final String ocspReqSha256) {
+    return ocspRequestBytesStore.get(ocspReqSha256);
   }
 
   public int size() {
-    return history.size();
+    return size.get();
+  }
+
+  /**
+   * @return number of entries evicted or dropped since start, because the history was full
+   */
+  public long getOverflowCount() {
+    return overflowCount.get();
+  }
+
+  private Stream<Slot> getMatchingSlots(
+      final Integer tslSeqNr, final BigInteger certSerialNr, final Long sinceSequenceId) {
+
+    NavigableSet<Long> candidatePositions;
+    if (!isIgnoredCertSerialNr(certSerialNr)) {
+      candidatePositions = positionsByCertSerialNr.get(certSerialNr);
+    } else if (!isIgnoredTslSeqNr(tslSeqNr)) {
+      candidatePositions = positionsByTslSeqNr.get(tslSeqNr);
+    } else {
+      candidatePositions = positions;
+    }
+    if (candidatePositions == null) {
+      return Stream.empty();
+    }
+    if (sinceSequenceId != null) {
+      candidatePositions = candidatePositions.tailSet(sinceSequenceId, false);
+    }
+
+    return candidatePositions.stream()
+        .map(this::getSlot)
+        .filter(
+            slot ->
+                (slot != null)
+                    && (isIgnoredTslSeqNr(tslSeqNr) || (slot.tslSeqNr == tslSeqNr))
+                    && (isIgnoredCertSerialNr(certSerialNr)
+                        || slot.certSerialNr.equals(certSerialNr)));
+  }
+
+  private void notifyListeners(final Slot slot) {
+    if (listeners.isEmpty()) {
+      return;
+    }
+    final OcspRequestHistoryEntryDto historyEntry = toEntry(slot);
+    listeners.forEach(listener -> listener.accept(historyEntry));
+  }
+
+  private static OcspRequestHistoryEntryDto toEntry(final Slot slot) {
+    if (slot.entry != null) {
+      return slot.entry;
+    }
+    return new OcspRequestHistoryEntryDto(
+        slot.position,
+        slot.tslSeqNr,
+        slot.certSerialNr,
+        toTimeStamp(slot.epochNanos),
+        null,
+        slot.ocspReqSha256);
+  }
+
+  private void appendToJournal(final Slot slot) {
+    final OcspRequestHistoryJournal currentJournal = journal;
+    if (currentJournal == null) {
+      return;
+    }
+    if (slot.entry != null) {
+      currentJournal.appendEntry(
+          slot.position,
+          toEpochNanos(slot.entry.getTimeStamp()),
+          slot.tslSeqNr,
+          slot.certSerialNr,
+          slot.entry.getOcspReqBytes());
+      return;
+    }
+    currentJournal.appendEntry(
+        slot.position,
+        slot.epochNanos,
+        slot.tslSeqNr,
+        slot.certSerialNr,
+        (slot.ocspReqSha256 == null)
+            ? null
+            : ocspRequestBytesStore.get(slot.ocspReqSha256).orElse(null));
+  }
+
+  private static String toTimeStamp(final long epochNanos) {
+    return ZonedDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), ZoneId.systemDefault())
+        .toString();
+  }
+
+  private static long toEpochNanos(final Instant instant) {
+    return (instant.getEpochSecond() * 1_000_000_000L) + instant.getNano();
+  }
+
+  /** returns the epoch nanos of timeStamp, or of now if timeStamp is not a ZonedDateTime */
+  private static long toEpochNanos(final String timeStamp) {
+    if (timeStamp == null) {
+      return toEpochNanos(Instant.now());
+    }
+    try {
+      return toEpochNanos(ZonedDateTime.parse(timeStamp).toInstant());
+    } catch (final DateTimeParseException e) {
+      return toEpochNanos(Instant.now());
+    }
+  }
+
+  /** returns the slot at the given position, or null if it was removed */
+  private Slot getSlot(final long position) {
+    return slots.get(position);
+  }
+
+  /** returns true if this call removed the slot */
+  private boolean remove(final Slot slot) {
+    if (!slots.remove(slot.position, slot)) {
+      return false;
+    }
+    discard(slot);
+    size.decrementAndGet();
+    return true;
+  }
+
+  private void addToIndexes(final Slot slot) {
+    addToIndex(positionsByTslSeqNr, slot.tslSeqNr, slot.position);
+    addToIndex(positionsByCertSerialNr, slot.certSerialNr, slot.position);
+  }
+
+  private void discard(final Slot slot) {
+    removeFromIndex(positionsByTslSeqNr, slot.tslSeqNr, slot.position);
+    removeFromIndex(positionsByCertSerialNr, slot.certSerialNr, slot.position);
+    releaseRequestBytes(slot);
+  }
+
+  private void releaseRequestBytes(final Slot slot) {
+    if (slot.ocspReqSha256 != null) {
+      ocspRequestBytesStore.release(slot.ocspReqSha256);
+    }
+  }
+
+  private static <K> void addToIndex(
+      final Map<K, NavigableSet<Long>> index, final K key, final long position) {
+    index.compute(
+        key,
+        (k, keyPositions) -> {
+          final NavigableSet<Long> result =
+              (keyPositions == null) ? new ConcurrentSkipListSet<>() : keyPositions;
+          result.add(position);
+          return result;
+        });
+  }
+
+  private static <K> void removeFromIndex(
+      final Map<K, NavigableSet<Long>> index, final K key, final long position) {
+    index.computeIfPresent(
+        key,
+        (k, keyPositions) -> {
+          keyPositions.remove(position);
+          return keyPositions.isEmpty() ? null : keyPositions;
+        });
+  }
+
+  private static boolean isIgnoredTslSeqNr(final Integer tslSeqNr) {
+    return (tslSeqNr == null) || (tslSeqNr == OcspResponderManager.IGNORE_SEQUENCE_NUMBER);
+  }
+
+  private static boolean isIgnoredCertSerialNr(final BigInteger certSerialNr) {
+    return (certSerialNr == null)
+        || certSerialNr.equals(OcspResponderManager.IGNORE_CERT_SERIAL_NUMBER);
+  }
+
+  @AllArgsConstructor
+  private static final class Slot {
+
+    private final long position;
+    private final int tslSeqNr;
+    private final BigInteger certSerialNr;
+
+    /** the entry in full storage mode, null in compact mode */
+    private final OcspRequestHistoryEntryDto entry;
+
+    /** compact storage mode only */
+    private final long epochNanos;
+
+    /** compact storage mode only, SHA-256 of the request in the {@link OcspRequestBytesStore} */
+    private final String ocspReqSha256;
   }
 }
@@ -20,6 +20,7 @@
 
 package de.gematik.pki.pkits.ocsp.responder.data;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.math.BigInteger;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
@@ -32,17 +33,51 @@ import lombok.Setter;
 @Getter
 @Setter
 @EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class OcspRequestHistoryEntryDto {
 
+  /** monotonically increasing id, assigned when the entry is added to the history */
+  private long sequenceId;
+
   private int tslSeqNr;
   private BigInteger certSerialNr;
   private String timeStamp;
 
+  /** null, if the history is stored in compact mode */
   private byte[] ocspReqBytes;
 
+  /**
+   * SHA-256 of the OCSP request as hex string, set if the history is stored in compact mode: the
+   * request bytes can be fetched with it
+   */
+  private String ocspReqSha256;
+
+  public OcspRequestHistoryEntryDto(
+      final int tslSeqNr,
+      final BigInteger certSerialNr,
+      final String timeStamp,
+      final byte[] ocspReqBytes) {
+    this(0, tslSeqNr, certSerialNr, timeStamp, ocspReqBytes, null);
+  }
+
+  public OcspRequestHistoryEntryDto(
+      final long sequenceId,
+      final int tslSeqNr,
+      final BigInteger certSerialNr,
+      final String timeStamp,
+      final byte[] ocspReqBytes) {
+    this(sequenceId, tslSeqNr, certSerialNr, timeStamp, ocspReqBytes, null);
+  }
+
   @Override
   public String toString() {
-    return "OcspRequestHistoryEntryDto{tslSeqNr=%d, certSerialNr=%s, timeStamp='%s', ocspReqBytes size: %s}"
-        .formatted(tslSeqNr, certSerialNr, timeStamp, ocspReqBytes.length);
+    return "OcspRequestHistoryEntryDto{sequenceId=%d, tslSeqNr=%d, certSerialNr=%s, timeStamp='%s', ocspReqBytes size: %s, ocspReqSha256=%s}"
+        .formatted(
+            sequenceId,
+            tslSeqNr,
+            certSerialNr,
+            timeStamp,
+            ocspReqBytes == null ? null : ocspReqBytes.length,
+            ocspReqSha256);
   }
 }
@@ -0,0 +1,395 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of an {@link OcspRequestHistory} in a memory-mapped file. Appends claim their
+ * region in order under a short lock, which only marks the record as claimed, and write the payload
+ * without a lock. The record length is published last, so that a reader never sees a partially
+ * written record. A journal is replayed by reading all published records up to the first unclaimed
+ * one, records that were claimed but never published (e.g. the process died while writing them) are
+ * skipped.
+ *
+ * <p>Format (big endian): header of magic and version (int each), followed by records aligned to
+ * {@value #RECORD_ALIGNMENT} bytes. A record is the payload length (int, negated while the record
+ * is claimed but not yet published) and the payload: the record type (byte) and
+ *
+ * <ul>
+ *   <li>for entries: sequenceId (long), epoch nanos (long), tslSeqNr (int), certSerialNr and OCSP
+ *       request bytes
+ *   <li>for deletions: tslSeqNr (int), certSerialNr and sinceSequenceId (long, -1 for none)
+ * </ul>
+ *
+ * <p>certSerialNr is stored as length (short, -1 for none) and two's-complement bytes, request
+ * bytes as length (int, -1 for none) and bytes.
+ */
+@Slf4j
+public class OcspRequestHistoryJournal implements Closeable {
+
+  static final int MAGIC = 0x504B4A31;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8;
+  static final int RECORD_ALIGNMENT = 8;
+
+  private static final byte TYPE_ENTRY = 1;
+  private static final byte TYPE_DELETION = 2;
+  private static final int NONE = -1;
+  private static final int EXPORT_CHUNK_SIZE = 64 * 1024;
+
+  private static final VarHandle RECORD_LENGTH =
+      MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+  /** receives the records of a journal in the order they were appended */
+  public interface RecordVisitor {
+
+    void onEntry(
+        long sequenceId,
+        long epochNanos,
+        int tslSeqNr,
+        BigInteger certSerialNr,
+        byte[] ocspReqBytes);
+
+    void onDeletion(Integer tslSeqNr, BigInteger certSerialNr, Long sinceSequenceId);
+  }
+
+  private final FileChannel fileChannel;
+  private final MappedByteBuffer buffer;
+  private final AtomicLong writeOffset;
+  private final Object claimLock = new Object();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  /**
+   * Opens the journal file, it is created if it does not exist and records are appended after the
+   * existing ones.
+   *
+   * @param path journal file
+   * @param capacityBytes size of the mapped file, an existing larger file is mapped completely
+   * @throws IOException if the file cannot be mapped or is not a journal
+   */
+  public OcspRequestHistoryJournal(final Path path, final long capacityBytes) throws IOException {
+    if (capacityBytes <= HEADER_SIZE) {
+      throw new IllegalArgumentException("capacity of the journal must exceed the header size");
+    }
+    fileChannel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      final long mappedSize =
+          Math.min(
+              Math.max(fileChannel.size(), capacityBytes), Integer.MAX_VALUE & -RECORD_ALIGNMENT);
+      buffer = fileChannel.map(MapMode.READ_WRITE, 0, mappedSize);
+      if (buffer.getInt(0) == 0) {
+        buffer.putInt(4, VERSION);
+        buffer.putInt(0, MAGIC);
+      }
+      checkHeader(buffer, path.toString());
+    } catch (final IOException | RuntimeException e) {
+      fileChannel.close();
+      throw e;
+    }
+    writeOffset = new AtomicLong(findEnd(buffer.capacity()));
+  }
+
+  /**
+   * @param sequenceId sequence id of the entry in the history
+   * @param epochNanos time of the request
+   * @param tslSeqNr TSL sequence number of the request
+   * @param certSerialNr requested certificate serial number
+   * @param ocspReqBytes encoded OCSP request, may be null
+   * @return false if the journal is full and the entry was not journaled
+   */
+  public boolean appendEntry(
+      final long sequenceId,
+      final long epochNanos,
+      final int tslSeqNr,
+      final BigInteger certSerialNr,
+      final byte[] ocspReqBytes) {
+
+    final byte[] certSerialNrBytes = toBytes(certSerialNr);
+    final int payloadSize =
+        1
+            + 8
+            + 8
+            + 4
+            + sizeOf(certSerialNrBytes)
+            + 4
+            + ((ocspReqBytes == null) ? 0 : ocspReqBytes.length);
+
+    final int offset = claim(payloadSize);
+    if (offset == NONE) {
+      return false;
+    }
+    final ByteBuffer payload = buffer.slice(offset + 4, payloadSize);
+    payload.put(TYPE_ENTRY).putLong(sequenceId).putLong(epochNanos).putInt(tslSeqNr);
+    putBytes(payload, certSerialNrBytes, true);
+    putBytes(payload, ocspReqBytes, false);
+    RECORD_LENGTH.setRelease(buffer, offset, payloadSize);
+    return true;
+  }
+
+  /**
+   * @param tslSeqNr TSL sequence number of the deleted entries, null for all
+   * @param certSerialNr certificate serial number of the deleted entries, null for all
+   * @param sinceSequenceId only entries with a greater sequence id were deleted, null for all
+   * @return false if the journal is full and the deletion was not journaled
+   */
+  public boolean appendDeletion(
+      final Integer tslSeqNr, final BigInteger certSerialNr, final Long sinceSequenceId) {
+
+    final byte[] certSerialNrBytes = toBytes(certSerialNr);
+    final int payloadSize = 1 + 4 + sizeOf(certSerialNrBytes) + 8;
+
+    final int offset = claim(payloadSize);
+    if (offset == NONE) {
+      return false;
+    }
+    final ByteBuffer payload = buffer.slice(offset + 4, payloadSize);
+    payload.put(TYPE_DELETION).putInt((tslSeqNr == null) ? NONE : tslSeqNr);
+    putBytes(payload, certSerialNrBytes, true);
+    payload.putLong((sinceSequenceId == null) ? NONE : sinceSequenceId);
+    RECORD_LENGTH.setRelease(buffer, offset, payloadSize);
+    return true;
+  }
+
+  /**
+   * @param visitor receives all records of the journal
+   * @return number of records
+   */
+  public int replay(final RecordVisitor visitor) {
+    return readRecords(buffer.duplicate().limit(findEnd(buffer.capacity())), visitor);
+  }
+
+  /**
+   * Writes the header and all published records to the output stream, in the format read by {@link
+   * #readRecords(ByteBuffer, RecordVisitor)}. Appends continue while the journal is exported,
+   * records that are not yet published are left out.
+   *
+   * @param outputStream receives the journal
+   * @return number of bytes written
+   * @throws IOException if writing to the output stream fails
+   */
+  public long export(final OutputStream outputStream) throws IOException {
+    final int end = findEnd(Math.min(writeOffset.get(), buffer.capacity()));
+    final ByteBuffer source = buffer.duplicate();
+    final byte[] chunk = new byte[EXPORT_CHUNK_SIZE];
+    long written = write(source, 0, HEADER_SIZE, chunk, outputStream);
+    int offset = HEADER_SIZE;
+    while (offset < end) {
+      final int payloadSize = (int) RECORD_LENGTH.getAcquire(buffer, offset);
+      final int recordSize = recordSize(Math.abs(payloadSize));
+      if (payloadSize > 0) {
+        written += write(source, offset, recordSize, chunk, outputStream);
+      }
+      offset += recordSize;
+    }
+    return written;
+  }
+
+  /**
+   * Reads a journal or an export of a journal.
+   *
+   * @param journal the journal, from index 0 to its limit
+   * @param visitor receives all complete records of the journal
+   * @return number of records
+   */
+  public static int readRecords(final ByteBuffer journal, final RecordVisitor visitor) {
+    checkHeader(journal, "buffer");
+    int recordCount = 0;
+    int offset = HEADER_SIZE;
+    while (offset + 4 <= journal.limit()) {
+      final int payloadSize = journal.getInt(offset);
+      if ((payloadSize == 0) || (offset + 4 + Math.abs(payloadSize) > journal.limit())) {
+        break;
+      }
+      if (payloadSize > 0) {
+        readRecord(journal.slice(offset + 4, payloadSize), visitor);
+        ++recordCount;
+      }
+      offset += recordSize(Math.abs(payloadSize));
+    }
+    return recordCount;
+  }
+
+  /**
+   * @return number of records not journaled since start, because the journal was full
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * @return number of bytes of the journal file in use, including the header
+   */
+  public long getUsedBytes() {
+    return Math.min(writeOffset.get(), buffer.capacity());
+  }
+
+  @Override
+  public void close() throws IOException {
+    buffer.force();
+    fileChannel.close();
+  }
+
+  private static void readRecord(final ByteBuffer payload, final RecordVisitor visitor) {
+    final byte type = payload.get();
+    if (type == TYPE_ENTRY) {
+      final long sequenceId = payload.getLong();
+      final long epochNanos = payload.getLong();
+      final int tslSeqNr = payload.getInt();
+      final byte[] certSerialNrBytes = getBytes(payload, true);
+      visitor.onEntry(
+          sequenceId,
+          epochNanos,
+          tslSeqNr,
+          toBigInteger(certSerialNrBytes),
+          getBytes(payload, false));
+    } else if (type == TYPE_DELETION) {
+      final int tslSeqNr = payload.getInt();
+      final BigInteger certSerialNr = toBigInteger(getBytes(payload, true));
+      final long sinceSequenceId = payload.getLong();
+      visitor.onDeletion(
+          (tslSeqNr == NONE) ? null : tslSeqNr,
+          certSerialNr,
+          (sinceSequenceId == NONE) ? null : sinceSequenceId);
+    } else {
+      log.warn("Skipped OCSP request history journal record of unknown type {}.", type);
+    }
+  }
+
+  private static int write(
+      final ByteBuffer source,
+      final int offset,
+      final int length,
+      final byte[] chunk,
+      final OutputStream outputStream)
+      throws IOException {
+    source.limit(offset + length).position(offset);
+    while (source.hasRemaining()) {
+      final int chunkLength = Math.min(chunk.length, source.remaining());
+      source.get(chunk, 0, chunkLength);
+      outputStream.write(chunk, 0, chunkLength);
+    }
+    return length;
+  }
+
+  /**
+   * Returns the offset of the record to write, or NONE if the journal is full. The record is marked
+   * as claimed before the next record can be claimed, so that a replay can skip it if it is never
+   * published.
+   */
+  private int claim(final int payloadSize) {
+    final long size = recordSize(payloadSize);
+    final long offset;
+    synchronized (claimLock) {
+      offset = writeOffset.getAndAdd(size);
+      if (offset + size <= buffer.capacity()) {
+        RECORD_LENGTH.setRelease(buffer, (int) offset, -payloadSize);
+      }
+    }
+    if (offset + size > buffer.capacity()) {
+      if (droppedCount.getAndIncrement() == 0) {
+        log.warn(
+            "OCSP request history journal is full ({} bytes): further records are not journaled"
+                + " and only counted.",
+            buffer.capacity());
+      }
+      return NONE;
+    }
+    return (int) offset;
+  }
+
+  /** returns the offset after the last claimed record before limit */
+  private int findEnd(final long limit) {
+    int offset = HEADER_SIZE;
+    while (offset + 4 <= limit) {
+      final int payloadSize = (int) RECORD_LENGTH.getAcquire(buffer, offset);
+      if (payloadSize == 0) {
+        break;
+      }
+      offset += recordSize(Math.abs(payloadSize));
+    }
+    return (int) Math.min(offset, limit);
+  }
+
+  private static int recordSize(final int payloadSize) {
+    return (4 + payloadSize + RECORD_ALIGNMENT - 1) & -RECORD_ALIGNMENT;
+  }
+
+  private static void checkHeader(final ByteBuffer journal, final String source) {
+    if ((journal.limit() < HEADER_SIZE)
+        || (journal.getInt(0) != MAGIC)
+        || (journal.getInt(4) != VERSION)) {
+      throw new IllegalArgumentException(
+          "%s is not an OCSP request history journal of version %d".formatted(source, VERSION));
+    }
+  }
+
+  private static byte[] toBytes(final BigInteger value) {
+    return (value == null) ? null : value.toByteArray();
+  }
+
+  private static BigInteger toBigInteger(final byte[] bytes) {
+    return (bytes == null) ? null : new BigInteger(bytes);
+  }
+
+  private static int sizeOf(final byte[] certSerialNrBytes) {
+    return 2 + ((certSerialNrBytes == null) ? 0 : certSerialNrBytes.length);
+  }
+
+  private static void putBytes(
+      final ByteBuffer payload, final byte[] bytes, final boolean shortLength) {
+    final int length = (bytes == null) ? NONE : bytes.length;
+    if (shortLength) {
+      payload.putShort((short) length);
+    } else {
+      payload.putInt(length);
+    }
+    if (bytes != null) {
+      payload.put(bytes);
+    }
+  }
+
+  private static byte[] getBytes(final ByteBuffer payload, final boolean shortLength) {
+    final int length = shortLength ? payload.getShort() : payload.getInt();
+    if (length == NONE) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    payload.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.data;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Pending requests that wait for history entries. A waiter is completed as soon as a matching entry
+ * is visible in the {@link OcspRequestHistory}, or with an empty list when its timeout expires. The
+ * history notifies about entries only when all appends before them have finished, so that a waiter
+ * is never completed with an entry while an older one is still missing.
+ */
+@Slf4j
+@Component
+public class OcspRequestHistoryWaitRegistry {
+
+  private final OcspRequestHistory ocspRequestHistory;
+  private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+  public OcspRequestHistoryWaitRegistry(final OcspRequestHistory ocspRequestHistory) {
+    this.ocspRequestHistory = ocspRequestHistory;
+    ocspRequestHistory.addListener(this::onNewEntry);
+  }
+
+  /**
+   * @param tslSeqNr The requested TSL sequence number
+   * @param certSerialNr The requested certificate serial number
+   * @param sinceSequenceId only entries with a greater sequence id are returned, null for all
+   * @param timeoutMilliseconds maximum time to wait for a matching entry
+   * @return the matching entries, an empty list after the timeout
+   */
+  public DeferredResult<List<OcspRequestHistoryEntryDto>> waitForEntries(
+      final Integer tslSeqNr,
+      final BigInteger certSerialNr,
+      final Long sinceSequenceId,
+      final long timeoutMilliseconds) {
+
+    final DeferredResult<List<OcspRequestHistoryEntryDto>> deferredResult =
+        new DeferredResult<>(timeoutMilliseconds, List.of());
+    final Waiter waiter = new Waiter(tslSeqNr, certSerialNr, sinceSequenceId, deferredResult);
+
+    // register before the first lookup, so that no entry added in between is missed
+    waiters.add(waiter);
+    deferredResult.onCompletion(() -> waiters.remove(waiter));
+
+    if (!tryComplete(waiter)) {
+      log.debug(
+          "Waiting up to {} ms for history entry with tslSeqNr {} and certSerialNr {}.",
+          timeoutMilliseconds,
+          tslSeqNr,
+          certSerialNr);
+    }
+    return deferredResult;
+  }
+
+  public int size() {
+    return waiters.size();
+  }
+
+  private void onNewEntry(final OcspRequestHistoryEntryDto historyEntry) {
+    for (final Waiter waiter : waiters) {
+      if (OcspRequestHistory.matches(historyEntry, waiter.tslSeqNr, waiter.certSerialNr)) {
+        tryComplete(waiter);
+      }
+    }
+  }
+
+  private boolean tryComplete(final Waiter waiter) {
+    final List<OcspRequestHistoryEntryDto> historyEntries =
+        ocspRequestHistory.getExcerpt(waiter.tslSeqNr, waiter.certSerialNr, waiter.sinceSequenceId);
+    if (historyEntries.isEmpty()) {
+      return false;
+    }
+    waiters.remove(waiter);
+    waiter.deferredResult.setResult(historyEntries);
+    return true;
+  }
+
+  @AllArgsConstructor
+  private static final class Waiter {
+
+    private final Integer tslSeqNr;
+    private final BigInteger certSerialNr;
+    private final Long sinceSequenceId;
+    private final DeferredResult<List<OcspRequestHistoryEntryDto>> deferredResult;
+  }
+}
@@ -34,14 +34,21 @@ public class OcspResponderConfig {
 
   @JsonIgnore @NonNull protected List<CertificateDto> certificateDtos;
 
+  /**
+   * build the responses for requests without nonce when the configuration is applied, instead of on
+   * the request path. Only if the response cache (response-cache.enabled) is enabled.
+   */
+  protected boolean pregenerateResponses;
+
   public OcspResponderConfigJsonDto toJsonDto() {
     return new OcspResponderConfigJsonDto(this);
   }
 
   @Override
   public String toString() {
-    return ("OcspResponderConfig{certificates=[%s]}")
+    return ("OcspResponderConfig{pregenerateResponses=%s, certificates=[%s]}")
         .formatted(
+            pregenerateResponses,
             String.join(", ", certificateDtos.stream().map(CertificateDto::toString).toList()));
   }
 }
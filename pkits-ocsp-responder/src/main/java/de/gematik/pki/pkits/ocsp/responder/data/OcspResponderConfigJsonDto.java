@@ -20,8 +20,12 @@
 
 package de.gematik.pki.pkits.ocsp.responder.data;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.gematik.pki.pkits.ocsp.responder.CryptoMaterialRegistry;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -47,11 +51,32 @@ public class OcspResponderConfigJsonDto extends OcspResponderConfig {
     }
   }
 
+  /**
+   * @param knownSha256s hashes of the material uploaded before, that is sent by reference only
+   * @return this
+   */
+  public OcspResponderConfigJsonDto referenceKnownMaterial(final Set<String> knownSha256s) {
+    certificateJsonDtos.forEach(
+        certificateJsonDto -> certificateJsonDto.referenceKnownMaterial(knownSha256s));
+    return this;
+  }
+
+  @JsonIgnore
+  public Set<String> getMaterialSha256s() {
+    return certificateJsonDtos.stream()
+        .flatMap(certificateJsonDto -> certificateJsonDto.getMaterialSha256s().stream())
+        .collect(Collectors.toSet());
+  }
+
   public OcspResponderConfig toConfig() {
+    return toConfig(new CryptoMaterialRegistry());
+  }
+
+  public OcspResponderConfig toConfig(final CryptoMaterialRegistry cryptoMaterialRegistry) {
 
     this.certificateDtos = new ArrayList<>();
     for (CertificateJsonDto certificateJsonDto : certificateJsonDtos) {
-      certificateDtos.add(certificateJsonDto.toCertificateDto());
+      certificateDtos.add(certificateJsonDto.toCertificateDto(cryptoMaterialRegistry));
     }
     return this;
   }
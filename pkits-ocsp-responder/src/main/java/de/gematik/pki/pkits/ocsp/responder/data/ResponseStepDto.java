@@ -0,0 +1,87 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.data;
+
+import eu.europa.esig.dss.spi.x509.revocation.ocsp.OCSPRespStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One step of a scripted response sequence of a {@link CertificateDto}. The set behaviours override
+ * the ones of the certificate while the step is active. A step ends after requestCount requests or
+ * durationMilliseconds after it became active, whatever comes first. A step without both is never
+ * left, the last step of a sequence is never left either.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class ResponseStepDto {
+
+  private Integer requestCount;
+  private Integer durationMilliseconds;
+
+  private CustomCertificateStatusDto certificateStatus;
+  private Integer delayMilliseconds;
+  private OCSPRespStatus respStatus;
+  private Boolean withResponseBytes;
+  private Boolean validSignature;
+
+  public static ResponseStepDto forRequests(
+      final int requestCount, final CustomCertificateStatusDto certificateStatus) {
+    return ResponseStepDto.builder()
+        .requestCount(requestCount)
+        .certificateStatus(certificateStatus)
+        .build();
+  }
+
+  /**
+   * @param requestsInStep number of requests answered by this step
+   * @param elapsedMilliseconds time since the step became active
+   * @return true if the next request is answered by the next step
+   */
+  public boolean isOver(final int requestsInStep, final long elapsedMilliseconds) {
+    return ((requestCount != null) && (requestsInStep >= requestCount))
+        || isDurationOver(elapsedMilliseconds);
+  }
+
+  public boolean isDurationOver(final long elapsedMilliseconds) {
+    return (durationMilliseconds != null) && (elapsedMilliseconds >= durationMilliseconds);
+  }
+
+  @Override
+  public String toString() {
+    return ("ResponseStepDto{requestCount=%s, durationMilliseconds=%s, certificateStatus=%s,"
+            + " delayMilliseconds=%s, respStatus=%s, withResponseBytes=%s, validSignature=%s}")
+        .formatted(
+            requestCount,
+            durationMilliseconds,
+            certificateStatus,
+            delayMilliseconds,
+            respStatus,
+            withResponseBytes,
+            validSignature);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.gemlibpki.ocsp.OcspRequestGenerator;
+import de.gematik.pki.gemlibpki.utils.P12Container;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import java.math.BigInteger;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.junit.jupiter.api.Test;
+
+class CertificateDtoIndexTest {
+
+  private final X509Certificate eeCert = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+  private final X509Certificate issuerCert = OcspResponderTestUtils.getValidIssuerCert();
+  private final X509Certificate otherIssuerCert = OcspResponderTestUtils.getSignerCaCert();
+  private final P12Container signer = OcspResponderTestUtils.getSigner();
+
+  private CertificateDto createCertificateDto(final X509Certificate issuer) {
+    return CertificateDto.builder().eeCert(eeCert).issuerCert(issuer).signer(signer).build();
+  }
+
+  private CertificateID createCertId(final X509Certificate issuer) {
+    return OcspRequestGenerator.generateSingleOcspRequest(eeCert, issuer)
+        .getRequestList()[0]
+        .getCertID();
+  }
+
+  @Test
+  void getBySerialNr() {
+    final CertificateDto certificateDto = createCertificateDto(issuerCert);
+    final CertificateDtoIndex index = new CertificateDtoIndex(List.of(certificateDto));
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.getBySerialNr(eeCert.getSerialNumber())).containsSame(certificateDto);
+    assertThat(index.getBySerialNr(BigInteger.TEN)).isEmpty();
+  }
+
+  @Test
+  void getByCertIdDistinguishesIssuersWithSameSerialNr() {
+    final CertificateDto certificateDto = createCertificateDto(issuerCert);
+    final CertificateDto otherCertificateDto = createCertificateDto(otherIssuerCert);
+    final CertificateDtoIndex index =
+        new CertificateDtoIndex(List.of(certificateDto, otherCertificateDto));
+
+    assertThat(index.getByCertId(createCertId(issuerCert))).containsSame(certificateDto);
+    assertThat(index.getByCertId(createCertId(otherIssuerCert))).containsSame(otherCertificateDto);
+  }
+
+  @Test
+  void getByCertIdSha256() {
+    final CertificateDto certificateDto = createCertificateDto(issuerCert);
+    final CertificateDto otherCertificateDto = createCertificateDto(otherIssuerCert);
+    final CertificateDtoIndex index =
+        new CertificateDtoIndex(List.of(certificateDto, otherCertificateDto));
+
+    final CertificateID certId =
+        OcspRequestGenerator.generateSingleOcspRequest(
+                eeCert, otherIssuerCert, new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256))
+            .getRequestList()[0]
+            .getCertID();
+
+    assertThat(index.getByCertId(certId)).containsSame(otherCertificateDto);
+  }
+
+  @Test
+  void getByCertIdOfOtherIssuerWithSameSerialNrIsEmpty() {
+    final CertificateDto certificateDto = createCertificateDto(issuerCert);
+    final CertificateDtoIndex index = new CertificateDtoIndex(List.of(certificateDto));
+
+    assertThat(index.getByCertId(createCertId(otherIssuerCert))).isEmpty();
+    assertThat(index.getBySerialNr(eeCert.getSerialNumber())).containsSame(certificateDto);
+  }
+
+  @Test
+  void withCertificateDtoReplacesSameSerialNrAndIssuer() {
+    final CertificateDto certificateDto = createCertificateDto(issuerCert);
+    final CertificateDto otherCertificateDto = createCertificateDto(otherIssuerCert);
+    final CertificateDtoIndex index =
+        new CertificateDtoIndex(List.of(certificateDto, otherCertificateDto));
+
+    final CertificateDto newCertificateDto =
+        certificateDto.toBuilder().delayMilliseconds(1000).build();
+    final CertificateDtoIndex newIndex = index.withCertificateDto(newCertificateDto);
+
+    assertThat(newIndex.getByCertId(createCertId(issuerCert))).containsSame(newCertificateDto);
+    assertThat(newIndex.getByCertId(createCertId(otherIssuerCert)))
+        .containsSame(otherCertificateDto);
+    assertThat(index.getBySerialNr(eeCert.getSerialNumber())).containsSame(certificateDto);
+  }
+
+  @Test
+  void withCertificateDtoKeepsFirstEntryOfOtherIssuerForSerialNr() {
+    final CertificateDto certificateDto = createCertificateDto(issuerCert);
+    final CertificateDtoIndex index = new CertificateDtoIndex(List.of(certificateDto));
+
+    final CertificateDto otherCertificateDto = createCertificateDto(otherIssuerCert);
+    final CertificateDtoIndex newIndex = index.withCertificateDto(otherCertificateDto);
+
+    assertThat(newIndex.getBySerialNr(eeCert.getSerialNumber())).containsSame(certificateDto);
+    assertThat(newIndex.getByCertId(createCertId(otherIssuerCert)))
+        .containsSame(otherCertificateDto);
+  }
+
+  @Test
+  void withoutCertificateKeepsOtherIssuer() {
+    final CertificateDto certificateDto = createCertificateDto(issuerCert);
+    final CertificateDto otherCertificateDto = createCertificateDto(otherIssuerCert);
+    final CertificateDtoIndex index =
+        new CertificateDtoIndex(List.of(certificateDto, otherCertificateDto));
+
+    final CertificateDtoIndex newIndex =
+        index.withoutCertificate(eeCert.getSerialNumber(), issuerCert);
+
+    assertThat(newIndex.getBySerialNr(eeCert.getSerialNumber())).containsSame(otherCertificateDto);
+    assertThat(newIndex.getByCertId(createCertId(otherIssuerCert)))
+        .containsSame(otherCertificateDto);
+    // the CertID of the removed issuer does not match the entry of the other issuer
+    assertThat(newIndex.getByCertId(createCertId(issuerCert))).isEmpty();
+  }
+
+  @Test
+  void withoutSerialNr() {
+    final CertificateDtoIndex index =
+        new CertificateDtoIndex(List.of(createCertificateDto(issuerCert)));
+
+    final CertificateDtoIndex newIndex = index.withoutSerialNr(eeCert.getSerialNumber());
+
+    assertThat(newIndex.size()).isZero();
+    assertThat(newIndex.getByCertId(createCertId(issuerCert))).isEmpty();
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  @Test
+  void emptyIndex() {
+    assertThat(CertificateDtoIndex.EMPTY.size()).isZero();
+    assertThat(CertificateDtoIndex.EMPTY.getByCertId(createCertId(issuerCert))).isEmpty();
+  }
+}
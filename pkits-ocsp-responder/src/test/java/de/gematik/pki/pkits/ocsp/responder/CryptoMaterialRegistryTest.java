@@ -0,0 +1,89 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import de.gematik.pki.gemlibpki.utils.P12Container;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import org.junit.jupiter.api.Test;
+
+class CryptoMaterialRegistryTest {
+
+  private final X509Certificate eeCert = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+  private final P12Container signer = OcspResponderTestUtils.getSigner();
+  private final CryptoMaterialRegistry cryptoMaterialRegistry = new CryptoMaterialRegistry();
+
+  @Test
+  void certificateIsParsedOnce() {
+    final String eeCertEncoded = GemLibPkiUtils.toMimeBase64NoLineBreaks(eeCert);
+
+    final X509Certificate first = cryptoMaterialRegistry.registerCertificate(eeCertEncoded);
+    final X509Certificate second = cryptoMaterialRegistry.registerCertificate(eeCertEncoded);
+
+    assertThat(first).isEqualTo(eeCert).isSameAs(second);
+    assertThat(cryptoMaterialRegistry.size()).isEqualTo(1);
+  }
+
+  @Test
+  void certificateByHash() throws Exception {
+    cryptoMaterialRegistry.registerCertificate(GemLibPkiUtils.toMimeBase64NoLineBreaks(eeCert));
+
+    assertThat(
+            cryptoMaterialRegistry.getCertificate(
+                CryptoMaterialRegistry.sha256Hex(eeCert.getEncoded())))
+        .isEqualTo(eeCert);
+  }
+
+  @Test
+  void privateKeyByHash() {
+    final byte[] privateKeyBytes = signer.getPrivateKey().getEncoded();
+    final PrivateKey registered =
+        cryptoMaterialRegistry.registerPrivateKey(
+            GemLibPkiUtils.toMimeBase64NoLineBreaks(privateKeyBytes));
+
+    assertThat(
+            cryptoMaterialRegistry.getPrivateKey(CryptoMaterialRegistry.sha256Hex(privateKeyBytes)))
+        .isSameAs(registered);
+    assertThat(registered.getEncoded()).isEqualTo(privateKeyBytes);
+  }
+
+  @Test
+  void unknownHash() {
+    final String sha256 = "00".repeat(32);
+    assertThatThrownBy(() -> cryptoMaterialRegistry.getCertificate(sha256))
+        .isInstanceOf(CryptoMaterialNotFoundException.class)
+        .hasMessageContaining(sha256);
+    assertThatThrownBy(() -> cryptoMaterialRegistry.getPrivateKey(sha256))
+        .isInstanceOf(CryptoMaterialNotFoundException.class);
+  }
+
+  @Test
+  void clear() {
+    cryptoMaterialRegistry.registerCertificate(GemLibPkiUtils.toMimeBase64NoLineBreaks(eeCert));
+    cryptoMaterialRegistry.clear();
+    assertThat(cryptoMaterialRegistry.size()).isZero();
+  }
+}
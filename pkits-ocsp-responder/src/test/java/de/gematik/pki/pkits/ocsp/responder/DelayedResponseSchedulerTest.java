@@ -0,0 +1,99 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+class DelayedResponseSchedulerTest {
+
+  private final DelayedResponseScheduler delayedResponseScheduler = new DelayedResponseScheduler();
+
+  @AfterEach
+  void shutdown() {
+    delayedResponseScheduler.shutdown();
+  }
+
+  @Test
+  void completedHasResult() {
+    final DeferredResult<String> deferredResult = DelayedResponseScheduler.completed("result");
+
+    assertThat(deferredResult.hasResult()).isTrue();
+    assertThat(deferredResult.getResult()).isEqualTo("result");
+  }
+
+  @Test
+  void manyDelayedResultsCompleteConcurrently() throws InterruptedException {
+    final int count = 500;
+    final List<DeferredResult<Integer>> deferredResults = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      deferredResults.add(delayedResponseScheduler.schedule(i, 500));
+    }
+
+    assertThat(deferredResults).noneMatch(DeferredResult::hasResult);
+
+    final long deadline = System.currentTimeMillis() + 3000;
+    while (!deferredResults.stream().allMatch(DeferredResult::hasResult)
+        && (System.currentTimeMillis() < deadline)) {
+      Thread.sleep(50);
+    }
+
+    for (int i = 0; i < count; ++i) {
+      assertThat(deferredResults.get(i).getResult()).isEqualTo(i);
+    }
+  }
+
+  @Test
+  void futureResultIsSetWhenReady() {
+    final CompletableFuture<String> resultFuture = new CompletableFuture<>();
+    final DeferredResult<String> deferredResult =
+        delayedResponseScheduler.schedule(resultFuture, 0);
+    assertThat(deferredResult.hasResult()).isFalse();
+
+    resultFuture.complete("result");
+    assertThat(deferredResult.getResult()).isEqualTo("result");
+  }
+
+  @Test
+  void failedFutureIsSetAsErrorResult() {
+    final DeferredResult<String> deferredResult =
+        delayedResponseScheduler.schedule(
+            CompletableFuture.<String>supplyAsync(
+                () -> {
+                  throw new OcspResponderException("signing failed");
+                }),
+            0);
+
+    final long deadline = System.currentTimeMillis() + 3000;
+    while (!deferredResult.hasResult() && (System.currentTimeMillis() < deadline)) {
+      Thread.onSpinWait();
+    }
+    assertThat(deferredResult.getResult())
+        .isInstanceOf(OcspResponderException.class)
+        .hasFieldOrPropertyWithValue("message", "signing failed");
+  }
+}
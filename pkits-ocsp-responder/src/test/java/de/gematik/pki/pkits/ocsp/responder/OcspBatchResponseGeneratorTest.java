@@ -0,0 +1,218 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bouncycastle.internal.asn1.isismtt.ISISMTTObjectIdentifiers.id_isismtt_at_certHash;
+
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.CertificateIdGeneration;
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.ResponderIdType;
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator.ResponseAlgoBehavior;
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
+import de.gematik.pki.gemlibpki.utils.P12Container;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CustomCertificateStatusDto;
+import eu.europa.esig.dss.spi.x509.revocation.ocsp.OCSPRespStatus;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.bouncycastle.asn1.isismtt.ocsp.CertHash;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.junit.jupiter.api.Test;
+
+class OcspBatchResponseGeneratorTest {
+
+  private final X509Certificate eeCert1 = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+  private final X509Certificate eeCert2 =
+      OcspResponderTestUtils.getValidEeCert("SigurdBeutlinStadtApotheke.pem");
+  private final X509Certificate issuerCert = OcspResponderTestUtils.getValidIssuerCert();
+  private final P12Container signer = OcspResponderTestUtils.getSigner();
+
+  private CertificateDto.CertificateDtoBuilder<?, ?> dtoBuilder(final X509Certificate eeCert) {
+    return CertificateDto.builder().eeCert(eeCert).issuerCert(issuerCert).signer(signer);
+  }
+
+  private static BasicOCSPResp getBasicOcspResp(final OCSPResp ocspResp) throws OCSPException {
+    return (BasicOCSPResp) ocspResp.getResponseObject();
+  }
+
+  private boolean isSignatureValid(final BasicOCSPResp basicOcspResp) throws Exception {
+    return basicOcspResp.isSignatureValid(
+        new JcaContentVerifierProviderBuilder().build(signer.getCertificate().getPublicKey()));
+  }
+
+  @Test
+  void oneSingleResponsePerCertId() throws Exception {
+    final OCSPReq ocspReq =
+        OcspResponderTestUtils.createOcspReqWithNonce(
+            eeCert1, issuerCert, "nonce".getBytes(StandardCharsets.UTF_8));
+    final OCSPReq batchOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(issuerCert, eeCert1, eeCert2);
+
+    final List<CertificateDto> certificateDtos =
+        List.of(
+            dtoBuilder(eeCert1).build(),
+            dtoBuilder(eeCert2)
+                .certificateStatus(CustomCertificateStatusDto.createRevoked(ZonedDateTime.now(), 1))
+                .build());
+
+    final OCSPResp ocspResp = OcspBatchResponseGenerator.generate(batchOcspReq, certificateDtos);
+    assertThat(ocspResp.getStatus()).isEqualTo(OCSPResp.SUCCESSFUL);
+
+    final BasicOCSPResp basicOcspResp = getBasicOcspResp(ocspResp);
+    assertThat(isSignatureValid(basicOcspResp)).isTrue();
+    assertThat(basicOcspResp.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce)).isNull();
+
+    final SingleResp[] singleResps = basicOcspResp.getResponses();
+    assertThat(singleResps).hasSize(2);
+    assertThat(singleResps[0].getCertID()).isEqualTo(batchOcspReq.getRequestList()[0].getCertID());
+    assertThat(singleResps[0].getCertStatus()).isSameAs(CertificateStatus.GOOD);
+    assertThat(singleResps[1].getCertID()).isEqualTo(batchOcspReq.getRequestList()[1].getCertID());
+    assertThat(singleResps[1].getCertStatus()).isInstanceOf(RevokedStatus.class);
+
+    final CertHash certHash =
+        CertHash.getInstance(singleResps[1].getExtension(id_isismtt_at_certHash).getParsedValue());
+    assertThat(certHash.getCertificateHash())
+        .isEqualTo(GemLibPkiUtils.calculateSha256(GemLibPkiUtils.certToBytes(eeCert2)));
+
+    // single request with nonce is answered as well, the nonce is echoed
+    final BasicOCSPResp basicOcspRespWithNonce =
+        getBasicOcspResp(
+            OcspBatchResponseGenerator.generate(ocspReq, List.of(dtoBuilder(eeCert1).build())));
+    assertThat(basicOcspRespWithNonce.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce))
+        .isEqualTo(ocspReq.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce));
+  }
+
+  @Test
+  void unknownStatusAndDisabledCertHash() throws Exception {
+    final OCSPReq batchOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(issuerCert, eeCert1, eeCert2);
+
+    final List<CertificateDto> certificateDtos =
+        List.of(
+            dtoBuilder(eeCert1)
+                .certificateStatus(CustomCertificateStatusDto.createUnknown())
+                .build(),
+            dtoBuilder(eeCert2).withCertHash(false).nextUpdateDeltaMilliseconds(null).build());
+
+    final SingleResp[] singleResps =
+        getBasicOcspResp(OcspBatchResponseGenerator.generate(batchOcspReq, certificateDtos))
+            .getResponses();
+
+    assertThat(singleResps[0].getCertStatus()).isInstanceOf(UnknownStatus.class);
+    assertThat(singleResps[0].getExtension(id_isismtt_at_certHash)).isNull();
+    assertThat(singleResps[1].getExtension(id_isismtt_at_certHash)).isNull();
+    assertThat(singleResps[1].getNextUpdate()).isNull();
+  }
+
+  @Test
+  void responseSettingsOfFirstCertificateDto() throws Exception {
+    final OCSPReq batchOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(issuerCert, eeCert1, eeCert2);
+
+    final List<CertificateDto> certificateDtos =
+        List.of(
+            dtoBuilder(eeCert1)
+                .validSignature(false)
+                .responderIdType(ResponderIdType.BY_NAME)
+                .signerCaCert(OcspResponderTestUtils.getSignerCaCert())
+                .build(),
+            dtoBuilder(eeCert2).build());
+
+    final BasicOCSPResp basicOcspResp =
+        getBasicOcspResp(OcspBatchResponseGenerator.generate(batchOcspReq, certificateDtos));
+
+    assertThat(isSignatureValid(basicOcspResp)).isFalse();
+    assertThat(basicOcspResp.getResponderId().toASN1Primitive().getName()).isNotNull();
+    assertThat(basicOcspResp.getCerts()).hasSize(2);
+  }
+
+  @Test
+  void withoutResponseBytes() throws OCSPException {
+    final OCSPReq batchOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(issuerCert, eeCert1, eeCert2);
+
+    final List<CertificateDto> certificateDtos =
+        List.of(
+            dtoBuilder(eeCert1)
+                .respStatus(OCSPRespStatus.TRY_LATER)
+                .withResponseBytes(false)
+                .build(),
+            dtoBuilder(eeCert2).build());
+
+    final OCSPResp ocspResp = OcspBatchResponseGenerator.generate(batchOcspReq, certificateDtos);
+    assertThat(ocspResp.getStatus()).isEqualTo(OCSPResp.TRY_LATER);
+    assertThat(ocspResp.getResponseObject()).isNull();
+  }
+
+  @Test
+  void numberOfCertificateDtosMustMatch() throws OCSPException {
+    final OCSPReq batchOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(issuerCert, eeCert1, eeCert2);
+    final List<CertificateDto> certificateDtos = List.of(dtoBuilder(eeCert1).build());
+
+    assertThatThrownBy(() -> OcspBatchResponseGenerator.generate(batchOcspReq, certificateDtos))
+        .isInstanceOf(OcspResponderException.class);
+  }
+
+  @Test
+  void certIdSettingsAreNotSupported() throws OCSPException {
+    final OCSPReq batchOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(issuerCert, eeCert1, eeCert2);
+
+    assertThatThrownBy(
+            () ->
+                OcspBatchResponseGenerator.generate(
+                    batchOcspReq,
+                    List.of(
+                        dtoBuilder(eeCert1).build(),
+                        dtoBuilder(eeCert2)
+                            .responseAlgoBehavior(ResponseAlgoBehavior.SHA1)
+                            .build())))
+        .isInstanceOf(OcspResponderException.class)
+        .hasMessageContaining("responseAlgoBehavior=SHA1");
+
+    assertThatThrownBy(
+            () ->
+                OcspBatchResponseGenerator.generate(
+                    batchOcspReq,
+                    List.of(
+                        dtoBuilder(eeCert1)
+                            .certificateIdGeneration(
+                                CertificateIdGeneration.INVALID_CERTID_SERIAL_NUMBER)
+                            .build(),
+                        dtoBuilder(eeCert2).build())))
+        .isInstanceOf(OcspResponderException.class)
+        .hasMessageContaining("certificateIdGeneration=INVALID_CERTID_SERIAL_NUMBER");
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.gematik.pki.pkits.common.ConfigActivation;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig;
+import de.gematik.pki.pkits.ocsp.responder.configs.ResponseCacheConfig;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CustomCertificateStatusDto;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryWaitRegistry;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
+import de.gematik.pki.pkits.ocsp.responder.data.ResponseStepDto;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class OcspConfigActivatorTest {
+
+  private final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory();
+  private final OcspTenants ocspTenants =
+      new OcspTenants(
+          new OcspResponseConfigHolder(),
+          ocspRequestHistory,
+          new OcspResponseCache(new ResponseCacheConfig()),
+          new OcspRequestHistoryWaitRegistry(ocspRequestHistory),
+          new OcspResponseSequences(),
+          new RequestHistoryConfig(),
+          new ResponseCacheConfig());
+  private final OcspConfigActivator ocspConfigActivator = new OcspConfigActivator(null);
+
+  private final OcspResponderConfig ocspResponderConfig =
+      OcspResponderConfig.builder().certificateDtos(List.of()).build();
+
+  @AfterEach
+  void afterEach() {
+    ocspConfigActivator.shutdown();
+  }
+
+  @Test
+  void activateAfterRequestForTslSeqNr() {
+    final OcspTenant ocspTenant = ocspTenants.getOrCreate("tenantA");
+    ocspTenant.getOcspRequestHistory().add(OcspResponderTestUtils.getEntry(1, "10001"));
+
+    ocspConfigActivator.schedule(
+        ocspTenant, ocspResponderConfig, ConfigActivation.afterRequestForTslSeqNr(2));
+
+    ocspConfigActivator.onOcspRequest("tenantA", 1);
+    ocspConfigActivator.onOcspRequest(OcspTenants.DEFAULT_TENANT, 2);
+    assertThat(ocspConfigActivator.isPending("tenantA")).isTrue();
+    assertThat(ocspTenant.getOcspResponseConfigHolder().getOcspResponderConfig()).isNull();
+
+    ocspConfigActivator.onOcspRequest("tenantA", 2);
+    assertThat(ocspConfigActivator.isPending("tenantA")).isFalse();
+    assertThat(ocspTenant.getOcspResponseConfigHolder().getOcspResponderConfig())
+        .isSameAs(ocspResponderConfig);
+    assertThat(ocspTenant.getOcspRequestHistory().size()).isEqualTo(1);
+  }
+
+  @Test
+  void activateAtInstant() throws InterruptedException {
+    final OcspTenant ocspTenant = ocspTenants.getDefaultTenant();
+
+    ocspConfigActivator.schedule(
+        ocspTenant, ocspResponderConfig, ConfigActivation.at(Instant.now().plusMillis(100)));
+    assertThat(ocspConfigActivator.isPending(OcspTenants.DEFAULT_TENANT)).isTrue();
+
+    final long deadline = System.currentTimeMillis() + 3000;
+    while (!ocspTenant.getOcspResponseConfigHolder().isConfigured()
+        && (System.currentTimeMillis() < deadline)) {
+      Thread.sleep(20);
+    }
+
+    assertThat(ocspConfigActivator.isPending(OcspTenants.DEFAULT_TENANT)).isFalse();
+    assertThat(ocspTenant.getOcspResponseConfigHolder().getOcspResponderConfig())
+        .isSameAs(ocspResponderConfig);
+  }
+
+  @Test
+  void cancelAndReplace() {
+    final OcspTenant ocspTenant = ocspTenants.getDefaultTenant();
+    final OcspResponderConfig otherConfig =
+        OcspResponderConfig.builder().certificateDtos(List.of()).build();
+
+    ocspConfigActivator.schedule(
+        ocspTenant, ocspResponderConfig, ConfigActivation.afterRequestForTslSeqNr(1));
+    ocspConfigActivator.schedule(
+        ocspTenant, otherConfig, ConfigActivation.afterRequestForTslSeqNr(1));
+    ocspConfigActivator.onOcspRequest(OcspTenants.DEFAULT_TENANT, 1);
+    assertThat(ocspTenant.getOcspResponseConfigHolder().getOcspResponderConfig())
+        .isSameAs(otherConfig);
+
+    ocspConfigActivator.schedule(
+        ocspTenant, ocspResponderConfig, ConfigActivation.afterRequestForTslSeqNr(1));
+    ocspConfigActivator.cancel(OcspTenants.DEFAULT_TENANT);
+    ocspConfigActivator.onOcspRequest(OcspTenants.DEFAULT_TENANT, 1);
+    assertThat(ocspTenant.getOcspResponseConfigHolder().getOcspResponderConfig())
+        .isSameAs(otherConfig);
+  }
+
+  @Test
+  void scheduleImmediateActivation() {
+    final OcspTenant ocspTenant = ocspTenants.getDefaultTenant();
+
+    assertThatThrownBy(
+            () ->
+                ocspConfigActivator.schedule(
+                    ocspTenant, ocspResponderConfig, ConfigActivation.IMMEDIATE))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void activateStartsResponseSequencesOver() {
+    final OcspTenant ocspTenant = ocspTenants.getOrCreate("tenantA");
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem"))
+            .issuerCert(OcspResponderTestUtils.getValidIssuerCert())
+            .signer(OcspResponderTestUtils.getSigner())
+            .responseSteps(
+                List.of(ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood())))
+            .build();
+    ocspTenant.getOcspResponseSequences().resolve(certificateDto);
+    assertThat(ocspTenant.getOcspResponseSequences().getStepIndex(certificateDto)).isZero();
+
+    ocspConfigActivator.activate(ocspTenant, ocspResponderConfig);
+
+    assertThat(ocspTenant.getOcspResponseSequences().getStepIndex(certificateDto)).isEqualTo(-1);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.pkits.ocsp.responder.configs.HistoryJournalConfig;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OcspRequestHistoryPersistenceTest {
+
+  @TempDir Path tempDir;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void droppedRecordsAreCounted() throws IOException {
+    final HistoryJournalConfig historyJournalConfig = new HistoryJournalConfig();
+    historyJournalConfig.setEnabled(true);
+    historyJournalConfig.setPath(tempDir.resolve("history.journal").toString());
+    historyJournalConfig.setCapacityBytes(128);
+    final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory();
+    final OcspRequestHistoryPersistence ocspRequestHistoryPersistence =
+        new OcspRequestHistoryPersistence(historyJournalConfig, ocspRequestHistory, meterRegistry);
+    ocspRequestHistoryPersistence.open();
+
+    try {
+      for (int i = 0; i < 10; ++i) {
+        ocspRequestHistory.add(1, BigInteger.ONE, new byte[10]);
+      }
+
+      assertThat(
+              meterRegistry
+                  .get(OcspRequestHistoryPersistence.METRIC_JOURNAL_DROPPED)
+                  .functionCounter()
+                  .count())
+          .isPositive();
+      assertThat(
+              meterRegistry
+                  .get(OcspRequestHistoryPersistence.METRIC_JOURNAL_USED_BYTES)
+                  .gauge()
+                  .value())
+          .isEqualTo(128);
+    } finally {
+      ocspRequestHistoryPersistence.close();
+    }
+  }
+
+  @Test
+  void noMetricsWithoutJournal() {
+    final OcspRequestHistoryPersistence ocspRequestHistoryPersistence =
+        new OcspRequestHistoryPersistence(
+            new HistoryJournalConfig(), new OcspRequestHistory(), meterRegistry);
+    ocspRequestHistoryPersistence.open();
+
+    assertThat(ocspRequestHistoryPersistence.isEnabled()).isFalse();
+    assertThat(meterRegistry.getMeters()).isEmpty();
+  }
+}
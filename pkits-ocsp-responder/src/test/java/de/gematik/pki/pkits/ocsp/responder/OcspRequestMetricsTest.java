@@ -0,0 +1,104 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Origin;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Phase;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class OcspRequestMetricsTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final OcspRequestMetrics ocspRequestMetrics = new OcspRequestMetrics(meterRegistry);
+
+  @Test
+  void recordPerPhaseAndKeyType() {
+    ocspRequestMetrics.record(Phase.SIGN, "EC", TimeUnit.MILLISECONDS.toNanos(3));
+    ocspRequestMetrics.record(Phase.SIGN, "EC", TimeUnit.MILLISECONDS.toNanos(5));
+    ocspRequestMetrics.record(Phase.SIGN, "RSA", TimeUnit.MILLISECONDS.toNanos(7));
+    ocspRequestMetrics.recordSince(Phase.PARSE, "EC", System.nanoTime());
+
+    final Timer ecSignTimer = getTimer(Phase.SIGN, "EC");
+    assertThat(ecSignTimer.count()).isEqualTo(2);
+    assertThat(ecSignTimer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(8);
+    assertThat(getTimer(Phase.SIGN, "RSA").count()).isEqualTo(1);
+    assertThat(getTimer(Phase.PARSE, "EC").count()).isEqualTo(1);
+    assertThat(meterRegistry.find(OcspRequestMetrics.METRIC_PHASE).tag("phase", "encode").timer())
+        .isNull();
+  }
+
+  @Test
+  void timersAreRegisteredOncePerTagSet() {
+    ocspRequestMetrics.record(Phase.SIGN, "EC", 1);
+    final Timer ecSignTimer = getTimer(Phase.SIGN, "EC");
+    ocspRequestMetrics.record(Phase.SIGN, "EC", 1);
+
+    assertThat(getTimer(Phase.SIGN, "EC")).isSameAs(ecSignTimer);
+    assertThat(ecSignTimer.count()).isEqualTo(2);
+    assertThat(meterRegistry.getMeters()).hasSize(1);
+  }
+
+  @Test
+  void pregenerationIsRecordedSeparately() {
+    ocspRequestMetrics.record(Phase.SIGN, "EC", Origin.PREGENERATION, 1);
+
+    assertThat(getTimer(Phase.SIGN, "EC", Origin.PREGENERATION).count()).isEqualTo(1);
+    assertThat(
+            meterRegistry
+                .find(OcspRequestMetrics.METRIC_PHASE)
+                .tag(OcspRequestMetrics.TAG_ORIGIN, Origin.REQUEST.getTagValue())
+                .timer())
+        .isNull();
+  }
+
+  @Test
+  void getSignerKeyType() {
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem"))
+            .issuerCert(OcspResponderTestUtils.getValidIssuerCert())
+            .signer(OcspResponderTestUtils.getSigner())
+            .build();
+
+    assertThat(OcspRequestMetrics.getSignerKeyType(certificateDto)).isEqualTo("EC");
+  }
+
+  private Timer getTimer(final Phase phase, final String signerKeyType) {
+    return getTimer(phase, signerKeyType, Origin.REQUEST);
+  }
+
+  private Timer getTimer(final Phase phase, final String signerKeyType, final Origin origin) {
+    return meterRegistry
+        .get(OcspRequestMetrics.METRIC_PHASE)
+        .tag(OcspRequestMetrics.TAG_PHASE, phase.getTagValue())
+        .tag(OcspRequestMetrics.TAG_SIGNER_KEY_TYPE, signerKeyType)
+        .tag(OcspRequestMetrics.TAG_ORIGIN, origin.getTagValue())
+        .timer();
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.gemlibpki.ocsp.OcspRequestGenerator;
+import de.gematik.pki.pkits.ocsp.responder.configs.ResponseCacheConfig;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OcspResponseCacheTest {
+
+  private final X509Certificate eeCert = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+  private final X509Certificate issuerCert = OcspResponderTestUtils.getValidIssuerCert();
+  private final CertificateDto certificateDto =
+      CertificateDto.builder()
+          .eeCert(eeCert)
+          .issuerCert(issuerCert)
+          .signer(OcspResponderTestUtils.getSigner())
+          .build();
+  private final OCSPReq ocspReq =
+      OcspRequestGenerator.generateSingleOcspRequest(eeCert, issuerCert);
+
+  private final AtomicInteger buildCounter = new AtomicInteger();
+  private final Supplier<byte[]> ocspResponseBytesSupplier =
+      () -> ("response" + buildCounter.incrementAndGet()).getBytes(StandardCharsets.UTF_8);
+
+  private ResponseCacheConfig responseCacheConfig;
+  private OcspResponseCache ocspResponseCache;
+
+  @BeforeEach
+  void init() {
+    responseCacheConfig = new ResponseCacheConfig();
+    responseCacheConfig.setEnabled(true);
+    responseCacheConfig.setTimeBucketMilliseconds(60 * 60 * 1000L);
+    ocspResponseCache = new OcspResponseCache(responseCacheConfig);
+  }
+
+  @Test
+  void disabledCacheAlwaysBuilds() {
+    responseCacheConfig.setEnabled(false);
+
+    getOrBuild(1, ocspReq, certificateDto);
+    getOrBuild(1, ocspReq, certificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(2);
+    assertThat(ocspResponseCache.size()).isZero();
+  }
+
+  @Test
+  void sameRequestIsServedFromCache() {
+    final byte[] first = getOrBuild(1, ocspReq, certificateDto);
+    final byte[] second = getOrBuild(1, ocspReq, certificateDto);
+
+    assertThat(second).isSameAs(first);
+    assertThat(buildCounter.get()).isEqualTo(1);
+    assertThat(ocspResponseCache.getHits()).isEqualTo(1);
+    assertThat(ocspResponseCache.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  void newConfigGenerationBuildsAgain() {
+    getOrBuild(1, ocspReq, certificateDto);
+    getOrBuild(2, ocspReq, certificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(2);
+  }
+
+  @Test
+  void clearBuildsAgain() {
+    getOrBuild(1, ocspReq, certificateDto);
+    ocspResponseCache.clear();
+    getOrBuild(1, ocspReq, certificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(2);
+  }
+
+  @Test
+  void requestWithNonceIsNotCached() throws OCSPException {
+    final OCSPReq ocspReqWithNonce =
+        OcspResponderTestUtils.createOcspReqWithNonce(
+            eeCert, issuerCert, "nonce".getBytes(StandardCharsets.UTF_8));
+
+    getOrBuild(1, ocspReqWithNonce, certificateDto);
+    getOrBuild(1, ocspReqWithNonce, certificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(2);
+    assertThat(ocspResponseCache.size()).isZero();
+  }
+
+  @Test
+  void certificateDtoWithTimeDeltasIsNotCached() {
+    final CertificateDto certificateDtoWithDelta =
+        certificateDto.toBuilder().producedAtDeltaMilliseconds(-1000).build();
+
+    getOrBuild(1, ocspReq, certificateDtoWithDelta);
+    getOrBuild(1, ocspReq, certificateDtoWithDelta);
+
+    assertThat(buildCounter.get()).isEqualTo(2);
+  }
+
+  @Test
+  void maxEntriesClearsCache() {
+    responseCacheConfig.setMaxEntries(1);
+
+    final OCSPReq otherOcspReq =
+        OcspRequestGenerator.generateSingleOcspRequest(
+            OcspResponderTestUtils.getValidEeCert("SigurdBeutlinStadtApotheke.pem"), issuerCert);
+
+    getOrBuild(1, ocspReq, certificateDto);
+    getOrBuild(1, otherOcspReq, certificateDto);
+
+    assertThat(ocspResponseCache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void pregeneratedResponseIsServedAcrossConfigGenerations() {
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+    assertThat(ocspResponseCache.getPregeneratedSize()).isEqualTo(2);
+    assertThat(buildCounter.get()).isEqualTo(2);
+
+    getOrBuild(1, ocspReq, certificateDto);
+    getOrBuild(2, ocspReq, certificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(2);
+    assertThat(ocspResponseCache.getPregeneratedHits()).isEqualTo(2);
+    assertThat(ocspResponseCache.size()).isZero();
+  }
+
+  @Test
+  void disabledCacheDoesNotPregenerate() {
+    responseCacheConfig.setEnabled(false);
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+
+    assertThat(ocspResponseCache.getPregeneratedSize()).isZero();
+    assertThat(buildCounter.get()).isZero();
+  }
+
+  @Test
+  void pregeneratedResponseIsNotServedWhenCacheIsDisabled() {
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+    responseCacheConfig.setEnabled(false);
+
+    getOrBuild(1, ocspReq, certificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(3);
+    assertThat(ocspResponseCache.getPregeneratedHits()).isZero();
+  }
+
+  @Test
+  void pregeneratedResponseIsBoundToCertificateDto() {
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+    final CertificateDto otherCertificateDto = certificateDto.toBuilder().build();
+
+    getOrBuild(1, ocspReq, otherCertificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(3);
+    assertThat(ocspResponseCache.getPregeneratedHits()).isZero();
+  }
+
+  @Test
+  void expiredPregeneratedResponseIsSignedAgain() {
+    responseCacheConfig.setPregeneratedMaxAgeMilliseconds(-1);
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+
+    final byte[] ocspResponseBytes = getOrBuild(1, ocspReq, certificateDto);
+
+    assertThat(new String(ocspResponseBytes, StandardCharsets.UTF_8)).isEqualTo("response3");
+    assertThat(ocspResponseCache.getPregeneratedHits()).isZero();
+    assertThat(ocspResponseCache.getPregeneratedSize()).isEqualTo(2);
+  }
+
+  @Test
+  void pregeneratedResponseIsNotServedForRequestWithNonce() throws OCSPException {
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+    final OCSPReq ocspReqWithNonce =
+        OcspResponderTestUtils.createOcspReqWithNonce(
+            eeCert, issuerCert, "nonce".getBytes(StandardCharsets.UTF_8));
+
+    getOrBuild(1, ocspReqWithNonce, certificateDto);
+
+    assertThat(buildCounter.get()).isEqualTo(3);
+    assertThat(ocspResponseCache.getPregeneratedHits()).isZero();
+
+    // the response to the request with nonce did not replace the pregenerated response
+    getOrBuild(1, ocspReq, certificateDto);
+    assertThat(buildCounter.get()).isEqualTo(3);
+    assertThat(ocspResponseCache.getPregeneratedHits()).isEqualTo(1);
+  }
+
+  @Test
+  void entriesWithTimeDeltasAreNotPregenerated() {
+    ocspResponseCache.pregenerate(
+        certificateDto.toBuilder().producedAtDeltaMilliseconds(-5000).build(),
+        req -> ocspResponseBytesSupplier.get());
+
+    assertThat(ocspResponseCache.getPregeneratedSize()).isZero();
+    assertThat(buildCounter.get()).isZero();
+  }
+
+  @Test
+  void removeAndClearPregenerated() {
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+    ocspResponseCache.clearCachedResponses();
+    assertThat(ocspResponseCache.getPregeneratedSize()).isEqualTo(2);
+
+    ocspResponseCache.removePregenerated(eeCert.getSerialNumber().add(BigInteger.ONE));
+    assertThat(ocspResponseCache.getPregeneratedSize()).isEqualTo(2);
+
+    ocspResponseCache.removePregenerated(eeCert.getSerialNumber());
+    assertThat(ocspResponseCache.getPregeneratedSize()).isZero();
+
+    ocspResponseCache.pregenerate(certificateDto, req -> ocspResponseBytesSupplier.get());
+    ocspResponseCache.clear();
+    assertThat(ocspResponseCache.getPregeneratedSize()).isZero();
+  }
+
+  private byte[] getOrBuild(
+      final long configGeneration, final OCSPReq ocspReq, final CertificateDto certificateDto) {
+    return ocspResponseCache
+        .getOrBuild(
+            configGeneration,
+            ocspReq,
+            certificateDto,
+            () -> CompletableFuture.completedFuture(ocspResponseBytesSupplier.get()))
+        .join();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OcspResponseConfigHolderTest {
+
+  private final OcspResponseConfigHolder ocspResponseConfigHolder = new OcspResponseConfigHolder();
+
+  private final X509Certificate eeCert = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+  private final CertificateDto certificateDto =
+      CertificateDto.builder()
+          .eeCert(eeCert)
+          .issuerCert(OcspResponderTestUtils.getValidIssuerCert())
+          .signer(OcspResponderTestUtils.getSigner())
+          .build();
+
+  @Test
+  void notConfigured() {
+    assertThat(ocspResponseConfigHolder.getSnapshot()).isSameAs(OcspResponseConfigSnapshot.EMPTY);
+    assertThat(ocspResponseConfigHolder.isConfigured()).isFalse();
+    assertThat(ocspResponseConfigHolder.getConfigGeneration()).isZero();
+  }
+
+  @Test
+  void everyUpdatePublishesNewGeneration() {
+    ocspResponseConfigHolder.setOcspResponderConfig(
+        OcspResponderConfig.builder().certificateDtos(List.of()).build());
+    final OcspResponseConfigSnapshot configured = ocspResponseConfigHolder.getSnapshot();
+
+    ocspResponseConfigHolder.putCertificateDto(certificateDto);
+    final OcspResponseConfigSnapshot put = ocspResponseConfigHolder.getSnapshot();
+
+    assertThat(ocspResponseConfigHolder.removeCertificateDto(eeCert.getSerialNumber())).isTrue();
+    assertThat(ocspResponseConfigHolder.removeCertificateDto(eeCert.getSerialNumber())).isFalse();
+    final OcspResponseConfigSnapshot removed = ocspResponseConfigHolder.getSnapshot();
+
+    assertThat(configured.getGeneration()).isEqualTo(1);
+    assertThat(put.getGeneration()).isEqualTo(2);
+    assertThat(removed.getGeneration()).isEqualTo(3);
+    assertThat(ocspResponseConfigHolder.getConfigGeneration()).isEqualTo(3);
+  }
+
+  @Test
+  void putAndRemoveMatchIssuerAndSerialNr() {
+    final X509Certificate otherIssuerCert = OcspResponderTestUtils.getSignerCaCert();
+    final CertificateDto otherIssuerDto =
+        certificateDto.toBuilder().issuerCert(otherIssuerCert).build();
+    ocspResponseConfigHolder.putCertificateDto(certificateDto);
+    ocspResponseConfigHolder.putCertificateDto(otherIssuerDto);
+
+    final CertificateDto replacingDto = certificateDto.toBuilder().delayMilliseconds(10).build();
+    ocspResponseConfigHolder.putCertificateDto(replacingDto);
+    assertThat(ocspResponseConfigHolder.getOcspResponderConfig().getCertificateDtos())
+        .containsExactly(otherIssuerDto, replacingDto);
+
+    assertThat(
+            ocspResponseConfigHolder.removeCertificateDto(
+                eeCert.getSerialNumber(), OcspResponderTestUtils.getValidIssuerCert()))
+        .isTrue();
+    assertThat(ocspResponseConfigHolder.getOcspResponderConfig().getCertificateDtos())
+        .containsExactly(otherIssuerDto);
+    assertThat(ocspResponseConfigHolder.getCertificateFromSerialNr(eeCert.getSerialNumber()))
+        .containsSame(otherIssuerDto);
+    assertThat(
+            ocspResponseConfigHolder.removeCertificateDto(
+                eeCert.getSerialNumber(), OcspResponderTestUtils.getValidIssuerCert()))
+        .isFalse();
+  }
+
+  @Test
+  void snapshotIsNotChangedByUpdates() {
+    ocspResponseConfigHolder.putCertificateDto(certificateDto);
+    final OcspResponseConfigSnapshot snapshot = ocspResponseConfigHolder.getSnapshot();
+
+    ocspResponseConfigHolder.setOcspResponderConfig(null);
+
+    assertThat(snapshot.isConfigured()).isTrue();
+    assertThat(snapshot.getOcspResponderConfig().getCertificateDtos())
+        .containsExactly(certificateDto);
+    assertThat(snapshot.getCertificateFromSerialNr(eeCert.getSerialNumber()))
+        .containsSame(certificateDto);
+    assertThat(ocspResponseConfigHolder.isConfigured()).isFalse();
+    assertThat(ocspResponseConfigHolder.getCertificateFromSerialNr(eeCert.getSerialNumber()))
+        .isEmpty();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CustomCertificateStatusDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CustomCertificateStatusType;
+import de.gematik.pki.pkits.ocsp.responder.data.ResponseStepDto;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class OcspResponseSequencesTest {
+
+  private static final X509Certificate EE_CERT =
+      OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final OcspResponseSequences ocspResponseSequences =
+      new OcspResponseSequences(nanoTime::get);
+
+  private static CertificateDto createCertificateDto(final List<ResponseStepDto> responseSteps) {
+    return CertificateDto.builder()
+        .eeCert(EE_CERT)
+        .issuerCert(OcspResponderTestUtils.getValidIssuerCert())
+        .signer(OcspResponderTestUtils.getSigner())
+        .delayMilliseconds(10)
+        .responseSteps(responseSteps)
+        .build();
+  }
+
+  private CustomCertificateStatusType resolveStatusType(final CertificateDto certificateDto) {
+    return ocspResponseSequences.resolve(certificateDto).getCertificateStatusDto().getType();
+  }
+
+  private void advanceMilliseconds(final long milliseconds) {
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(milliseconds));
+  }
+
+  @Test
+  void certificateWithoutStepsIsUnchanged() {
+    final CertificateDto certificateDto = createCertificateDto(null);
+
+    assertThat(ocspResponseSequences.resolve(certificateDto)).isSameAs(certificateDto);
+    assertThat(ocspResponseSequences.getStepIndex(certificateDto)).isEqualTo(-1);
+  }
+
+  @Test
+  void stepsEndByRequestCount() {
+    final CertificateDto certificateDto =
+        createCertificateDto(
+            List.of(
+                ResponseStepDto.forRequests(2, CustomCertificateStatusDto.createGood()),
+                ResponseStepDto.builder()
+                    .requestCount(1)
+                    .certificateStatus(CustomCertificateStatusDto.createUnknown())
+                    .delayMilliseconds(500)
+                    .build(),
+                ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood())));
+
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.GOOD);
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.GOOD);
+
+    final CertificateDto secondStep = ocspResponseSequences.resolve(certificateDto);
+    assertThat(secondStep.getCertificateStatusDto().isUnknown()).isTrue();
+    assertThat(secondStep.getDelayMilliseconds()).isEqualTo(500);
+    assertThat(secondStep.hasResponseSteps()).isFalse();
+
+    // the last step is never left
+    final CertificateDto lastStep = ocspResponseSequences.resolve(certificateDto);
+    assertThat(lastStep.getDelayMilliseconds()).isEqualTo(10);
+    assertThat(ocspResponseSequences.resolve(certificateDto)).isSameAs(lastStep);
+    assertThat(ocspResponseSequences.getStepIndex(certificateDto)).isEqualTo(2);
+  }
+
+  @Test
+  void stepsEndByTime() {
+    final CertificateDto certificateDto =
+        createCertificateDto(
+            List.of(
+                ResponseStepDto.builder().durationMilliseconds(1000).build(),
+                ResponseStepDto.builder()
+                    .durationMilliseconds(1000)
+                    .certificateStatus(CustomCertificateStatusDto.createUnknown())
+                    .build(),
+                ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood())));
+
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.GOOD);
+    advanceMilliseconds(999);
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.GOOD);
+    advanceMilliseconds(1);
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.UNKNOWN);
+
+    // steps ended by time hand over on schedule, even without requests
+    advanceMilliseconds(5000);
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.GOOD);
+    assertThat(ocspResponseSequences.getStepIndex(certificateDto)).isEqualTo(2);
+  }
+
+  @Test
+  void sequenceStartsOverWhenConfiguredAgain() {
+    final List<ResponseStepDto> responseSteps =
+        List.of(
+            ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood()),
+            ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createUnknown()));
+
+    final CertificateDto certificateDto = createCertificateDto(responseSteps);
+    ocspResponseSequences.resolve(certificateDto);
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.UNKNOWN);
+
+    final CertificateDto configuredAgain = createCertificateDto(responseSteps);
+    assertThat(resolveStatusType(configuredAgain)).isEqualTo(CustomCertificateStatusType.GOOD);
+    assertThat(ocspResponseSequences.getStepIndex(configuredAgain)).isZero();
+
+    ocspResponseSequences.clear();
+    assertThat(ocspResponseSequences.getStepIndex(certificateDto)).isEqualTo(-1);
+    assertThat(ocspResponseSequences.getStepIndex(configuredAgain)).isEqualTo(-1);
+  }
+
+  @Test
+  void sequencesOfIssuersWithSameSerialNrAdvanceIndependently() {
+    final List<ResponseStepDto> responseSteps =
+        List.of(
+            ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood()),
+            ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createUnknown()));
+    final CertificateDto certificateDto = createCertificateDto(responseSteps);
+    final CertificateDto otherIssuerCertificateDto =
+        certificateDto.toBuilder().issuerCert(OcspResponderTestUtils.getSignerCaCert()).build();
+
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.GOOD);
+    assertThat(resolveStatusType(otherIssuerCertificateDto))
+        .isEqualTo(CustomCertificateStatusType.GOOD);
+    assertThat(resolveStatusType(certificateDto)).isEqualTo(CustomCertificateStatusType.UNKNOWN);
+    assertThat(resolveStatusType(otherIssuerCertificateDto))
+        .isEqualTo(CustomCertificateStatusType.UNKNOWN);
+    assertThat(ocspResponseSequences.getStepIndex(certificateDto)).isEqualTo(1);
+    assertThat(ocspResponseSequences.getStepIndex(otherIssuerCertificateDto)).isEqualTo(1);
+  }
+
+  @Test
+  void retainDropsProgressOfCertificatesNoLongerConfigured() {
+    final List<ResponseStepDto> responseSteps =
+        List.of(
+            ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood()),
+            ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createUnknown()));
+    final CertificateDto kept = createCertificateDto(responseSteps);
+    final CertificateDto replaced = createCertificateDto(responseSteps);
+    ocspResponseSequences.resolve(kept);
+    ocspResponseSequences.resolve(replaced);
+
+    ocspResponseSequences.retain(List.of(kept));
+
+    assertThat(ocspResponseSequences.getStepIndex(kept)).isZero();
+    assertThat(ocspResponseSequences.getStepIndex(replaced)).isEqualTo(-1);
+  }
+}
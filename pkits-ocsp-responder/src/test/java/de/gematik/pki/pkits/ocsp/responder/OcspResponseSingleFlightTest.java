@@ -0,0 +1,187 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class OcspResponseSingleFlightTest {
+
+  private static final byte[] OCSP_REQ_BYTES = {1, 2, 3};
+
+  private final OcspResponseSingleFlight ocspResponseSingleFlight = new OcspResponseSingleFlight();
+  private final ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  void shutdown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  void concurrentIdenticalRequestsAreBuiltOnce() throws Exception {
+    final int count = 8;
+    final AtomicInteger buildCount = new AtomicInteger();
+    final CountDownLatch buildStarted = new CountDownLatch(1);
+    final CountDownLatch releaseBuild = new CountDownLatch(1);
+
+    final Supplier<byte[]> supplier =
+        () -> {
+          buildCount.incrementAndGet();
+          buildStarted.countDown();
+          await(releaseBuild);
+          return new byte[] {42};
+        };
+
+    final List<Future<byte[]>> futures = new ArrayList<>();
+    futures.add(executorService.submit(() -> getOrBuild("default", 1, supplier)));
+    assertThat(buildStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    for (int i = 1; i < count; ++i) {
+      futures.add(executorService.submit(() -> getOrBuild("default", 1, supplier)));
+    }
+
+    final long deadline = System.currentTimeMillis() + 5000;
+    while ((ocspResponseSingleFlight.getCoalescedCount() < count - 1)
+        && (System.currentTimeMillis() < deadline)) {
+      Thread.sleep(10);
+    }
+    releaseBuild.countDown();
+
+    for (final Future<byte[]> future : futures) {
+      assertThat(future.get(5, TimeUnit.SECONDS)).containsExactly(42);
+    }
+    assertThat(buildCount.get()).isEqualTo(1);
+    assertThat(ocspResponseSingleFlight.getCoalescedCount()).isEqualTo(count - 1);
+    assertThat(ocspResponseSingleFlight.size()).isZero();
+  }
+
+  @Test
+  void sequentialRequestsAreBuiltAgain() {
+    final AtomicInteger buildCount = new AtomicInteger();
+    final Supplier<byte[]> supplier = () -> new byte[] {(byte) buildCount.incrementAndGet()};
+
+    assertThat(getOrBuild("default", 1, supplier)).containsExactly(1);
+    assertThat(getOrBuild("default", 1, supplier)).containsExactly(2);
+    assertThat(ocspResponseSingleFlight.getCoalescedCount()).isZero();
+  }
+
+  @Test
+  void differentTenantsAndGenerationsAreNotCoalesced() throws Exception {
+    final CountDownLatch releaseBuild = new CountDownLatch(1);
+    final Future<byte[]> blocked =
+        executorService.submit(
+            () ->
+                getOrBuild(
+                    "default",
+                    1,
+                    () -> {
+                      await(releaseBuild);
+                      return new byte[] {1};
+                    }));
+
+    final long deadline = System.currentTimeMillis() + 5000;
+    while ((ocspResponseSingleFlight.size() == 0) && (System.currentTimeMillis() < deadline)) {
+      Thread.sleep(10);
+    }
+
+    assertThat(getOrBuild("default", 2, () -> new byte[] {2})).containsExactly(2);
+    assertThat(getOrBuild("tenantA", 1, () -> new byte[] {3})).containsExactly(3);
+    assertThat(
+            ocspResponseSingleFlight
+                .getOrBuild(
+                    "default",
+                    1,
+                    new byte[] {4},
+                    () -> CompletableFuture.completedFuture(new byte[] {4}))
+                .join())
+        .containsExactly(4);
+
+    releaseBuild.countDown();
+    assertThat(blocked.get(5, TimeUnit.SECONDS)).containsExactly(1);
+    assertThat(ocspResponseSingleFlight.getCoalescedCount()).isZero();
+  }
+
+  @Test
+  void waitingRequestsDoNotBlock() {
+    final CompletableFuture<byte[]> build = new CompletableFuture<>();
+    final CompletableFuture<byte[]> first =
+        ocspResponseSingleFlight.getOrBuild("default", 1, OCSP_REQ_BYTES, () -> build);
+    final CompletableFuture<byte[]> second =
+        ocspResponseSingleFlight.getOrBuild("default", 1, OCSP_REQ_BYTES, () -> build);
+
+    assertThat(second).isSameAs(first).isNotDone();
+    assertThat(ocspResponseSingleFlight.getCoalescedCount()).isEqualTo(1);
+
+    build.completeExceptionally(new OcspResponderException("build failed"));
+    assertThat(first)
+        .failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(OcspResponderException.class);
+    assertThat(ocspResponseSingleFlight.size()).isZero();
+  }
+
+  @Test
+  void failedBuildIsNotKept() {
+    final Supplier<byte[]> failingSupplier =
+        () -> {
+          throw new OcspResponderException("build failed");
+        };
+
+    assertThatThrownBy(() -> getOrBuild("default", 1, failingSupplier))
+        .isInstanceOf(OcspResponderException.class)
+        .hasMessage("build failed");
+    assertThat(ocspResponseSingleFlight.size()).isZero();
+    assertThat(getOrBuild("default", 1, () -> new byte[] {5})).containsExactly(5);
+  }
+
+  private byte[] getOrBuild(
+      final String tenantId, final long configGeneration, final Supplier<byte[]> supplier) {
+    return ocspResponseSingleFlight
+        .getOrBuild(
+            tenantId,
+            configGeneration,
+            OCSP_REQ_BYTES,
+            () -> CompletableFuture.completedFuture(supplier.get()))
+        .join();
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.gematik.pki.pkits.ocsp.responder.configs.SigningExecutorConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class OcspSigningExecutorTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final OcspSigningExecutor ocspSigningExecutor = createOcspSigningExecutor();
+
+  private OcspSigningExecutor createOcspSigningExecutor() {
+    final SigningExecutorConfig signingExecutorConfig = new SigningExecutorConfig();
+    signingExecutorConfig.setPoolSize(1);
+    signingExecutorConfig.setQueueCapacity(1);
+    return new OcspSigningExecutor(signingExecutorConfig, meterRegistry);
+  }
+
+  @AfterEach
+  void shutdown() {
+    ocspSigningExecutor.shutdown();
+  }
+
+  @Test
+  void signReturnsResult() {
+    assertThat(ocspSigningExecutor.sign(() -> new byte[] {1, 2}).join()).containsExactly(1, 2);
+    assertThat(ocspSigningExecutor.getRejectedCount()).isZero();
+  }
+
+  @Test
+  void signPropagatesException() {
+    final CompletableFuture<byte[]> future =
+        ocspSigningExecutor.sign(
+            () -> {
+              throw new OcspResponderException("signing failed");
+            });
+    assertThat(future)
+        .failsWithin(5, TimeUnit.SECONDS)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(OcspResponderException.class)
+        .withMessageContaining("signing failed");
+  }
+
+  @Test
+  void signDoesNotBlockCaller() throws Exception {
+    final CountDownLatch releaseSigning = new CountDownLatch(1);
+
+    final CompletableFuture<byte[]> future =
+        ocspSigningExecutor.sign(
+            () -> {
+              await(releaseSigning);
+              return new byte[] {1};
+            });
+    assertThat(future).isNotDone();
+
+    releaseSigning.countDown();
+    assertThat(future.get(5, TimeUnit.SECONDS)).containsExactly(1);
+  }
+
+  @Test
+  void fullQueueIsRejected() throws Exception {
+    final CountDownLatch signingStarted = new CountDownLatch(1);
+    final CountDownLatch releaseSigning = new CountDownLatch(1);
+
+    final CompletableFuture<byte[]> running =
+        ocspSigningExecutor.sign(
+            () -> {
+              signingStarted.countDown();
+              await(releaseSigning);
+              return new byte[] {1};
+            });
+    assertThat(signingStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+    final CompletableFuture<byte[]> queued = ocspSigningExecutor.sign(() -> new byte[] {2});
+    assertThat(meterRegistry.get(OcspSigningExecutor.METRIC_QUEUE_DEPTH).gauge().value())
+        .isEqualTo(1);
+
+    assertThatThrownBy(() -> ocspSigningExecutor.sign(() -> new byte[] {3}))
+        .isInstanceOf(SigningRejectedException.class);
+    assertThat(ocspSigningExecutor.getRejectedCount()).isEqualTo(1);
+    assertThat(meterRegistry.get(OcspSigningExecutor.METRIC_REJECTED).counter().count())
+        .isEqualTo(1);
+
+    releaseSigning.countDown();
+    assertThat(running.get(5, TimeUnit.SECONDS)).containsExactly(1);
+    assertThat(queued.get(5, TimeUnit.SECONDS)).containsExactly(2);
+    assertThat(ocspSigningExecutor.getQueueDepth()).isZero();
+  }
+
+  @Test
+  void invalidConfigIsRejected() {
+    final SigningExecutorConfig signingExecutorConfig = new SigningExecutorConfig();
+    signingExecutorConfig.setQueueCapacity(0);
+
+    assertThatThrownBy(() -> new OcspSigningExecutor(signingExecutorConfig, meterRegistry))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
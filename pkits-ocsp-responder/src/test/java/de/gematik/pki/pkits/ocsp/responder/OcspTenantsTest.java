@@ -0,0 +1,118 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig;
+import de.gematik.pki.pkits.ocsp.responder.configs.ResponseCacheConfig;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
+import de.gematik.pki.pkits.ocsp.responder.data.CustomCertificateStatusDto;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryWaitRegistry;
+import de.gematik.pki.pkits.ocsp.responder.data.ResponseStepDto;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OcspTenantsTest {
+
+  private final OcspResponseConfigHolder ocspResponseConfigHolder = new OcspResponseConfigHolder();
+  private final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory();
+  private final OcspTenants ocspTenants =
+      new OcspTenants(
+          ocspResponseConfigHolder,
+          ocspRequestHistory,
+          new OcspResponseCache(new ResponseCacheConfig()),
+          new OcspRequestHistoryWaitRegistry(ocspRequestHistory),
+          new OcspResponseSequences(),
+          new RequestHistoryConfig(),
+          new ResponseCacheConfig());
+
+  @Test
+  void defaultTenantUsesGivenBeans() {
+    final OcspTenant defaultTenant = ocspTenants.getOrCreate(OcspTenants.DEFAULT_TENANT);
+
+    assertThat(defaultTenant).isSameAs(ocspTenants.getDefaultTenant());
+    assertThat(defaultTenant.getOcspResponseConfigHolder()).isSameAs(ocspResponseConfigHolder);
+    assertThat(defaultTenant.getOcspRequestHistory()).isSameAs(ocspRequestHistory);
+  }
+
+  @Test
+  void tenantsAreIsolated() {
+    final OcspTenant tenantA = ocspTenants.getOrCreate("tenantA");
+    final OcspTenant tenantB = ocspTenants.getOrCreate("tenant-B_2");
+
+    tenantA.getOcspRequestHistory().add(OcspResponderTestUtils.getEntry(1, "10001"));
+
+    assertThat(ocspTenants.getOrCreate("tenantA")).isSameAs(tenantA);
+    assertThat(tenantA.getOcspRequestHistory().size()).isEqualTo(1);
+    assertThat(tenantB.getOcspRequestHistory().size()).isZero();
+    assertThat(ocspRequestHistory.size()).isZero();
+    assertThat(tenantA.getOcspResponseConfigHolder())
+        .isNotSameAs(tenantB.getOcspResponseConfigHolder());
+    assertThat(ocspTenants.size()).isEqualTo(3);
+  }
+
+  @Test
+  void findDoesNotCreate() {
+    assertThat(ocspTenants.find("unknown")).isEmpty();
+    assertThat(ocspTenants.size()).isEqualTo(1);
+  }
+
+  @Test
+  void removeKeepsDefaultTenant() {
+    ocspTenants.getOrCreate("tenantA");
+
+    ocspTenants.remove("tenantA");
+    ocspTenants.remove(OcspTenants.DEFAULT_TENANT);
+
+    assertThat(ocspTenants.find("tenantA")).isEmpty();
+    assertThat(ocspTenants.find(OcspTenants.DEFAULT_TENANT)).isPresent();
+  }
+
+  @Test
+  void removeStartsResponseSequencesOver() {
+    final OcspTenant ocspTenant = ocspTenants.getOrCreate("tenantA");
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem"))
+            .issuerCert(OcspResponderTestUtils.getValidIssuerCert())
+            .signer(OcspResponderTestUtils.getSigner())
+            .responseSteps(
+                List.of(ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood())))
+            .build();
+    ocspTenant.getOcspResponseSequences().resolve(certificateDto);
+
+    ocspTenants.remove("tenantA");
+
+    assertThat(ocspTenant.getOcspResponseSequences().getStepIndex(certificateDto)).isEqualTo(-1);
+  }
+
+  @Test
+  void invalidTenantId() {
+    assertThatThrownBy(() -> ocspTenants.getOrCreate("1tenant"))
+        .isInstanceOf(InvalidTenantIdException.class);
+    assertThatThrownBy(() -> ocspTenants.getOrCreate("tenant/a"))
+        .isInstanceOf(InvalidTenantIdException.class);
+  }
+}
@@ -30,9 +30,15 @@ import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 
 import de.gematik.pki.pkits.common.PkiCommonException;
 import de.gematik.pki.pkits.common.PkitsCommonUtils;
+import de.gematik.pki.pkits.ocsp.responder.CryptoMaterialRegistry;
+import de.gematik.pki.pkits.ocsp.responder.OcspResponseConfigHolder;
+import de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils;
+import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryEntryDto;
+import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
 import java.math.BigInteger;
+import java.security.cert.X509Certificate;
 import java.util.List;
 import kong.unirest.core.HttpResponse;
 import kong.unirest.core.Unirest;
@@ -56,6 +62,8 @@ class OcspResponderManagerTest {
 
   @LocalServerPort private int localServerPort;
   @Autowired OcspRequestHistory ocspRequestHistory;
+  @Autowired CryptoMaterialRegistry cryptoMaterialRegistry;
+  @Autowired OcspResponseConfigHolder ocspResponseConfigHolder;
 
   private String ocspRespUri;
 
@@ -78,6 +86,123 @@ class OcspResponderManagerTest {
         .hasMessageContaining("OcspResponder has health problem");
   }
 
+  @Test
+  void testConfigureUploadsInlineIfReferencedMaterialIsUnknown() {
+    final X509Certificate eeCert = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+    final OcspResponderConfig ocspResponderConfig =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(eeCert)
+                        .issuerCert(OcspResponderTestUtils.getValidIssuerCert())
+                        .signer(OcspResponderTestUtils.getSigner())
+                        .build()))
+            .build();
+
+    OcspResponderManager.configure(ocspRespUri, ocspResponderConfig);
+    assertThat(cryptoMaterialRegistry.size()).isPositive();
+
+    // the responder lost the material, for example by a restart
+    cryptoMaterialRegistry.clear();
+    OcspResponderManager.configure(ocspRespUri, ocspResponderConfig);
+
+    assertThat(cryptoMaterialRegistry.size()).isEqualTo(4);
+    assertThat(
+            ocspResponseConfigHolder
+                .getOcspResponderConfig()
+                .getCertificateDtos()
+                .get(0)
+                .getEeCert())
+        .isEqualTo(eeCert);
+  }
+
+  @Test
+  void testPutAndRemoveCertificate() {
+    final X509Certificate issuerCert = OcspResponderTestUtils.getValidIssuerCert();
+    final X509Certificate eeCert = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+    final X509Certificate otherEeCert =
+        OcspResponderTestUtils.getValidEeCert("SigurdBeutlinStadtApotheke.pem");
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(eeCert)
+            .issuerCert(issuerCert)
+            .signer(OcspResponderTestUtils.getSigner())
+            .build();
+
+    OcspResponderManager.configure(
+        ocspRespUri,
+        OcspResponderConfig.builder().certificateDtos(List.of(certificateDto)).build());
+    ocspRequestHistory.add(getEntry(1, eeCert.getSerialNumber().toString()));
+
+    OcspResponderManager.putCertificate(
+        ocspRespUri, certificateDto.toBuilder().eeCert(otherEeCert).build(), true);
+    OcspResponderManager.putCertificate(
+        ocspRespUri, certificateDto.toBuilder().delayMilliseconds(10).build(), true);
+
+    assertThat(ocspResponseConfigHolder.getOcspResponderConfig().getCertificateDtos()).hasSize(2);
+    assertThat(ocspResponseConfigHolder.getCertificateFromSerialNr(eeCert.getSerialNumber()))
+        .hasValueSatisfying(dto -> assertThat(dto.getDelayMilliseconds()).isEqualTo(10));
+    assertThat(ocspRequestHistory.getExcerpt(1, eeCert.getSerialNumber())).hasSize(1);
+
+    OcspResponderManager.removeCertificate(ocspRespUri, eeCert.getSerialNumber(), false);
+
+    assertThat(ocspResponseConfigHolder.getOcspResponderConfig().getCertificateDtos()).hasSize(1);
+    assertThat(ocspResponseConfigHolder.getCertificateFromSerialNr(eeCert.getSerialNumber()))
+        .isEmpty();
+    assertThat(ocspRequestHistory.getExcerpt(1, eeCert.getSerialNumber())).isEmpty();
+
+    final BigInteger eeCertSerialNr = eeCert.getSerialNumber();
+    Assertions.assertThatThrownBy(
+            () -> OcspResponderManager.removeCertificate(ocspRespUri, eeCertSerialNr, true))
+        .isInstanceOf(PkiCommonException.class)
+        .hasMessageContaining("404");
+  }
+
+  @Test
+  void testRemoveCertificateOfIssuer() {
+    final X509Certificate issuerCert = OcspResponderTestUtils.getValidIssuerCert();
+    final X509Certificate otherIssuerCert = OcspResponderTestUtils.getSignerCaCert();
+    final X509Certificate eeCert = OcspResponderTestUtils.getValidEeCert("DrMedGunther.pem");
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(eeCert)
+            .issuerCert(issuerCert)
+            .signer(OcspResponderTestUtils.getSigner())
+            .build();
+    final CertificateDto otherIssuerDto =
+        certificateDto.toBuilder().issuerCert(otherIssuerCert).build();
+
+    OcspResponderManager.configure(
+        ocspRespUri,
+        OcspResponderConfig.builder()
+            .certificateDtos(List.of(certificateDto, otherIssuerDto))
+            .build());
+
+    OcspResponderManager.removeCertificate(
+        ocspRespUri,
+        OcspResponderManager.DEFAULT_TENANT,
+        eeCert.getSerialNumber(),
+        issuerCert,
+        true);
+
+    assertThat(ocspResponseConfigHolder.getOcspResponderConfig().getCertificateDtos())
+        .singleElement()
+        .satisfies(dto -> assertThat(dto.getIssuerCert()).isEqualTo(otherIssuerCert));
+
+    final BigInteger eeCertSerialNr = eeCert.getSerialNumber();
+    Assertions.assertThatThrownBy(
+            () ->
+                OcspResponderManager.removeCertificate(
+                    ocspRespUri,
+                    OcspResponderManager.DEFAULT_TENANT,
+                    eeCertSerialNr,
+                    issuerCert,
+                    true))
+        .isInstanceOf(PkiCommonException.class)
+        .hasMessageContaining("404");
+  }
+
   private void assertGetOcspHistoryPart(
       final Integer tslSeqNr, final String certSerialNrStr, final int expectedAmount) {
 
@@ -259,6 +259,75 @@ class OcspConfigControllerTest {
     assertThat(actualConfig).hasToString(expectedConfig.toString());
   }
 
+  @Test
+  void ocspConfigWithReferencedMaterial() {
+    final String WEBSERVER_CONFIG_URL =
+        "http://localhost:" + localServerPort + OCSP_WEBSERVER_CONFIG_ENDPOINT;
+
+    final OcspResponderConfig ocspResponderConfig =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(eeCerts.get(1))
+                        .issuerCert(issuerCert)
+                        .signer(signer)
+                        .build()))
+            .build();
+
+    final HttpResponse<String> inlineResponse =
+        postConfig(WEBSERVER_CONFIG_URL, ocspResponderConfig.toJsonDto());
+    assertThat(inlineResponse.getStatus()).isEqualTo(HttpStatus.SC_OK);
+
+    invalidateOcspRespConfiguration();
+
+    final OcspResponderConfigJsonDto referencingJsonDto = ocspResponderConfig.toJsonDto();
+    referencingJsonDto.referenceKnownMaterial(referencingJsonDto.getMaterialSha256s());
+    assertThat(referencingJsonDto.getCertificateJsonDtos().get(0).getEeCertEncoded()).isNull();
+
+    final HttpResponse<String> referencingResponse =
+        postConfig(WEBSERVER_CONFIG_URL, referencingJsonDto);
+    assertThat(referencingResponse.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(
+            ocspResponseConfigHolder
+                .getOcspResponderConfig()
+                .getCertificateDtos()
+                .get(0)
+                .getEeCert())
+        .isEqualTo(eeCerts.get(1));
+  }
+
+  @Test
+  void ocspConfigWithUnknownReferencedMaterial() {
+    final String WEBSERVER_CONFIG_URL =
+        "http://localhost:" + localServerPort + OCSP_WEBSERVER_CONFIG_ENDPOINT;
+
+    final OcspResponderConfigJsonDto jsonDto =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(eeCerts.get(0))
+                        .issuerCert(issuerCert)
+                        .signer(signer)
+                        .build()))
+            .build()
+            .toJsonDto();
+    jsonDto.getCertificateJsonDtos().get(0).setEeCertEncoded(null);
+    jsonDto.getCertificateJsonDtos().get(0).setEeCertSha256("00".repeat(32));
+
+    final HttpResponse<String> response = postConfig(WEBSERVER_CONFIG_URL, jsonDto);
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_CONFLICT);
+  }
+
+  private static HttpResponse<String> postConfig(
+      final String webserverConfigUrl, final OcspResponderConfigJsonDto jsonDto) {
+    return Unirest.post(webserverConfigUrl)
+        .body(PkitsCommonUtils.createJsonContent(jsonDto))
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .asString();
+  }
+
   private void invalidateOcspRespConfiguration() {
 
     signer = OcspResponderTestUtils.getSigner();
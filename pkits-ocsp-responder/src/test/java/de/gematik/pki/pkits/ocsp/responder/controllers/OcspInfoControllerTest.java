@@ -42,6 +42,8 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import kong.unirest.core.HttpResponse;
 import kong.unirest.core.Unirest;
 import lombok.extern.slf4j.Slf4j;
@@ -121,6 +123,46 @@ class OcspInfoControllerTest {
     assertThat(responseBodyAsJson).isEqualTo("[]");
   }
 
+  @Test
+  void infoResponseContainsOverflowCountHeader() {
+    final OcspInfoRequestDto ocspInfoRequest =
+        new OcspInfoRequestDto(
+            OcspResponderManager.IGNORE_SEQUENCE_NUMBER,
+            OcspResponderManager.IGNORE_CERT_SERIAL_NUMBER,
+            HistoryDeleteOption.DELETE_NOTHING);
+
+    final HttpResponse<String> response =
+        Unirest.post(ocspInfoUrl)
+            .header(CONTENT_TYPE, "application/json")
+            .body(PkitsCommonUtils.createJsonContent(ocspInfoRequest))
+            .asString();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(response.getHeaders().getFirst(OcspInfoController.HISTORY_OVERFLOW_COUNT_HEADER))
+        .isEqualTo("0");
+  }
+
+  @Test
+  void getUnknownOcspRequestBytes() {
+    final String ocspRequestUrl =
+        "http://localhost:"
+            + localServerPort
+            + PkitsConstants.OCSP_WEBSERVER_INFO_REQUEST_ENDPOINT
+            + "/"
+            + "00".repeat(32);
+
+    assertThat(Unirest.get(ocspRequestUrl).asBytes().getStatus())
+        .isEqualTo(HttpStatus.SC_NOT_FOUND);
+  }
+
+  @Test
+  void exportJournalIsNotFoundIfDisabled() {
+    final String journalUrl =
+        "http://localhost:" + localServerPort + PkitsConstants.OCSP_WEBSERVER_INFO_JOURNAL_ENDPOINT;
+
+    assertThat(Unirest.get(journalUrl).asBytes().getStatus()).isEqualTo(HttpStatus.SC_NOT_FOUND);
+  }
+
   @Test
   void getEmptyOcspRequestHistoryForImaginaryCertAsJson2() {
     final String requestBodyAsJson =
@@ -137,6 +179,43 @@ class OcspInfoControllerTest {
     assertThat(responseBodyAsJson).isEqualTo("[]");
   }
 
+  @Test
+  void waitForInfoReturnsWhenRequestArrives() throws Exception {
+    final String ocspRespUri = "http://localhost:" + localServerPort;
+    final CompletableFuture<List<OcspRequestHistoryEntryDto>> waitingForEntries =
+        CompletableFuture.supplyAsync(
+            () ->
+                OcspResponderManager.waitForOcspHistoryPart(
+                    ocspRespUri,
+                    tslSeqNrFromOcspRequest,
+                    VALID_X509_EE_CERT.getSerialNumber(),
+                    null,
+                    OcspInfoController.MAX_WAIT_MILLISECONDS));
+
+    PkitsCommonUtils.waitMilliseconds(500);
+    assertThat(waitingForEntries).isNotDone();
+
+    initializeForHistory();
+
+    final List<OcspRequestHistoryEntryDto> historyEntries =
+        waitingForEntries.get(10, TimeUnit.SECONDS);
+    assertThat(historyEntries).hasSize(1);
+    assertThat(historyEntries.get(0).getCertSerialNr())
+        .isEqualTo(VALID_X509_EE_CERT.getSerialNumber());
+  }
+
+  @Test
+  void waitForInfoReturnsEmptyListAfterTimeout() {
+    final List<OcspRequestHistoryEntryDto> historyEntries =
+        OcspResponderManager.waitForOcspHistoryPart(
+            "http://localhost:" + localServerPort,
+            OcspResponderManager.IGNORE_SEQUENCE_NUMBER,
+            BigInteger.valueOf(imaginaryNumber),
+            null,
+            200);
+    assertThat(historyEntries).isEmpty();
+  }
+
   private void initializeForHistory() throws IOException {
 
     final CustomCertificateStatusDto certificateStatus = CustomCertificateStatusDto.createGood();
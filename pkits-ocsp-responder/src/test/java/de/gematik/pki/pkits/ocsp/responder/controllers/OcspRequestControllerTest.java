@@ -29,27 +29,51 @@ import static org.bouncycastle.internal.asn1.isismtt.ISISMTTObjectIdentifiers.id
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 
 import de.gematik.pki.gemlibpki.ocsp.OcspRequestGenerator;
+import de.gematik.pki.gemlibpki.ocsp.OcspResponseGenerator;
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
 import de.gematik.pki.gemlibpki.utils.P12Container;
+import de.gematik.pki.pkits.common.ConfigActivation;
+import de.gematik.pki.pkits.common.PkiCommonException;
+import de.gematik.pki.pkits.ocsp.responder.OcspConfigActivator;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Origin;
+import de.gematik.pki.pkits.ocsp.responder.OcspRequestMetrics.Phase;
+import de.gematik.pki.pkits.ocsp.responder.OcspResponseCache;
+import de.gematik.pki.pkits.ocsp.responder.OcspTenants;
 import de.gematik.pki.pkits.ocsp.responder.api.OcspResponderManager;
+import de.gematik.pki.pkits.ocsp.responder.configs.ResponseCacheConfig;
 import de.gematik.pki.pkits.ocsp.responder.data.CertificateDto;
 import de.gematik.pki.pkits.ocsp.responder.data.CustomCertificateStatusDto;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistory;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
+import de.gematik.pki.pkits.ocsp.responder.data.ResponseStepDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import kong.unirest.core.HttpResponse;
 import kong.unirest.core.Unirest;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.core5.http.HttpStatus;
+import org.assertj.core.api.Assertions;
+import org.bouncycastle.asn1.x509.CRLReason;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.CertificateStatus;
 import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPReq;
 import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
 import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -60,6 +84,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestComponent;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -80,6 +105,11 @@ class OcspRequestControllerTest {
   private int delayMilliseconds = 0;
 
   @Autowired private OcspRequestHistory ocspRequestHistory;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private OcspResponseCache ocspResponseCache;
+  @Autowired private ResponseCacheConfig responseCacheConfig;
+  @Autowired private OcspTenants ocspTenants;
+  @Autowired private OcspConfigActivator ocspConfigActivator;
   private String ocspServiceUrl;
   String ocspServiceUrlSeqNr31;
 
@@ -135,7 +165,7 @@ class OcspRequestControllerTest {
   }
 
   @ParameterizedTest
-  @ValueSource(strings = {"invalid", "/4/a", "/4/3"})
+  @ValueSource(strings = {"invalid", "s/4", "s/4/3"})
   void checkHttpStatus404(final String str) throws IOException {
     final HttpResponse<byte[]> response =
         Unirest.post(ocspServiceUrl + str)
@@ -146,6 +176,18 @@ class OcspRequestControllerTest {
     assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_NOT_FOUND);
   }
 
+  @ParameterizedTest
+  @ValueSource(strings = {"/4/a", "/4/3"})
+  void checkHttpStatus405ForPostWithRequestInPath(final String str) throws IOException {
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrl + str)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .header(ACCEPT, MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
+            .body(ocspReq.getEncoded())
+            .asBytes();
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_METHOD_NOT_ALLOWED);
+  }
+
   @Test
   void checkHttpContentTypeOk() throws IOException {
     final HttpResponse<byte[]> response =
@@ -303,6 +345,451 @@ class OcspRequestControllerTest {
     assertThat(ocspRequestHistory.size()).isEqualTo(histSize + 1);
   }
 
+  @Test
+  void checkPregeneratedResponse() throws IOException, OCSPException {
+    responseCacheConfig.setEnabled(true);
+    try {
+      assertPregeneratedResponse();
+    } finally {
+      responseCacheConfig.setEnabled(false);
+    }
+  }
+
+  private void assertPregeneratedResponse() throws IOException, OCSPException {
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(VALID_X509_EE_CERT)
+            .issuerCert(VALID_X509_ISSUER_CERT)
+            .signer(signer)
+            .build();
+    OcspResponderManager.configure(
+        getLocalhostEndpoint(""),
+        OcspResponderConfig.builder()
+            .certificateDtos(List.of(certificateDto))
+            .pregenerateResponses(true)
+            .build());
+    assertThat(ocspResponseCache.getPregeneratedSize()).isEqualTo(2);
+    final long pregeneratedHits = ocspResponseCache.getPregeneratedHits();
+
+    final byte[] first = postOcspRequest(ocspReq).getBody();
+    final byte[] second = postOcspRequest(ocspReq).getBody();
+
+    assertThat(ocspResponseCache.getPregeneratedHits()).isEqualTo(pregeneratedHits + 2);
+    assertThat(second).isEqualTo(first);
+    final SingleResp singleResp =
+        ((BasicOCSPResp) new OCSPResp(first).getResponseObject()).getResponses()[0];
+    assertThat(singleResp.getCertStatus()).isSameAs(CertificateStatus.GOOD);
+    assertThat(singleResp.getCertID().getSerialNumber())
+        .isEqualTo(VALID_X509_EE_CERT.getSerialNumber());
+
+    OcspResponderManager.putCertificate(
+        getLocalhostEndpoint(""),
+        CertificateDto.builder()
+            .eeCert(OcspResponderTestUtils.getValidEeCert("SigurdBeutlinStadtApotheke.pem"))
+            .issuerCert(VALID_X509_ISSUER_CERT)
+            .signer(signer)
+            .build(),
+        true);
+    assertThat(ocspResponseCache.getPregeneratedSize()).isEqualTo(4);
+
+    postOcspRequest(ocspReq);
+    assertThat(ocspResponseCache.getPregeneratedHits()).isEqualTo(pregeneratedHits + 3);
+
+    // reconfigured: the pregenerated response of the previous configuration is not served
+    OcspResponderManager.configure(
+        getLocalhostEndpoint(""),
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    certificateDto.toBuilder()
+                        .certificateStatus(CustomCertificateStatusDto.createUnknown())
+                        .build()))
+            .pregenerateResponses(true)
+            .build());
+    final SingleResp reconfiguredSingleResp =
+        ((BasicOCSPResp) new OCSPResp(postOcspRequest(ocspReq).getBody()).getResponseObject())
+            .getResponses()[0];
+    assertThat(reconfiguredSingleResp.getCertStatus()).isInstanceOf(UnknownStatus.class);
+  }
+
+  @Test
+  void checkNoPregeneratedResponseWithDisabledCache() {
+    OcspResponderManager.configure(
+        getLocalhostEndpoint(""),
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(VALID_X509_EE_CERT)
+                        .issuerCert(VALID_X509_ISSUER_CERT)
+                        .signer(signer)
+                        .build()))
+            .pregenerateResponses(true)
+            .build());
+    assertThat(ocspResponseCache.getPregeneratedSize()).isZero();
+  }
+
+  @Test
+  void checkResponseSequence() throws IOException, OCSPException {
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(VALID_X509_EE_CERT)
+            .issuerCert(VALID_X509_ISSUER_CERT)
+            .signer(signer)
+            .responseSteps(
+                List.of(
+                    ResponseStepDto.forRequests(1, CustomCertificateStatusDto.createGood()),
+                    ResponseStepDto.forRequests(
+                        1,
+                        CustomCertificateStatusDto.createRevoked(
+                            ZonedDateTime.now(), CRLReason.keyCompromise)),
+                    ResponseStepDto.builder()
+                        .certificateStatus(CustomCertificateStatusDto.createUnknown())
+                        .build()))
+            .build();
+    OcspResponderManager.configure(
+        getLocalhostEndpoint(""),
+        OcspResponderConfig.builder().certificateDtos(List.of(certificateDto)).build());
+
+    final List<Object> certStatuses = new ArrayList<>();
+    for (int i = 0; i < 4; ++i) {
+      final byte[] ocspResponseBytes = postOcspRequest(ocspReq).getBody();
+      final SingleResp singleResp =
+          ((BasicOCSPResp) new OCSPResp(ocspResponseBytes).getResponseObject()).getResponses()[0];
+      certStatuses.add(singleResp.getCertStatus());
+    }
+
+    assertThat(certStatuses.get(0)).isSameAs(CertificateStatus.GOOD);
+    assertThat(certStatuses.get(1)).isInstanceOf(RevokedStatus.class);
+    assertThat(certStatuses.subList(2, 4)).allMatch(UnknownStatus.class::isInstance);
+  }
+
+  private HttpResponse<byte[]> postOcspRequest(final OCSPReq ocspRequest) throws IOException {
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrlSeqNr31)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .body(ocspRequest.getEncoded())
+            .asBytes();
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    return response;
+  }
+
+  @Test
+  void checkPhaseMetrics() throws IOException {
+    final long signCount = getPhaseCount(Phase.SIGN);
+    final long loggingCount = getPhaseCount(Phase.LOGGING);
+
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrlSeqNr31)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .body(ocspReq.getEncoded())
+            .asBytes();
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+
+    assertThat(getPhaseCount(Phase.SIGN)).isEqualTo(signCount + 1);
+    assertThat(getPhaseCount(Phase.LOGGING)).isEqualTo(loggingCount + 1);
+    for (final Phase phase : Phase.values()) {
+      assertThat(getPhaseCount(phase)).isPositive();
+    }
+  }
+
+  private long getPhaseCount(final Phase phase) {
+    final Timer timer =
+        meterRegistry
+            .find(OcspRequestMetrics.METRIC_PHASE)
+            .tag(OcspRequestMetrics.TAG_PHASE, phase.getTagValue())
+            .tag(OcspRequestMetrics.TAG_SIGNER_KEY_TYPE, signer.getPrivateKey().getAlgorithm())
+            .tag(OcspRequestMetrics.TAG_ORIGIN, Origin.REQUEST.getTagValue())
+            .timer();
+    return (timer == null) ? 0 : timer.count();
+  }
+
+  @Test
+  void checkOcspResponseForSeveralCertIds() throws IOException, OCSPException {
+    final X509Certificate otherEeCert =
+        OcspResponderTestUtils.getValidEeCert("SigurdBeutlinStadtApotheke.pem");
+    final OcspResponderConfig ocspResponderConfig =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(VALID_X509_EE_CERT)
+                        .issuerCert(VALID_X509_ISSUER_CERT)
+                        .signer(signer)
+                        .build(),
+                    CertificateDto.builder()
+                        .eeCert(otherEeCert)
+                        .issuerCert(VALID_X509_ISSUER_CERT)
+                        .signer(signer)
+                        .certificateStatus(CustomCertificateStatusDto.createUnknown())
+                        .build()))
+            .build();
+    OcspResponderManager.configure(getLocalhostEndpoint(""), ocspResponderConfig);
+
+    final OCSPReq batchOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(
+            VALID_X509_ISSUER_CERT, VALID_X509_EE_CERT, otherEeCert);
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrlSeqNr31)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .header(ACCEPT, MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
+            .body(batchOcspReq.getEncoded())
+            .asBytes();
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+
+    final SingleResp[] singleResps =
+        ((BasicOCSPResp) new OCSPResp(response.getBody()).getResponseObject()).getResponses();
+    assertThat(singleResps).hasSize(2);
+    assertThat(singleResps[0].getCertStatus()).isSameAs(CertificateStatus.GOOD);
+    assertThat(singleResps[1].getCertStatus()).isInstanceOf(UnknownStatus.class);
+
+    assertThat(ocspRequestHistory.getExcerpt(310000, VALID_X509_EE_CERT.getSerialNumber()))
+        .isNotEmpty();
+    assertThat(ocspRequestHistory.getExcerpt(310000, otherEeCert.getSerialNumber())).hasSize(1);
+  }
+
+  @Test
+  void checkGetWithBase64UrlEncodedRequest() throws IOException, OCSPException {
+    final String encoded =
+        Base64.getUrlEncoder().withoutPadding().encodeToString(ocspReq.getEncoded());
+    final HttpResponse<byte[]> response =
+        Unirest.get(ocspServiceUrlSeqNr31 + "/" + encoded).asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(response.getHeaders().getFirst(CONTENT_TYPE))
+        .isEqualTo(MEDIA_TYPE_APPLICATION_OCSP_RESPONSE);
+    final BasicOCSPResp basicOcspResp =
+        (BasicOCSPResp) new OCSPResp(response.getBody()).getResponseObject();
+    assertThat(basicOcspResp.getResponses()[0].getCertID().getSerialNumber())
+        .isEqualTo(VALID_X509_EE_CERT.getSerialNumber());
+    assertThat(ocspRequestHistory.getExcerpt(310000, VALID_X509_EE_CERT.getSerialNumber()))
+        .isNotEmpty();
+  }
+
+  @Test
+  void checkGetWithBase64EncodedRequest() throws IOException {
+    final String encoded = Base64.getEncoder().encodeToString(ocspReq.getEncoded());
+    final HttpResponse<byte[]> response =
+        Unirest.get(ocspServiceUrlSeqNr31 + "/" + encoded).asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+  }
+
+  @Test
+  void checkGetWithUrlEncodedSlashes() throws IOException, OCSPException {
+    // 24 set bits in the nonce contain at least one full base64 digit 63, the slash
+    final String base64 =
+        Base64.getEncoder()
+            .encodeToString(
+                OcspResponderTestUtils.createOcspReqWithNonce(
+                        VALID_X509_EE_CERT,
+                        VALID_X509_ISSUER_CERT,
+                        new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF})
+                    .getEncoded());
+    final String encoded = URLEncoder.encode(base64, StandardCharsets.US_ASCII);
+    assertThat(encoded).contains("%2F");
+    final HttpResponse<byte[]> response =
+        Unirest.get(ocspServiceUrlSeqNr31 + "/" + encoded).asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+  }
+
+  /** The ETag does not depend on producedAt and the signature, but on the configuration */
+  @Test
+  void checkETagIsStableForSameThisUpdate() throws IOException {
+    final ZonedDateTime thisUpdate = GemLibPkiUtils.now();
+    final OCSPResp ocspResp1 = generateOcspResp(thisUpdate, thisUpdate);
+    final OCSPResp ocspResp2 = generateOcspResp(thisUpdate, thisUpdate.plusSeconds(5));
+    assertThat(ocspResp1.getEncoded()).isNotEqualTo(ocspResp2.getEncoded());
+
+    assertThat(OcspRequestController.createETag(1, ocspResp1))
+        .isEqualTo(OcspRequestController.createETag(1, ocspResp2))
+        .isNotEqualTo(OcspRequestController.createETag(2, ocspResp1));
+    assertThat(OcspRequestController.createETag(1, ocspResp1))
+        .isNotEqualTo(
+            OcspRequestController.createETag(
+                1, generateOcspResp(thisUpdate.plusSeconds(5), thisUpdate.plusSeconds(5))));
+  }
+
+  private OCSPResp generateOcspResp(
+      final ZonedDateTime thisUpdate, final ZonedDateTime producedAt) {
+    return OcspResponseGenerator.builder()
+        .signer(signer)
+        .thisUpdate(thisUpdate)
+        .producedAt(producedAt)
+        .build()
+        .generate(ocspReq, VALID_X509_EE_CERT, VALID_X509_ISSUER_CERT, CertificateStatus.GOOD);
+  }
+
+  @Test
+  void checkGetWithInvalidEncoding() {
+    final HttpResponse<byte[]> response =
+        Unirest.get(ocspServiceUrlSeqNr31 + "/notBase64!").asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_BAD_REQUEST);
+  }
+
+  @Test
+  void checkGetCachingHeaders() throws IOException {
+    final int nextUpdateDeltaMilliseconds = 3600 * 1000;
+    final OcspResponderConfig ocspResponderConfig =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(VALID_X509_EE_CERT)
+                        .issuerCert(VALID_X509_ISSUER_CERT)
+                        .signer(signer)
+                        .nextUpdateDeltaMilliseconds(nextUpdateDeltaMilliseconds)
+                        .build()))
+            .build();
+    OcspResponderManager.configure(getLocalhostEndpoint(""), ocspResponderConfig);
+
+    final String encoded = Base64.getUrlEncoder().encodeToString(ocspReq.getEncoded());
+    final HttpResponse<byte[]> response =
+        Unirest.get(ocspServiceUrlSeqNr31 + "/" + encoded).asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    final String cacheControl = response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL);
+    assertThat(cacheControl).contains("max-age=").contains("public");
+    final long maxAge = Long.parseLong(cacheControl.replaceAll(".*max-age=(\\d+).*", "$1"));
+    assertThat(maxAge).isBetween(3500L, 3600L);
+    assertThat(response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED)).isNotEmpty();
+
+    final String eTag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+    assertThat(eTag).startsWith("\"").endsWith("\"");
+
+    // the ETag contains thisUpdate, which has a precision of one second: a response signed in a
+    // later second has a new thisUpdate and must be 200
+    final HttpResponse<byte[]> conditionalResponse =
+        Unirest.get(ocspServiceUrlSeqNr31 + "/" + encoded)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .asBytes();
+    assertThat(conditionalResponse.getStatus()).isIn(HttpStatus.SC_NOT_MODIFIED, HttpStatus.SC_OK);
+    if (conditionalResponse.getStatus() == HttpStatus.SC_NOT_MODIFIED) {
+      assertThat(conditionalResponse.getBody()).isEmpty();
+    }
+  }
+
+  @Test
+  void checkGetWithoutNextUpdateIsNotCacheable() throws IOException {
+    final OcspResponderConfig ocspResponderConfig =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(VALID_X509_EE_CERT)
+                        .issuerCert(VALID_X509_ISSUER_CERT)
+                        .signer(signer)
+                        .nextUpdateDeltaMilliseconds(null)
+                        .build()))
+            .build();
+    OcspResponderManager.configure(getLocalhostEndpoint(""), ocspResponderConfig);
+
+    final String encoded = Base64.getUrlEncoder().encodeToString(ocspReq.getEncoded());
+    final HttpResponse<byte[]> response =
+        Unirest.get(ocspServiceUrlSeqNr31 + "/" + encoded).asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
+  }
+
+  @Test
+  void checkPostHasNoCachingHeaders() throws IOException {
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrlSeqNr31)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .body(ocspReq.getEncoded())
+            .asBytes();
+    assertThat(response.getHeaders().containsKey(HttpHeaders.ETAG)).isFalse();
+  }
+
+  @Test
+  void checkTenantIsolation() throws IOException {
+    final String tenant = "tenantA";
+    final OcspResponderConfig ocspResponderConfig =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(VALID_X509_EE_CERT)
+                        .issuerCert(VALID_X509_ISSUER_CERT)
+                        .signer(signer)
+                        .build()))
+            .build();
+    OcspResponderManager.configure(getLocalhostEndpoint(""), tenant, ocspResponderConfig);
+    ocspRequestHistory.deleteAll();
+
+    final String tenantSspUri =
+        OcspResponderManager.getOcspSspUri(getLocalhostEndpoint(""), tenant) + "/310000";
+    final HttpResponse<byte[]> response =
+        Unirest.post(tenantSspUri)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .body(ocspReq.getEncoded())
+            .asBytes();
+    final String encoded = Base64.getUrlEncoder().encodeToString(ocspReq.getEncoded());
+    final HttpResponse<byte[]> getResponse = Unirest.get(tenantSspUri + "/" + encoded).asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(getResponse.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(
+            OcspResponderManager.getOcspHistoryPart(
+                getLocalhostEndpoint(""),
+                tenant,
+                310000,
+                VALID_X509_EE_CERT.getSerialNumber(),
+                null))
+        .hasSize(2);
+    assertThat(ocspRequestHistory.size()).isZero();
+
+    OcspResponderManager.clear(getLocalhostEndpoint(""), tenant);
+
+    final HttpResponse<byte[]> responseAfterClear =
+        Unirest.post(tenantSspUri)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .body(ocspReq.getEncoded())
+            .asBytes();
+    assertThat(responseAfterClear.getStatus()).isEqualTo(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+  }
+
+  @Test
+  void checkUnknownTenantIsNotConfigured() throws IOException {
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrl + "/unknownTenant/310000")
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .body(ocspReq.getEncoded())
+            .asBytes();
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+  }
+
+  @Test
+  void checkReadOnlyEndpointsDoNotCreateTenants() {
+    final String uri = getLocalhostEndpoint("");
+    final String tenant = "unknownReadOnlyTenant";
+    final BigInteger certSerialNr = VALID_X509_EE_CERT.getSerialNumber();
+
+    assertThat(OcspResponderManager.getOcspHistoryPart(uri, tenant, null, certSerialNr, null))
+        .isEmpty();
+    assertThat(
+            OcspResponderManager.waitForOcspHistoryPart(
+                uri, tenant, null, certSerialNr, null, 10000))
+        .isEmpty();
+    OcspResponderManager.clear(uri, tenant);
+
+    final CertificateDto certificateDto =
+        CertificateDto.builder()
+            .eeCert(VALID_X509_EE_CERT)
+            .issuerCert(VALID_X509_ISSUER_CERT)
+            .signer(signer)
+            .build();
+    Assertions.assertThatThrownBy(
+            () -> OcspResponderManager.putCertificate(uri, tenant, certificateDto, true))
+        .isInstanceOf(PkiCommonException.class)
+        .hasMessageContaining("404");
+
+    assertThat(ocspTenants.find(tenant)).isEmpty();
+  }
+
   @Test
   void certSerialNrNotConfigured() throws IOException {
 
@@ -324,6 +811,41 @@ class OcspRequestControllerTest {
     assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_INTERNAL_SERVER_ERROR);
   }
 
+  @Test
+  void certSerialNrOfOtherIssuerIsUnknown() throws IOException, OCSPException {
+    final OCSPReq otherIssuerOcspReq =
+        OcspRequestGenerator.generateSingleOcspRequest(VALID_X509_EE_CERT, signerCaCert);
+
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrlSeqNr31)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .header(ACCEPT, MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
+            .body(otherIssuerOcspReq.getEncoded())
+            .asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    final SingleResp singleResp =
+        ((BasicOCSPResp) new OCSPResp(response.getBody()).getResponseObject()).getResponses()[0];
+    assertThat(singleResp.getCertStatus()).isInstanceOf(UnknownStatus.class);
+    assertThat(singleResp.getCertID())
+        .isEqualTo(otherIssuerOcspReq.getRequestList()[0].getCertID());
+  }
+
+  @Test
+  void checkEmptyRequestListIsMalformedRequest() throws IOException, OCSPException {
+    final OCSPReq emptyOcspReq =
+        OcspResponderTestUtils.createOcspReqForCerts(VALID_X509_ISSUER_CERT);
+    final HttpResponse<byte[]> response =
+        Unirest.post(ocspServiceUrlSeqNr31)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .header(ACCEPT, MEDIA_TYPE_APPLICATION_OCSP_RESPONSE)
+            .body(emptyOcspReq.getEncoded())
+            .asBytes();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(new OCSPResp(response.getBody()).getStatus()).isEqualTo(OCSPResp.MALFORMED_REQUEST);
+  }
+
   private long getMillisecondsDurationForCallWithDelay(final int customDelayMilliseconds)
       throws IOException {
     final ZonedDateTime start = ZonedDateTime.now();
@@ -346,6 +868,94 @@ class OcspRequestControllerTest {
     return Duration.between(start, end).toMillis();
   }
 
+  @Test
+  void checkPendingConfigIsActivatedAfterDelayedResponse()
+      throws IOException, OCSPException, InterruptedException {
+    final int customDelayMilliseconds = 2000;
+    OcspResponderTestUtils.configure(
+        getLocalhostEndpoint(""),
+        VALID_X509_EE_CERT,
+        VALID_X509_ISSUER_CERT,
+        CERT_STATUS_GOOD,
+        signer,
+        customDelayMilliseconds);
+    final OcspResponderConfig pendingConfig =
+        OcspResponderConfig.builder()
+            .certificateDtos(
+                List.of(
+                    CertificateDto.builder()
+                        .eeCert(VALID_X509_EE_CERT)
+                        .issuerCert(VALID_X509_ISSUER_CERT)
+                        .signer(signer)
+                        .certificateStatus(CustomCertificateStatusDto.createUnknown())
+                        .build()))
+            .build();
+    ocspConfigActivator.schedule(
+        ocspTenants.getDefaultTenant(),
+        pendingConfig,
+        ConfigActivation.afterRequestForTslSeqNr(310000));
+
+    final byte[] ocspReqBytes = ocspReq.getEncoded();
+    final CompletableFuture<HttpResponse<byte[]>> responseFuture =
+        CompletableFuture.supplyAsync(
+            () ->
+                Unirest.post(ocspServiceUrlSeqNr31)
+                    .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+                    .body(ocspReqBytes)
+                    .asBytes());
+    final long deadline = System.currentTimeMillis() + customDelayMilliseconds / 2;
+    while (System.currentTimeMillis() < deadline) {
+      assertThat(ocspConfigActivator.isPending(OcspTenants.DEFAULT_TENANT)).isTrue();
+      Thread.sleep(50);
+    }
+
+    final HttpResponse<byte[]> response = responseFuture.join();
+    assertThat(getCertStatus(response)).isSameAs(CertificateStatus.GOOD);
+    final long activationDeadline = System.currentTimeMillis() + 5000;
+    while (ocspConfigActivator.isPending(OcspTenants.DEFAULT_TENANT)
+        && (System.currentTimeMillis() < activationDeadline)) {
+      Thread.sleep(20);
+    }
+    assertThat(ocspConfigActivator.isPending(OcspTenants.DEFAULT_TENANT)).isFalse();
+
+    final HttpResponse<byte[]> responseAfterActivation =
+        Unirest.post(ocspServiceUrlSeqNr31)
+            .header(CONTENT_TYPE, MEDIA_TYPE_APPLICATION_OCSP_REQUEST)
+            .body(ocspReq.getEncoded())
+            .asBytes();
+    assertThat(getCertStatus(responseAfterActivation)).isInstanceOf(UnknownStatus.class);
+  }
+
+  @Test
+  void checkPendingConfigIsNotActivatedByFailedRequest() throws IOException {
+    OcspResponderTestUtils.configure(
+        getLocalhostEndpoint(""),
+        VALID_X509_EE_CERT,
+        VALID_X509_ISSUER_CERT,
+        CERT_STATUS_GOOD,
+        signer,
+        0);
+    ocspConfigActivator.schedule(
+        ocspTenants.getDefaultTenant(),
+        OcspResponderConfig.builder().certificateDtos(List.of()).build(),
+        ConfigActivation.afterRequestForTslSeqNr(310000));
+    try {
+      final HttpResponse<byte[]> response =
+          Unirest.get(ocspServiceUrlSeqNr31 + "/not-base64!").asBytes();
+
+      assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_BAD_REQUEST);
+      assertThat(ocspConfigActivator.isPending(OcspTenants.DEFAULT_TENANT)).isTrue();
+    } finally {
+      ocspConfigActivator.cancel(OcspTenants.DEFAULT_TENANT);
+    }
+  }
+
+  private static CertificateStatus getCertStatus(final HttpResponse<byte[]> response)
+      throws IOException, OCSPException {
+    final OCSPResp ocspResp = new OCSPResp(response.getBody());
+    return ((BasicOCSPResp) ocspResp.getResponseObject()).getResponses()[0].getCertStatus();
+  }
+
   @Test
   void checkDelayPositiveMilliseconds() throws IOException {
     final int customDelayMilliseconds = 10 * 1000;
@@ -20,6 +20,7 @@
 
 package de.gematik.pki.pkits.ocsp.responder.controllers;
 
+import de.gematik.pki.gemlibpki.ocsp.OcspRequestGenerator;
 import de.gematik.pki.gemlibpki.utils.CertReader;
 import de.gematik.pki.gemlibpki.utils.P12Container;
 import de.gematik.pki.gemlibpki.utils.P12Reader;
@@ -35,6 +36,13 @@ import java.security.cert.X509Certificate;
 import java.time.ZonedDateTime;
 import java.util.List;
 import lombok.NonNull;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
 
 public class OcspResponderTestUtils {
 
@@ -69,6 +77,31 @@ public class OcspResponderTestUtils {
         tslSeqNr, new BigInteger(certSerialNr), ZonedDateTime.now().toString(), null);
   }
 
+  public static OCSPReq createOcspReqWithNonce(
+      final X509Certificate eeCert, final X509Certificate issuerCert, final byte[] nonce)
+      throws OCSPException {
+    final OCSPReq ocspReq = OcspRequestGenerator.generateSingleOcspRequest(eeCert, issuerCert);
+    return new OCSPReqBuilder()
+        .addRequest(ocspReq.getRequestList()[0].getCertID())
+        .setRequestExtensions(
+            new Extensions(
+                new Extension(
+                    OCSPObjectIdentifiers.id_pkix_ocsp_nonce, false, new DEROctetString(nonce))))
+        .build();
+  }
+
+  public static OCSPReq createOcspReqForCerts(
+      final X509Certificate issuerCert, final X509Certificate... eeCerts) throws OCSPException {
+    final OCSPReqBuilder ocspReqBuilder = new OCSPReqBuilder();
+    for (final X509Certificate eeCert : eeCerts) {
+      ocspReqBuilder.addRequest(
+          OcspRequestGenerator.generateSingleOcspRequest(eeCert, issuerCert)
+              .getRequestList()[0]
+              .getCertID());
+    }
+    return ocspReqBuilder.build();
+  }
+
   public static void configure(
       final String uri,
       @NonNull final X509Certificate eeCert,
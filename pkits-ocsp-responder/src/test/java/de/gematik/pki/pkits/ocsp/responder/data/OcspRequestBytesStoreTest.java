@@ -0,0 +1,57 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.data;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class OcspRequestBytesStoreTest {
+
+  private final OcspRequestBytesStore ocspRequestBytesStore = new OcspRequestBytesStore();
+
+  @Test
+  void identicalRequestsAreStoredOnce() {
+    final String sha256 = ocspRequestBytesStore.acquire(new byte[] {1, 2});
+    final String sha256Again = ocspRequestBytesStore.acquire(new byte[] {1, 2});
+    ocspRequestBytesStore.acquire(new byte[] {3});
+
+    assertThat(sha256Again).isSameAs(sha256).hasSize(64);
+    assertThat(ocspRequestBytesStore.size()).isEqualTo(2);
+    assertThat(ocspRequestBytesStore.get(sha256)).contains(new byte[] {1, 2});
+  }
+
+  @Test
+  void bytesAreDroppedWithLastReference() {
+    final String sha256 = ocspRequestBytesStore.acquire(new byte[] {1, 2});
+    ocspRequestBytesStore.acquire(new byte[] {1, 2});
+
+    ocspRequestBytesStore.release(sha256);
+    assertThat(ocspRequestBytesStore.get(sha256)).isPresent();
+
+    ocspRequestBytesStore.release(sha256);
+    assertThat(ocspRequestBytesStore.get(sha256)).isEmpty();
+    assertThat(ocspRequestBytesStore.size()).isZero();
+
+    ocspRequestBytesStore.release(sha256);
+    assertThat(ocspRequestBytesStore.size()).isZero();
+  }
+}
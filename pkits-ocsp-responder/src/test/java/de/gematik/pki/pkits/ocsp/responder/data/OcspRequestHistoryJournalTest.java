@@ -0,0 +1,252 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.data;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig.StorageMode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OcspRequestHistoryJournalTest {
+
+  private static final long CAPACITY_BYTES = 64 * 1024;
+
+  @TempDir Path tempDir;
+
+  private Path journalPath() {
+    return tempDir.resolve("history.journal");
+  }
+
+  private static class SequenceIdCollector implements OcspRequestHistoryJournal.RecordVisitor {
+
+    private final List<Long> sequenceIds = new ArrayList<>();
+
+    @Override
+    public void onEntry(
+        final long sequenceId,
+        final long epochNanos,
+        final int tslSeqNr,
+        final BigInteger certSerialNr,
+        final byte[] ocspReqBytes) {
+      sequenceIds.add(sequenceId);
+    }
+
+    @Override
+    public void onDeletion(
+        final Integer tslSeqNr, final BigInteger certSerialNr, final Long sinceSequenceId) {
+      // deletions are not collected
+    }
+  }
+
+  private static OcspRequestHistory createHistory(final StorageMode storageMode) {
+    final RequestHistoryConfig requestHistoryConfig = new RequestHistoryConfig();
+    requestHistoryConfig.setStorageMode(storageMode);
+    return new OcspRequestHistory(requestHistoryConfig);
+  }
+
+  @Test
+  void historyIsRestoredWithSequenceIds() throws IOException {
+    final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory();
+    ocspRequestHistory.add(1, BigInteger.ONE, new byte[] {1});
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      ocspRequestHistory.attachJournal(journal);
+      ocspRequestHistory.add(2, BigInteger.TWO, new byte[] {2, 3});
+      ocspRequestHistory.add(3, BigInteger.TEN, null);
+      ocspRequestHistory.add(4, BigInteger.TEN, new byte[] {4});
+      ocspRequestHistory.deleteEntries(3, BigInteger.TEN);
+    }
+
+    // the first entry was added before the journal was attached
+    final List<OcspRequestHistoryEntryDto> expected = ocspRequestHistory.getExcerpt(null, null, 1L);
+
+    final OcspRequestHistory restoredHistory = new OcspRequestHistory();
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      assertThat(restoredHistory.attachJournal(journal)).isEqualTo(4);
+      restoredHistory.add(5, BigInteger.ONE, new byte[] {5});
+    }
+
+    final List<OcspRequestHistoryEntryDto> restored = restoredHistory.getExcerpt(null, null);
+    assertThat(restored).hasSize(3);
+    assertThat(restored.subList(0, 2))
+        .usingRecursiveFieldByFieldElementComparatorIgnoringFields("timeStamp")
+        .isEqualTo(expected);
+    assertThat(ZonedDateTime.parse(restored.get(0).getTimeStamp()).toInstant())
+        .isEqualTo(ZonedDateTime.parse(expected.get(0).getTimeStamp()).toInstant());
+    assertThat(restored.get(2).getSequenceId()).isEqualTo(5);
+
+    // the appended entry continues the journal
+    final OcspRequestHistory reopenedHistory = new OcspRequestHistory();
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      assertThat(reopenedHistory.attachJournal(journal)).isEqualTo(5);
+    }
+    assertThat(reopenedHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(2L, 4L, 5L);
+  }
+
+  @Test
+  void compactHistoryIsRestoredWithRequestBytes() throws IOException {
+    final OcspRequestHistory ocspRequestHistory = createHistory(StorageMode.COMPACT);
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      ocspRequestHistory.attachJournal(journal);
+      ocspRequestHistory.add(1, BigInteger.ONE, new byte[] {1, 2});
+      ocspRequestHistory.deleteAll();
+      ocspRequestHistory.add(2, BigInteger.TWO, new byte[] {3, 4});
+    }
+
+    final OcspRequestHistory restoredHistory = createHistory(StorageMode.COMPACT);
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      restoredHistory.attachJournal(journal);
+    }
+
+    final List<OcspRequestHistoryEntryDto> restored = restoredHistory.getExcerpt(null, null);
+    assertThat(restored).hasSize(1);
+    assertThat(restored.get(0).getSequenceId()).isEqualTo(2);
+    assertThat(restoredHistory.getOcspReqBytes(restored.get(0).getOcspReqSha256()))
+        .contains(new byte[] {3, 4});
+  }
+
+  @Test
+  void exportIsReadable() throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      journal.appendEntry(7, 42, 3, new BigInteger("-123456789"), new byte[] {9});
+      journal.appendDeletion(null, BigInteger.TEN, 7L);
+      assertThat(journal.export(outputStream)).isEqualTo(outputStream.size()).isLessThan(100);
+    }
+
+    final List<String> records = new ArrayList<>();
+    final int recordCount =
+        OcspRequestHistoryJournal.readRecords(
+            ByteBuffer.wrap(outputStream.toByteArray()),
+            new OcspRequestHistoryJournal.RecordVisitor() {
+              @Override
+              public void onEntry(
+                  final long sequenceId,
+                  final long epochNanos,
+                  final int tslSeqNr,
+                  final BigInteger certSerialNr,
+                  final byte[] ocspReqBytes) {
+                records.add(
+                    "entry %d %d %d %s %d"
+                        .formatted(
+                            sequenceId, epochNanos, tslSeqNr, certSerialNr, ocspReqBytes.length));
+              }
+
+              @Override
+              public void onDeletion(
+                  final Integer tslSeqNr,
+                  final BigInteger certSerialNr,
+                  final Long sinceSequenceId) {
+                records.add("deletion %s %s %s".formatted(tslSeqNr, certSerialNr, sinceSequenceId));
+              }
+            });
+
+    assertThat(recordCount).isEqualTo(2);
+    assertThat(records).containsExactly("entry 7 42 3 -123456789 1", "deletion null 10 7");
+  }
+
+  @Test
+  void unpublishedRecordIsSkippedOnReplay() throws IOException {
+    final long secondRecordOffset;
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      journal.appendEntry(1, 0, 1, BigInteger.ONE, new byte[] {1});
+      secondRecordOffset = journal.getUsedBytes();
+      journal.appendEntry(2, 0, 1, BigInteger.TWO, new byte[] {2});
+      journal.appendEntry(3, 0, 1, BigInteger.TEN, new byte[] {3});
+    }
+
+    // the process died after the third record was published, but before the second one was
+    try (final FileChannel fileChannel =
+        FileChannel.open(journalPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final ByteBuffer length = ByteBuffer.allocate(4);
+      fileChannel.read(length, secondRecordOffset);
+      fileChannel.write(length.putInt(0, -length.getInt(0)).rewind(), secondRecordOffset);
+    }
+
+    final OcspRequestHistory restoredHistory = new OcspRequestHistory();
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      assertThat(restoredHistory.attachJournal(journal)).isEqualTo(2);
+      restoredHistory.add(4, BigInteger.ONE, new byte[] {4});
+    }
+    assertThat(restoredHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(1L, 3L, 4L);
+
+    // the appended entry does not overwrite the records after the skipped one
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final OcspRequestHistory reopenedHistory = new OcspRequestHistory();
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), CAPACITY_BYTES)) {
+      assertThat(reopenedHistory.attachJournal(journal)).isEqualTo(3);
+      journal.export(outputStream);
+    }
+    assertThat(reopenedHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(1L, 3L, 4L);
+    final SequenceIdCollector exported = new SequenceIdCollector();
+    OcspRequestHistoryJournal.readRecords(ByteBuffer.wrap(outputStream.toByteArray()), exported);
+    assertThat(exported.sequenceIds).containsExactly(1L, 3L, 4L);
+  }
+
+  @Test
+  void fullJournalDropsRecords() throws IOException {
+    try (final OcspRequestHistoryJournal journal =
+        new OcspRequestHistoryJournal(journalPath(), 64)) {
+      assertThat(journal.appendEntry(1, 0, 1, BigInteger.ONE, new byte[10])).isTrue();
+      assertThat(journal.appendEntry(2, 0, 1, BigInteger.ONE, new byte[10])).isFalse();
+      assertThat(journal.appendDeletion(null, null, null)).isFalse();
+      assertThat(journal.getDroppedCount()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void otherFilesAreRejected() throws IOException {
+    Files.write(journalPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    final Path path = journalPath();
+
+    assertThatThrownBy(() -> new OcspRequestHistoryJournal(path, CAPACITY_BYTES))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("is not an OCSP request history journal");
+  }
+}
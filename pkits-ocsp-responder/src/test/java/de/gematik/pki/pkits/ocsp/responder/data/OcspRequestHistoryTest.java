@@ -22,11 +22,20 @@ package de.gematik.pki.pkits.ocsp.responder.data;
 
 import static de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils.getEntry;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import de.gematik.pki.gemlibpki.utils.GemLibPkiUtils;
 import de.gematik.pki.pkits.ocsp.responder.api.OcspResponderManager;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig.EvictionPolicy;
+import de.gematik.pki.pkits.ocsp.responder.configs.RequestHistoryConfig.StorageMode;
 import java.math.BigInteger;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import org.bouncycastle.util.encoders.Hex;
 import org.junit.jupiter.api.Test;
 
 class OcspRequestHistoryTest {
@@ -251,4 +260,310 @@ class OcspRequestHistoryTest {
     }
     assertThat(ocspRequestHistory.size()).isEqualTo(elementsPut);
   }
+
+  private static OcspRequestHistory createHistory(
+      final int capacity, final EvictionPolicy evictionPolicy) {
+    final RequestHistoryConfig requestHistoryConfig = new RequestHistoryConfig();
+    requestHistoryConfig.setCapacity(capacity);
+    requestHistoryConfig.setEvictionPolicy(evictionPolicy);
+    return new OcspRequestHistory(requestHistoryConfig);
+  }
+
+  /** A full history with policy EVICT_OLDEST keeps the latest entries in insertion order */
+  @Test
+  void evictOldest() {
+    final OcspRequestHistory ocspRequestHistory = createHistory(3, EvictionPolicy.EVICT_OLDEST);
+    for (int i = 0; i < 5; i++) {
+      ocspRequestHistory.add(getEntry(i, "10"));
+    }
+
+    assertThat(ocspRequestHistory.size()).isEqualTo(3);
+    assertThat(ocspRequestHistory.getOverflowCount()).isEqualTo(2);
+    assertThat(ocspRequestHistory.getExcerpt(null, new BigInteger("10")))
+        .extracting(OcspRequestHistoryEntryDto::getTslSeqNr)
+        .containsExactly(2, 3, 4);
+    assertThat(ocspRequestHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getTslSeqNr)
+        .containsExactly(2, 3, 4);
+    assertThat(ocspRequestHistory.getExcerpt(0, null)).isEmpty();
+  }
+
+  /** A full history with policy DROP_NEWEST keeps the first entries */
+  @Test
+  void dropNewest() {
+    final OcspRequestHistory ocspRequestHistory = createHistory(3, EvictionPolicy.DROP_NEWEST);
+    for (int i = 0; i < 5; i++) {
+      ocspRequestHistory.add(getEntry(i, "10"));
+    }
+
+    assertThat(ocspRequestHistory.size()).isEqualTo(3);
+    assertThat(ocspRequestHistory.getOverflowCount()).isEqualTo(2);
+    assertThat(ocspRequestHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getTslSeqNr)
+        .containsExactly(0, 1, 2);
+    assertThat(ocspRequestHistory.getExcerpt(4, null)).isEmpty();
+  }
+
+  /** Deleted entries free their slots and are removed from the indexes */
+  @Test
+  void deleteThenAddAfterWrapAround() {
+    final OcspRequestHistory ocspRequestHistory = createHistory(2, EvictionPolicy.DROP_NEWEST);
+    ocspRequestHistory.add(getEntry(1, "10"));
+    ocspRequestHistory.add(getEntry(2, "20"));
+    ocspRequestHistory.deleteEntries(1, null);
+    ocspRequestHistory.add(getEntry(3, "10"));
+
+    assertThat(ocspRequestHistory.getOverflowCount()).isZero();
+    assertThat(ocspRequestHistory.getExcerpt(null, new BigInteger("10")))
+        .extracting(OcspRequestHistoryEntryDto::getTslSeqNr)
+        .containsExactly(3);
+    assertThat(ocspRequestHistory.getExcerpt(1, null)).isEmpty();
+  }
+
+  /** Deleted entries free capacity for DROP_NEWEST, whatever positions the new entries get */
+  @Test
+  void deleteSomeThenFillDropNewest() {
+    final OcspRequestHistory ocspRequestHistory = createHistory(4, EvictionPolicy.DROP_NEWEST);
+    for (int i = 0; i < 4; i++) {
+      ocspRequestHistory.add(getEntry(i, "10"));
+    }
+    ocspRequestHistory.deleteEntries(1, null);
+    ocspRequestHistory.deleteEntries(3, null);
+
+    ocspRequestHistory.add(getEntry(4, "10"));
+    ocspRequestHistory.add(getEntry(5, "10"));
+    assertThat(ocspRequestHistory.size()).isEqualTo(4);
+    assertThat(ocspRequestHistory.getOverflowCount()).isZero();
+
+    ocspRequestHistory.add(getEntry(6, "10"));
+    assertThat(ocspRequestHistory.size()).isEqualTo(4);
+    assertThat(ocspRequestHistory.getOverflowCount()).isEqualTo(1);
+    assertThat(ocspRequestHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getTslSeqNr)
+        .containsExactly(0, 2, 4, 5);
+  }
+
+  /** Deleted entries free capacity for EVICT_OLDEST, nothing is evicted until it is full again */
+  @Test
+  void deleteSomeThenFillEvictOldest() {
+    final OcspRequestHistory ocspRequestHistory = createHistory(4, EvictionPolicy.EVICT_OLDEST);
+    for (int i = 0; i < 4; i++) {
+      ocspRequestHistory.add(getEntry(i, "10"));
+    }
+    ocspRequestHistory.deleteEntries(1, null);
+    ocspRequestHistory.deleteEntries(3, null);
+
+    ocspRequestHistory.add(getEntry(4, "10"));
+    ocspRequestHistory.add(getEntry(5, "10"));
+    assertThat(ocspRequestHistory.size()).isEqualTo(4);
+    assertThat(ocspRequestHistory.getOverflowCount()).isZero();
+    assertThat(ocspRequestHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getTslSeqNr)
+        .containsExactly(0, 2, 4, 5);
+
+    ocspRequestHistory.add(getEntry(6, "10"));
+    assertThat(ocspRequestHistory.size()).isEqualTo(4);
+    assertThat(ocspRequestHistory.getOverflowCount()).isEqualTo(1);
+    assertThat(ocspRequestHistory.getExcerpt(null, null))
+        .extracting(OcspRequestHistoryEntryDto::getTslSeqNr)
+        .containsExactly(2, 4, 5, 6);
+  }
+
+  @Test
+  void concurrentAdd() throws InterruptedException {
+    final OcspRequestHistory ocspRequestHistory = createHistory(1000, EvictionPolicy.EVICT_OLDEST);
+    final int threadCount = 4;
+    final int entriesPerThread = 500;
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      final int tslSeqNr = t;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < entriesPerThread; i++) {
+                  ocspRequestHistory.add(getEntry(tslSeqNr, String.valueOf(i)));
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(ocspRequestHistory.size()).isEqualTo(1000);
+    assertThat(ocspRequestHistory.getOverflowCount()).isEqualTo(1000);
+    final List<OcspRequestHistoryEntryDto> excerpt = ocspRequestHistory.getExcerpt(null, null);
+    assertThat(excerpt).hasSize(1000);
+    // only the oldest entries are evicted, also when appends race
+    assertThat(excerpt.get(0).getSequenceId()).isEqualTo(1001);
+  }
+
+  /** A cursor never skips an entry, although concurrent appends finish out of order */
+  @Test
+  void concurrentAddWithCursor() throws InterruptedException {
+    final OcspRequestHistory ocspRequestHistory =
+        createHistory(100_000, EvictionPolicy.EVICT_OLDEST);
+    final int threadCount = 4;
+    final int entriesPerThread = 2000;
+    final long expectedLastSequenceId = (long) threadCount * entriesPerThread;
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      final int tslSeqNr = t;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < entriesPerThread; i++) {
+                  ocspRequestHistory.add(getEntry(tslSeqNr, String.valueOf(i)));
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+
+    final List<Long> seenSequenceIds = new ArrayList<>();
+    long cursor = 0;
+    final long deadline = System.currentTimeMillis() + 30_000;
+    while ((cursor < expectedLastSequenceId) && (System.currentTimeMillis() < deadline)) {
+      for (final OcspRequestHistoryEntryDto historyEntry :
+          ocspRequestHistory.getExcerpt(null, null, cursor)) {
+        seenSequenceIds.add(historyEntry.getSequenceId());
+        cursor = historyEntry.getSequenceId();
+      }
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(seenSequenceIds)
+        .containsExactlyElementsOf(
+            LongStream.rangeClosed(1, expectedLastSequenceId).boxed().toList());
+  }
+
+  /** Sequence ids increase monotonically, also after deleting the history */
+  @Test
+  void getExcerptSinceSequenceId() {
+    final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory();
+    ocspRequestHistory.add(getEntry(1, "10"));
+    ocspRequestHistory.add(getEntry(1, "20"));
+    ocspRequestHistory.add(getEntry(2, "10"));
+
+    final List<OcspRequestHistoryEntryDto> all = ocspRequestHistory.getExcerpt(null, null);
+    assertThat(all)
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(1L, 2L, 3L);
+
+    assertThat(ocspRequestHistory.getExcerpt(null, new BigInteger("10"), 1L))
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(3L);
+    assertThat(ocspRequestHistory.getExcerpt(1, null, 1L))
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(2L);
+    assertThat(ocspRequestHistory.getExcerpt(null, null, 3L)).isEmpty();
+
+    ocspRequestHistory.deleteEntries(null, null, 2L);
+    assertThat(ocspRequestHistory.size()).isEqualTo(2);
+
+    ocspRequestHistory.deleteAll();
+    ocspRequestHistory.add(getEntry(1, "10"));
+    assertThat(ocspRequestHistory.getExcerpt(null, null, 3L))
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(4L);
+  }
+
+  @Test
+  void invalidCapacity() {
+    assertThatThrownBy(() -> createHistory(0, EvictionPolicy.EVICT_OLDEST))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static OcspRequestHistory createCompactHistory(
+      final int capacity, final EvictionPolicy evictionPolicy) {
+    final RequestHistoryConfig requestHistoryConfig = new RequestHistoryConfig();
+    requestHistoryConfig.setCapacity(capacity);
+    requestHistoryConfig.setEvictionPolicy(evictionPolicy);
+    requestHistoryConfig.setStorageMode(StorageMode.COMPACT);
+    return new OcspRequestHistory(requestHistoryConfig);
+  }
+
+  /** In compact mode entries refer to the deduplicated request bytes by SHA-256 */
+  @Test
+  void compactModeStoresDigest() {
+    final OcspRequestHistory ocspRequestHistory =
+        createCompactHistory(10, EvictionPolicy.EVICT_OLDEST);
+    final byte[] ocspReqBytes = {1, 2, 3};
+    final ZonedDateTime before = ZonedDateTime.now();
+
+    ocspRequestHistory.add(7, BigInteger.TEN, ocspReqBytes);
+    ocspRequestHistory.add(8, BigInteger.TEN, ocspReqBytes.clone());
+    ocspRequestHistory.add(8, BigInteger.TWO, new byte[] {4});
+
+    final List<OcspRequestHistoryEntryDto> excerpt =
+        ocspRequestHistory.getExcerpt(null, BigInteger.TEN);
+    assertThat(excerpt).hasSize(2);
+    assertThat(excerpt)
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(1L, 2L);
+    assertThat(excerpt).extracting(OcspRequestHistoryEntryDto::getOcspReqBytes).containsOnlyNulls();
+
+    final String ocspReqSha256 = Hex.toHexString(GemLibPkiUtils.calculateSha256(ocspReqBytes));
+    assertThat(excerpt)
+        .extracting(OcspRequestHistoryEntryDto::getOcspReqSha256)
+        .containsOnly(ocspReqSha256);
+    assertThat(ZonedDateTime.parse(excerpt.get(0).getTimeStamp())).isAfterOrEqualTo(before);
+    assertThat(ocspRequestHistory.getOcspReqBytes(ocspReqSha256)).contains(ocspReqBytes);
+  }
+
+  /** In compact mode the timestamp of an added entry is kept with nanosecond precision */
+  @Test
+  void compactModeKeepsTimeStamp() {
+    final OcspRequestHistory ocspRequestHistory =
+        createCompactHistory(10, EvictionPolicy.EVICT_OLDEST);
+    final ZonedDateTime timeStamp = ZonedDateTime.now().minusDays(1);
+
+    ocspRequestHistory.add(
+        new OcspRequestHistoryEntryDto(1, BigInteger.TEN, timeStamp.toString(), new byte[] {1}));
+
+    final OcspRequestHistoryEntryDto historyEntry =
+        ocspRequestHistory.getExcerpt(null, null).get(0);
+    assertThat(ZonedDateTime.parse(historyEntry.getTimeStamp()).toInstant())
+        .isEqualTo(timeStamp.toInstant());
+    assertThat(historyEntry.getOcspReqBytes()).isNull();
+  }
+
+  /** In compact mode the request bytes are dropped with the last entry referring to them */
+  @Test
+  void compactModeReleasesRequestBytes() {
+    final OcspRequestHistory ocspRequestHistory =
+        createCompactHistory(2, EvictionPolicy.EVICT_OLDEST);
+    final byte[] ocspReqBytes = {1, 2, 3};
+    final String ocspReqSha256 = Hex.toHexString(GemLibPkiUtils.calculateSha256(ocspReqBytes));
+
+    ocspRequestHistory.add(1, BigInteger.ONE, ocspReqBytes);
+    ocspRequestHistory.add(2, BigInteger.TWO, ocspReqBytes);
+    ocspRequestHistory.deleteEntries(1, null);
+    assertThat(ocspRequestHistory.getOcspReqBytes(ocspReqSha256)).isPresent();
+
+    ocspRequestHistory.add(3, BigInteger.TEN, new byte[] {4});
+    ocspRequestHistory.add(4, BigInteger.TEN, new byte[] {5});
+    assertThat(ocspRequestHistory.getOcspReqBytes(ocspReqSha256)).isEmpty();
+
+    ocspRequestHistory.deleteAll();
+    assertThat(
+            ocspRequestHistory.getOcspReqBytes(
+                Hex.toHexString(GemLibPkiUtils.calculateSha256(new byte[] {5}))))
+        .isEmpty();
+  }
+
+  /** In full mode entries keep their request bytes */
+  @Test
+  void fullModeKeepsRequestBytes() {
+    final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory();
+    ocspRequestHistory.add(1, BigInteger.ONE, new byte[] {1, 2});
+
+    final OcspRequestHistoryEntryDto historyEntry =
+        ocspRequestHistory.getExcerpt(null, null).get(0);
+    assertThat(historyEntry.getOcspReqBytes()).containsExactly(1, 2);
+    assertThat(historyEntry.getOcspReqSha256()).isNull();
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.ocsp.responder.data;
+
+import static de.gematik.pki.pkits.ocsp.responder.controllers.OcspResponderTestUtils.getEntry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+class OcspRequestHistoryWaitRegistryTest {
+
+  private final OcspRequestHistory ocspRequestHistory = new OcspRequestHistory();
+  private final OcspRequestHistoryWaitRegistry waitRegistry =
+      new OcspRequestHistoryWaitRegistry(ocspRequestHistory);
+
+  @Test
+  void existingEntryCompletesImmediately() {
+    ocspRequestHistory.add(getEntry(1, "10"));
+
+    final DeferredResult<List<OcspRequestHistoryEntryDto>> deferredResult =
+        waitRegistry.waitForEntries(null, new BigInteger("10"), null, 10000);
+
+    assertThat(deferredResult.hasResult()).isTrue();
+    assertThat(waitRegistry.size()).isZero();
+  }
+
+  @Test
+  void matchingEntryCompletesWaiter() {
+    final DeferredResult<List<OcspRequestHistoryEntryDto>> deferredResult =
+        waitRegistry.waitForEntries(2, new BigInteger("10"), null, 10000);
+    assertThat(deferredResult.hasResult()).isFalse();
+
+    ocspRequestHistory.add(getEntry(1, "10"));
+    ocspRequestHistory.add(getEntry(2, "20"));
+    assertThat(deferredResult.hasResult()).isFalse();
+
+    ocspRequestHistory.add(getEntry(2, "10"));
+    assertThat(deferredResult.hasResult()).isTrue();
+    assertThat(waitRegistry.size()).isZero();
+
+    @SuppressWarnings("unchecked")
+    final List<OcspRequestHistoryEntryDto> historyEntries =
+        (List<OcspRequestHistoryEntryDto>) deferredResult.getResult();
+    assertThat(historyEntries)
+        .extracting(OcspRequestHistoryEntryDto::getSequenceId)
+        .containsExactly(3L);
+  }
+
+  @Test
+  void entriesBeforeCursorAreIgnored() {
+    ocspRequestHistory.add(getEntry(1, "10"));
+
+    final DeferredResult<List<OcspRequestHistoryEntryDto>> deferredResult =
+        waitRegistry.waitForEntries(null, new BigInteger("10"), 1L, 10000);
+    assertThat(deferredResult.hasResult()).isFalse();
+    assertThat(waitRegistry.size()).isEqualTo(1);
+
+    ocspRequestHistory.add(getEntry(1, "10"));
+    assertThat(deferredResult.hasResult()).isTrue();
+  }
+
+  /** A long-poll cursor never skips an entry, although concurrent appends finish out of order */
+  @Test
+  void concurrentAddWithLongPollCursor() throws InterruptedException {
+    final int threadCount = 4;
+    final int entriesPerThread = 1000;
+    final long expectedLastSequenceId = (long) threadCount * entriesPerThread;
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < entriesPerThread; i++) {
+                  ocspRequestHistory.add(getEntry(1, String.valueOf(i % 10)));
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+
+    final List<Long> seenSequenceIds = new ArrayList<>();
+    long cursor = 0;
+    final long deadline = System.currentTimeMillis() + 30_000;
+    while ((cursor < expectedLastSequenceId) && (System.currentTimeMillis() < deadline)) {
+      final DeferredResult<List<OcspRequestHistoryEntryDto>> deferredResult =
+          waitRegistry.waitForEntries(null, null, cursor, 10000);
+      while (!deferredResult.hasResult() && (System.currentTimeMillis() < deadline)) {
+        Thread.onSpinWait();
+      }
+      @SuppressWarnings("unchecked")
+      final List<OcspRequestHistoryEntryDto> historyEntries =
+          (List<OcspRequestHistoryEntryDto>) deferredResult.getResult();
+      if (historyEntries == null) {
+        break;
+      }
+      for (final OcspRequestHistoryEntryDto historyEntry : historyEntries) {
+        seenSequenceIds.add(historyEntry.getSequenceId());
+        cursor = historyEntry.getSequenceId();
+      }
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(seenSequenceIds)
+        .containsExactlyElementsOf(
+            LongStream.rangeClosed(1, expectedLastSequenceId).boxed().toList());
+  }
+}
@@ -452,7 +452,8 @@ class OcspApprovalTests extends ApprovalTestsBase {
       throw new TestSuiteException(
           "Problem analyzing OCSP request. No request found in OCSP responder history.");
     }
-    final byte[] ocspReqBytes = historyEntries.get(0).getOcspReqBytes();
+    final byte[] ocspReqBytes =
+        OcspResponderManager.getOcspReqBytes(ocspResponderUri, historyEntries.get(0));
     final OCSPReq ocspReq = new OCSPReq(ocspReqBytes);
 
     final X509Certificate eeCert = tslDownload.getTslSignerCert();
@@ -483,7 +484,8 @@ class OcspApprovalTests extends ApprovalTestsBase {
           "Problem analyzing OCSP request. No request found in OCSP responder history.");
     }
 
-    final byte[] ocspReqBytes = ocspHistoryPart.get(0).getOcspReqBytes();
+    final byte[] ocspReqBytes =
+        OcspResponderManager.getOcspReqBytes(ocspResponderUri, ocspHistoryPart.get(0));
 
     final OCSPReq ocspReq = new OCSPReq(ocspReqBytes);
 
@@ -568,7 +570,8 @@ class OcspApprovalTests extends ApprovalTestsBase {
     assertThat(historyEntries).isNotEmpty();
     final OcspRequestHistoryEntryDto historyEntry = historyEntries.get(0);
 
-    final OCSPReq ocspReq = new OCSPReq(historyEntry.getOcspReqBytes());
+    final OCSPReq ocspReq =
+        new OCSPReq(OcspResponderManager.getOcspReqBytes(ocspResponderUri, historyEntry));
     final Req singleReq = OcspUtils.getFirstSingleReq(ocspReq);
     final ASN1ObjectIdentifier algoId = singleReq.getCertID().getHashAlgOID();
 
@@ -65,7 +65,10 @@ public final class OcspHistory {
                   .formatted(tslSequenceNr, certSerialNr),
               ocspProcessingTimeSeconds,
               OCSP_REQUEST_HISTORY_CONTAINER.ocspRequestHistoryHasEntryForCert(
-                  ocspRespUri, TslRequestHistory.IGNORE_SEQUENCE_NUMBER, certSerialNr));
+                  ocspRespUri,
+                  TslRequestHistory.IGNORE_SEQUENCE_NUMBER,
+                  certSerialNr,
+                  ocspProcessingTimeSeconds));
       log.info(
           "OCSP Request for certificate received after {} seconds.", ocsRequestWaitingTimeSeconds);
     } catch (final TestSuiteException e) {
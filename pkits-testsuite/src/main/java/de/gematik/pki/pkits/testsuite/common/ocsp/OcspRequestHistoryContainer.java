@@ -23,27 +23,101 @@ package de.gematik.pki.pkits.testsuite.common.ocsp;
 import de.gematik.pki.pkits.ocsp.responder.api.OcspResponderManager;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspRequestHistoryEntryDto;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
-import lombok.Getter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-@Getter
+/**
+ * Collects the OCSP request history of the OCSP responder. Every poll fetches only the entries
+ * received after the last known entry and appends them. A poll waits at the OCSP responder until a
+ * new entry arrives, at most {@value #LONG_POLL_MILLISECONDS} ms and never longer than the
+ * remaining time of the wait it belongs to.
+ *
+ * <p>Every {@link #reset()} starts a new generation. A poll that is still running when its wait
+ * timed out and the container was reset does not change the new generation.
+ */
 @Slf4j
 public class OcspRequestHistoryContainer {
 
-  private List<OcspRequestHistoryEntryDto> historyEntries = List.of();
+  static final long LONG_POLL_MILLISECONDS = 5000;
+
+  private final AtomicReference<State> state = new AtomicReference<>(new State(0, List.of(), null));
+
+  public List<OcspRequestHistoryEntryDto> getHistoryEntries() {
+    return state.get().historyEntries;
+  }
 
   public void reset() {
-    historyEntries = List.of();
+    state.updateAndGet(current -> new State(current.generation + 1, List.of(), null));
   }
 
+  /**
+   * @param ocspRespUri OcspResponder URI
+   * @param tslSeqNr TSL sequence number
+   * @param certSerial certificate serial number
+   * @param timeoutSecs timeout of the wait that calls the returned callable, limits the long polls
+   * @return callable that polls the OCSP request history and checks if it has entries
+   */
   public Callable<Boolean> ocspRequestHistoryHasEntryForCert(
-      final String ocspRespUri, final int tslSeqNr, final BigInteger certSerial) {
+      final String ocspRespUri,
+      final int tslSeqNr,
+      final BigInteger certSerial,
+      final long timeoutSecs) {
     log.debug("Polling OCSP request history");
+    final long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSecs);
     return () -> {
-      historyEntries = OcspResponderManager.getOcspHistoryPart(ocspRespUri, tslSeqNr, certSerial);
-      return !historyEntries.isEmpty();
+      final State polledState = state.get();
+      final long remainingMilliseconds =
+          TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+      final List<OcspRequestHistoryEntryDto> newHistoryEntries =
+          OcspResponderManager.waitForOcspHistoryPart(
+              ocspRespUri,
+              tslSeqNr,
+              certSerial,
+              polledState.lastSequenceId,
+              Math.max(Math.min(LONG_POLL_MILLISECONDS, remainingMilliseconds), 1));
+
+      final State newState =
+          state.updateAndGet(
+              current ->
+                  (current.generation == polledState.generation)
+                      ? current.append(newHistoryEntries)
+                      : current);
+      if (newState.generation != polledState.generation) {
+        log.debug("Discarding result of a poll started before the reset");
+        return false;
+      }
+      return !newState.historyEntries.isEmpty();
     };
   }
+
+  @AllArgsConstructor
+  private static final class State {
+
+    private final long generation;
+    private final List<OcspRequestHistoryEntryDto> historyEntries;
+    private final Long lastSequenceId;
+
+    /** returns the state with the new entries appended, entries already known are skipped */
+    private State append(final List<OcspRequestHistoryEntryDto> newHistoryEntries) {
+      final List<OcspRequestHistoryEntryDto> unknownEntries =
+          newHistoryEntries.stream()
+              .filter(entry -> (lastSequenceId == null) || (entry.getSequenceId() > lastSequenceId))
+              .toList();
+      if (unknownEntries.isEmpty()) {
+        return this;
+      }
+      final List<OcspRequestHistoryEntryDto> entries = new ArrayList<>(historyEntries);
+      entries.addAll(unknownEntries);
+      return new State(
+          generation,
+          Collections.unmodifiableList(entries),
+          unknownEntries.get(unknownEntries.size() - 1).getSequenceId());
+    }
+  }
 }
@@ -183,13 +183,14 @@ public class TslDownload {
     final BigInteger tslSignerCertSerialNr = tslSignerCert.getSerialNumber();
 
     log.info("Waiting {} seconds for ocsp request for tsl signer.", tslProcessingTimeSeconds);
+    ocspRequestHistoryContainer.reset();
     final long ocsRequestWaitingTimeSeconds =
         PkitsTestSuiteUtils.waitForEvent(
             "OcspRequest received from tsl with sequence nr %s and TSL signer cert %s"
                 .formatted(tslSeqNr, tslSignerCertSerialNr),
             tslProcessingTimeSeconds,
             ocspRequestHistoryContainer.ocspRequestHistoryHasEntryForCert(
-                ocspRespUri, tslSeqNr, tslSignerCertSerialNr));
+                ocspRespUri, tslSeqNr, tslSignerCertSerialNr, tslProcessingTimeSeconds));
 
     if (clearConfigAfterWaiting == ClearConfigAfterWaiting.CLEAR_CONFIG) {
       TestEnvironment.clearOcspResponderConfig(ocspRespUri);
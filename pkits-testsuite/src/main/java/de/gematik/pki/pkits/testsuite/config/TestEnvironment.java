@@ -20,6 +20,7 @@
 
 package de.gematik.pki.pkits.testsuite.config;
 
+import de.gematik.pki.pkits.common.ConfigActivation;
 import de.gematik.pki.pkits.common.PkitsCommonUtils;
 import de.gematik.pki.pkits.ocsp.responder.api.OcspResponderManager;
 import de.gematik.pki.pkits.ocsp.responder.data.OcspResponderConfig;
@@ -39,16 +40,27 @@ public final class TestEnvironment {
       final String tslProvUri,
       final byte[] tslBytes,
       final TslProviderEndpointsConfig tslProviderEndpointsConfig) {
+    configureTslProvider(
+        tslProvUri, tslBytes, tslProviderEndpointsConfig, ConfigActivation.IMMEDIATE);
+  }
+
+  public static void configureTslProvider(
+      final String tslProvUri,
+      final byte[] tslBytes,
+      final TslProviderEndpointsConfig tslProviderEndpointsConfig,
+      final ConfigActivation configActivation) {
 
     final TslProviderConfigDto tslProviderConfigDto =
         new TslProviderConfigDto(tslBytes, tslProviderEndpointsConfig);
 
-    TslProviderManager.configure(tslProvUri, tslProviderConfigDto);
+    TslProviderManager.configure(tslProvUri, tslProviderConfigDto, configActivation);
 
     log.info(
-        "TslProvider configured with TSL ({} bytes) and tslProviderEndpointsConfig = {}.:: {}",
+        "TslProvider configured with TSL ({} bytes), tslProviderEndpointsConfig = {} and"
+            + " activation {}.:: {}",
         tslBytes.length,
         tslProviderEndpointsConfig,
+        configActivation,
         PkitsTestSuiteUtils.getCallerTrace());
   }
 
@@ -62,11 +74,23 @@ public final class TestEnvironment {
 
   public static void configureOcspResponder(
       final String ocspRespUri, final OcspResponderConfig ocspResponderConfig) {
+    configureOcspResponder(ocspRespUri, ocspResponderConfig, ConfigActivation.IMMEDIATE);
+  }
+
+  public static void configureOcspResponder(
+      final String ocspRespUri,
+      final OcspResponderConfig ocspResponderConfig,
+      final ConfigActivation configActivation) {
 
-    OcspResponderManager.configure(ocspRespUri, ocspResponderConfig);
+    OcspResponderManager.configure(
+        ocspRespUri,
+        OcspResponderManager.DEFAULT_TENANT,
+        ocspResponderConfig,
+        configActivation);
 
     log.info(
-        "OcspResponder configured with certSerialNrs {}.:: {}",
+        "OcspResponder configured with activation {} and certSerialNrs {}.:: {}",
+        configActivation,
         String.join(
             ", ",
             ocspResponderConfig.getCertificateDtos().stream()
@@ -20,6 +20,7 @@
 
 package de.gematik.pki.pkits.testsuite.common.ocsp;
 
+import static de.gematik.pki.pkits.testsuite.common.ocsp.OcspRequestHistoryContainer.LONG_POLL_MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import de.gematik.pki.pkits.ocsp.responder.api.OcspResponderManager;
@@ -32,56 +33,149 @@ import org.mockito.Mockito;
 
 class OcspRequestHistoryContainerTest {
 
+  private static final long TIMEOUT_SECS = 60;
+
   @Test
   void testOcspRequestHistoryHasEntryForCert() throws Exception {
     final OcspRequestHistoryContainer ocspRequestHistoryContainer =
         new OcspRequestHistoryContainer();
 
-    final OcspRequestHistoryEntryDto historyEntry =
-        new OcspRequestHistoryEntryDto(1, BigInteger.TEN, "timeStamp", new byte[] {});
+    final OcspRequestHistoryEntryDto historyEntry1 =
+        new OcspRequestHistoryEntryDto(1, 1, BigInteger.TEN, "timeStamp", new byte[] {});
+    final OcspRequestHistoryEntryDto historyEntry2 =
+        new OcspRequestHistoryEntryDto(2, 1, BigInteger.TEN, "timeStamp", new byte[] {});
+    final OcspRequestHistoryEntryDto historyEntry3 =
+        new OcspRequestHistoryEntryDto(3, 1, BigInteger.TEN, "timeStamp", new byte[] {});
 
     try (final MockedStatic<OcspResponderManager> ocspResponderManagerMockedStatic =
         Mockito.mockStatic(OcspResponderManager.class, Mockito.CALLS_REAL_METHODS)) {
 
       ocspResponderManagerMockedStatic
-          .when(() -> OcspResponderManager.getOcspHistoryPart("dummyUri", 1, BigInteger.TEN))
-          .thenReturn(List.of(historyEntry));
+          .when(
+              () ->
+                  OcspResponderManager.waitForOcspHistoryPart(
+                      "dummyUri", 1, BigInteger.TEN, null, LONG_POLL_MILLISECONDS))
+          .thenReturn(List.of(historyEntry1));
 
       assertThat(ocspRequestHistoryContainer.getHistoryEntries()).isEmpty();
       boolean hasEntries =
           ocspRequestHistoryContainer
-              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN)
+              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN, TIMEOUT_SECS)
               .call();
       assertThat(hasEntries).isTrue();
-      assertThat(ocspRequestHistoryContainer.getHistoryEntries()).hasSize(1);
+      assertThat(ocspRequestHistoryContainer.getHistoryEntries()).containsExactly(historyEntry1);
 
-      ocspRequestHistoryContainer.reset();
-      assertThat(ocspRequestHistoryContainer.getHistoryEntries()).isEmpty();
+      // only entries after the last known sequence id are fetched and appended
+      ocspResponderManagerMockedStatic
+          .when(
+              () ->
+                  OcspResponderManager.waitForOcspHistoryPart(
+                      "dummyUri", 1, BigInteger.TEN, 1L, LONG_POLL_MILLISECONDS))
+          .thenReturn(List.of(historyEntry2, historyEntry3));
+
+      hasEntries =
+          ocspRequestHistoryContainer
+              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN, TIMEOUT_SECS)
+              .call();
+      assertThat(hasEntries).isTrue();
+      assertThat(ocspRequestHistoryContainer.getHistoryEntries())
+          .containsExactly(historyEntry1, historyEntry2, historyEntry3);
 
       ocspResponderManagerMockedStatic
-          .when(() -> OcspResponderManager.getOcspHistoryPart("dummyUri", 1, BigInteger.TEN))
-          .thenReturn(List.of(historyEntry, historyEntry));
+          .when(
+              () ->
+                  OcspResponderManager.waitForOcspHistoryPart(
+                      "dummyUri", 1, BigInteger.TEN, 3L, LONG_POLL_MILLISECONDS))
+          .thenReturn(List.of());
 
       hasEntries =
           ocspRequestHistoryContainer
-              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN)
+              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN, TIMEOUT_SECS)
               .call();
       assertThat(hasEntries).isTrue();
-      assertThat(ocspRequestHistoryContainer.getHistoryEntries()).hasSize(2);
+      assertThat(ocspRequestHistoryContainer.getHistoryEntries()).hasSize(3);
+
+      ocspRequestHistoryContainer.reset();
+      assertThat(ocspRequestHistoryContainer.getHistoryEntries()).isEmpty();
 
       ocspResponderManagerMockedStatic
           .when(
               () ->
-                  OcspResponderManager.getOcspHistoryPart(
-                      Mockito.any(), Mockito.any(), Mockito.any()))
+                  OcspResponderManager.waitForOcspHistoryPart(
+                      Mockito.any(),
+                      Mockito.any(),
+                      Mockito.any(),
+                      Mockito.any(),
+                      Mockito.anyLong()))
           .thenReturn(List.of());
 
       hasEntries =
           ocspRequestHistoryContainer
-              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN)
+              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN, TIMEOUT_SECS)
               .call();
       assertThat(hasEntries).isFalse();
       assertThat(ocspRequestHistoryContainer.getHistoryEntries()).isEmpty();
     }
   }
+
+  /** A poll that ends after a reset does not write its entries into the new generation */
+  @Test
+  void testPollEndingAfterResetIsDiscarded() throws Exception {
+    final OcspRequestHistoryContainer ocspRequestHistoryContainer =
+        new OcspRequestHistoryContainer();
+    final OcspRequestHistoryEntryDto historyEntry =
+        new OcspRequestHistoryEntryDto(1, 1, BigInteger.TEN, "timeStamp", new byte[] {});
+
+    try (final MockedStatic<OcspResponderManager> ocspResponderManagerMockedStatic =
+        Mockito.mockStatic(OcspResponderManager.class, Mockito.CALLS_REAL_METHODS)) {
+
+      ocspResponderManagerMockedStatic
+          .when(
+              () ->
+                  OcspResponderManager.waitForOcspHistoryPart(
+                      "dummyUri", 1, BigInteger.TEN, null, LONG_POLL_MILLISECONDS))
+          .thenAnswer(
+              invocation -> {
+                ocspRequestHistoryContainer.reset();
+                return List.of(historyEntry);
+              });
+
+      final boolean hasEntries =
+          ocspRequestHistoryContainer
+              .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN, TIMEOUT_SECS)
+              .call();
+      assertThat(hasEntries).isFalse();
+      assertThat(ocspRequestHistoryContainer.getHistoryEntries()).isEmpty();
+    }
+  }
+
+  /** A poll does not wait longer than the remaining time of the wait it belongs to */
+  @Test
+  void testPollIsLimitedByTimeout() throws Exception {
+    final OcspRequestHistoryContainer ocspRequestHistoryContainer =
+        new OcspRequestHistoryContainer();
+
+    try (final MockedStatic<OcspResponderManager> ocspResponderManagerMockedStatic =
+        Mockito.mockStatic(OcspResponderManager.class, Mockito.CALLS_REAL_METHODS)) {
+
+      ocspResponderManagerMockedStatic
+          .when(
+              () ->
+                  OcspResponderManager.waitForOcspHistoryPart(
+                      Mockito.any(),
+                      Mockito.any(),
+                      Mockito.any(),
+                      Mockito.any(),
+                      Mockito.anyLong()))
+          .thenReturn(List.of());
+
+      ocspRequestHistoryContainer
+          .ocspRequestHistoryHasEntryForCert("dummyUri", 1, BigInteger.TEN, 0)
+          .call();
+
+      ocspResponderManagerMockedStatic.verify(
+          () ->
+              OcspResponderManager.waitForOcspHistoryPart("dummyUri", 1, BigInteger.TEN, null, 1));
+    }
+  }
 }
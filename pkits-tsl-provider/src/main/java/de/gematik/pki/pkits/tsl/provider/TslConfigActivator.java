@@ -0,0 +1,144 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider;
+
+import de.gematik.pki.pkits.common.ConfigActivation;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Activates configurations of the TSL provider uploaded ahead of time. A pending configuration is
+ * activated at its activation instant, or after the next TSL download for its TSL sequence number
+ * was answered. At most one configuration is pending: a new upload replaces it, an immediate
+ * configuration or clear cancels it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TslConfigActivator {
+
+  private final TslConfigHolder tslConfigHolder;
+
+  private final AtomicReference<PendingConfig> pendingConfig = new AtomicReference<>();
+
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            final Thread thread = new Thread(runnable, "tsl-config-activation");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /**
+   * Keeps the configuration pending until its activation. The history is kept on activation, so
+   * that downloads before and after can be evaluated.
+   *
+   * @param tslProviderConfigDto the configuration
+   * @param configActivation activation instant and/or trigger, must not be immediate
+   */
+  public void schedule(
+      final TslProviderConfigDto tslProviderConfigDto, final ConfigActivation configActivation) {
+
+    if (configActivation.isImmediate()) {
+      throw new IllegalArgumentException("activation of a pending configuration is not set");
+    }
+    final PendingConfig newPendingConfig =
+        new PendingConfig(tslProviderConfigDto, configActivation.getActivateAfterTslSeqNr());
+    cancelTimer(pendingConfig.getAndSet(newPendingConfig));
+
+    final Instant activateAt = configActivation.getActivateAt();
+    if (activateAt != null) {
+      newPendingConfig.timer =
+          scheduler.schedule(
+              () -> activatePending(newPendingConfig),
+              Duration.between(Instant.now(), activateAt).toMillis(),
+              TimeUnit.MILLISECONDS);
+    }
+    log.info("Tsl configuration pending: {}, {}", configActivation, tslProviderConfigDto);
+  }
+
+  /**
+   * Activates the pending configuration, if it waits for a download of tslSeqNr. Called after the
+   * download was answered.
+   *
+   * @param tslSeqNr TSL sequence number of the download request
+   */
+  public void onTslDownload(final int tslSeqNr) {
+    final PendingConfig current = pendingConfig.get();
+    if ((current != null)
+        && (current.activateAfterTslSeqNr != null)
+        && (current.activateAfterTslSeqNr == tslSeqNr)) {
+      activatePending(current);
+    }
+  }
+
+  public void cancel() {
+    final PendingConfig current = pendingConfig.getAndSet(null);
+    if (current != null) {
+      cancelTimer(current);
+      log.info("Pending tsl configuration cancelled.");
+    }
+  }
+
+  public boolean isPending() {
+    return pendingConfig.get() != null;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    log.debug("Shutting down scheduler for tsl configuration activation.");
+    scheduler.shutdownNow();
+  }
+
+  private void activatePending(final PendingConfig current) {
+    if (!pendingConfig.compareAndSet(current, null)) {
+      return;
+    }
+    cancelTimer(current);
+    final TslConfigSnapshot activated =
+        tslConfigHolder.setTslProviderConfigDto(current.tslProviderConfigDto);
+    log.info("Activated pending tsl configuration: {}", activated.getTslMetadata());
+  }
+
+  private static void cancelTimer(final PendingConfig current) {
+    if ((current != null) && (current.timer != null)) {
+      current.timer.cancel(false);
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static final class PendingConfig {
+
+    private final TslProviderConfigDto tslProviderConfigDto;
+    private final Integer activateAfterTslSeqNr;
+    private volatile ScheduledFuture<?> timer;
+  }
+}
@@ -21,18 +21,70 @@
 package de.gematik.pki.pkits.tsl.provider;
 
 import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
-import lombok.Data;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+/**
+ * Publishes the configuration of the TSL provider as immutable {@link TslConfigSnapshot}s. Every
+ * update publishes a snapshot with a new generation.
+ */
 @Slf4j
 @Component
-@Data
+@RequiredArgsConstructor
 public class TslConfigHolder {
 
-  private TslProviderConfigDto tslProviderConfigDto;
+  private final TslFileStore tslFileStore;
+
+  private final AtomicReference<TslConfigSnapshot> snapshot =
+      new AtomicReference<>(TslConfigSnapshot.EMPTY);
+
+  /**
+   * @return the current configuration, to be used for the whole processing of a request
+   */
+  public TslConfigSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  /**
+   * @param tslProviderConfigDto the configuration, copied into the published snapshot; null to
+   *     clear the configuration
+   * @return the published snapshot
+   */
+  public synchronized TslConfigSnapshot setTslProviderConfigDto(
+      final TslProviderConfigDto tslProviderConfigDto) {
+    final TslConfigSnapshot current = snapshot.get();
+    final TslConfigSnapshot published =
+        TslConfigSnapshot.of(
+            tslProviderConfigDto,
+            current.getGeneration() + 1,
+            nextLastModified(current),
+            tslFileStore);
+    snapshot.set(published);
+    log.debug("Published tsl configuration generation {}.", published.getGeneration());
+    return published;
+  }
+
+  public long getGeneration() {
+    return snapshot.get().getGeneration();
+  }
 
   public boolean isNotConfigured() {
-    return tslProviderConfigDto == null;
+    return snapshot.get().isNotConfigured();
+  }
+
+  /**
+   * HTTP dates have second precision: a configuration published within the same second as the
+   * previous one must still be newer for If-Modified-Since.
+   */
+  private static Instant nextLastModified(final TslConfigSnapshot current) {
+    final Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    if ((current.getLastModified() != null) && !now.isAfter(current.getLastModified())) {
+      return current.getLastModified().plusSeconds(1);
+    }
+    return now;
   }
 }
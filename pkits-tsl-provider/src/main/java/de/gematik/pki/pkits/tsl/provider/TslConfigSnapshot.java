@@ -0,0 +1,133 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider;
+
+import de.gematik.pki.pkits.common.PkiCommonException;
+import de.gematik.pki.pkits.tsl.provider.TslFileStore.TslFile;
+import de.gematik.pki.pkits.tsl.provider.TslFileStore.TslFiles;
+import de.gematik.pki.pkits.tsl.provider.data.TslMetadata;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderEndpointsConfig;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable state of the {@link TslConfigHolder}: the configuration and the generation it was
+ * published with. Request handlers read one snapshot and use it for the whole request.
+ *
+ * <p>The TSL bytes and the endpoints config are copied from the {@link TslProviderConfigDto} when
+ * the snapshot is built, so that later changes of the dto do not affect published snapshots. The
+ * returned arrays must not be modified.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TslConfigSnapshot {
+
+  public static final TslConfigSnapshot EMPTY =
+      new TslConfigSnapshot(null, null, null, null, TslFiles.NONE, 0, null);
+
+  /** null if the TSL provider is not configured */
+  private final byte[] tslBytes;
+
+  /** null if the TSL provider is not configured */
+  private final TslProviderEndpointsConfig tslProviderEndpointsConfig;
+
+  /** hash, size, id and sequence number of the TSL; null if the TSL provider is not configured */
+  private final TslMetadata tslMetadata;
+
+  /** the TSL compressed with gzip; null if the TSL provider is not configured */
+  private final byte[] gzippedTslBytes;
+
+  /** files of the TSL variants that are sent with sendfile */
+  @Getter(AccessLevel.NONE)
+  private final TslFiles tslFiles;
+
+  /** changes every time a configuration is published */
+  private final long generation;
+
+  /**
+   * second-precision publication instant for Last-Modified, increasing with every configuration;
+   * null if the TSL provider is not configured
+   */
+  private final Instant lastModified;
+
+  /**
+   * Copies the configuration and computes hash, metadata, the gzip variant and the files of large
+   * variants once per configuration, not per request.
+   *
+   * @param tslProviderConfigDto the configuration, null if the TSL provider is not configured
+   * @param generation generation of the snapshot
+   * @param lastModified publication instant, ignored if the TSL provider is not configured
+   * @param tslFileStore writes the large variants to files
+   * @return the snapshot
+   */
+  static TslConfigSnapshot of(
+      final TslProviderConfigDto tslProviderConfigDto,
+      final long generation,
+      final Instant lastModified,
+      final TslFileStore tslFileStore) {
+    if (tslProviderConfigDto == null) {
+      return new TslConfigSnapshot(null, null, null, null, TslFiles.NONE, generation, null);
+    }
+    final byte[] tslBytes =
+        (tslProviderConfigDto.getTslBytes() == null)
+            ? new byte[0]
+            : tslProviderConfigDto.getTslBytes().clone();
+    final TslMetadata tslMetadata = TslMetadata.of(tslBytes);
+    final byte[] gzippedTslBytes = gzip(tslBytes);
+    return new TslConfigSnapshot(
+        tslBytes,
+        tslProviderConfigDto.getTslProviderEndpointsConfig(),
+        tslMetadata,
+        gzippedTslBytes,
+        tslFileStore.store(tslMetadata, tslBytes, gzippedTslBytes),
+        generation,
+        lastModified);
+  }
+
+  public boolean isNotConfigured() {
+    return tslBytes == null;
+  }
+
+  /**
+   * @param withGzip the gzip variant of the TSL
+   * @return the file to send, empty if the TSL is to be sent from the heap
+   */
+  public Optional<TslFile> getTslFile(final boolean withGzip) {
+    return tslFiles.get(withGzip);
+  }
+
+  private static byte[] gzip(final byte[] bytes) {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 8 + 64);
+    try (final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+      gzipOutputStream.write(bytes);
+    } catch (final IOException e) {
+      throw new PkiCommonException("Cannot compress TSL with gzip.", e);
+    }
+    return outputStream.toByteArray();
+  }
+}
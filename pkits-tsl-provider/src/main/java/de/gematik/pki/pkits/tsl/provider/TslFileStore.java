@@ -0,0 +1,179 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider;
+
+import de.gematik.pki.pkits.tsl.provider.configs.TslFileStoreConfig;
+import de.gematik.pki.pkits.tsl.provider.data.TslMetadata;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps large TSLs and their gzip variant in files, so that the TSL provider can send them with
+ * sendfile from the page cache instead of copying them from the heap for every download. Files are
+ * named by the SHA-256 of the TSL and written once, when the configuration is published; only the
+ * variants that reach the minimum size are written. The files of the current and the previous TSL
+ * are kept, so that downloads still in progress are not cut off by a reconfiguration.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TslFileStore {
+
+  private static final int KEPT_TSLS = 2;
+
+  private final TslFileStoreConfig tslFileStoreConfig;
+
+  private final Map<String, TslFiles> tslFilesBySha256 = new LinkedHashMap<>();
+  private Path directory;
+
+  /**
+   * Writes the TSL and its gzip variant to files, if they reach the minimum size. Called when a
+   * configuration is published, not per request.
+   *
+   * @param tslMetadata metadata of the TSL
+   * @param tslBytes the TSL
+   * @param gzippedTslBytes the TSL compressed with gzip
+   * @return the files, {@link TslFiles#NONE} if the store is disabled or the TSL is small
+   */
+  public synchronized TslFiles store(
+      final TslMetadata tslMetadata, final byte[] tslBytes, final byte[] gzippedTslBytes) {
+    if (!tslFileStoreConfig.isEnabled()) {
+      return TslFiles.NONE;
+    }
+    final String sha256Hex = tslMetadata.getSha256Hex();
+    final TslFiles existing = tslFilesBySha256.remove(sha256Hex);
+    if (existing != null) {
+      tslFilesBySha256.put(sha256Hex, existing);
+      return existing;
+    }
+    final TslFiles tslFiles =
+        new TslFiles(
+            writeIfLarge(sha256Hex + ".xml", tslBytes),
+            writeIfLarge(sha256Hex + ".xml.gz", gzippedTslBytes));
+    if (tslFiles.isEmpty()) {
+      return TslFiles.NONE;
+    }
+    tslFilesBySha256.put(sha256Hex, tslFiles);
+    evict();
+    return tslFiles;
+  }
+
+  /** null if the bytes are small or cannot be written: they are sent from the heap then */
+  private TslFile writeIfLarge(final String fileName, final byte[] bytes) {
+    if (bytes.length < tslFileStoreConfig.getMinSizeBytes()) {
+      return null;
+    }
+    try {
+      return write(fileName, bytes);
+    } catch (final IOException e) {
+      log.warn("Cannot write TSL file {}, sending it from the heap.", fileName, e);
+      return null;
+    }
+  }
+
+  private TslFile write(final String fileName, final byte[] bytes) throws IOException {
+    if (directory == null) {
+      directory =
+          StringUtils.isEmpty(tslFileStoreConfig.getDirectory())
+              ? Files.createTempDirectory("pkits-tsl-provider")
+              : Files.createDirectories(Path.of(tslFileStoreConfig.getDirectory()));
+      log.info("Storing large TSLs in {}.", directory);
+    }
+    final Path path = directory.resolve(fileName);
+    final Path tmpPath = directory.resolve(fileName + ".tmp");
+    Files.write(tmpPath, bytes);
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return new TslFile(path.toAbsolutePath(), bytes.length);
+  }
+
+  private void evict() {
+    final Iterator<TslFiles> iterator = tslFilesBySha256.values().iterator();
+    while (tslFilesBySha256.size() > KEPT_TSLS) {
+      final TslFiles tslFiles = iterator.next();
+      iterator.remove();
+      tslFiles.delete();
+    }
+  }
+
+  @PreDestroy
+  public synchronized void deleteAll() {
+    tslFilesBySha256.values().forEach(TslFiles::delete);
+    tslFilesBySha256.clear();
+  }
+
+  /** a TSL file ready to be sent */
+  @Getter
+  @AllArgsConstructor
+  public static final class TslFile {
+
+    private final Path path;
+    private final long size;
+  }
+
+  /** the files of a TSL, each of them null if the variant is sent from the heap */
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class TslFiles {
+
+    public static final TslFiles NONE = new TslFiles(null, null);
+
+    private final TslFile tslFile;
+    private final TslFile gzippedTslFile;
+
+    /**
+     * @param withGzip the gzip variant of the TSL
+     * @return the file to send, empty if the TSL is to be sent from the heap
+     */
+    public Optional<TslFile> get(final boolean withGzip) {
+      return Optional.ofNullable(withGzip ? gzippedTslFile : tslFile);
+    }
+
+    private boolean isEmpty() {
+      return (tslFile == null) && (gzippedTslFile == null);
+    }
+
+    private void delete() {
+      for (final TslFile file : new TslFile[] {tslFile, gzippedTslFile}) {
+        if (file == null) {
+          continue;
+        }
+        try {
+          Files.deleteIfExists(file.getPath());
+        } catch (final IOException e) {
+          log.warn("Cannot delete TSL file {}.", file.getPath(), e);
+        }
+      }
+    }
+  }
+}
@@ -20,6 +20,7 @@
 
 package de.gematik.pki.pkits.tsl.provider.api;
 
+import de.gematik.pki.pkits.common.ConfigActivation;
 import de.gematik.pki.pkits.common.JsonTransceiver;
 import de.gematik.pki.pkits.common.PkitsCommonUtils;
 import de.gematik.pki.pkits.common.PkitsConstants;
@@ -48,7 +49,23 @@ public final class TslProviderManager {
 
   public static void configure(
       @NonNull final String tslProvUri, final TslProviderConfigDto tslProviderConfigDto) {
-    final String configUri = tslProvUri + PkitsConstants.TSL_WEBSERVER_CONFIG_ENDPOINT;
+    configure(tslProvUri, tslProviderConfigDto, ConfigActivation.IMMEDIATE);
+  }
+
+  /**
+   * Upload a configuration of the TslProvider ahead of time. The TslProvider replaces its
+   * configuration by itself on activation, the history of TSL requests is kept.
+   *
+   * @param tslProvUri TslProvider URI
+   * @param tslProviderConfigDto the configuration
+   * @param configActivation activation instant and/or trigger
+   */
+  public static void configure(
+      @NonNull final String tslProvUri,
+      final TslProviderConfigDto tslProviderConfigDto,
+      @NonNull final ConfigActivation configActivation) {
+    final String configUri =
+        configActivation.appendTo(tslProvUri + PkitsConstants.TSL_WEBSERVER_CONFIG_ENDPOINT);
 
     final String jsonContent = PkitsCommonUtils.createJsonContent(tslProviderConfigDto);
     PkitsCommonUtils.checkHealth(log, "TslProvider", tslProvUri);
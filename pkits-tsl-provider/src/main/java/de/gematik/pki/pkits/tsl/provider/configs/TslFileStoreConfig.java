@@ -0,0 +1,43 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("tsl-file-store")
+public class TslFileStoreConfig {
+
+  /**
+   * serve large TSLs from files with sendfile instead of from the heap; the TSLs are kept on the
+   * heap as well, so this costs disk space in addition to memory
+   */
+  private boolean enabled = false;
+
+  /** TSLs (or their gzip variant) smaller than this are served from the heap */
+  private int minSizeBytes = 1024 * 1024;
+
+  /** directory for the TSL files, a new temporary directory if empty */
+  private String directory = "";
+}
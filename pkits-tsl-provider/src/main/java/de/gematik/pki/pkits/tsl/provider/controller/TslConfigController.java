@@ -20,16 +20,22 @@
 
 package de.gematik.pki.pkits.tsl.provider.controller;
 
+import de.gematik.pki.pkits.common.ConfigActivation;
 import de.gematik.pki.pkits.common.PkitsConstants;
+import de.gematik.pki.pkits.tsl.provider.TslConfigActivator;
 import de.gematik.pki.pkits.tsl.provider.TslConfigHolder;
+import de.gematik.pki.pkits.tsl.provider.TslConfigSnapshot;
 import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
 import de.gematik.pki.pkits.tsl.provider.data.TslRequestHistory;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import java.time.Instant;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @Slf4j
@@ -39,11 +45,35 @@ public class TslConfigController {
 
   private final TslConfigHolder tslConfigHolder;
   private final TslRequestHistory tslRequestHistory;
+  private final TslConfigActivator tslConfigActivator;
 
-  @Operation(summary = "Configure the TSL Provider.")
+  @Operation(
+      summary = "Configure the TSL Provider.",
+      description =
+          "With activation parameters the configuration is kept pending and activated by the TSL"
+              + " Provider at the given instant or after it answered the next TSL download for the"
+              + " given TSL sequence number, whatever comes first. The history is kept on"
+              + " activation.")
   @PostMapping(value = PkitsConstants.TSL_WEBSERVER_CONFIG_ENDPOINT)
-  public void tslConfig(final @RequestBody TslProviderConfigDto tslProviderConfigDto) {
+  public void tslConfig(
+      final @RequestBody TslProviderConfigDto tslProviderConfigDto,
+      @Parameter(description = "activation instant in epoch milliseconds")
+          @RequestParam(name = PkitsConstants.CONFIG_ACTIVATE_AT_PARAMETER, required = false)
+          final Long activateAt,
+      @Parameter(description = "activate after the next TSL download for this TSL sequence number")
+          @RequestParam(
+              name = PkitsConstants.CONFIG_ACTIVATE_AFTER_TSL_SEQNR_PARAMETER,
+              required = false)
+          final Integer activateAfterTslSeqNr) {
     log.info("Tsl ConfigurationRequest received");
+
+    final ConfigActivation configActivation =
+        ConfigActivation.of(
+            (activateAt == null) ? null : Instant.ofEpochMilli(activateAt), activateAfterTslSeqNr);
+    if (!configActivation.isImmediate()) {
+      tslConfigActivator.schedule(tslProviderConfigDto, configActivation);
+      return;
+    }
     processConfigurationRequest(tslProviderConfigDto);
     log.info("TSL ConfigurationRequest processed (and history cleared).");
   }
@@ -57,9 +87,16 @@ public class TslConfigController {
   }
 
   private void processConfigurationRequest(final TslProviderConfigDto tslProviderConfigDto) {
-    log.info("TslProviderConfigDto: {}", tslProviderConfigDto);
-
-    tslConfigHolder.setTslProviderConfigDto(tslProviderConfigDto);
+    tslConfigActivator.cancel();
+    final TslConfigSnapshot configSnapshot =
+        tslConfigHolder.setTslProviderConfigDto(tslProviderConfigDto);
     tslRequestHistory.deleteAll();
+
+    if (!configSnapshot.isNotConfigured()) {
+      log.info(
+          "TslProviderConfig: tslDownloadPoint: {}, tslProviderEndpointsConfig: {}",
+          configSnapshot.getTslMetadata(),
+          configSnapshot.getTslProviderEndpointsConfig());
+    }
   }
 }
@@ -20,7 +20,6 @@
 
 package de.gematik.pki.pkits.tsl.provider.controller;
 
-import static de.gematik.pki.pkits.common.PkitsCommonUtils.calculateSha256Hex;
 import static de.gematik.pki.pkits.common.PkitsConstants.NOT_CONFIGURED;
 import static de.gematik.pki.pkits.common.PkitsConstants.TSL_HASH_BACKUP_ENDPOINT;
 import static de.gematik.pki.pkits.common.PkitsConstants.TSL_HASH_PRIMARY_ENDPOINT;
@@ -28,18 +27,31 @@ import static de.gematik.pki.pkits.common.PkitsConstants.TSL_SEQNR_PARAM_ENDPOIN
 import static de.gematik.pki.pkits.common.PkitsConstants.TSL_XML_BACKUP_ENDPOINT;
 import static de.gematik.pki.pkits.common.PkitsConstants.TSL_XML_PRIMARY_ENDPOINT;
 
+import de.gematik.pki.pkits.tsl.provider.TslConfigActivator;
 import de.gematik.pki.pkits.tsl.provider.TslConfigHolder;
+import de.gematik.pki.pkits.tsl.provider.TslConfigSnapshot;
+import de.gematik.pki.pkits.tsl.provider.TslFileStore.TslFile;
+import de.gematik.pki.pkits.tsl.provider.data.TslMetadata;
 import de.gematik.pki.pkits.tsl.provider.data.TslProviderEndpointsConfig;
 import de.gematik.pki.pkits.tsl.provider.data.TslRequestHistory;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.servlet.http.HttpServletRequest;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -53,8 +65,18 @@ public class TslProviderController {
 
   public static final String MEDIA_TYPE_APPLICATION_VND_ETSI_TSL_XML =
       "application/vnd.etsi.tsl+xml";
+  private static final String GZIP_ETAG_SUFFIX = "-gzip";
+  private static final double NOT_LISTED = -1;
+
+  // request attributes of the Tomcat sendfile support
+  private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
   private final TslConfigHolder tslConfigHolder;
   private final TslRequestHistory tslRequestHistory;
+  private final TslConfigActivator tslConfigActivator;
 
   private static boolean isGzipCompressed(final HttpServletRequest request) {
     final Iterator<String> headerValuesIter =
@@ -63,12 +85,54 @@ public class TslProviderController {
     final List<String> headerValues = new ArrayList<>();
     headerValuesIter.forEachRemaining(headerValues::add);
 
-    return headerValues.stream().anyMatch(v -> v.contains("gzip"));
+    return isGzipAccepted(headerValues);
+  }
+
+  /**
+   * Evaluates Accept-Encoding according to RFC 9110, section 12.5.3: gzip is accepted if gzip or
+   * x-gzip is listed with a quality value above 0, or if they are not listed and * is.
+   *
+   * @param headerValues values of the Accept-Encoding headers
+   * @return true if the response can be compressed with gzip
+   */
+  static boolean isGzipAccepted(final List<String> headerValues) {
+    double gzipQuality = NOT_LISTED;
+    double anyQuality = NOT_LISTED;
+    for (final String headerValue : headerValues) {
+      for (final String element : headerValue.split(",")) {
+        final String[] parameters = element.split(";");
+        final String coding = parameters[0].trim().toLowerCase(Locale.ROOT);
+        if (coding.equals("gzip") || coding.equals("x-gzip")) {
+          gzipQuality = Math.max(gzipQuality, getQuality(parameters));
+        } else if (coding.equals("*")) {
+          anyQuality = Math.max(anyQuality, getQuality(parameters));
+        }
+      }
+    }
+    if (gzipQuality != NOT_LISTED) {
+      return gzipQuality > 0;
+    }
+    return anyQuality > 0;
+  }
+
+  /** an invalid quality value is treated as "not acceptable" */
+  private static double getQuality(final String[] parameters) {
+    for (int i = 1; i < parameters.length; i++) {
+      final String[] nameAndValue = parameters[i].split("=", 2);
+      if ((nameAndValue.length == 2) && nameAndValue[0].trim().equalsIgnoreCase("q")) {
+        try {
+          return Double.parseDouble(nameAndValue[1].trim());
+        } catch (final NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
   }
 
   @Operation(summary = "Returns TSL according to current configuration of the OCSP Responder.")
   @GetMapping(value = TSL_XML_PRIMARY_ENDPOINT, produces = MEDIA_TYPE_APPLICATION_VND_ETSI_TSL_XML)
-  public ResponseEntity<byte[]> getTslXmlPrimary(
+  public ResponseEntity<Object> getTslXmlPrimary(
       final HttpServletRequest request,
       @RequestParam(name = TSL_SEQNR_PARAM_ENDPOINT) final int activeTslSeqNr) {
 
@@ -76,8 +140,7 @@ public class TslProviderController {
         "Receiving request on tsl xml endpoint at {} with parameter activeTslSeqNr: {}",
         TSL_XML_PRIMARY_ENDPOINT,
         activeTslSeqNr);
-    addHistoryEntry(activeTslSeqNr, TSL_XML_PRIMARY_ENDPOINT, request);
-    return getResponseEntityWithTsl(true);
+    return processTslXmlRequest(activeTslSeqNr, TSL_XML_PRIMARY_ENDPOINT, true, request);
   }
 
   @Operation(
@@ -98,15 +161,14 @@ public class TslProviderController {
 
   @Operation(summary = "Returns TLS according to current configuration of the OCSP Responder.")
   @GetMapping(value = TSL_XML_BACKUP_ENDPOINT, produces = MEDIA_TYPE_APPLICATION_VND_ETSI_TSL_XML)
-  public ResponseEntity<byte[]> getTslXmlBackup(
+  public ResponseEntity<Object> getTslXmlBackup(
       final HttpServletRequest request,
       @RequestParam(name = TSL_SEQNR_PARAM_ENDPOINT) final int activeTslSeqNr) {
     log.info(
         "Receiving request on tsl backup xml endpoint at {} with parameter activeTslSeqNr: {}",
         TSL_XML_BACKUP_ENDPOINT,
         activeTslSeqNr);
-    addHistoryEntry(activeTslSeqNr, TSL_XML_BACKUP_ENDPOINT, request);
-    return getResponseEntityWithTsl(false);
+    return processTslXmlRequest(activeTslSeqNr, TSL_XML_BACKUP_ENDPOINT, false, request);
   }
 
   @Operation(
@@ -126,9 +188,34 @@ public class TslProviderController {
     return getResponseEntityWithHash();
   }
 
-  private ResponseEntity<byte[]> getResponseEntityWithTsl(final boolean isPrimaryEndpoint) {
+  private ResponseEntity<Object> processTslXmlRequest(
+      final int activeTslSeqNr,
+      final String endpoint,
+      final boolean isPrimaryEndpoint,
+      final HttpServletRequest request) {
+    final ResponseEntity<Object> responseEntity =
+        getResponseEntityWithTsl(isPrimaryEndpoint, request);
+    addHistoryEntry(
+        activeTslSeqNr,
+        endpoint,
+        request,
+        responseEntity.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED),
+        request.getHeader(HttpHeaders.RANGE));
+    tslConfigActivator.onTslDownload(activeTslSeqNr);
+    return responseEntity;
+  }
+
+  /**
+   * Sends the pre-compressed TSL with Content-Encoding gzip, if the client accepts it; the server
+   * compression does not compress it again. Conditional requests are answered with 304, if the ETag
+   * or Last-Modified of the configured TSL matches. A single byte range of the sent representation
+   * is answered with 206.
+   */
+  private ResponseEntity<Object> getResponseEntityWithTsl(
+      final boolean isPrimaryEndpoint, final HttpServletRequest request) {
 
-    if (tslConfigHolder.isNotConfigured()) {
+    final TslConfigSnapshot configSnapshot = tslConfigHolder.getSnapshot();
+    if (configSnapshot.isNotConfigured()) {
       log.info(
           "Tsl provider not configured -> response with status code {}",
           HttpStatus.INTERNAL_SERVER_ERROR);
@@ -137,7 +224,7 @@ public class TslProviderController {
     }
 
     final TslProviderEndpointsConfig tslProviderEndpointsConfig =
-        tslConfigHolder.getTslProviderConfigDto().getTslProviderEndpointsConfig();
+        configSnapshot.getTslProviderEndpointsConfig();
 
     final int statusCode;
     if (isPrimaryEndpoint) {
@@ -151,43 +238,203 @@ public class TslProviderController {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
-    final byte[] tslBytes = getTsl();
+    final byte[] tslBytes = configSnapshot.getTslBytes();
 
     if (tslBytes.length == 0) {
       log.info(
           "tslBytes.length = 0 -> response with status code {}", HttpStatus.INTERNAL_SERVER_ERROR);
       return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    final boolean withGzip = isGzipCompressed(request);
+    final String sha256Hex = configSnapshot.getTslMetadata().getSha256Hex();
+    final String eTag = getETag(sha256Hex, withGzip);
+    final Instant lastModified = configSnapshot.getLastModified();
+    final HttpHeaders headers = new HttpHeaders();
+    headers.setETag(eTag);
+    headers.setLastModified(lastModified);
+    headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+    if (isNotModified(request, sha256Hex, lastModified)) {
+      log.info("TSL not modified -> response with http status {}", HttpStatus.NOT_MODIFIED);
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+    }
+
+    final byte[] body;
+    if (withGzip) {
+      body = configSnapshot.getGzippedTslBytes();
+      headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
     } else {
-      log.info("Sending TSL with size: {}", tslBytes.length);
-      return ResponseEntity.ok(tslBytes);
+      body = tslBytes;
+    }
+
+    final Optional<HttpRange> range = getRange(request, eTag, lastModified);
+    long start = 0;
+    long end = body.length - 1L;
+    if (range.isPresent()) {
+      start = range.get().getRangeStart(body.length);
+      end = range.get().getRangeEnd(body.length);
+      if ((start >= body.length) || (end < start)) {
+        log.info(
+            "Range {} not satisfiable -> response with http status {}",
+            request.getHeader(HttpHeaders.RANGE),
+            HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + body.length);
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .headers(headers)
+            .build();
+      }
+      headers.set(HttpHeaders.CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, end, body.length));
+    }
+    final long contentLength = end - start + 1;
+    log.info(
+        "Sending {}TSL with size: {} (range {}-{} of {}, uncompressed {})",
+        withGzip ? "gzip compressed " : "",
+        contentLength,
+        start,
+        end,
+        body.length,
+        tslBytes.length);
+
+    final ResponseEntity.BodyBuilder builder =
+        ResponseEntity.status(range.isPresent() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+            .headers(headers);
+    final Optional<TslFile> tslFile = configSnapshot.getTslFile(withGzip);
+    if (tslFile.isPresent() && isSendfileSupported(request)) {
+      // the servlet container sends the file after the headers, without copying it to the heap
+      request.setAttribute(SENDFILE_FILENAME_ATTR, tslFile.get().getPath().toString());
+      request.setAttribute(SENDFILE_START_ATTR, start);
+      request.setAttribute(SENDFILE_END_ATTR, end + 1);
+      return builder.contentLength(contentLength).build();
+    }
+    if (range.isPresent()) {
+      return builder.body(Arrays.copyOfRange(body, (int) start, (int) end + 1));
     }
+    if (tslFile.isPresent() && (request.getHeader(HttpHeaders.RANGE) == null)) {
+      // Spring would answer a resource body with its own range handling
+      return builder
+          .contentLength(tslFile.get().getSize())
+          .body(new FileSystemResource(tslFile.get().getPath()));
+    }
+    return builder.body(body);
+  }
+
+  /**
+   * A single byte range is supported. Multiple or invalid ranges are ignored, as is the range if
+   * If-Range does not match the current representation.
+   */
+  private static Optional<HttpRange> getRange(
+      final HttpServletRequest request, final String eTag, final Instant lastModified) {
+    final String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+    if (rangeHeader == null) {
+      return Optional.empty();
+    }
+    if (!isIfRangeMatching(request, eTag, lastModified)) {
+      log.info("If-Range does not match -> ignoring range {}", rangeHeader);
+      return Optional.empty();
+    }
+    final List<HttpRange> ranges;
+    try {
+      ranges = HttpRange.parseRanges(rangeHeader);
+    } catch (final IllegalArgumentException e) {
+      log.info("Ignoring invalid range {}", rangeHeader);
+      return Optional.empty();
+    }
+    if (ranges.size() != 1) {
+      log.info("Ignoring multiple ranges {}", rangeHeader);
+      return Optional.empty();
+    }
+    return Optional.of(ranges.get(0));
+  }
+
+  /** If-Range requires a strong entity tag or an exact Last-Modified date */
+  private static boolean isIfRangeMatching(
+      final HttpServletRequest request, final String eTag, final Instant lastModified) {
+    final String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return ifRange.strip().equals(eTag);
+    }
+    try {
+      return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified.toEpochMilli();
+    } catch (final IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static boolean isSendfileSupported(final HttpServletRequest request) {
+    return HttpMethod.GET.matches(request.getMethod())
+        && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR));
+  }
+
+  /** the gzip variant is a different representation and gets its own entity tag */
+  private static String getETag(final String sha256Hex, final boolean withGzip) {
+    return "\"" + sha256Hex + (withGzip ? GZIP_ETAG_SUFFIX : "") + "\"";
+  }
+
+  /**
+   * If-None-Match is evaluated with weak comparison against both representations of the TSL.
+   * If-Modified-Since is only evaluated without If-None-Match.
+   */
+  private static boolean isNotModified(
+      final HttpServletRequest request, final String sha256Hex, final Instant lastModified) {
+
+    final List<String> ifNoneMatch =
+        Collections.list(request.getHeaders(HttpHeaders.IF_NONE_MATCH));
+    if (!ifNoneMatch.isEmpty()) {
+      final Set<String> eTags = Set.of(getETag(sha256Hex, false), getETag(sha256Hex, true));
+      return ifNoneMatch.stream()
+          .flatMap(value -> Arrays.stream(value.split(",")))
+          .map(String::strip)
+          .map(eTag -> eTag.startsWith("W/") ? eTag.substring(2) : eTag)
+          .anyMatch(eTag -> eTag.equals("*") || eTags.contains(eTag));
+    }
+
+    final long ifModifiedSince;
+    try {
+      ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+    } catch (final IllegalArgumentException e) {
+      log.info("Ignoring invalid {} header.", HttpHeaders.IF_MODIFIED_SINCE);
+      return false;
+    }
+    return (ifModifiedSince >= 0) && (lastModified.toEpochMilli() <= ifModifiedSince);
   }
 
   private ResponseEntity<String> getResponseEntityWithHash() {
 
-    if (tslConfigHolder.isNotConfigured()) {
+    final TslConfigSnapshot configSnapshot = tslConfigHolder.getSnapshot();
+    if (configSnapshot.isNotConfigured()) {
       return ResponseEntity.internalServerError().body(NOT_CONFIGURED);
     }
 
-    final byte[] tslBytes = getTsl();
+    final TslMetadata tslMetadata = configSnapshot.getTslMetadata();
 
-    if (tslBytes.length == 0) {
+    if (tslMetadata.getSize() == 0) {
       log.info(
           "tslBytes.length = 0 -> response with status code {}", HttpStatus.INTERNAL_SERVER_ERROR);
       return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
     } else {
-      log.info("sending TSL hash : {}", calculateSha256Hex(tslBytes));
-      return ResponseEntity.ok(calculateSha256Hex(tslBytes));
+      log.info("sending TSL hash : {}", tslMetadata.getSha256Hex());
+      return ResponseEntity.ok(tslMetadata.getSha256Hex());
     }
   }
 
-  private byte[] getTsl() {
-    return tslConfigHolder.getTslProviderConfigDto().getTslBytes();
+  private void addHistoryEntry(
+      final int activeTslSeqNr, final String endpoint, final HttpServletRequest request) {
+    addHistoryEntry(activeTslSeqNr, endpoint, request, false, null);
   }
 
   private void addHistoryEntry(
-      final int activeTslSeqNr, final String endpoint, final HttpServletRequest request) {
+      final int activeTslSeqNr,
+      final String endpoint,
+      final HttpServletRequest request,
+      final boolean notModified,
+      final String range) {
     final String protocol = request.getProtocol();
-    tslRequestHistory.add(activeTslSeqNr, endpoint, isGzipCompressed(request), protocol);
+    tslRequestHistory.add(
+        activeTslSeqNr, endpoint, isGzipCompressed(request), protocol, notModified, range);
   }
 }
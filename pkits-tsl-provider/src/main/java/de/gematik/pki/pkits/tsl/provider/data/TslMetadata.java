@@ -0,0 +1,73 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider.data;
+
+import static de.gematik.pki.pkits.common.PkitsCommonUtils.calculateSha256Hex;
+
+import de.gematik.pki.gemlibpki.tsl.TslConverter;
+import eu.europa.esig.trustedlist.jaxb.tsl.TrustStatusListType;
+import java.math.BigInteger;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Values derived from the bytes of a configured TSL. They are computed once per configuration, so
+ * that neither the hash endpoints nor logging hash or parse the TSL again.
+ *
+ * <p>Computing the metadata does not log: it is called before the configuration is logged, and must
+ * not be called from within logging.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TslMetadata {
+
+  private static final String NOT_PARSEABLE = "ignore: tslId and tslSeqNr: tsl - cannot be parsed";
+
+  private final int size;
+  private final String sha256Hex;
+
+  /** null if the TSL cannot be parsed */
+  private final String tslId;
+
+  /** null if the TSL cannot be parsed */
+  private final BigInteger tslSeqNr;
+
+  public static TslMetadata of(final byte[] tslBytes) {
+    String tslId = null;
+    BigInteger tslSeqNr = null;
+    try {
+      final TrustStatusListType tslUnsigned = TslConverter.bytesToTslUnsigned(tslBytes);
+      tslId = tslUnsigned.getId();
+      tslSeqNr = tslUnsigned.getSchemeInformation().getTSLSequenceNumber();
+    } catch (final Exception e) {
+      // the TSL of a test case can be invalid on purpose, see toString
+    }
+    return new TslMetadata(tslBytes.length, calculateSha256Hex(tslBytes), tslId, tslSeqNr);
+  }
+
+  @Override
+  public String toString() {
+    final String tslInfo =
+        (tslSeqNr == null) ? NOT_PARSEABLE : "tslId: %s tslSeqNr: %s".formatted(tslId, tslSeqNr);
+    return "tsl size: %d bytes, tsl hash: %s,  %s".formatted(size, sha256Hex, tslInfo);
+  }
+}
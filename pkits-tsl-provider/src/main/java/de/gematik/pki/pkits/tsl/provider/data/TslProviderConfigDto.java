@@ -20,44 +20,26 @@
 
 package de.gematik.pki.pkits.tsl.provider.data;
 
-import static de.gematik.pki.pkits.common.PkitsCommonUtils.calculateSha256Hex;
-
-import de.gematik.pki.gemlibpki.tsl.TslConverter;
-import eu.europa.esig.trustedlist.jaxb.tsl.TrustStatusListType;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import lombok.extern.slf4j.Slf4j;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
-@Slf4j
 public class TslProviderConfigDto {
 
   private byte[] tslBytes;
   private TslProviderEndpointsConfig tslProviderEndpointsConfig =
       TslProviderEndpointsConfig.PRIMARY_200_BACKUP_200;
 
+  /** Does not parse or hash the TSL, see {@link TslMetadata} for that. */
   @Override
   public String toString() {
-
-    String tslInfo = "ignore: tslId and tslSeqNr: tsl - cannot be parsed";
-    try {
-      final TrustStatusListType tslUnsigned = TslConverter.bytesToTslUnsigned(tslBytes);
-      tslInfo =
-          "tslId: %s tslSeqNr: %s"
-              .formatted(
-                  tslUnsigned.getId(), tslUnsigned.getSchemeInformation().getTSLSequenceNumber());
-    } catch (final Exception e) {
-      log.debug(tslInfo, e);
-    }
-
     return String.format(
-        "tslDownloadPoint: tsl size: %d bytes, tsl hash: %s,  %s, tslProviderEndpointsConfig:"
-            + " %s",
-        tslBytes.length, calculateSha256Hex(tslBytes), tslInfo, tslProviderEndpointsConfig);
+        "tsl size: %d bytes, tslProviderEndpointsConfig: %s",
+        (tslBytes == null) ? 0 : tslBytes.length, tslProviderEndpointsConfig);
   }
 }
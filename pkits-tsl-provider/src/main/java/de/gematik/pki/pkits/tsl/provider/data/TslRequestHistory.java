@@ -47,9 +47,20 @@ public class TslRequestHistory {
       final String endpoint,
       final boolean isGzipCompressed,
       final String protocol) {
+    add(tslSeqNr, endpoint, isGzipCompressed, protocol, false, null);
+  }
+
+  public void add(
+      final int tslSeqNr,
+      final String endpoint,
+      final boolean isGzipCompressed,
+      final String protocol,
+      final boolean notModified,
+      final String range) {
 
     final TslRequestHistoryEntryDto newItem =
-        new TslRequestHistoryEntryDto(tslSeqNr, endpoint, isGzipCompressed, protocol);
+        new TslRequestHistoryEntryDto(
+            tslSeqNr, endpoint, isGzipCompressed, protocol, notModified, range);
 
     add(newItem);
   }
@@ -36,9 +36,23 @@ public class TslRequestHistoryEntryDto {
   private boolean isGzipCompressed;
   private String protocol;
 
+  /** true if the request was answered with 304 Not Modified */
+  private boolean notModified;
+
+  /** the Range header of the request, null if the whole TSL was requested */
+  private String range;
+
+  public TslRequestHistoryEntryDto(
+      final int tslSeqNr,
+      final String tslDownloadEndpoint,
+      final boolean isGzipCompressed,
+      final String protocol) {
+    this(tslSeqNr, tslDownloadEndpoint, isGzipCompressed, protocol, false, null);
+  }
+
   @Override
   public String toString() {
-    return "TslRequestHistoryEntryDto{tslSeqNr=%d, tslDownloadEndpoint='%s', isGzipCompressed=%s, protocol='%s'}"
-        .formatted(tslSeqNr, tslDownloadEndpoint, isGzipCompressed, protocol);
+    return "TslRequestHistoryEntryDto{tslSeqNr=%d, tslDownloadEndpoint='%s', isGzipCompressed=%s, protocol='%s', notModified=%s, range='%s'}"
+        .formatted(tslSeqNr, tslDownloadEndpoint, isGzipCompressed, protocol, notModified, range);
   }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.pkits.common.ConfigActivation;
+import de.gematik.pki.pkits.tsl.provider.configs.TslFileStoreConfig;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderEndpointsConfig;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TslConfigActivatorTest {
+
+  private final TslConfigHolder tslConfigHolder =
+      new TslConfigHolder(new TslFileStore(new TslFileStoreConfig()));
+  private final TslConfigActivator tslConfigActivator = new TslConfigActivator(tslConfigHolder);
+
+  private final TslProviderConfigDto tslProviderConfigDto =
+      new TslProviderConfigDto(
+          "tsl".getBytes(StandardCharsets.UTF_8),
+          TslProviderEndpointsConfig.PRIMARY_200_BACKUP_200);
+
+  @AfterEach
+  void afterEach() {
+    tslConfigActivator.shutdown();
+  }
+
+  @Test
+  void activateAfterTslDownload() {
+    tslConfigActivator.schedule(
+        tslProviderConfigDto, ConfigActivation.afterRequestForTslSeqNr(4711));
+
+    tslConfigActivator.onTslDownload(4710);
+    assertThat(tslConfigActivator.isPending()).isTrue();
+    assertThat(tslConfigHolder.isNotConfigured()).isTrue();
+
+    tslConfigActivator.onTslDownload(4711);
+    assertThat(tslConfigActivator.isPending()).isFalse();
+    assertThat(tslConfigHolder.getSnapshot().getTslBytes())
+        .isEqualTo(tslProviderConfigDto.getTslBytes());
+  }
+
+  @Test
+  void activateAtInstant() throws InterruptedException {
+    tslConfigActivator.schedule(
+        tslProviderConfigDto, ConfigActivation.at(Instant.now().plusMillis(100)));
+    assertThat(tslConfigActivator.isPending()).isTrue();
+
+    final long deadline = System.currentTimeMillis() + 3000;
+    while (tslConfigHolder.isNotConfigured() && (System.currentTimeMillis() < deadline)) {
+      Thread.sleep(20);
+    }
+
+    assertThat(tslConfigActivator.isPending()).isFalse();
+    assertThat(tslConfigHolder.getSnapshot().getTslBytes())
+        .isEqualTo(tslProviderConfigDto.getTslBytes());
+  }
+
+  @Test
+  void cancel() {
+    tslConfigActivator.schedule(
+        tslProviderConfigDto, ConfigActivation.afterRequestForTslSeqNr(4711));
+    tslConfigActivator.cancel();
+    tslConfigActivator.onTslDownload(4711);
+
+    assertThat(tslConfigHolder.isNotConfigured()).isTrue();
+  }
+}
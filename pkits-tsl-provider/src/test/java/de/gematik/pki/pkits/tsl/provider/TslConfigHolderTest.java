@@ -0,0 +1,92 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.pkits.tsl.provider.configs.TslFileStoreConfig;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderEndpointsConfig;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class TslConfigHolderTest {
+
+  private final TslConfigHolder tslConfigHolder =
+      new TslConfigHolder(new TslFileStore(new TslFileStoreConfig()));
+
+  private final TslProviderConfigDto tslProviderConfigDto =
+      new TslProviderConfigDto(
+          "tsl".getBytes(StandardCharsets.UTF_8),
+          TslProviderEndpointsConfig.PRIMARY_200_BACKUP_200);
+
+  @Test
+  void notConfigured() {
+    assertThat(tslConfigHolder.getSnapshot()).isSameAs(TslConfigSnapshot.EMPTY);
+    assertThat(tslConfigHolder.isNotConfigured()).isTrue();
+    assertThat(tslConfigHolder.getGeneration()).isZero();
+  }
+
+  @Test
+  void everyUpdatePublishesNewSnapshot() {
+    tslConfigHolder.setTslProviderConfigDto(tslProviderConfigDto);
+    final TslConfigSnapshot configured = tslConfigHolder.getSnapshot();
+
+    tslConfigHolder.setTslProviderConfigDto(null);
+
+    assertThat(configured.getTslBytes()).isEqualTo(tslProviderConfigDto.getTslBytes());
+    assertThat(configured.getTslProviderEndpointsConfig())
+        .isEqualTo(tslProviderConfigDto.getTslProviderEndpointsConfig());
+    assertThat(configured.getGeneration()).isEqualTo(1);
+    assertThat(tslConfigHolder.isNotConfigured()).isTrue();
+    assertThat(tslConfigHolder.getGeneration()).isEqualTo(2);
+  }
+
+  @Test
+  void changingTheDtoDoesNotChangeTheSnapshot() {
+    final byte[] tslBytes = tslProviderConfigDto.getTslBytes().clone();
+    final TslProviderEndpointsConfig tslProviderEndpointsConfig =
+        tslProviderConfigDto.getTslProviderEndpointsConfig();
+    tslConfigHolder.setTslProviderConfigDto(tslProviderConfigDto);
+    final TslConfigSnapshot configured = tslConfigHolder.getSnapshot();
+
+    tslProviderConfigDto.getTslBytes()[0] = 'X';
+    tslProviderConfigDto.setTslBytes("another TSL".getBytes(StandardCharsets.UTF_8));
+    tslProviderConfigDto.setTslProviderEndpointsConfig(
+        TslProviderEndpointsConfig.PRIMARY_404_BACKUP_404);
+
+    assertThat(configured.getTslBytes()).isEqualTo(tslBytes);
+    assertThat(configured.getTslProviderEndpointsConfig()).isEqualTo(tslProviderEndpointsConfig);
+    assertThat(configured.getTslMetadata().getSize()).isEqualTo(tslBytes.length);
+  }
+
+  @Test
+  void lastModifiedIncreasesWithEveryConfiguration() {
+    tslConfigHolder.setTslProviderConfigDto(tslProviderConfigDto);
+    final Instant first = tslConfigHolder.getSnapshot().getLastModified();
+    tslConfigHolder.setTslProviderConfigDto(tslProviderConfigDto);
+    final Instant second = tslConfigHolder.getSnapshot().getLastModified();
+
+    assertThat(first.getNano()).isZero();
+    assertThat(second).isAfter(first);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.pkits.tsl.provider.TslFileStore.TslFile;
+import de.gematik.pki.pkits.tsl.provider.configs.TslFileStoreConfig;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
+import de.gematik.pki.pkits.tsl.provider.data.TslProviderEndpointsConfig;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TslFileStoreTest {
+
+  @TempDir private Path tempDir;
+
+  private final TslFileStoreConfig tslFileStoreConfig = new TslFileStoreConfig();
+  private TslFileStore tslFileStore;
+
+  @BeforeEach
+  void beforeEach() {
+    tslFileStoreConfig.setEnabled(true);
+    tslFileStoreConfig.setMinSizeBytes(10);
+    tslFileStoreConfig.setDirectory(tempDir.toString());
+    tslFileStore = new TslFileStore(tslFileStoreConfig);
+  }
+
+  @AfterEach
+  void afterEach() {
+    tslFileStore.deleteAll();
+  }
+
+  private TslConfigSnapshot createConfig(final String tsl) {
+    return TslConfigSnapshot.of(
+        new TslProviderConfigDto(
+            tsl.getBytes(StandardCharsets.UTF_8),
+            TslProviderEndpointsConfig.PRIMARY_200_BACKUP_200),
+        1,
+        Instant.now(),
+        tslFileStore);
+  }
+
+  @Test
+  void smallTslIsNotStored() {
+    tslFileStoreConfig.setMinSizeBytes(100);
+    final TslConfigSnapshot configSnapshot = createConfig("short");
+
+    assertThat(configSnapshot.getTslFile(false)).isEmpty();
+    assertThat(configSnapshot.getTslFile(true)).isEmpty();
+  }
+
+  @Test
+  void disabled() {
+    tslFileStoreConfig.setEnabled(false);
+    final TslConfigSnapshot configSnapshot = createConfig("a TSL that is long enough");
+
+    assertThat(configSnapshot.getTslFile(false)).isEmpty();
+    assertThat(configSnapshot.getTslFile(true)).isEmpty();
+    assertThat(tempDir).isEmptyDirectory();
+  }
+
+  @Test
+  void storeTsl() throws IOException {
+    final TslConfigSnapshot configSnapshot = createConfig("a TSL that is long enough");
+
+    final Optional<TslFile> tslFile = configSnapshot.getTslFile(false);
+    final Optional<TslFile> gzippedTslFile = configSnapshot.getTslFile(true);
+
+    assertThat(tslFile).isPresent();
+    assertThat(tslFile.get().getSize()).isEqualTo(configSnapshot.getTslBytes().length);
+    assertThat(Files.readAllBytes(tslFile.get().getPath())).isEqualTo(configSnapshot.getTslBytes());
+    assertThat(gzippedTslFile).isPresent();
+    assertThat(Files.readAllBytes(gzippedTslFile.get().getPath()))
+        .isEqualTo(configSnapshot.getGzippedTslBytes());
+    assertThat(createConfig("a TSL that is long enough").getTslFile(false).get().getPath())
+        .isEqualTo(tslFile.get().getPath());
+  }
+
+  @Test
+  void onlyLargeVariantsAreStored() {
+    tslFileStoreConfig.setMinSizeBytes(100);
+    final TslConfigSnapshot configSnapshot = createConfig("x".repeat(1000));
+
+    assertThat(configSnapshot.getGzippedTslBytes().length).isLessThan(100);
+    assertThat(configSnapshot.getTslFile(false)).isPresent();
+    assertThat(configSnapshot.getTslFile(true)).isEmpty();
+    assertThat(tempDir).isDirectoryContaining(path -> path.toString().endsWith(".xml"));
+    assertThat(tempDir).isDirectoryNotContaining(path -> path.toString().endsWith(".gz"));
+  }
+
+  @Test
+  void filesOfOlderTslsAreDeleted() {
+    final Path first = createConfig("the first TSL").getTslFile(false).get().getPath();
+    final Path second = createConfig("the second TSL").getTslFile(false).get().getPath();
+    assertThat(first).exists();
+
+    final Path third = createConfig("the third TSL").getTslFile(false).get().getPath();
+
+    assertThat(first).doesNotExist();
+    assertThat(second).exists();
+    assertThat(third).exists();
+
+    tslFileStore.deleteAll();
+    assertThat(third).doesNotExist();
+  }
+}
@@ -81,9 +81,9 @@ class TslConfigControllerTest {
             .asString();
 
     assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
-    assertThat(new String(tslConfigHolder.getTslProviderConfigDto().getTslBytes()))
+    assertThat(new String(tslConfigHolder.getSnapshot().getTslBytes()))
         .isEqualTo(new String(tslBytes));
-    assertThat(tslConfigHolder.getTslProviderConfigDto().getTslProviderEndpointsConfig())
+    assertThat(tslConfigHolder.getSnapshot().getTslProviderEndpointsConfig())
         .isEqualTo(TslProviderEndpointsConfig.PRIMARY_404_BACKUP_200);
   }
 
@@ -114,9 +114,9 @@ class TslConfigControllerTest {
             .asString();
 
     assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
-    assertThat(new String(tslConfigHolder.getTslProviderConfigDto().getTslBytes()))
+    assertThat(new String(tslConfigHolder.getSnapshot().getTslBytes()))
         .isEqualTo(new String(tslBytes));
-    assertThat(tslConfigHolder.getTslProviderConfigDto().getTslProviderEndpointsConfig())
+    assertThat(tslConfigHolder.getSnapshot().getTslProviderEndpointsConfig())
         .isEqualTo(TslProviderEndpointsConfig.PRIMARY_404_BACKUP_200);
   }
 
@@ -20,6 +20,7 @@
 
 package de.gematik.pki.pkits.tsl.provider.controller;
 
+import static de.gematik.pki.pkits.common.PkitsCommonUtils.calculateSha256Hex;
 import static de.gematik.pki.pkits.common.PkitsConstants.NOT_CONFIGURED;
 import static de.gematik.pki.pkits.common.PkitsConstants.TSL_HASH_BACKUP_ENDPOINT;
 import static de.gematik.pki.pkits.common.PkitsConstants.TSL_HASH_PRIMARY_ENDPOINT;
@@ -30,9 +31,20 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import de.gematik.pki.pkits.tsl.provider.TslConfigHolder;
 import de.gematik.pki.pkits.tsl.provider.api.TslProviderManager;
+import de.gematik.pki.pkits.tsl.provider.configs.TslFileStoreConfig;
 import de.gematik.pki.pkits.tsl.provider.data.TslProviderConfigDto;
 import de.gematik.pki.pkits.tsl.provider.data.TslProviderEndpointsConfig;
+import de.gematik.pki.pkits.tsl.provider.data.TslRequestHistory;
+import de.gematik.pki.pkits.tsl.provider.data.TslRequestHistoryEntryDto;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import kong.unirest.core.HttpResponse;
 import kong.unirest.core.Unirest;
 import org.apache.hc.core5.http.HttpStatus;
@@ -42,6 +54,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestComponent;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @TestComponent
@@ -53,6 +66,8 @@ class TslProviderControllerTest {
   private static final String TSL_DUMMY = "this is a very short TSL :-)";
 
   @Autowired private TslConfigHolder tslConfigHolder;
+  @Autowired private TslRequestHistory tslRequestHistory;
+  @Autowired private TslFileStoreConfig tslFileStoreConfig;
   @LocalServerPort private int localServerPort;
 
   private String getLocalhostEndpoint(final String endpoint) {
@@ -70,6 +85,236 @@ class TslProviderControllerTest {
     assertThat(responseDownload).hasSize(TSL_DUMMY.length());
   }
 
+  @Test
+  void verifyTslXmlEndpointGzip() throws IOException, InterruptedException {
+    initTslProviderConfiguration();
+    // java.net.http does not decompress, so the encoded body can be checked
+    final HttpRequest httpRequest =
+        HttpRequest.newBuilder(
+                URI.create(
+                    getLocalhostEndpoint(TSL_XML_BACKUP_ENDPOINT)
+                        + "?"
+                        + TSL_SEQNR_PARAM_ENDPOINT
+                        + "=1"))
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .build();
+    final java.net.http.HttpResponse<byte[]> httpResponse =
+        HttpClient.newHttpClient().send(httpRequest, BodyHandlers.ofByteArray());
+
+    assertThat(httpResponse.statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(httpResponse.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).contains("gzip");
+    try (final GZIPInputStream gzipInputStream =
+        new GZIPInputStream(new ByteArrayInputStream(httpResponse.body()))) {
+      assertThat(new String(gzipInputStream.readAllBytes(), StandardCharsets.UTF_8))
+          .isEqualTo(TSL_DUMMY);
+    }
+  }
+
+  @Test
+  void verifyTslXmlEndpointGzipNotAcceptable() throws IOException, InterruptedException {
+    initTslProviderConfiguration();
+    final HttpRequest httpRequest =
+        HttpRequest.newBuilder(
+                URI.create(
+                    getLocalhostEndpoint(TSL_XML_BACKUP_ENDPOINT)
+                        + "?"
+                        + TSL_SEQNR_PARAM_ENDPOINT
+                        + "=1"))
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity")
+            .build();
+    final java.net.http.HttpResponse<byte[]> httpResponse =
+        HttpClient.newHttpClient().send(httpRequest, BodyHandlers.ofByteArray());
+
+    assertThat(httpResponse.statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(httpResponse.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+    assertThat(new String(httpResponse.body(), StandardCharsets.UTF_8)).isEqualTo(TSL_DUMMY);
+  }
+
+  @Test
+  void isGzipAccepted() {
+    assertThat(TslProviderController.isGzipAccepted(List.of())).isFalse();
+    assertThat(TslProviderController.isGzipAccepted(List.of("gzip"))).isTrue();
+    assertThat(TslProviderController.isGzipAccepted(List.of("deflate, GZIP;q=0.5"))).isTrue();
+    assertThat(TslProviderController.isGzipAccepted(List.of("deflate", "x-gzip"))).isTrue();
+    assertThat(TslProviderController.isGzipAccepted(List.of("*"))).isTrue();
+
+    assertThat(TslProviderController.isGzipAccepted(List.of("gzip;q=0"))).isFalse();
+    assertThat(TslProviderController.isGzipAccepted(List.of("gzip ; q=0.000, *"))).isFalse();
+    assertThat(TslProviderController.isGzipAccepted(List.of("*;q=0"))).isFalse();
+    assertThat(TslProviderController.isGzipAccepted(List.of("gzip;q=invalid"))).isFalse();
+    assertThat(TslProviderController.isGzipAccepted(List.of("gzipped, x-gzip2"))).isFalse();
+    assertThat(TslProviderController.isGzipAccepted(List.of("identity"))).isFalse();
+  }
+
+  @Test
+  void verifyTslXmlEndpointLargeTslFromFile() throws IOException, InterruptedException {
+    final String largeTsl = TSL_DUMMY.repeat(2 * 1024 * 1024 / TSL_DUMMY.length());
+    initTslProviderConfigurationWithFileStore(largeTsl);
+
+    for (final boolean withGzip : new boolean[] {false, true}) {
+      final HttpRequest.Builder httpRequestBuilder =
+          HttpRequest.newBuilder(
+              URI.create(
+                  getLocalhostEndpoint(TSL_XML_PRIMARY_ENDPOINT)
+                      + "?"
+                      + TSL_SEQNR_PARAM_ENDPOINT
+                      + "=1"));
+      if (withGzip) {
+        httpRequestBuilder.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+      }
+      final java.net.http.HttpResponse<byte[]> httpResponse =
+          HttpClient.newHttpClient().send(httpRequestBuilder.build(), BodyHandlers.ofByteArray());
+
+      assertThat(httpResponse.statusCode()).isEqualTo(HttpStatus.SC_OK);
+      final byte[] body =
+          withGzip
+              ? new GZIPInputStream(new ByteArrayInputStream(httpResponse.body())).readAllBytes()
+              : httpResponse.body();
+      assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo(largeTsl);
+    }
+  }
+
+  private void initTslProviderConfigurationWithFileStore(final String tsl) {
+    tslFileStoreConfig.setEnabled(true);
+    try {
+      initTslProviderConfiguration(tsl);
+    } finally {
+      tslFileStoreConfig.setEnabled(false);
+    }
+    assertThat(tslConfigHolder.getSnapshot().getTslFile(false)).isPresent();
+  }
+
+  private java.net.http.HttpResponse<byte[]> sendWithoutGzip(
+      final String endpoint, final String... headers) throws IOException, InterruptedException {
+    // java.net.http neither asks for nor decompresses gzip, ranges refer to the TSL itself
+    final HttpRequest.Builder httpRequestBuilder =
+        HttpRequest.newBuilder(
+            URI.create(getLocalhostEndpoint(endpoint) + "?" + TSL_SEQNR_PARAM_ENDPOINT + "=1"));
+    if (headers.length > 0) {
+      httpRequestBuilder.headers(headers);
+    }
+    return HttpClient.newHttpClient().send(httpRequestBuilder.build(), BodyHandlers.ofByteArray());
+  }
+
+  @Test
+  void verifyTslXmlEndpointRange() throws IOException, InterruptedException {
+    initTslProviderConfiguration();
+    tslRequestHistory.deleteAll();
+
+    final java.net.http.HttpResponse<byte[]> fullResponse =
+        sendWithoutGzip(TSL_XML_BACKUP_ENDPOINT);
+    assertThat(fullResponse.headers().firstValue(HttpHeaders.ACCEPT_RANGES)).contains("bytes");
+    final String eTag = fullResponse.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+
+    final java.net.http.HttpResponse<byte[]> partialResponse =
+        sendWithoutGzip(TSL_XML_BACKUP_ENDPOINT, HttpHeaders.RANGE, "bytes=5-8");
+    assertThat(partialResponse.statusCode()).isEqualTo(HttpStatus.SC_PARTIAL_CONTENT);
+    assertThat(partialResponse.headers().firstValue(HttpHeaders.CONTENT_RANGE))
+        .contains("bytes 5-8/" + TSL_DUMMY.length());
+    assertThat(new String(partialResponse.body(), StandardCharsets.UTF_8)).isEqualTo("is a");
+
+    final java.net.http.HttpResponse<byte[]> suffixResponse =
+        sendWithoutGzip(
+            TSL_XML_BACKUP_ENDPOINT, HttpHeaders.RANGE, "bytes=-3", HttpHeaders.IF_RANGE, eTag);
+    assertThat(suffixResponse.statusCode()).isEqualTo(HttpStatus.SC_PARTIAL_CONTENT);
+    assertThat(new String(suffixResponse.body(), StandardCharsets.UTF_8)).isEqualTo(":-)");
+
+    final java.net.http.HttpResponse<byte[]> ifRangeMismatchResponse =
+        sendWithoutGzip(
+            TSL_XML_BACKUP_ENDPOINT,
+            HttpHeaders.RANGE,
+            "bytes=5-8",
+            HttpHeaders.IF_RANGE,
+            "\"other\"");
+    assertThat(ifRangeMismatchResponse.statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(ifRangeMismatchResponse.body()).hasSize(TSL_DUMMY.length());
+
+    final java.net.http.HttpResponse<byte[]> notSatisfiableResponse =
+        sendWithoutGzip(TSL_XML_BACKUP_ENDPOINT, HttpHeaders.RANGE, "bytes=1000-");
+    assertThat(notSatisfiableResponse.statusCode())
+        .isEqualTo(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    assertThat(notSatisfiableResponse.headers().firstValue(HttpHeaders.CONTENT_RANGE))
+        .contains("bytes */" + TSL_DUMMY.length());
+
+    assertThat(tslRequestHistory.getExcerpt(1))
+        .extracting(TslRequestHistoryEntryDto::getRange)
+        .containsExactly(null, "bytes=5-8", "bytes=-3", "bytes=5-8", "bytes=1000-");
+  }
+
+  @Test
+  void verifyTslXmlEndpointRangeOfLargeTslFromFile() throws IOException, InterruptedException {
+    final String largeTsl = TSL_DUMMY.repeat(2 * 1024 * 1024 / TSL_DUMMY.length());
+    initTslProviderConfigurationWithFileStore(largeTsl);
+    final int start = largeTsl.length() - 100_000;
+
+    final java.net.http.HttpResponse<byte[]> partialResponse =
+        sendWithoutGzip(TSL_XML_PRIMARY_ENDPOINT, HttpHeaders.RANGE, "bytes=" + start + "-");
+
+    assertThat(partialResponse.statusCode()).isEqualTo(HttpStatus.SC_PARTIAL_CONTENT);
+    assertThat(partialResponse.headers().firstValue(HttpHeaders.CONTENT_RANGE))
+        .contains("bytes %d-%d/%d".formatted(start, largeTsl.length() - 1, largeTsl.length()));
+    assertThat(new String(partialResponse.body(), StandardCharsets.UTF_8))
+        .isEqualTo(largeTsl.substring(start));
+  }
+
+  @Test
+  void verifyTslXmlEndpointIfNoneMatch() {
+    initTslProviderConfiguration();
+    tslRequestHistory.deleteAll();
+    final HttpResponse<byte[]> httpResponse =
+        Unirest.get(getLocalhostEndpoint(TSL_XML_PRIMARY_ENDPOINT))
+            .queryString(TSL_SEQNR_PARAM_ENDPOINT, 1)
+            .asBytes();
+    final String eTag = httpResponse.getHeaders().getFirst(HttpHeaders.ETAG);
+    assertThat(eTag).contains(calculateSha256Hex(TSL_DUMMY.getBytes(StandardCharsets.UTF_8)));
+
+    final HttpResponse<byte[]> notModifiedResponse =
+        Unirest.get(getLocalhostEndpoint(TSL_XML_PRIMARY_ENDPOINT))
+            .queryString(TSL_SEQNR_PARAM_ENDPOINT, 1)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + eTag)
+            .asBytes();
+    assertThat(notModifiedResponse.getStatus()).isEqualTo(HttpStatus.SC_NOT_MODIFIED);
+    assertThat(notModifiedResponse.getBody()).isEmpty();
+
+    initTslProviderConfiguration(TSL_DUMMY + " changed");
+    final HttpResponse<byte[]> modifiedResponse =
+        Unirest.get(getLocalhostEndpoint(TSL_XML_PRIMARY_ENDPOINT))
+            .queryString(TSL_SEQNR_PARAM_ENDPOINT, 1)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .asBytes();
+    assertThat(modifiedResponse.getStatus()).isEqualTo(HttpStatus.SC_OK);
+
+    assertThat(tslRequestHistory.getExcerpt(1))
+        .extracting(TslRequestHistoryEntryDto::isNotModified)
+        .containsExactly(false, true, false);
+  }
+
+  @Test
+  void verifyTslXmlEndpointIfModifiedSince() {
+    initTslProviderConfiguration();
+    final HttpResponse<byte[]> httpResponse =
+        Unirest.get(getLocalhostEndpoint(TSL_XML_BACKUP_ENDPOINT))
+            .queryString(TSL_SEQNR_PARAM_ENDPOINT, 1)
+            .asBytes();
+    final String lastModified = httpResponse.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+    assertThat(lastModified).isNotEmpty();
+
+    final HttpResponse<byte[]> notModifiedResponse =
+        Unirest.get(getLocalhostEndpoint(TSL_XML_BACKUP_ENDPOINT))
+            .queryString(TSL_SEQNR_PARAM_ENDPOINT, 1)
+            .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)
+            .asBytes();
+    assertThat(notModifiedResponse.getStatus()).isEqualTo(HttpStatus.SC_NOT_MODIFIED);
+
+    initTslProviderConfiguration();
+    final HttpResponse<byte[]> modifiedResponse =
+        Unirest.get(getLocalhostEndpoint(TSL_XML_BACKUP_ENDPOINT))
+            .queryString(TSL_SEQNR_PARAM_ENDPOINT, 1)
+            .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)
+            .asBytes();
+    assertThat(modifiedResponse.getStatus()).isEqualTo(HttpStatus.SC_OK);
+  }
+
   @Test
   void tslXmlEndpointZeroLengthTslHttp500() {
     initTslProviderConfiguration("");
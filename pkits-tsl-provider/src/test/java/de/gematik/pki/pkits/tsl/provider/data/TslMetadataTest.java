@@ -0,0 +1,69 @@
+/*
+ * Copyright (Change Date see Readme), gematik GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ******
+ *
+ * For additional notes and disclaimer from gematik and in case of changes by gematik find details in the "Readme" file.
+ */
+
+package de.gematik.pki.pkits.tsl.provider.data;
+
+import static de.gematik.pki.pkits.common.PkitsCommonUtils.calculateSha256Hex;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.gematik.pki.gemlibpki.utils.ResourceReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class TslMetadataTest {
+
+  @Test
+  void ofTsl() {
+    final byte[] tslBytes =
+        ResourceReader.getFileFromResourceAsBytes("TSL_default.xml", this.getClass());
+
+    final TslMetadata tslMetadata = TslMetadata.of(tslBytes);
+
+    assertThat(tslMetadata.getSize()).isEqualTo(tslBytes.length);
+    assertThat(tslMetadata.getSha256Hex()).isEqualTo(calculateSha256Hex(tslBytes));
+    assertThat(tslMetadata.getTslId()).isEqualTo("ID3120220912130952Z");
+    assertThat(tslMetadata.getTslSeqNr()).isEqualTo(BigInteger.ONE);
+    assertThat(tslMetadata.toString()).contains("tslId: ID3120220912130952Z tslSeqNr: 1");
+  }
+
+  @Test
+  void ofUnparseableBytes() {
+    final byte[] tslBytes = "no tsl".getBytes(StandardCharsets.UTF_8);
+
+    final TslMetadata tslMetadata = TslMetadata.of(tslBytes);
+
+    assertThat(tslMetadata.getSize()).isEqualTo(tslBytes.length);
+    assertThat(tslMetadata.getSha256Hex()).isEqualTo(calculateSha256Hex(tslBytes));
+    assertThat(tslMetadata.getTslId()).isNull();
+    assertThat(tslMetadata.getTslSeqNr()).isNull();
+  }
+
+  @Test
+  void configDtoToStringDoesNotParseTsl() {
+    final TslProviderConfigDto tslProviderConfigDto =
+        new TslProviderConfigDto(
+            "tsl".getBytes(StandardCharsets.UTF_8),
+            TslProviderEndpointsConfig.PRIMARY_200_BACKUP_200);
+
+    assertThat(tslProviderConfigDto)
+        .hasToString("tsl size: 3 bytes, tslProviderEndpointsConfig: PRIMARY_200_BACKUP_200");
+  }
+}